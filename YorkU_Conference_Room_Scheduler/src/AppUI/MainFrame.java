@@ -13,13 +13,18 @@ import javax.swing.table.DefaultTableModel;
 import Backend.ChiefEventCoordinator;
 
 import Backend.Accounts;
+import Backend.AvailabilitySearch;
 import Backend.Booking;
+import Backend.BookingConflictException;
 import Backend.BookingController;
 import Backend.BookingCSV;
+import Backend.BookingRepository;
+import Backend.BookingTime;
 import Backend.BookingTimeUtil;
 import Backend.ReservationSystem;
 import Backend.Room;
 import Backend.RoomService;
+import Backend.SlotGrid;
 import Backend.User;
 import Backend.UserCSV;
 import Backend.UserFactory;
@@ -617,7 +622,13 @@ public class MainFrame {
                         } else if (BookingTimeUtil.hasEndTimePassed(bookingDate, bookingEndTime)) {
                             errorMsg += "Booking end time (" + bookingEndTime + " on " + bookingDate + ") has already passed.";
                         } else {
-                            errorMsg += "The extended time slot may already be reserved by another booking.";
+                            int maxMinutes = BookingRepository.getInstance().maxExtensionMinutes(bookingId);
+                            if (maxMinutes >= 0 && extraHours * 60 > maxMinutes) {
+                                errorMsg += "The room is free for only " + (maxMinutes / 60) + 
+                                           " more hour(s) after this booking.";
+                            } else {
+                                errorMsg += "The extended time slot may already be reserved by another booking.";
+                            }
                         }
                     } else {
                         errorMsg += "Booking not found.";
@@ -1046,46 +1057,26 @@ public class MainFrame {
                     
                     // Calculate hours from time difference
                     if (endTime != null) {
-                        try {
-                            String[] startParts = startTime.split(":");
-                            String[] endParts = endTime.split(":");
-                            int startHour = Integer.parseInt(startParts[0]);
-                            int startMin = startParts.length > 1 ? Integer.parseInt(startParts[1]) : 0;
-                            int endHour = Integer.parseInt(endParts[0]);
-                            int endMin = endParts.length > 1 ? Integer.parseInt(endParts[1]) : 0;
-                            
-                            int startTotalMinutes = startHour * 60 + startMin;
-                            int endTotalMinutes = endHour * 60 + endMin;
-                            int diffMinutes = endTotalMinutes - startTotalMinutes;
-                            
+                        short startMinutes = BookingTime.parseMinute(startTime);
+                        short endMinutes = BookingTime.parseMinute(endTime);
+                        if (startMinutes != BookingTime.NO_MINUTE && endMinutes != BookingTime.NO_MINUTE) {
                             // Round up to nearest hour
-                            hours = (int) Math.ceil(diffMinutes / 60.0);
+                            hours = (int) Math.ceil((endMinutes - startMinutes) / 60.0);
                             if (hours < 1) hours = 1;
-                        } catch (Exception ex) {
-                            // If parsing fails, default to 1 hour
-                            hours = 1;
                         }
                     }
                 }
                 
                 // If end time is not provided, calculate it as start time + 1 hour
                 if (endTime == null || endTime.trim().isEmpty()) {
-                    try {
-                        String[] startParts = startTime.split(":");
-                        int startHour = Integer.parseInt(startParts[0]);
-                        int startMin = startParts.length > 1 ? Integer.parseInt(startParts[1]) : 0;
-                        
+                    short startMinutes = BookingTime.parseMinute(startTime);
+                    if (startMinutes != BookingTime.NO_MINUTE) {
                         // Add 1 hour
-                        startHour += 1;
-                        if (startHour >= 24) {
-                            startHour = startHour % 24;
-                        }
-                        
-                        endTime = String.format("%02d:%02d", startHour, startMin);
+                        endTime = BookingTime.formatMinute((startMinutes + 60) % BookingTime.MINUTES_PER_DAY);
                         hours = 1; // Default to 1 hour
                         System.out.println("Calculated end time from start time: " + startTime + " -> " + endTime);
-                    } catch (Exception ex) {
-                        System.err.println("Error calculating end time: " + ex.getMessage());
+                    } else {
+                        System.err.println("Error calculating end time: Could not parse " + startTime);
                         // If calculation fails, default to start time + 1 hour as string
                         endTime = startTime; // This will be handled by the backend
                     }
@@ -1128,6 +1119,21 @@ public class MainFrame {
                     "Invalid rate value. Please calculate the rate again.",
                     "Invalid Rate",
                     JOptionPane.ERROR_MESSAGE);
+            } catch (BookingConflictException ex) {
+                // Offer the nearest free times instead of sending the user back to search
+                StringBuilder message = new StringBuilder(ex.getMessage());
+                List<AvailabilitySearch.Result> suggestions = reservationSystem.suggestAlternatives(
+                    ex.getRoomNumber(), ex.getBookingDate(), ex.getStartTime(), conflictHours(ex), 5);
+                if (!suggestions.isEmpty()) {
+                    message.append("\n\nAvailable instead:");
+                    for (AvailabilitySearch.Result suggestion : suggestions) {
+                        message.append("\n  ").append(suggestion);
+                    }
+                }
+                JOptionPane.showMessageDialog(frame,
+                    message.toString(),
+                    "Room Already Reserved",
+                    JOptionPane.WARNING_MESSAGE);
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(frame,
                     "Error creating booking: " + ex.getMessage(),
@@ -1218,82 +1224,28 @@ public class MainFrame {
             return;
         }
         
-        // Get existing bookings for this room on this date from BookingDatabase.csv
-        List<Map<String, String>> existingBookings = bookingCSV.getBookingsForRoomAndDate(normalizedRoomNumber, normalizedDate);
-        
-        System.out.println("refreshTimeSlotTable: Room='" + normalizedRoomNumber + "', Date='" + normalizedDate + "', Found " + existingBookings.size() + " bookings");
+        // One bit per half-hour slot, set where an existing booking takes the slot
+        long occupancy = roomService.getSlotOccupancy(normalizedRoomNumber, normalizedDate);
         
-        // Debug: Print all bookings found
-        for (Map<String, String> booking : existingBookings) {
-            System.out.println("  Booking: startTime='" + booking.get("startTime") + "', endTime='" + booking.get("endTime") + "'");
-        }
+        System.out.println("refreshTimeSlotTable: Room='" + normalizedRoomNumber + "', Date='" + normalizedDate + 
+                         "', Occupancy=" + Long.toBinaryString(occupancy));
         
         // Populate time slot table
         for (String timeSlot : timeSlots) {
-            String availability = "Available";
-            
-            // Check if this time slot conflicts with any existing booking
-            for (Map<String, String> booking : existingBookings) {
-                String bookingStartTime = booking.get("startTime");
-                String bookingEndTime = booking.get("endTime");
-                
-                if (bookingStartTime == null || bookingStartTime.trim().isEmpty()) {
-                    continue; // Skip if no start time
-                }
-                
-                bookingStartTime = bookingStartTime.trim();
-                
-                // First check: if the time slot exactly matches the booking start time, it's reserved
-                if (timeSlot.equals(bookingStartTime)) {
-                    availability = "Reserved";
-                    System.out.println("Time slot " + timeSlot + " is RESERVED (matches start time: " + bookingStartTime + ")");
-                    break;
-                }
-                
-                // Second check: if we have an end time, check if time slot falls within the booking range
-                if (bookingEndTime != null && !bookingEndTime.trim().isEmpty()) {
-                    bookingEndTime = bookingEndTime.trim();
-                    if (isTimeInRange(timeSlot, bookingStartTime, bookingEndTime)) {
-                        availability = "Reserved";
-                        System.out.println("Time slot " + timeSlot + " is RESERVED (within range: " + bookingStartTime + " - " + bookingEndTime + ")");
-                        break;
-                    }
-                }
-            }
-            
+            int slot = SlotGrid.HALF_HOUR.slotOf(BookingTime.parseMinute(timeSlot));
+            String availability = SlotGrid.isFree(occupancy, slot) ? "Available" : "Reserved";
             model.addRow(new Object[]{timeSlot, availability});
         }
     }
     
-    // Helper method to check if a time is within a range
-    private boolean isTimeInRange(String time, String startTime, String endTime) {
-        try {
-            int timeMinutes = parseTimeToMinutes(time);
-            int startMinutes = parseTimeToMinutes(startTime);
-            int endMinutes = parseTimeToMinutes(endTime);
-            
-            // Check if time is within the range (inclusive start, inclusive end for time slots)
-            // A time slot is reserved if it falls within or exactly matches the booking range
-            return timeMinutes >= startMinutes && timeMinutes <= endMinutes;
-        } catch (Exception e) {
-            // If parsing fails, do simple string comparison
-            System.err.println("Error parsing time: " + e.getMessage());
-            return time.equals(startTime) || time.equals(endTime);
-        }
-    }
-    
-    // Helper method to parse time string (HH:MM) to minutes since midnight
-    private int parseTimeToMinutes(String time) {
-        if (time == null || time.trim().isEmpty()) {
-            return 0;
-        }
-        String[] parts = time.trim().split(":");
-        if (parts.length >= 2) {
-            int hours = Integer.parseInt(parts[0]);
-            int minutes = Integer.parseInt(parts[1]);
-            return hours * 60 + minutes;
+    // Length of the request that conflicted, in whole hours (at least 1)
+    private int conflictHours(BookingConflictException conflict) {
+        short start = BookingTime.parseMinute(conflict.getStartTime());
+        short end = BookingTime.parseMinute(conflict.getEndTime());
+        if (start == BookingTime.NO_MINUTE || end == BookingTime.NO_MINUTE || end <= start) {
+            return 1;
         }
-        return 0;
+        return (int) Math.ceil((end - start) / 60.0);
     }
     
     // Helper method to refresh booking table from BookingDatabase.csv
@@ -0,0 +1,76 @@
+package Backend;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Room x day x slot availability for a building over a date range, built by
+ * RoomService.getAvailabilityGrid in one call so a screen can render a whole
+ * week without asking once per room per date.
+ *
+ * Each room/day is a SlotGrid occupancy mask (bit set = slot taken). Rooms that
+ * are not enabled have every slot taken.
+ */
+public class AvailabilityGrid {
+
+    private final List<Room> rooms;
+    private final int firstDay;
+    private final int dayCount;
+    private final SlotGrid slotGrid;
+    // occupancy[room * dayCount + day]
+    private final long[] occupancy;
+
+    AvailabilityGrid(List<Room> rooms, int firstDay, int dayCount, SlotGrid slotGrid, long[] occupancy) {
+        this.rooms = Collections.unmodifiableList(rooms);
+        this.firstDay = firstDay;
+        this.dayCount = dayCount;
+        this.slotGrid = slotGrid;
+        this.occupancy = occupancy;
+    }
+
+    // Rows of the grid, sorted by room number
+    public List<Room> getRooms() {
+        return rooms;
+    }
+
+    public int getDayCount() {
+        return dayCount;
+    }
+
+    public int getSlotCount() {
+        return slotGrid.getSlotCount();
+    }
+
+    public SlotGrid getSlotGrid() {
+        return slotGrid;
+    }
+
+    // Epoch day of a column
+    public int getDay(int dayIndex) {
+        return firstDay + dayIndex;
+    }
+
+    // Date of a column as dd/MM/yyyy
+    public String getDate(int dayIndex) {
+        return BookingTime.formatDay(getDay(dayIndex), false);
+    }
+
+    // HH:MM start of a slot
+    public String getSlotLabel(int slot) {
+        return slotGrid.label(slot);
+    }
+
+    // One bit per slot, set when the slot is taken
+    public long getOccupancy(int roomIndex, int dayIndex) {
+        return occupancy[roomIndex * dayCount + dayIndex];
+    }
+
+    public boolean isFree(int roomIndex, int dayIndex, int slot) {
+        return SlotGrid.isFree(getOccupancy(roomIndex, dayIndex), slot);
+    }
+
+    // Free slots of a room on a day
+    public int countFree(int roomIndex, int dayIndex) {
+        return Long.bitCount(~getOccupancy(roomIndex, dayIndex) & slotGrid.allSlots());
+    }
+}
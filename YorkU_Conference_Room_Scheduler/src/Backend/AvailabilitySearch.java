@@ -0,0 +1,360 @@
+package Backend;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Search for free rooms across buildings and dates on a ForkJoinPool.
+ *
+ * The occupancy of every candidate room over the whole date range is read from the
+ * booking index once (see BookingCSV.getSlotOccupancy); the work is then split into
+ * one piece per building per day and run in parallel on those masks. Each room/day
+ * contributes its earliest free start. Results are ranked by capacity fit (fewest
+ * spare seats), then earliest start, then room number, and only the best K are kept:
+ * once K results are in, a piece stops as soon as its remaining rooms can't beat the
+ * worst of them.
+ */
+public class AvailabilitySearch {
+
+    // Hours searched each day, matching the reservation screen's slots
+    public static final int DAY_START = 9 * 60;
+    public static final int DAY_END = 17 * 60;
+
+    private static final SlotGrid GRID = SlotGrid.HALF_HOUR;
+
+    /**
+     * A free room at a time
+     */
+    public static class Result {
+        private final Room room;
+        private final int day;
+        private final int startMinute;
+        private final int endMinute;
+        private final int spareSeats;
+
+        Result(Room room, int day, int startMinute, int endMinute, int spareSeats) {
+            this.room = room;
+            this.day = day;
+            this.startMinute = startMinute;
+            this.endMinute = endMinute;
+            this.spareSeats = spareSeats;
+        }
+
+        public Room getRoom() {
+            return room;
+        }
+
+        // dd/MM/yyyy
+        public String getDate() {
+            return BookingTime.formatDay(day, false);
+        }
+
+        public String getStartTime() {
+            return BookingTime.formatMinute(startMinute);
+        }
+
+        public String getEndTime() {
+            return BookingTime.formatMinute(endMinute);
+        }
+
+        public int getDay() {
+            return day;
+        }
+
+        public int getStartMinute() {
+            return startMinute;
+        }
+
+        // Seats beyond what was asked for
+        public int getSpareSeats() {
+            return spareSeats;
+        }
+
+        @Override
+        public String toString() {
+            return room.getBuildingName() + " " + room.getRoomNumber() + " " + getDate() + " " +
+                   getStartTime() + "-" + getEndTime();
+        }
+    }
+
+    static final Comparator<Result> RANKING = Comparator.comparingInt(Result::getSpareSeats)
+                                                        .thenComparingInt(Result::getDay)
+                                                        .thenComparingInt(Result::getStartMinute)
+                                                        .thenComparing(result -> result.getRoom().getRoomNumber(),
+                                                                       Comparator.nullsLast(String::compareTo));
+
+    private final ForkJoinPool pool;
+
+    public AvailabilitySearch(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Find the best K free room/times
+     * @param rooms Candidate rooms (already filtered by status, capacity and building)
+     * @param minCapacity Seats needed; rooms closest to this rank first
+     * @param firstDay First epoch day to search
+     * @param dayCount Number of days
+     * @param durationMinutes Length of the booking
+     * @param limit K, the number of results wanted
+     * @return Up to K results, best first
+     */
+    public List<Result> search(List<Room> rooms, int minCapacity, int firstDay, int dayCount,
+                               int durationMinutes, int limit) {
+        List<Result> results = new ArrayList<>();
+        int durationSlots = (durationMinutes + GRID.getSlotMinutes() - 1) / GRID.getSlotMinutes();
+        if (rooms.isEmpty() || dayCount <= 0 || limit <= 0 || durationSlots <= 0 ||
+            DAY_START + durationMinutes > DAY_END) {
+            return results;
+        }
+
+        // Rooms grouped by building, each group sorted best fit first
+        List<Room> sorted = new ArrayList<>(rooms);
+        sorted.sort(Comparator.comparingInt(Room::getCapacity)
+                              .thenComparing(Room::getRoomNumber, Comparator.nullsLast(String::compareTo)));
+        Map<String, List<Integer>> byBuilding = new LinkedHashMap<>();
+        List<String> roomNumbers = new ArrayList<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            byBuilding.computeIfAbsent(String.valueOf(sorted.get(i).getBuildingName()), b -> new ArrayList<>()).add(i);
+            roomNumbers.add(sorted.get(i).getRoomNumber());
+        }
+
+        // One read of the booking index for every room and day
+        long[] occupancy = BookingCSV.getInstance().getSlotOccupancy(roomNumbers, firstDay, dayCount, GRID);
+
+        List<Piece> pieces = new ArrayList<>();
+        for (List<Integer> buildingRooms : byBuilding.values()) {
+            for (int day = 0; day < dayCount; day++) {
+                pieces.add(new Piece(buildingRooms, day));
+            }
+        }
+
+        Search search = new Search(sorted, minCapacity, firstDay, dayCount, durationMinutes, durationSlots,
+                                   occupancy, new TopK(limit));
+        pool.invoke(new SearchTask(search, pieces, 0, pieces.size()));
+        results.addAll(search.topK.sorted());
+        System.out.println("AvailabilitySearch: " + sorted.size() + " rooms x " + dayCount + " days -> " +
+                         results.size() + " results");
+        return results;
+    }
+
+    /**
+     * Free times closest to a request that could not be booked, in the same room and in
+     * comparable rooms. Looks at the requested day first and moves on to the following
+     * days until enough are found.
+     * @param room The room that was asked for
+     * @param nearby Other rooms to consider
+     * @param day Requested epoch day
+     * @param startMinute Requested start
+     * @param durationMinutes Length of the booking
+     * @param limit Number of suggestions wanted
+     * @param maxDays Days to look at, starting with the requested one
+     * @return Up to limit suggestions: nearest day, then nearest start, then the same room,
+     *         then the closest capacity
+     */
+    public static List<Result> alternatives(Room room, List<Room> nearby, int day, int startMinute,
+                                            int durationMinutes, int limit, int maxDays) {
+        List<Room> candidates = new ArrayList<>();
+        candidates.add(room);
+        for (Room other : nearby) {
+            if (!other.getRoomId().equals(room.getRoomId())) {
+                candidates.add(other);
+            }
+        }
+        List<String> roomNumbers = new ArrayList<>();
+        for (Room candidate : candidates) {
+            roomNumbers.add(candidate.getRoomNumber());
+        }
+        int durationSlots = (durationMinutes + GRID.getSlotMinutes() - 1) / GRID.getSlotMinutes();
+        List<Result> suggestions = new ArrayList<>();
+        if (limit <= 0 || durationSlots <= 0 || DAY_START + durationMinutes > DAY_END) {
+            return suggestions;
+        }
+
+        long[] occupancy = BookingCSV.getInstance().getSlotOccupancy(roomNumbers, day, maxDays, GRID);
+        int today = BookingTime.today();
+        int nowSecond = BookingTime.nowSecondOfDay();
+        for (int dayIndex = 0; dayIndex < maxDays && suggestions.size() < limit; dayIndex++) {
+            int from = firstStart(day + dayIndex, today, nowSecond);
+            long startSlots = from >= 0 ? GRID.mask(from, DAY_END - durationMinutes + 1) : 0L;
+            List<Result> found = new ArrayList<>();
+            for (int i = 0; i < candidates.size() && startSlots != 0; i++) {
+                Room candidate = candidates.get(i);
+                long starts = freeStarts(occupancy[i * maxDays + dayIndex], durationSlots) & startSlots;
+                while (starts != 0) {
+                    int start = GRID.slotStart(Long.numberOfTrailingZeros(starts));
+                    found.add(new Result(candidate, day + dayIndex, start, start + durationMinutes,
+                                         candidate.getCapacity() - room.getCapacity()));
+                    starts &= starts - 1;
+                }
+            }
+            found.sort(Comparator.<Result>comparingInt(result -> Math.abs(result.getStartMinute() - startMinute))
+                                 .thenComparingInt(Result::getStartMinute)
+                                 .thenComparingInt(result -> result.getRoom() == room ? 0 : 1)
+                                 .thenComparingInt(result -> Math.abs(result.getSpareSeats()))
+                                 .thenComparing(result -> result.getRoom().getRoomNumber(),
+                                                Comparator.nullsLast(String::compareTo)));
+            suggestions.addAll(found.subList(0, Math.min(found.size(), limit - suggestions.size())));
+        }
+        return suggestions;
+    }
+
+    // Bit i is set when slots i .. i + durationSlots - 1 are all free
+    static long freeStarts(long occupancy, int durationSlots) {
+        long free = ~occupancy;
+        long starts = free;
+        for (int i = 1; i < durationSlots; i++) {
+            starts &= free >>> i;
+        }
+        return starts;
+    }
+
+    // Earliest start worth offering on a day: opening time, or today the next slot; -1 for past days
+    private static int firstStart(int day, int today, int nowSecond) {
+        if (day < today) {
+            return -1;
+        }
+        if (day > today) {
+            return DAY_START;
+        }
+        int nextSlot = (nowSecond / 60 / GRID.getSlotMinutes() + 1) * GRID.getSlotMinutes();
+        return Math.max(DAY_START, nextSlot);
+    }
+
+    // One building on one day
+    private static class Piece {
+        final List<Integer> rooms;
+        final int dayIndex;
+
+        Piece(List<Integer> rooms, int dayIndex) {
+            this.rooms = rooms;
+            this.dayIndex = dayIndex;
+        }
+    }
+
+    // Everything the tasks share; only topK is written to
+    private static class Search {
+        final List<Room> rooms;
+        final int minCapacity;
+        final int firstDay;
+        final int dayCount;
+        final int durationMinutes;
+        final int durationSlots;
+        final long[] occupancy;
+        final TopK topK;
+        final int today = BookingTime.today();
+        final int nowSecond = BookingTime.nowSecondOfDay();
+
+        Search(List<Room> rooms, int minCapacity, int firstDay, int dayCount, int durationMinutes,
+               int durationSlots, long[] occupancy, TopK topK) {
+            this.rooms = rooms;
+            this.minCapacity = minCapacity;
+            this.firstDay = firstDay;
+            this.dayCount = dayCount;
+            this.durationMinutes = durationMinutes;
+            this.durationSlots = durationSlots;
+            this.occupancy = occupancy;
+            this.topK = topK;
+        }
+
+        void run(Piece piece) {
+            int day = firstDay + piece.dayIndex;
+            int from = firstStart(day, today, nowSecond);
+            // Slots a booking may start in
+            long startSlots = from >= 0 ? GRID.mask(from, DAY_END - durationMinutes + 1) : 0L;
+            if (startSlots == 0) {
+                return;
+            }
+
+            for (int roomIndex : piece.rooms) {
+                Room room = rooms.get(roomIndex);
+                int spareSeats = room.getCapacity() - minCapacity;
+                // Rooms are sorted by fit, so nothing later in this piece can beat a full top K
+                if (!topK.couldAccept(spareSeats, day, from)) {
+                    return;
+                }
+                long starts = freeStarts(occupancy[roomIndex * dayCount + piece.dayIndex], durationSlots) & startSlots;
+                if (starts != 0) {
+                    int start = GRID.slotStart(Long.numberOfTrailingZeros(starts));
+                    topK.offer(new Result(room, day, start, start + durationMinutes, spareSeats));
+                }
+            }
+        }
+    }
+
+    // Splits the pieces in halves until each task has one
+    private static class SearchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Search search;
+        private final List<Piece> pieces;
+        private final int from;
+        private final int to;
+
+        SearchTask(Search search, List<Piece> pieces, int from, int to) {
+            this.search = search;
+            this.pieces = pieces;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    search.run(pieces.get(from));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SearchTask(search, pieces, from, mid), new SearchTask(search, pieces, mid, to));
+        }
+    }
+
+    // The best K results seen so far, shared by all tasks
+    private static class TopK {
+        private final int limit;
+        // Worst result on top
+        private final PriorityQueue<Result> heap = new PriorityQueue<>(RANKING.reversed());
+
+        TopK(int limit) {
+            this.limit = limit;
+        }
+
+        synchronized void offer(Result result) {
+            if (heap.size() < limit) {
+                heap.add(result);
+            } else if (RANKING.compare(result, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(result);
+            }
+        }
+
+        // Could anything with this fit on this day, starting no earlier than this, still make the cut?
+        synchronized boolean couldAccept(int spareSeats, int day, int earliestStart) {
+            if (heap.size() < limit) {
+                return true;
+            }
+            Result worst = heap.peek();
+            if (spareSeats != worst.getSpareSeats()) {
+                return spareSeats < worst.getSpareSeats();
+            }
+            if (day != worst.getDay()) {
+                return day < worst.getDay();
+            }
+            return earliestStart <= worst.getStartMinute();
+        }
+
+        synchronized List<Result> sorted() {
+            List<Result> results = new ArrayList<>(heap);
+            results.sort(RANKING);
+            return results;
+        }
+    }
+}
@@ -9,10 +9,13 @@ public class Booking {
     private double rate;
     private double totalCost;
     private String roomNumber;
-    private String bookingDate;
-    private String bookingStartTime;
-    private String bookingEndTime;
-    private String status; // Reserved, InUse, Cancelled, Completed
+    // Date and times normalized to epoch day / minutes since midnight, see BookingTime
+    private BookingTime time;
+    private String status; // See BookingStatus: Reserved, InUse, Completed, Cancelled, NoShow
+    // Repeat pattern for a recurring series (the date is the first meeting), null for a single booking
+    private RecurrenceRule recurrence;
+    // Version of the stored row this copy was read at, checked when the booking is saved again
+    private long version;
     
     public Booking(String bookingId, User user, int hours, double rate, 
                    String roomNumber, String bookingDate, String bookingStartTime, String bookingEndTime) {
@@ -22,10 +25,8 @@ public class Booking {
         this.rate = rate;
         this.totalCost = hours * rate;
         this.roomNumber = roomNumber;
-        this.bookingDate = bookingDate;
-        this.bookingStartTime = bookingStartTime;
-        this.bookingEndTime = bookingEndTime;
-        this.status = "Reserved";
+        this.time = BookingTime.of(bookingDate, bookingStartTime, bookingEndTime);
+        this.status = BookingStatus.RESERVED;
     }
     
     // Getters
@@ -54,40 +55,79 @@ public class Booking {
     }
     
     public String getBookingDate() {
-        return bookingDate;
+        return time.formatDate();
     }
     
     public String getBookingStartTime() {
-        return bookingStartTime;
+        return time.formatStartTime();
     }
     
     public String getBookingEndTime() {
-        return bookingEndTime;
+        return time.formatEndTime();
+    }
+    
+    public BookingTime getTime() {
+        return time;
+    }
+    
+    // Epoch day of the booking, or BookingTime.NO_DAY
+    public int getBookingDay() {
+        return time.getDay();
+    }
+    
+    // Minutes since midnight, or BookingTime.NO_MINUTE
+    public short getStartMinute() {
+        return time.getStartMinute();
+    }
+    
+    // Minutes since midnight, or BookingTime.NO_MINUTE
+    public short getEndMinute() {
+        return time.getEndMinute();
     }
     
     public String getStatus() {
         return status;
     }
     
+    public RecurrenceRule getRecurrence() {
+        return recurrence;
+    }
+    
+    public boolean isRecurring() {
+        return recurrence != null;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
     // Setters
     public void setStatus(String status) {
         this.status = status;
     }
     
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
+    public void setRecurrence(RecurrenceRule recurrence) {
+        this.recurrence = recurrence;
+    }
+    
     public void setRoomNumber(String roomNumber) {
         this.roomNumber = roomNumber;
     }
     
     public void setBookingDate(String bookingDate) {
-        this.bookingDate = bookingDate;
+        this.time = time.withDate(bookingDate);
     }
     
     public void setBookingStartTime(String bookingStartTime) {
-        this.bookingStartTime = bookingStartTime;
+        this.time = time.withStartTime(bookingStartTime);
     }
     
     public void setBookingEndTime(String bookingEndTime) {
-        this.bookingEndTime = bookingEndTime;
+        this.time = time.withEndTime(bookingEndTime);
     }
     
     public void setHours(int hours) {
@@ -2,13 +2,24 @@ package Backend;
 
 import java.io.File;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
-import com.csvreader.CsvReader;
 import com.csvreader.CsvWriter;
 
 public class BookingCSV {
@@ -17,6 +28,41 @@ public class BookingCSV {
     // Use the same directory as RoomDatabase.csv for consistency
     private final String BOOKING_PATH = "../BookingDatabase.csv";
     private final String ROOM_PATH = "../RoomDatabase.csv";
+    // Changes not yet folded back into BookingDatabase.csv
+    private final String JOURNAL_PATH = "../BookingJournal.csv";
+    // Row offsets in BookingDatabase.csv, for looking up one booking without loading them all
+    private final String FILE_INDEX_PATH = "../BookingDatabase.idx";
+    // Binary copy of the booking table; a start loads it plus the journal changes made after it
+    private final String SNAPSHOT_PATH = "../BookingDatabase.snap";
+    
+    // Compact as soon as this many changes are waiting, and at least this often otherwise
+    private static final int COMPACT_THRESHOLD = 64;
+    private static final long COMPACT_INTERVAL_SECONDS = 30;
+    // Tables this big are indexed on several threads when loaded
+    private static final int PARALLEL_INDEX_ROWS = 4096;
+    private static final int MAX_INDEX_WORKERS = 8;
+    
+    // How each BookingRecord.HEADERS column is stored in the snapshot
+    private static final byte[] SNAPSHOT_KINDS = {
+        SnapshotFile.TEXT, SnapshotFile.UUID_VALUE, SnapshotFile.TEXT, SnapshotFile.TEXT,
+        SnapshotFile.UUID_VALUE, SnapshotFile.DATE, SnapshotFile.TIME, SnapshotFile.TIME, SnapshotFile.TEXT,
+        SnapshotFile.TEXT, SnapshotFile.NUMBER
+    };
+    
+    private final BookingJournal journal;
+    private final BookingFileIndex fileIndex;
+    private final ScheduledExecutorService compactor;
+    
+    // Materialized booking table: the CSV rows with the journal applied, in file order
+    private Map<Long, BookingRecord> bookingRows = new LinkedHashMap<>();
+    private Map<String, List<Long>> rowKeysById = new HashMap<>();
+    private long nextRowKey;
+    // Room -> date -> sorted intervals, so conflict checks don't rescan the file
+    private BookingIndex bookingIndex = new BookingIndex();
+    // Size/modification time of the CSV and journal the table was built from (null = not built)
+    private String loadedFileState;
+    // Journal epoch and sequence the saved snapshot was taken at (null = none saved by this instance)
+    private String snapshotPosition;
     
     private BookingCSV() {
         try {
@@ -27,20 +73,26 @@ public class BookingCSV {
                 bookingFile.getParentFile().mkdirs();
                 
                 CsvWriter csvWrite = new CsvWriter(new FileWriter(BOOKING_PATH, false), ',');
-                csvWrite.write("BookingID");
-                csvWrite.write("RoomID");
-                csvWrite.write("Building Name");
-                csvWrite.write("Room Number");
-                csvWrite.write("Booking UserID");
-                csvWrite.write("Booking Date");
-                csvWrite.write("Booking Start Time");
-                csvWrite.write("Booking End Time");
-                csvWrite.endRecord();
+                csvWrite.writeRecord(BookingRecord.HEADERS);
                 csvWrite.close();
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
+        
+        journal = new BookingJournal(JOURNAL_PATH);
+        // Bookings carry payments: a saved booking is on disk before the save returns
+        journal.getFlushPolicy().setMode(FlushPolicy.Mode.SYNC);
+        fileIndex = new BookingFileIndex(BOOKING_PATH, FILE_INDEX_PATH);
+        compactor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "booking-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactIfNeeded, COMPACT_INTERVAL_SECONDS,
+                                         COMPACT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        // Leave a canonical CSV and a fresh snapshot behind on a normal exit
+        Runtime.getRuntime().addShutdownHook(new Thread(this::compactIfNeeded, "booking-compactor-shutdown"));
     }
     
     public static BookingCSV getInstance() {
@@ -57,29 +109,24 @@ public class BookingCSV {
             // Find room to get Room ID and Building Name
             Room room = findRoomByNumber(booking.getRoomNumber());
             
-            // Write to BookingDatabase.csv
-            CsvWriter csvWrite = new CsvWriter(new FileWriter(BOOKING_PATH, true), ',');
-            
             String bookingId = booking.getBookingId() != null ? booking.getBookingId() : "";
             String roomId = room != null ? room.getRoomId().toString() : "";
             String buildingName = room != null ? room.getBuildingName() : "";
             String userId = booking.getUser().getAccountId() != null ? 
                            booking.getUser().getAccountId().toString() : "";
             
-            csvWrite.write(bookingId);
-            csvWrite.write(roomId);
-            csvWrite.write(buildingName);
-            csvWrite.write(booking.getRoomNumber());
-            csvWrite.write(userId);
-            csvWrite.write(booking.getBookingDate() != null ? booking.getBookingDate() : "");
-            csvWrite.write(booking.getBookingStartTime() != null ? booking.getBookingStartTime() : "");
+            // Keep the caller's end time; start time + 1 hour only if it has none
+            String endTime = booking.getBookingEndTime();
+            if (endTime == null || endTime.trim().isEmpty()) {
+                endTime = calculateEndTime(booking.getBookingStartTime());
+            }
             
-            // Calculate end time as start time + 1 hour
-            String endTime = calculateEndTime(booking.getBookingStartTime());
-            csvWrite.write(endTime);
-            
-            csvWrite.endRecord();
-            csvWrite.close();
+            appendChange(BookingJournal.INSERT, new BookingRecord(
+                bookingId, roomId, buildingName, booking.getRoomNumber(), userId,
+                booking.getBookingDate() != null ? booking.getBookingDate() : "",
+                booking.getBookingStartTime() != null ? booking.getBookingStartTime() : "",
+                endTime, BookingStatus.of(booking.getStatus()),
+                booking.isRecurring() ? booking.getRecurrence().format() : ""));
             
         } catch (Exception e) {
             e.printStackTrace();
@@ -89,44 +136,22 @@ public class BookingCSV {
    // Calculate end time as start time + 1 hour
 
     private String calculateEndTime(String startTime) {
-        if (startTime == null || startTime.trim().isEmpty()) {
-            return "";
-        }
-        
-        try {
-            String[] parts = startTime.trim().split(":");
-            if (parts.length >= 2) {
-                int hours = Integer.parseInt(parts[0]);
-                int minutes = Integer.parseInt(parts[1]);
-                
-                // Add 1 hour
-                hours += 1;
-                if (hours >= 24) {
-                    hours = hours % 24;
-                }
-                
-                return String.format("%02d:%02d", hours, minutes);
+        short start = BookingTime.parseMinute(startTime);
+        if (start == BookingTime.NO_MINUTE) {
+            if (startTime != null && !startTime.trim().isEmpty()) {
+                System.err.println("Error calculating end time from start time: " + startTime);
             }
-        } catch (Exception e) {
-            System.err.println("Error calculating end time from start time: " + startTime);
-            e.printStackTrace();
+            return "";
         }
-        
-        return "";
+        // Add 1 hour, wrapping past midnight
+        return BookingTime.formatMinute((start + 60) % BookingTime.MINUTES_PER_DAY);
     }
     
     private Room findRoomByNumber(String roomNumber) {
         if (roomNumber == null) {
             return null;  // Return null if room number is null
         }
-        RoomService roomService = new RoomService();
-        List<Room> allRooms = roomService.getAllRooms();
-        for (Room room : allRooms) {
-            if (room.getRoomNumber().equals(roomNumber)) {
-                return room;
-            }
-        }
-        return null;
+        return RoomCSV.getInstance().findByRoomNumber(roomNumber);
     }
     
     private void updateRoomDatabase(Room room, Booking booking) {
@@ -147,6 +172,34 @@ public class BookingCSV {
         }
     }
     
+    /**
+     * Change only the stored status of a booking (check-in, check-out, no-show).
+     * The row is saved at the version it was read at, so a concurrent edit of the booking
+     * is kept; if the row moves on first, the status change is redone on the new row.
+     * Inside a unit of work the version is checked again when it is committed.
+     * @return true if the booking exists
+     */
+    public boolean updateStatus(String bookingId, String status) {
+        return StaleBookingException.retry("BookingCSV.updateStatus", "updating the status of booking " + bookingId,
+                                           () -> updateStatusOnce(bookingId, status));
+    }
+    
+    private boolean updateStatusOnce(String bookingId, String status) {
+        try {
+            BookingRecord record = findRecord(bookingId);
+            if (record == null) {
+                System.err.println("Booking not found for status update: " + bookingId);
+                return false;
+            }
+            return appendChange(BookingJournal.UPDATE, record.withStatus(BookingStatus.of(status)), record.getVersion());
+        } catch (StaleBookingException e) {
+            throw e;
+        } catch (Exception e) {
+            System.err.println("Error updating booking status: " + e.getMessage());
+            return false;
+        }
+    }
+    
     public Booking findById(String bookingId) {
         // Search for booking by ID
         try {
@@ -155,18 +208,11 @@ public class BookingCSV {
                 return null;
             }
             
-            CsvReader csvRead = new CsvReader(BOOKING_PATH);
-            csvRead.readHeaders();
-            
-            while (csvRead.readRecord()) {
-                String recordBookingId = csvRead.get(0); // BookingID is first column
-                if (recordBookingId != null && recordBookingId.trim().equals(bookingId)) {
-                    Booking booking = parseBookingFromRecord(csvRead);
-                    csvRead.close();
-                    return booking;
-                }
+            BookingRecord record = findRecord(bookingId);
+            if (record != null) {
+                List<Booking> found = hydrate(Collections.singletonList(record));
+                return found.isEmpty() ? null : found.get(0);
             }
-            csvRead.close();
         } catch (Exception e) {
             System.err.println("Error finding booking by ID: " + e.getMessage());
         }
@@ -180,7 +226,7 @@ public class BookingCSV {
     
    //Check if there's a time conflict for a room on a given date and time range
 
-    public boolean hasTimeConflict(String roomNumber, String date, String startTime, String endTime, String excludeBookingId) {
+    public synchronized boolean hasTimeConflict(String roomNumber, String date, String startTime, String endTime, String excludeBookingId) {
         System.out.println("hasTimeConflict: Checking for conflicts - Room: " + roomNumber + ", Date: " + date + 
                          ", Time: " + startTime + "-" + endTime + ", Exclude: " + excludeBookingId);
         try {
@@ -190,170 +236,802 @@ public class BookingCSV {
                 return false; // No conflicts if no bookings exist
             }
             
-            CsvReader csvRead = new CsvReader(BOOKING_PATH);
-            csvRead.readHeaders();
+            BookingIndex.Entry conflict = findConflict(getBookingIndex(roomNumber), roomNumber, date, startTime, endTime, excludeBookingId);
+            if (conflict != null) {
+                System.out.println("hasTimeConflict: CONFLICT FOUND with booking " + conflict.getBookingId() + 
+                                 " (Room: " + roomNumber + ", Time: " + conflict.getStartTime() + "-" + conflict.getEndTime() + ")");
+                return true;
+            }
+            System.out.println("hasTimeConflict: No conflicts found for room " + roomNumber + " on " + date);
+        } catch (Exception e) {
+            System.err.println("Error checking time conflict: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return false; // No conflicts found
+    }
+    
+    // Get the rooms that are free for a time slot, from the booking index
+    public synchronized List<Room> filterAvailableRooms(List<Room> rooms, String date, String startTime, String endTime) {
+        List<Room> availableRooms = new ArrayList<>();
+        File bookingFile = new File(BOOKING_PATH);
+        if (!bookingFile.exists() || !bookingFile.canRead()) {
+            availableRooms.addAll(rooms);
+            return availableRooms;
+        }
+        
+        for (Room room : rooms) {
+            try {
+                if (findConflict(getBookingIndex(room.getRoomNumber()), room.getRoomNumber(), 
+                                 date, startTime, endTime, null) == null) {
+                    availableRooms.add(room);
+                }
+            } catch (Exception e) {
+                System.err.println("Error checking time conflict for room " + room.getRoomNumber() + ": " + e.getMessage());
+                availableRooms.add(room); // Same as hasTimeConflict: an error is not a conflict
+            }
+        }
+        System.out.println("filterAvailableRooms: " + availableRooms.size() + " of " + rooms.size() + 
+                         " rooms free on " + date + " " + startTime + "-" + endTime);
+        return availableRooms;
+    }
+    
+    /**
+     * Slot occupancy of a room on a date (see SlotGrid)
+     * @return One bit per slot, set when a booking takes the slot
+     */
+    public synchronized long getSlotOccupancy(String roomNumber, String date, SlotGrid grid) {
+        BookingIndex.RoomDay day = getBookingIndex(roomNumber).get(roomNumber, date);
+        return day != null ? day.getOccupancy(grid) : 0L;
+    }
+    
+    /**
+     * Slot occupancy of several rooms on one date, from the booking index
+     * @return Room number -> occupancy mask, for every room asked about
+     */
+    public synchronized Map<String, Long> getSlotOccupancy(Collection<String> roomNumbers, String date, SlotGrid grid) {
+        Map<String, Long> occupancy = new HashMap<>();
+        for (String roomNumber : roomNumbers) {
+            BookingIndex.RoomDay day = getBookingIndex(roomNumber).get(roomNumber, date);
+            occupancy.put(roomNumber, day != null ? day.getOccupancy(grid) : 0L);
+        }
+        return occupancy;
+    }
+    
+    /**
+     * Slot occupancy of several rooms over a run of days, read from the index in one pass
+     * @param firstDay First epoch day
+     * @param dayCount Number of days
+     * @return occupancy[room * dayCount + day], one mask per room per day in the order given
+     */
+    public synchronized long[] getSlotOccupancy(List<String> roomNumbers, int firstDay, int dayCount, SlotGrid grid) {
+        long[] occupancy = new long[roomNumbers.size() * dayCount];
+        for (int i = 0; i < roomNumbers.size(); i++) {
+            String roomNumber = roomNumbers.get(i);
+            getBookingIndex(roomNumber).fillOccupancy(roomNumber, firstDay, dayCount, grid, occupancy, i * dayCount);
+        }
+        return occupancy;
+    }
+    
+    /**
+     * How far a booking ending at endTime can be extended before it runs into the next
+     * booking of the room that day, or into midnight
+     * @param excludeBookingId The booking being extended
+     * @return Minutes available, or -1 if the end time doesn't parse
+     */
+    public synchronized int maxExtensionMinutes(String roomNumber, String date, String endTime, String excludeBookingId) {
+        short end = BookingTime.parseMinute(endTime);
+        if (end == BookingTime.NO_MINUTE) {
+            return -1;
+        }
+        BookingIndex.RoomDay day = getBookingIndex(roomNumber).get(roomNumber, date);
+        int nextStart = day != null ? day.nextStart(end, excludeBookingId) : -1;
+        return (nextStart >= 0 ? nextStart : BookingTime.MINUTES_PER_DAY) - end;
+    }
+    
+    /**
+     * Check a batch of requests against one snapshot of the bookings and against each other
+     * @return Index of the first request that conflicts, or -1 if all of them fit
+     */
+    public synchronized int findFirstConflict(List<BookingRequest> requests) {
+        // Requests already checked, so two requests for the same slot clash with each other
+        BookingIndex batch = new BookingIndex();
+        for (int i = 0; i < requests.size(); i++) {
+            BookingRequest request = requests.get(i);
+            String roomNumber = request.getRoomNumber();
+            String date = request.getBookingDate();
+            String startTime = request.getBookingStartTime();
+            String endTime = request.getBookingEndTime();
+            if (findConflict(getBookingIndex(roomNumber), roomNumber, date, startTime, endTime, null) != null ||
+                findConflict(batch, roomNumber, date, startTime, endTime, null) != null) {
+                System.out.println("findFirstConflict: " + request + " conflicts");
+                return i;
+            }
+            batch.add("#" + i, "", roomNumber, date, startTime, endTime);
+        }
+        return -1;
+    }
+    
+    /**
+     * Check every meeting of a recurring series against one snapshot of the bookings
+     * @param firstDate Date of the first meeting
+     * @return Epoch day of the first meeting that conflicts, or BookingTime.NO_DAY if all of them fit
+     * @throws IllegalArgumentException if the first date is not a valid date
+     */
+    public synchronized int findSeriesConflict(String roomNumber, String firstDate, RecurrenceRule rule,
+                                               String startTime, String endTime) {
+        int firstDay = BookingTime.parseDay(firstDate);
+        if (firstDay == BookingTime.NO_DAY) {
+            // NO_DAY means "all meetings fit", so an unreadable date can't be reported with it
+            throw new IllegalArgumentException("Invalid date for recurring booking: " + firstDate);
+        }
+        BookingIndex index = getBookingIndex(roomNumber);
+        int checked = 0;
+        for (int day : rule.occurrences(firstDay)) {
+            checked++;
+            BookingIndex.Entry conflict = findConflict(index, roomNumber, BookingTime.formatDay(day, false),
+                                                       startTime, endTime, null);
+            if (conflict != null) {
+                System.out.println("findSeriesConflict: Meeting on " + BookingTime.formatDay(day, false) + 
+                                 " conflicts with booking " + conflict.getBookingId());
+                return day;
+            }
+        }
+        System.out.println("findSeriesConflict: " + checked + " meetings in room " + roomNumber + " are free");
+        return BookingTime.NO_DAY;
+    }
+    
+    /**
+     * Replace the recurrence rule of a series, e.g. to cancel one meeting
+     * @param expectedVersion Version of the booking the rule was worked out from
+     * @return true if the booking exists
+     * @throws StaleBookingException if the booking was saved since that version; read it
+     *         again and work the rule out afresh
+     */
+    public boolean updateRecurrence(String bookingId, RecurrenceRule rule, long expectedVersion) {
+        try {
+            BookingRecord record = findRecord(bookingId);
+            if (record == null) {
+                System.err.println("Booking not found for recurrence update: " + bookingId);
+                return false;
+            }
+            return appendChange(BookingJournal.UPDATE, record.withRecurrence(rule != null ? rule.format() : ""),
+                                expectedVersion);
+        } catch (StaleBookingException e) {
+            throw e;
+        } catch (Exception e) {
+            System.err.println("Error updating booking recurrence: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    // Find a booking in the index that overlaps the requested slot, or null if there is none
+    private BookingIndex.Entry findConflict(BookingIndex index, String roomNumber, String date, 
+                                            String startTime, String endTime, String excludeBookingId) {
+        BookingIndex.RoomDay day = index.get(roomNumber, date);
+        if (day == null) {
+            return null;
+        }
+        
+        // Requested range in minutes; if it doesn't parse, fall back to timesOverlap's string comparison
+        short requestedStart = minutesOrMidnight(startTime);
+        short requestedEnd = minutesOrMidnight(endTime);
+        boolean requestedParsed = requestedStart != BookingTime.NO_MINUTE && requestedEnd != BookingTime.NO_MINUTE;
+        
+        if (requestedParsed) {
+            // A request running past midnight is checked up to midnight, the same as the rows
+            int end = requestedEnd < requestedStart ? BookingTime.MINUTES_PER_DAY : requestedEnd;
+            BookingIndex.Entry overlap = day.findOverlap(requestedStart, end, excludeBookingId);
+            if (overlap != null) {
+                return overlap;
+            }
+        } else {
+            for (BookingIndex.Entry entry : day.getIntervals()) {
+                if (!isExcluded(entry, excludeBookingId) &&
+                    timesOverlap(startTime, endTime, entry.getStartTime(), entry.getEndTime())) {
+                    return entry;
+                }
+            }
+        }
+        
+        // Rows with no end time or unparseable times are checked the way the file scan always did
+        for (BookingIndex.Entry entry : day.getIrregular()) {
+            if (isExcluded(entry, excludeBookingId)) {
+                continue;
+            }
+            String recordStartTime = entry.getStartTime();
+            String recordEndTime = entry.getEndTime() != null ? entry.getEndTime().trim() : "";
             
-            int recordCount = 0;
-            int excludedCount = 0;
-            while (csvRead.readRecord()) {
-                recordCount++;
-                // Get booking ID to check if we should exclude this booking
-                String recordBookingId = null;
+            // End time missing from BookingDatabase.csv, try RoomDatabase
+            if (recordEndTime.isEmpty()) {
                 try {
-                    recordBookingId = csvRead.get(0); // BookingID is first column
-                    if (recordBookingId != null) {
-                        recordBookingId = recordBookingId.trim();
-                    }
-                } catch (Exception e) {
-                    // Try by name as fallback
-                    try {
-                        recordBookingId = csvRead.get("BookingID");
-                        if (recordBookingId != null) {
-                            recordBookingId = recordBookingId.trim();
+                    String roomIdStr = entry.getRoomId();
+                    if (roomIdStr != null && !roomIdStr.trim().isEmpty()) {
+                        Room room = RoomCSV.getInstance().findById(UUID.fromString(roomIdStr.trim()));
+                        if (room != null && room.getBookingEndTime() != null && !room.getBookingEndTime().trim().isEmpty()) {
+                            recordEndTime = room.getBookingEndTime().trim();
                         }
-                    } catch (Exception e2) {
-                        // Ignore
                     }
+                } catch (Exception e) {
+                    System.out.println("findConflict: Could not get end time from RoomDatabase for booking " + entry.getBookingId());
                 }
-                
-                String recordRoomNumber = csvRead.get("Room Number");
-                String recordDate = csvRead.get("Booking Date");
-                String recordStartTime = csvRead.get("Booking Start Time");
-                
-                // Skip empty records
-                if (recordRoomNumber == null || recordRoomNumber.trim().isEmpty() ||
-                    recordDate == null || recordDate.trim().isEmpty()) {
-                    System.out.println("hasTimeConflict: Record " + recordCount + " - Skipping empty record");
+            }
+            
+            // If end time still not available, calculate from start time (start + 1 hour) as last resort
+            if (recordEndTime == null || recordEndTime.trim().isEmpty()) {
+                recordEndTime = calculateEndTime(recordStartTime);
+            }
+            
+            if (recordEndTime != null && !recordEndTime.trim().isEmpty()) {
+                if (timesOverlap(startTime, endTime, recordStartTime, recordEndTime)) {
+                    return entry;
+                }
+            } else if (recordStartTime != null && recordStartTime.equals(startTime)) {
+                // If end time not available, check if start times match
+                return entry;
+            }
+        }
+        return null;
+    }
+    
+    private boolean isExcluded(BookingIndex.Entry entry, String excludeBookingId) {
+        return excludeBookingId != null && entry.getBookingId().equals(excludeBookingId.trim());
+    }
+    
+    /**
+     * Get the booking index, rebuilding the table if the files changed behind our back.
+     * Inside a unit of work with staged bookings, the index returned only holds the one
+     * room, as it will be once the changes are saved.
+     */
+    private synchronized BookingIndex getBookingIndex(String roomNumber) {
+        ensureLoaded();
+        UnitOfWork work = UnitOfWork.current();
+        if (work == null || work.getBookingChanges().isEmpty()) {
+            return bookingIndex;
+        }
+        // The room's saved rows, with the rows of every staged booking laid over them
+        Map<String, List<BookingRecord>> staged = stagedRows(work);
+        Set<String> replaced = new HashSet<>(staged.keySet());
+        replaced.remove(""); // Rows without an ID are only ever added
+        BookingIndex roomIndex = bookingIndex.copyRoom(roomNumber, replaced);
+        for (List<BookingRecord> rows : staged.values()) {
+            for (BookingRecord record : rows) {
+                if (roomNumber != null && roomNumber.equals(record.getRoomNumber())) {
+                    addToIndex(roomIndex, record);
+                }
+            }
+        }
+        return roomIndex;
+    }
+    
+    // Rows of each staged booking once the unit of work is saved, by booking ID (empty if deleted);
+    // the same rules as snapshotRows(), applied to the staged bookings only
+    private Map<String, List<BookingRecord>> stagedRows(UnitOfWork work) {
+        Map<String, List<BookingRecord>> rows = new LinkedHashMap<>();
+        for (UnitOfWork.BookingChange change : work.getBookingChanges()) {
+            String key = change.record.getKey();
+            if (key.isEmpty() && !change.operation.equals(BookingJournal.INSERT)) {
+                continue;
+            }
+            List<BookingRecord> current = rows.computeIfAbsent(key, this::savedRows);
+            if (change.operation.equals(BookingJournal.INSERT)) {
+                current.add(change.record);
+            } else if (change.operation.equals(BookingJournal.UPDATE)) {
+                current.replaceAll(row -> change.record);
+            } else {
+                current.clear();
+            }
+        }
+        return rows;
+    }
+    
+    // Saved rows carrying a booking ID
+    private List<BookingRecord> savedRows(String key) {
+        List<BookingRecord> rows = new ArrayList<>();
+        List<Long> keys = key.isEmpty() ? null : rowKeysById.get(key);
+        if (keys != null) {
+            for (long rowKey : keys) {
+                rows.add(bookingRows.get(rowKey));
+            }
+        }
+        return rows;
+    }
+    
+    // Index a row; a recurring series gets an entry for each of its meetings
+    private static void addToIndex(BookingIndex index, BookingRecord record) {
+        RecurrenceRule rule = RecurrenceRule.parse(record.getRecurrence());
+        int firstDay = BookingTime.parseDay(record.getDate());
+        if (rule == null || firstDay == BookingTime.NO_DAY) {
+            index.add(record.getBookingId(), record.getRoomId(), record.getRoomNumber(),
+                      record.getDate(), record.getStartTime(), record.getEndTime());
+            return;
+        }
+        // Occurrence dates keep the layout of the first one
+        boolean iso = record.getDate().indexOf('-') >= 0;
+        for (int day : rule.occurrences(firstDay)) {
+            index.add(record.getBookingId(), record.getRoomId(), record.getRoomNumber(),
+                      BookingTime.formatDay(day, iso), record.getStartTime(), record.getEndTime());
+        }
+    }
+    
+    // First row carrying the booking ID, or null
+    private synchronized BookingRecord findRecord(String bookingId) {
+        if (bookingId == null) {
+            return null;
+        }
+        UnitOfWork work = UnitOfWork.current();
+        if (work != null && work.hasStagedBooking(bookingId.trim())) {
+            return work.getStagedBooking(bookingId.trim());
+        }
+        if (!isLoaded()) {
+            // Not worth building the whole table for one booking
+            return lookupRecord(bookingId.trim());
+        }
+        List<Long> keys = rowKeysById.get(bookingId.trim());
+        return keys != null ? bookingRows.get(keys.get(0)) : null;
+    }
+    
+    /**
+     * Read one booking through the CSV's offset index and apply its journal changes,
+     * for when the table isn't loaded or is out of date
+     */
+    private synchronized BookingRecord lookupRecord(String key) {
+        if (key.isEmpty()) {
+            return null;
+        }
+        try {
+            String csvFileState = CsvFileState.of(BOOKING_PATH);
+            BookingRecord record = csvFileState != null ? fileIndex.find(key) : null;
+            // Same rules as applyChange(): the first row with the ID is the one returned
+            for (BookingJournal.Entry entry : journal.load(csvFileState)) {
+                if (!entry.getRecord().getKey().equals(key)) {
                     continue;
                 }
-                
-                // Skip if this is the booking we're excluding (check AFTER getting room/date to ensure we have the record)
-                if (excludeBookingId != null && recordBookingId != null) {
-                    String trimmedExclude = excludeBookingId.trim();
-                    String trimmedRecord = recordBookingId.trim();
-                    if (trimmedRecord.equals(trimmedExclude)) {
-                        excludedCount++;
-                        System.out.println("hasTimeConflict: Record " + recordCount + " - Excluding booking " + recordBookingId + 
-                                         " (matches exclude ID: " + excludeBookingId + ")");
-                        continue;
-                    }
+                switch (entry.getOperation()) {
+                    case BookingJournal.INSERT:
+                        record = record != null ? record : entry.getRecord();
+                        break;
+                    case BookingJournal.UPDATE:
+                        record = record != null ? entry.getRecord() : null;
+                        break;
+                    default:
+                        record = null;
                 }
-                
-                // Check if same room and same date
-                if (recordRoomNumber != null && recordRoomNumber.equals(roomNumber) && 
-                    recordDate != null && recordDate.equals(date)) {
-                    System.out.println("hasTimeConflict: Record " + recordCount + " - Found matching room/date for booking " + recordBookingId);
-                    
-                    // Get end time from BookingDatabase.csv first (this is the source of truth)
-                    String recordEndTime = null;
-                    boolean endTimeReadFromCSV = false;
-                    try {
-                        recordEndTime = csvRead.get("Booking End Time");
-                        if (recordEndTime != null) {
-                            recordEndTime = recordEndTime.trim();
-                            // Only use it if it's not empty
-                            if (!recordEndTime.isEmpty()) {
-                                endTimeReadFromCSV = true;
-                                System.out.println("hasTimeConflict: Record " + recordCount + " - End time from BookingDatabase.csv: " + recordEndTime);
-                            }
-                        }
-                    } catch (Exception e) {
-                        System.out.println("hasTimeConflict: Record " + recordCount + " - Could not read end time column from CSV");
-                    }
-                    
-                    // Only fall back to RoomDatabase if we didn't successfully read from BookingDatabase.csv
-                    if (!endTimeReadFromCSV) {
-                        System.out.println("hasTimeConflict: Record " + recordCount + " - End time not in BookingDatabase.csv, trying RoomDatabase");
-                        try {
-                            String roomIdStr = csvRead.get("RoomID");
-                            if (roomIdStr != null && !roomIdStr.trim().isEmpty()) {
-                                RoomCSV roomCSV = RoomCSV.getInstance();
-                                UUID roomId = UUID.fromString(roomIdStr.trim());
-                                Room room = roomCSV.findById(roomId);
-                                if (room != null && room.getBookingEndTime() != null && !room.getBookingEndTime().trim().isEmpty()) {
-                                    recordEndTime = room.getBookingEndTime().trim();
-                                    System.out.println("hasTimeConflict: Record " + recordCount + " - End time from RoomDatabase: " + recordEndTime);
-                                }
-                            }
-                        } catch (Exception e2) {
-                            System.out.println("hasTimeConflict: Record " + recordCount + " - Could not get end time from RoomDatabase");
-                        }
-                    }
-                    
-                    // If end time still not available, calculate from start time (start + 1 hour) as last resort
-                    if (recordEndTime == null || recordEndTime.trim().isEmpty()) {
-                        recordEndTime = calculateEndTime(recordStartTime);
-                        System.out.println("hasTimeConflict: Record " + recordCount + " - Calculated end time from start: " + recordEndTime);
-                    }
-                    
-                    // Check for time overlap
-                    if (recordEndTime != null && !recordEndTime.trim().isEmpty()) {
-                        boolean overlaps = timesOverlap(startTime, endTime, recordStartTime, recordEndTime);
-                        System.out.println("hasTimeConflict: Record " + recordCount + " - Checking overlap - Requested: " + startTime + "-" + endTime + 
-                                         " vs Existing: " + recordStartTime + "-" + recordEndTime + " = " + overlaps);
-                        if (overlaps) {
-                            csvRead.close();
-                            System.out.println("hasTimeConflict: CONFLICT FOUND with booking " + recordBookingId + 
-                                             " (Room: " + recordRoomNumber + ", Time: " + recordStartTime + "-" + recordEndTime + ")");
-                            return true; // Conflict found
-                        } else {
-                            System.out.println("hasTimeConflict: Record " + recordCount + " - No overlap with booking " + recordBookingId);
-                        }
-                    } else if (recordStartTime != null && recordStartTime.equals(startTime)) {
-                        // If end time not available, check if start times match
-                        csvRead.close();
-                        System.out.println("hasTimeConflict: CONFLICT FOUND (start time match) with booking " + recordBookingId + 
-                                         " (Room: " + recordRoomNumber + ", StartTime: " + recordStartTime + ")");
-                        return true; // Conflict found
+            }
+            return record;
+        } catch (Exception e) {
+            System.err.println("BookingCSV: Indexed lookup of " + key + " failed, loading the table: " + e.getMessage());
+            ensureLoaded();
+            List<Long> keys = rowKeysById.get(key);
+            return keys != null ? bookingRows.get(keys.get(0)) : null;
+        }
+    }
+    
+    // Copy of the booking table in file order, for the read paths that walk every row
+    private synchronized List<BookingRecord> snapshotRows() {
+        ensureLoaded();
+        List<BookingRecord> rows = new ArrayList<>(bookingRows.values());
+        UnitOfWork work = UnitOfWork.current();
+        if (work == null) {
+            return rows;
+        }
+        // Apply the staged changes the same way applyChange() will once they are saved
+        for (UnitOfWork.BookingChange change : work.getBookingChanges()) {
+            String key = change.record.getKey();
+            if (change.operation.equals(BookingJournal.INSERT)) {
+                rows.add(change.record);
+                continue;
+            }
+            for (int i = rows.size() - 1; i >= 0; i--) {
+                if (!key.isEmpty() && rows.get(i).getKey().equals(key)) {
+                    if (change.operation.equals(BookingJournal.UPDATE)) {
+                        rows.set(i, change.record);
+                    } else {
+                        rows.remove(i);
                     }
-                } else {
-                    System.out.println("hasTimeConflict: Record " + recordCount + " - Room/Date mismatch - Room: " + recordRoomNumber + 
-                                     " (expected " + roomNumber + "), Date: " + recordDate + " (expected " + date + ")");
                 }
             }
-            csvRead.close();
-            System.out.println("hasTimeConflict: Checked " + recordCount + " records (" + excludedCount + " excluded), no conflicts found");
-        } catch (Exception e) {
-            System.err.println("Error checking time conflict: " + e.getMessage());
-            e.printStackTrace();
         }
-        return false; // No conflicts found
+        return rows;
     }
     
-    // Helper method to check if two time ranges overlap
-    private boolean timesOverlap(String start1, String end1, String start2, String end2) {
+    private boolean appendChange(String operation, BookingRecord record) throws IOException {
+        return appendChange(operation, record, -1);
+    }
+    
+    /**
+     * Log one change and apply it to the in-memory table, or stage it if a unit of
+     * work is open on this thread.
+     * UPDATE and DELETE are only logged if the booking exists. An UPDATE gets the next
+     * version of the row.
+     * @param expectedVersion For an UPDATE, the version the row must still be at (-1 for any)
+     * @return true if the change was applied
+     * @throws StaleBookingException if the row is no longer at the expected version
+     */
+    private synchronized boolean appendChange(String operation, BookingRecord record, long expectedVersion) throws IOException {
+        BookingRecord existing = operation.equals(BookingJournal.INSERT) ? null : findRecord(record.getKey());
+        if (!operation.equals(BookingJournal.INSERT) && existing == null) {
+            return false;
+        }
+        if (operation.equals(BookingJournal.UPDATE)) {
+            if (expectedVersion >= 0 && existing.getVersion() != expectedVersion) {
+                throw new StaleBookingException(record.getKey(), expectedVersion, existing.getVersion());
+            }
+            record = record.withVersion(existing.getVersion() + 1);
+        }
+        UnitOfWork work = UnitOfWork.current();
+        if (work != null) {
+            // Checked again when the unit of work is saved, in case another one got there first
+            work.stageBooking(operation, record, expectedVersion);
+            return true;
+        }
+        ensureLoaded();
+        journal.append(operation, record);
+        applyChange(operation, record);
+        loadedFileState = currentFileState();
+        
+        if (journal.getPendingCount() >= COMPACT_THRESHOLD) {
+            compactor.execute(this::compactIfNeeded);
+        }
+        return true;
+    }
+    
+    /**
+     * Save the booking changes of a unit of work with a single append to the journal.
+     * UPDATE and DELETE of bookings that do not exist (any more) are skipped.
+     * Versions are assigned here, against the rows as they are now.
+     * @throws IOException if the journal could not be written; the table is then unchanged
+     * @throws StaleBookingException if an UPDATE expected a version the row is no longer at;
+     *         nothing is saved
+     */
+    synchronized void applyBatch(List<UnitOfWork.BookingChange> changes) throws IOException {
+        ensureLoaded();
+        Map<String, Boolean> exists = new HashMap<>();
+        Map<String, Long> versions = new HashMap<>();
+        List<String> operations = new ArrayList<>();
+        List<BookingRecord> records = new ArrayList<>();
+        for (UnitOfWork.BookingChange change : changes) {
+            String key = change.record.getKey();
+            boolean found = exists.containsKey(key) ? exists.get(key) : rowKeysById.containsKey(key);
+            if (!change.operation.equals(BookingJournal.INSERT) && !found) {
+                continue;
+            }
+            BookingRecord record = change.record;
+            if (change.operation.equals(BookingJournal.UPDATE)) {
+                long current = versions.containsKey(key) ? versions.get(key) : storedVersion(key);
+                if (change.expectedVersion >= 0 && change.expectedVersion != current) {
+                    throw new StaleBookingException(key, change.expectedVersion, current);
+                }
+                record = record.withVersion(current + 1);
+            }
+            exists.put(key, !change.operation.equals(BookingJournal.DELETE));
+            versions.put(key, record.getVersion());
+            operations.add(change.operation);
+            records.add(record);
+        }
+        if (operations.isEmpty()) {
+            return;
+        }
+        
+        journal.appendAll(operations, records);
+        for (int i = 0; i < operations.size(); i++) {
+            applyChange(operations.get(i), records.get(i));
+        }
+        loadedFileState = currentFileState();
+        
+        if (journal.getPendingCount() >= COMPACT_THRESHOLD) {
+            compactor.execute(this::compactIfNeeded);
+        }
+    }
+    
+    // Version of the saved row with the ID, 0 if there is none
+    private long storedVersion(String key) {
+        List<Long> keys = rowKeysById.get(key);
+        return keys != null ? bookingRows.get(keys.get(0)).getVersion() : 0;
+    }
+    
+    // Apply a change to the table and keep the booking index in step
+    private void applyChange(String operation, BookingRecord record) {
+        int rows = applyToTable(operation, record);
+        if (rows < 0) {
+            return;
+        }
+        if (!operation.equals(BookingJournal.INSERT)) {
+            bookingIndex.remove(record.getKey());
+        }
+        for (int i = 0; i < rows; i++) {
+            addToIndex(bookingIndex, record);
+        }
+    }
+    
+    /**
+     * Apply a change to the table only
+     * @return Number of rows now holding the record (0 after a DELETE), or -1 if nothing changed
+     */
+    private int applyToTable(String operation, BookingRecord record) {
+        String key = record.getKey();
+        switch (operation) {
+            case BookingJournal.INSERT:
+                long rowKey = nextRowKey++;
+                bookingRows.put(rowKey, record);
+                if (!key.isEmpty()) {
+                    rowKeysById.computeIfAbsent(key, id -> new ArrayList<>()).add(rowKey);
+                }
+                return 1;
+            case BookingJournal.UPDATE:
+                // Every row with the ID takes the new values, as the old full rewrite did
+                List<Long> keys = rowKeysById.get(key);
+                if (keys == null) {
+                    return -1;
+                }
+                for (Long existingKey : keys) {
+                    bookingRows.put(existingKey, record);
+                }
+                return keys.size();
+            case BookingJournal.DELETE:
+                List<Long> removedKeys = rowKeysById.remove(key);
+                if (removedKeys == null) {
+                    return -1;
+                }
+                for (Long removedKey : removedKeys) {
+                    bookingRows.remove(removedKey);
+                }
+                return 0;
+            default:
+                System.err.println("BookingCSV: Unknown journal operation " + operation);
+                return -1;
+        }
+    }
+    
+    // Make sure the table matches BookingDatabase.csv and the journal
+    private synchronized void ensureLoaded() {
+        if (!isLoaded()) {
+            loadTable();
+        }
+    }
+    
+    private synchronized boolean isLoaded() {
+        return loadedFileState != null && loadedFileState.equals(currentFileState());
+    }
+    
+    private String currentFileState() {
+        return CsvFileState.of(BOOKING_PATH) + "|" + CsvFileState.of(JOURNAL_PATH);
+    }
+    
+    /**
+     * Rebuild the table after a start or a change made outside this class: the latest
+     * snapshot plus the journal changes logged after it, or the whole CSV plus the whole
+     * journal if there is no snapshot to use. Either way the booking index is then built
+     * and checked room by room.
+     */
+    private void loadTable() {
+        bookingRows = new LinkedHashMap<>();
+        rowKeysById = new HashMap<>();
+        bookingIndex = new BookingIndex();
+        nextRowKey = 0;
         try {
-            // Parse times (assuming format HH:MM)
-            int start1Minutes = parseTimeToMinutes(start1);
-            int end1Minutes = parseTimeToMinutes(end1);
-            int start2Minutes = parseTimeToMinutes(start2);
-            int end2Minutes = parseTimeToMinutes(end2);
+            String csvFileState = CsvFileState.of(BOOKING_PATH);
+            // Read first: a journal that doesn't match the CSV is reset here and gets a new epoch
+            List<BookingJournal.Entry> entries = journal.load(csvFileState);
+            String source = SNAPSHOT_PATH;
+            long replayAfter = loadSnapshot();
+            if (replayAfter < 0) {
+                source = BOOKING_PATH;
+                loadCsv(csvFileState);
+            }
             
-
-            boolean overlaps = start1Minutes < end2Minutes && start2Minutes < end1Minutes;
-            System.out.println("timesOverlap: Range1=" + start1 + "-" + end1 + " (" + start1Minutes + "-" + end1Minutes + 
-                             "), Range2=" + start2 + "-" + end2 + " (" + start2Minutes + "-" + end2Minutes + 
-                             "), Overlaps=" + overlaps);
-            return overlaps;
+            int replayed = 0;
+            for (BookingJournal.Entry entry : entries) {
+                if (entry.getSequence() > replayAfter) {
+                    applyToTable(entry.getOperation(), entry.getRecord());
+                    replayed++;
+                }
+            }
+            bookingIndex = buildIndex(new ArrayList<>(bookingRows.values()));
+            loadedFileState = currentFileState();
+            System.out.println("BookingCSV: Loaded " + bookingRows.size() + " bookings from " + source + 
+                             " (" + replayed + " of " + entries.size() + " journal changes replayed)");
         } catch (Exception e) {
-            System.err.println("Error in timesOverlap: " + e.getMessage());
-            // If parsing fails, do simple string comparison
-            return start1.equals(start2) || (end1 != null && end1.equals(end2));
+            System.err.println("Error loading booking table: " + e.getMessage());
+            loadedFileState = null; // Try again on the next lookup
+        }
+    }
+    
+    private void loadCsv(String csvFileState) throws IOException {
+        if (csvFileState == null) {
+            return;
+        }
+        try (CsvScanner csvRead = CsvScanner.open(BOOKING_PATH)) {
+            // Resolved once; columns missing from older files read as ""
+            int[] columns = new int[BookingRecord.HEADERS.length];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = csvRead.column(BookingRecord.HEADERS[i]);
+            }
+            columns[0] = 0; // BookingID is first column
+            while (csvRead.next()) {
+                String[] values = new String[columns.length];
+                for (int i = 0; i < columns.length; i++) {
+                    values[i] = csvRead.get(columns[i]);
+                }
+                applyToTable(BookingJournal.INSERT, BookingRecord.fromValues(values, 0));
+            }
+        }
+    }
+    
+    /**
+     * Fill the table from the snapshot taken during the journal's current epoch
+     * @return The last journal sequence the snapshot includes, or -1 if there is none to use
+     */
+    private long loadSnapshot() {
+        String epoch = journal.getEpoch();
+        if (epoch.isEmpty()) {
+            return -1; // Journal from before epochs; its snapshot can't be matched to it
+        }
+        SnapshotFile.Snapshot snapshot = SnapshotFile.load(SNAPSHOT_PATH, epoch, BookingRecord.HEADERS, SNAPSHOT_KINDS);
+        if (snapshot == null || snapshot.getSequence() > journal.getLastSequence()) {
+            return -1;
+        }
+        for (String[] values : snapshot.getRows()) {
+            applyToTable(BookingJournal.INSERT, BookingRecord.fromValues(values, 0));
+        }
+        snapshotPosition = epoch + "#" + snapshot.getSequence();
+        return snapshot.getSequence();
+    }
+    
+    /**
+     * Index the rows and check that no two bookings overlap in a room.
+     * Large tables are split by room number across worker threads, each building and
+     * checking the index for its own rooms; the parts are then joined.
+     */
+    private static BookingIndex buildIndex(List<BookingRecord> rows) throws Exception {
+        int workers = rows.size() < PARALLEL_INDEX_ROWS ? 1
+                    : Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), MAX_INDEX_WORKERS));
+        List<List<BookingRecord>> partitions = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (BookingRecord record : rows) {
+            partitions.get(Math.floorMod(record.getRoomNumber().hashCode(), workers)).add(record);
+        }
+        
+        List<Callable<BookingIndex>> tasks = new ArrayList<>();
+        for (List<BookingRecord> partition : partitions) {
+            tasks.add(() -> {
+                BookingIndex part = new BookingIndex();
+                for (BookingRecord record : partition) {
+                    addToIndex(part, record);
+                }
+                for (String overlap : part.findOverlaps()) {
+                    System.err.println("BookingCSV: Overlapping bookings in the loaded table: " + overlap);
+                }
+                return part;
+            });
+        }
+        if (workers == 1) {
+            return tasks.get(0).call();
+        }
+        
+        ExecutorService pool = Executors.newFixedThreadPool(workers, task -> {
+            Thread thread = new Thread(task, "booking-recovery");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            BookingIndex index = new BookingIndex();
+            for (Future<BookingIndex> part : pool.invokeAll(tasks)) {
+                index.addAll(part.get());
+            }
+            return index;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    /**
+     * Save the booking table as a binary snapshot for the next start.
+     * Nothing is written if the table isn't loaded or the saved snapshot is up to date.
+     * @return true if a snapshot was written
+     */
+    public synchronized boolean saveSnapshot() throws IOException {
+        String epoch = journal.getEpoch();
+        long sequence = journal.getLastSequence();
+        String position = epoch + "#" + sequence;
+        if (!isLoaded() || epoch.isEmpty() || position.equals(snapshotPosition)) {
+            return false;
+        }
+        List<String[]> rows = new ArrayList<>(bookingRows.size());
+        for (BookingRecord record : bookingRows.values()) {
+            rows.add(record.toValues());
+        }
+        SnapshotFile.write(SNAPSHOT_PATH, epoch, sequence, BookingRecord.HEADERS, SNAPSHOT_KINDS, rows);
+        snapshotPosition = position;
+        return true;
+    }
+    
+    /**
+     * Fold the journal back into BookingDatabase.csv.
+     * The new CSV is written to a temporary file and moved into place before the
+     * journal is reset, so a crash in between leaves either the old CSV plus the
+     * journal or the new CSV plus a journal that no longer matches it.
+     * @return true if the CSV was rewritten
+     */
+    public synchronized boolean compact() throws IOException {
+        ensureLoaded();
+        if (journal.getPendingCount() == 0) {
+            return false;
+        }
+        
+        File bookingFile = new File(BOOKING_PATH);
+        File tempFile = new File(BOOKING_PATH + ".tmp");
+        CsvWriter csvWrite = new CsvWriter(new FileWriter(tempFile, false), ',');
+        try {
+            csvWrite.writeRecord(BookingRecord.HEADERS);
+            for (BookingRecord record : bookingRows.values()) {
+                csvWrite.writeRecord(record.toValues());
+            }
+        } finally {
+            csvWrite.close();
+        }
+        CsvJournal.replaceFile(tempFile, bookingFile, journal.getFlushPolicy());
+        
+        int compacted = journal.getPendingCount();
+        journal.reset(CsvFileState.of(BOOKING_PATH));
+        loadedFileState = currentFileState();
+        System.out.println("BookingCSV: Compacted " + compacted + " journal changes into " + BOOKING_PATH);
+        try {
+            fileIndex.refresh();
+        } catch (IOException e) {
+            // Rebuilt by the next indexed lookup instead
+            System.err.println("BookingCSV: Failed to index " + BOOKING_PATH + ": " + e.getMessage());
+        }
+        return true;
+    }
+    
+    /**
+     * When booking changes are forced to disk (SYNC by default), and the flush latencies
+     */
+    public FlushPolicy getFlushPolicy() {
+        return journal.getFlushPolicy();
+    }
+    
+    private void compactIfNeeded() {
+        try {
+            compact();
+        } catch (Exception e) {
+            System.err.println("Error compacting booking journal: " + e.getMessage());
+        }
+        try {
+            saveSnapshot();
+        } catch (Exception e) {
+            System.err.println("Error saving booking snapshot: " + e.getMessage());
         }
     }
     
-    // Helper method to parse time string (HH:MM) to minutes since midnight
-    private int parseTimeToMinutes(String time) {
+    // Helper method to check if two time ranges overlap
+    // Conflict checks have always read a blank time as midnight
+    static short minutesOrMidnight(String time) {
         if (time == null || time.trim().isEmpty()) {
             return 0;
         }
-        String[] parts = time.trim().split(":");
-        if (parts.length >= 2) {
-            int hours = Integer.parseInt(parts[0]);
-            int minutes = Integer.parseInt(parts[1]);
-            return hours * 60 + minutes;
+        return BookingTime.parseMinute(time);
+    }
+    
+    private boolean timesOverlap(String start1, String end1, String start2, String end2) {
+        short start1Minutes = minutesOrMidnight(start1);
+        short end1Minutes = minutesOrMidnight(end1);
+        short start2Minutes = minutesOrMidnight(start2);
+        short end2Minutes = minutesOrMidnight(end2);
+        if (start1Minutes == BookingTime.NO_MINUTE || end1Minutes == BookingTime.NO_MINUTE ||
+            start2Minutes == BookingTime.NO_MINUTE || end2Minutes == BookingTime.NO_MINUTE) {
+            System.err.println("Error in timesOverlap: Could not parse " + start1 + "-" + end1 + " / " + start2 + "-" + end2);
+            // If parsing fails, do simple string comparison
+            return start1 != null && start1.equals(start2) || (end1 != null && end1.equals(end2));
         }
-        return 0;
+
+        boolean overlaps = start1Minutes < end2Minutes && start2Minutes < end1Minutes;
+        System.out.println("timesOverlap: Range1=" + start1 + "-" + end1 + " (" + start1Minutes + "-" + end1Minutes + 
+                         "), Range2=" + start2 + "-" + end2 + " (" + start2Minutes + "-" + end2Minutes + 
+                         "), Overlaps=" + overlaps);
+        return overlaps;
     }
     
     public List<Booking> findByUserEmail(String email) {
@@ -390,60 +1068,32 @@ public class BookingCSV {
                 System.out.println("WARNING: BookingDatabase.csv appears to be empty or very small");
             }
             
-            CsvReader csvRead = new CsvReader(BOOKING_PATH);
-            csvRead.readHeaders();
-            
-            // Debug: Print headers to verify column names
-            String[] headers = csvRead.getHeaders();
-            System.out.println("CSV Headers: " + java.util.Arrays.toString(headers));
-            
-            // Verify we have the expected columns
-            boolean hasRequiredColumns = false;
-            for (String header : headers) {
-                if (header.equals("Booking UserID")) {
-                    hasRequiredColumns = true;
-                    break;
-                }
-            }
-            if (!hasRequiredColumns) {
-                System.err.println("ERROR: CSV file does not have 'Booking UserID' column!");
-                System.err.println("Expected columns: RoomID, Building Name, Room Number, Booking UserID, Booking Date, Booking Start Time");
-                csvRead.close();
-                return bookings;
-            }
-            
             int recordCount = 0;
             int matchCount = 0;
+            List<BookingRecord> matches = new ArrayList<>();
             
-            while (csvRead.readRecord()) {
+            for (BookingRecord record : snapshotRows()) {
                 recordCount++;
                 
                 // Skip empty records
-                String recordUserId = csvRead.get("Booking UserID");
-                String roomNumber = csvRead.get("Room Number");
+                String recordUserId = record.getUserId();
+                String roomNumber = record.getRoomNumber();
                 
                 // Skip if both are empty (empty row)
-                if ((recordUserId == null || recordUserId.trim().isEmpty()) && 
-                    (roomNumber == null || roomNumber.trim().isEmpty())) {
+                if (recordUserId.trim().isEmpty() && roomNumber.trim().isEmpty()) {
                     System.out.println("Record " + recordCount + " - Skipping empty record");
                     continue;
                 }
                 
                 System.out.println("Record " + recordCount + " - UserID: " + recordUserId + ", Room: " + roomNumber);
                 
-                if (recordUserId != null && !recordUserId.trim().isEmpty() && recordUserId.equals(userId)) {
+                if (!recordUserId.trim().isEmpty() && recordUserId.equals(userId)) {
                     matchCount++;
-                    System.out.println("Match found! Parsing booking record " + matchCount);
-                    Booking booking = parseBookingFromRecord(csvRead);
-                    if (booking != null) {
-                        bookings.add(booking);
-                        System.out.println("Successfully parsed booking: " + booking.getBookingId());
-                    } else {
-                        System.out.println("Failed to parse booking record");
-                    }
+                    System.out.println("Match found! Collecting booking record " + matchCount);
+                    matches.add(record);
                 }
             }
-            csvRead.close();
+            bookings.addAll(hydrate(matches));
             
             System.out.println("Total records read: " + recordCount + ", Matches: " + matchCount + ", Bookings added: " + bookings.size());
         } catch (Exception e) {
@@ -463,52 +1113,19 @@ public class BookingCSV {
                 return records;
             }
             
-            CsvReader csvRead = new CsvReader(BOOKING_PATH);
-            csvRead.readHeaders();
-            
-            // Debug: Print headers to verify column names
-            String[] headers = csvRead.getHeaders();
-            System.out.println("BookingDatabase.csv Headers: " + java.util.Arrays.toString(headers));
-            
-            while (csvRead.readRecord()) {
-                // Read BookingID from CSV - it's the first column (index 0)
-                String bookingId = null;
-                try {
-                    // Read directly by index 0 (first column) to ensure we get the right value
-                    bookingId = csvRead.get(0);
-                    
-                    // Clean up the value
-                    if (bookingId != null) {
-                        bookingId = bookingId.trim();
-                        if (bookingId.isEmpty()) {
-                            bookingId = null;
-                        }
-                    }
-                    
-                    System.out.println("Read BookingID from CSV (column index 0): '" + bookingId + "'");
-                } catch (Exception e) {
-                    System.err.println("Error reading BookingID from column 0: " + e.getMessage());
-                    // Try by name as fallback
-                    try {
-                        bookingId = csvRead.get("BookingID");
-                        if (bookingId != null) {
-                            bookingId = bookingId.trim();
-                            if (bookingId.isEmpty()) {
-                                bookingId = null;
-                            }
-                        }
-                        System.out.println("Read BookingID by name: '" + bookingId + "'");
-                    } catch (Exception e2) {
-                        System.err.println("Could not read BookingID by name either");
-                    }
+            for (BookingRecord row : snapshotRows()) {
+                // BookingID is the first column
+                String bookingId = row.getBookingId().trim();
+                if (bookingId.isEmpty()) {
+                    bookingId = null;
                 }
+                System.out.println("Read BookingID from CSV (column index 0): '" + bookingId + "'");
                 
-                String roomNumber = csvRead.get("Room Number");
-                String bookingDate = csvRead.get("Booking Date");
-                String bookingStartTime = csvRead.get("Booking Start Time");
-                String roomId = csvRead.get("RoomID");
-                String buildingName = csvRead.get("Building Name");
-                String userId = csvRead.get("Booking UserID");
+                String roomNumber = row.getRoomNumber();
+                String bookingDate = row.getDate();
+                String bookingStartTime = row.getStartTime();
+                String roomId = row.getRoomId();
+                String buildingName = row.getBuildingName();
                 
                 // Skip empty records
                 if ((roomNumber == null || roomNumber.trim().isEmpty()) && 
@@ -540,15 +1157,7 @@ public class BookingCSV {
                 record.put("startTime", bookingStartTime != null ? bookingStartTime : "N/A");
                 
                 // Get end time from CSV first, then fallback to RoomDatabase.csv or calculate from start time
-                String endTime = null;
-                try {
-                    endTime = csvRead.get("Booking End Time");
-                    if (endTime != null) {
-                        endTime = endTime.trim();
-                    }
-                } catch (Exception e) {
-                    // Column might not exist in older CSV files
-                }
+                String endTime = row.getEndTime().trim();
                 
                 // If end time not in CSV, try to get from RoomDatabase.csv
                 if ((endTime == null || endTime.isEmpty()) && roomId != null && !roomId.trim().isEmpty()) {
@@ -571,54 +1180,12 @@ public class BookingCSV {
                 
                 record.put("endTime", endTime != null && !endTime.isEmpty() ? endTime : "N/A");
                 
-                // Get status from RoomDatabase.csv if roomId exists
-                // Only use room condition if this booking's time slot matches the room's current booking
-                String status = "Reserved";
-                if (roomId != null && !roomId.trim().isEmpty()) {
-                    try {
-                        RoomCSV roomCSV = RoomCSV.getInstance();
-                        UUID roomUUID = UUID.fromString(roomId.trim());
-                        Room room = roomCSV.findById(roomUUID);
-                        if (room != null) {
-                            // Get the booking ID for this record (use the one we read earlier)
-                            String currentBookingId = bookingId != null ? bookingId.trim() : null;
-                            
-                            // Check if this booking's time slot matches the room's current booking
-                            String roomBookingId = room.getBookingId();
-                            String roomBookingDate = room.getBookingDate();
-                            String roomBookingStartTime = room.getBookingStartTime();
-                            
-                            // Only use room condition if this booking matches the room's current booking
-                            boolean bookingMatchesRoom = (currentBookingId != null && roomBookingId != null && roomBookingId.equals(currentBookingId)) &&
-                                                         (roomBookingDate != null && roomBookingDate.equals(bookingDate)) &&
-                                                         (roomBookingStartTime != null && roomBookingStartTime.equals(bookingStartTime));
-                            
-                            if (bookingMatchesRoom) {
-                                // This booking matches the room's current booking, use room condition
-                                String roomCondition = room.getCondition();
-                                if (roomCondition != null) {
-                                    switch (roomCondition) {
-                                        case "InUse": status = "InUse"; break;
-                                        case "Available": status = "Completed"; break;
-                                        case "Reserved": status = "Reserved"; break;
-                                        default: status = "Reserved";
-                                    }
-                                }
-                            } else {
-                                // This booking doesn't match the room's current booking
-                                status = "Reserved";
-                            }
-                        }
-                    } catch (Exception e) {
-                        // If room lookup fails, use defaults
-                    }
-                }
-                
+                // Status is stored with the booking, no room lookup needed
+                String status = BookingStatus.of(row.getStatus());
                 record.put("status", status);
                 
                 records.add(record);
             }
-            csvRead.close();
         } catch (Exception e) {
             System.err.println("Error reading booking records from CSV: " + e.getMessage());
             e.printStackTrace();
@@ -645,39 +1212,25 @@ public class BookingCSV {
             System.out.println("findAll: Reading from BookingDatabase.csv at: " + BOOKING_PATH);
             System.out.println("findAll: File size: " + bookingFile.length() + " bytes");
             
-            CsvReader csvRead = new CsvReader(BOOKING_PATH);
-            csvRead.readHeaders();
-            
-            // Debug: Print headers
-            String[] headers = csvRead.getHeaders();
-            System.out.println("findAll: CSV Headers: " + java.util.Arrays.toString(headers));
-            
             int recordCount = 0;
-            while (csvRead.readRecord()) {
+            List<BookingRecord> rows = new ArrayList<>();
+            for (BookingRecord record : snapshotRows()) {
                 recordCount++;
                 
                 // Skip empty records
-                String recordUserId = csvRead.get("Booking UserID");
-                String roomNumber = csvRead.get("Room Number");
+                String recordUserId = record.getUserId();
+                String roomNumber = record.getRoomNumber();
                 
                 // Skip if both are empty (empty row)
-                if ((recordUserId == null || recordUserId.trim().isEmpty()) && 
-                    (roomNumber == null || roomNumber.trim().isEmpty())) {
+                if (recordUserId.trim().isEmpty() && roomNumber.trim().isEmpty()) {
                     System.out.println("findAll: Record " + recordCount + " - Skipping empty record");
                     continue;
                 }
                 
                 System.out.println("findAll: Record " + recordCount + " - UserID: " + recordUserId + ", Room: " + roomNumber);
-                
-                Booking booking = parseBookingFromRecord(csvRead);
-                if (booking != null) {
-                    bookings.add(booking);
-                    System.out.println("findAll: Successfully parsed booking: " + booking.getBookingId());
-                } else {
-                    System.out.println("findAll: Failed to parse booking record " + recordCount);
-                }
+                rows.add(record);
             }
-            csvRead.close();
+            bookings.addAll(hydrate(rows));
             System.out.println("findAll: Read " + recordCount + " records, parsed " + bookings.size() + " bookings");
         } catch (Exception e) {
             System.err.println("Error in findAll: " + e.getMessage());
@@ -687,126 +1240,62 @@ public class BookingCSV {
     }
     
     public void update(Booking updatedBooking) {
+        update(updatedBooking, -1);
+    }
+    
+    /**
+     * Save a booking only if the stored row is still at the version it was read at.
+     * On success the booking takes the row's new version.
+     * @param expectedVersion Version the caller's copy was read at, or -1 to overwrite whatever is stored
+     * @throws StaleBookingException if the row was saved by someone else in the meantime
+     */
+    public void update(Booking updatedBooking, long expectedVersion) {
         System.out.println("BookingCSV.update: Called with booking ID: " + updatedBooking.getBookingId());
         System.out.println("BookingCSV.update: Booking end time: " + updatedBooking.getBookingEndTime());
         try {
-            // Read all bookings
-            List<Map<String, String>> allBookings = new ArrayList<>();
             File bookingFile = new File(BOOKING_PATH);
-            
             if (!bookingFile.exists() || !bookingFile.canRead()) {
                 System.err.println("BookingDatabase.csv does not exist or cannot be read for update");
                 return;
             }
             
-            CsvReader csvRead = new CsvReader(BOOKING_PATH);
-            csvRead.readHeaders();
-            
-            boolean found = false;
-            int recordCount = 0;
-            while (csvRead.readRecord()) {
-                recordCount++;
-                String recordBookingId = csvRead.get(0); // BookingID is first column
-                
-                // Skip empty records
-                if (recordBookingId == null || recordBookingId.trim().isEmpty()) {
-                    System.out.println("BookingCSV.update: Record " + recordCount + " - Skipping empty booking ID");
-                    continue;
-                }
-                
-                System.out.println("BookingCSV.update: Record " + recordCount + " - Comparing '" + recordBookingId.trim() + "' with '" + updatedBooking.getBookingId() + "'");
-                
-                // If this is the booking to update, use updated values
-                if (recordBookingId.trim().equals(updatedBooking.getBookingId())) {
-                    System.out.println("BookingCSV.update: ✓ Found matching booking to update!");
-                    found = true;
-                    // Create updated record
-                    Room room = findRoomByNumber(updatedBooking.getRoomNumber());
-                    Map<String, String> booking = new HashMap<>();
-                    booking.put("bookingId", updatedBooking.getBookingId());
-                    booking.put("roomId", room != null ? room.getRoomId().toString() : "");
-                    booking.put("buildingName", room != null ? room.getBuildingName() : "");
-                    booking.put("roomNumber", updatedBooking.getRoomNumber());
-                    booking.put("userId", updatedBooking.getUser().getAccountId().toString());
-                    booking.put("date", updatedBooking.getBookingDate());
-                    booking.put("startTime", updatedBooking.getBookingStartTime());
-                    // Use the updated end time
-                    String updatedEndTime = updatedBooking.getBookingEndTime() != null ? updatedBooking.getBookingEndTime() : "";
-                    booking.put("endTime", updatedEndTime);
-                    System.out.println("BookingCSV.update: Updating booking " + updatedBooking.getBookingId() + 
-                                     " with new end time: " + updatedEndTime);
-                    allBookings.add(booking);
-                } else {
-                    // Keep existing booking
-                    Map<String, String> booking = new HashMap<>();
-                    booking.put("bookingId", recordBookingId);
-                    booking.put("roomId", csvRead.get("RoomID"));
-                    booking.put("buildingName", csvRead.get("Building Name"));
-                    booking.put("roomNumber", csvRead.get("Room Number"));
-                    booking.put("userId", csvRead.get("Booking UserID"));
-                    booking.put("date", csvRead.get("Booking Date"));
-                    booking.put("startTime", csvRead.get("Booking Start Time"));
-                    // Get end time from CSV, or calculate from start time if not present
-                    String endTime = csvRead.get("Booking End Time");
-                    if (endTime == null || endTime.trim().isEmpty()) {
-                        endTime = calculateEndTime(csvRead.get("Booking Start Time"));
-                    }
-                    booking.put("endTime", endTime != null ? endTime : "");
-                    allBookings.add(booking);
-                }
-            }
-            csvRead.close();
+            Room room = findRoomByNumber(updatedBooking.getRoomNumber());
+            // Use the updated end time
+            String updatedEndTime = updatedBooking.getBookingEndTime() != null ? updatedBooking.getBookingEndTime() : "";
+            BookingRecord record = new BookingRecord(
+                updatedBooking.getBookingId(),
+                room != null ? room.getRoomId().toString() : "",
+                room != null ? room.getBuildingName() : "",
+                updatedBooking.getRoomNumber(),
+                updatedBooking.getUser().getAccountId().toString(),
+                updatedBooking.getBookingDate(),
+                updatedBooking.getBookingStartTime(),
+                updatedEndTime,
+                BookingStatus.of(updatedBooking.getStatus()),
+                updatedBooking.isRecurring() ? updatedBooking.getRecurrence().format() : "");
             
-            if (!found) {
+            // One journal record instead of rewriting the whole file
+            if (!appendChange(BookingJournal.UPDATE, record, expectedVersion)) {
                 System.err.println("Booking not found for update: " + updatedBooking.getBookingId());
                 return;
             }
-            
-            // Rewrite the file with updated booking
-            System.out.println("BookingCSV.update: Writing to file: " + BOOKING_PATH);
-            System.out.println("BookingCSV.update: Total bookings to write: " + allBookings.size());
-            CsvWriter csvWrite = new CsvWriter(new FileWriter(BOOKING_PATH, false), ',');
-            csvWrite.write("BookingID");
-            csvWrite.write("RoomID");
-            csvWrite.write("Building Name");
-            csvWrite.write("Room Number");
-            csvWrite.write("Booking UserID");
-            csvWrite.write("Booking Date");
-            csvWrite.write("Booking Start Time");
-            csvWrite.write("Booking End Time");
-            csvWrite.endRecord();
-
-            for (Map<String, String> booking : allBookings) {
-                String bookingId = booking.get("bookingId") != null ? booking.get("bookingId") : "";
-                String endTime = booking.get("endTime") != null ? booking.get("endTime") : "";
-                String startTime = booking.get("startTime") != null ? booking.get("startTime") : "";
-                csvWrite.write(bookingId);
-                csvWrite.write(booking.get("roomId") != null ? booking.get("roomId") : "");
-                csvWrite.write(booking.get("buildingName") != null ? booking.get("buildingName") : "");
-                csvWrite.write(booking.get("roomNumber") != null ? booking.get("roomNumber") : "");
-                csvWrite.write(booking.get("userId") != null ? booking.get("userId") : "");
-                csvWrite.write(booking.get("date") != null ? booking.get("date") : "");
-                csvWrite.write(startTime);
-                csvWrite.write(endTime); // Write the end time
-                csvWrite.endRecord();
-                if (bookingId.equals(updatedBooking.getBookingId())) {
-                    System.out.println("BookingCSV.update: ✓ Wrote booking " + bookingId + " - Start: " + startTime + ", End: " + endTime);
-                } else {
-                    System.out.println("BookingCSV.update: Wrote booking " + bookingId + " - Start: " + startTime + ", End: " + endTime);
-                }
+            BookingRecord saved = findRecord(updatedBooking.getBookingId());
+            if (saved != null) {
+                updatedBooking.setVersion(saved.getVersion());
             }
-            csvWrite.close();
-            System.out.println("BookingCSV.update: File write completed successfully");
+            System.out.println("BookingCSV.update: Updated booking " + updatedBooking.getBookingId() + 
+                             " - Start: " + record.getStartTime() + ", End: " + updatedEndTime);
             
             // Update RoomDatabase.csv when booking changes
             if (updatedBooking.getRoomNumber() != null && !updatedBooking.getRoomNumber().isEmpty()) {
-                Room room = findRoomByNumber(updatedBooking.getRoomNumber());
                 if (room != null) {
                     updateRoomDatabase(room, updatedBooking);
                 }
             }
             
             System.out.println("Successfully updated booking in BookingDatabase.csv: " + updatedBooking.getBookingId());
+        } catch (StaleBookingException e) {
+            throw e;
         } catch (Exception e) {
             System.err.println("Error updating booking: " + e.getMessage());
             e.printStackTrace();
@@ -822,13 +1311,12 @@ public class BookingCSV {
                 return bookings;
             }
             
-            CsvReader csvRead = new CsvReader(BOOKING_PATH);
-            csvRead.readHeaders();
-            
-            while (csvRead.readRecord()) {
-                String recordRoomNumber = csvRead.get("Room Number");
-                String recordDate = csvRead.get("Booking Date");
-                String recordStartTime = csvRead.get("Booking Start Time");
+            // Compare dates as epoch days so dd/MM/yyyy and yyyy-MM-dd rows both match
+            int requestedDay = BookingTime.parseDay(date);
+            for (BookingRecord record : snapshotRows()) {
+                String recordRoomNumber = record.getRoomNumber();
+                String recordDate = record.getDate();
+                String recordStartTime = record.getStartTime();
                 
                 // Skip empty records
                 if (recordRoomNumber == null || recordRoomNumber.trim().isEmpty() ||
@@ -848,28 +1336,20 @@ public class BookingCSV {
                 String trimmedRoomNumber = roomNumber != null ? roomNumber.trim() : "";
                 String trimmedDate = date != null ? date.trim() : "";
                 
-                if (trimmedRecordRoom.equals(trimmedRoomNumber) && trimmedRecordDate.equals(trimmedDate)) {
+                if (trimmedRecordRoom.equals(trimmedRoomNumber) && meetsOn(record, trimmedRecordDate, trimmedDate, requestedDay)) {
                     System.out.println("getBookingsForRoomAndDate: MATCH FOUND! Adding booking with startTime: " + recordStartTime);
                     Map<String, String> booking = new HashMap<>();
                     booking.put("startTime", recordStartTime != null ? recordStartTime.trim() : "");
                     
                     // Get end time from BookingDatabase.csv FIRST (this is the source of truth)
-                    String recordEndTime = null;
-                    try {
-                        recordEndTime = csvRead.get("Booking End Time");
-                        if (recordEndTime != null) {
-                            recordEndTime = recordEndTime.trim();
-                            System.out.println("getBookingsForRoomAndDate: Found endTime from BookingDatabase.csv: " + recordEndTime);
-                        }
-                    } catch (Exception e) {
-                        System.out.println("getBookingsForRoomAndDate: Could not read end time from BookingDatabase.csv, trying RoomDatabase");
-                    }
+                    String recordEndTime = record.getEndTime().trim();
+                    System.out.println("getBookingsForRoomAndDate: Found endTime from BookingDatabase.csv: " + recordEndTime);
                     
                     // If end time not in BookingDatabase.csv, try RoomDatabase.csv as fallback
                     if ((recordEndTime == null || recordEndTime.isEmpty())) {
                         try {
-                            String roomIdStr = csvRead.get("RoomID");
-                            if (roomIdStr != null && !roomIdStr.trim().isEmpty()) {
+                            String roomIdStr = record.getRoomId();
+                            if (!roomIdStr.trim().isEmpty()) {
                                 RoomCSV roomCSV = RoomCSV.getInstance();
                                 UUID roomId = UUID.fromString(roomIdStr.trim());
                                 Room room = roomCSV.findById(roomId);
@@ -893,21 +1373,92 @@ public class BookingCSV {
                     bookings.add(booking);
                 }
             }
-            csvRead.close();
         } catch (Exception e) {
             System.err.println("Error getting bookings for room and date: " + e.getMessage());
             e.printStackTrace();
         }
         return bookings;
     }
+
+    // A recurring series matches the days it meets on, any other row its own date
+    private boolean meetsOn(BookingRecord record, String recordDate, String date, int day) {
+        RecurrenceRule rule = record.getRecurrence().isEmpty() ? null : RecurrenceRule.parse(record.getRecurrence());
+        int firstDay = BookingTime.parseDay(recordDate);
+        if (rule == null || firstDay == BookingTime.NO_DAY || day == BookingTime.NO_DAY) {
+            return sameDay(recordDate, date, day);
+        }
+        return rule.occursOn(firstDay, day);
+    }
     
-    private Booking parseBookingFromRecord(CsvReader csvRead) {
+    // Dates that parse are compared by epoch day, anything else by text
+    private boolean sameDay(String recordDate, String date, int day) {
+        if (day != BookingTime.NO_DAY) {
+            return BookingTime.parseDay(recordDate) == day;
+        }
+        return recordDate.equals(date);
+    }
+
+    /**
+     * Build Booking objects for a batch of rows. The users they reference are
+     * resolved with one directory lookup instead of one per row.
+     */
+    private List<Booking> hydrate(List<BookingRecord> records) {
+        Set<UUID> userIds = new HashSet<>();
+        for (BookingRecord record : records) {
+            UUID userId = parseUserId(record.getUserId());
+            if (userId != null) {
+                userIds.add(userId);
+            }
+        }
+        
+        Map<UUID, Accounts> accounts = UserCSV.getInstance().findAll(userIds);
+        Map<UUID, User> users = new HashMap<>();
+        for (UUID userId : userIds) {
+            Accounts account = accounts.get(userId);
+            if (account instanceof User) {
+                users.put(userId, (User) account);
+            } else {
+                System.err.println("hydrate: User not found for ID: " + userId + ", using placeholder user for booking management");
+                users.put(userId, placeholderUser(userId));
+            }
+        }
+        
+        List<Booking> bookings = new ArrayList<>();
+        for (BookingRecord record : records) {
+            Booking booking = parseBookingFromRecord(record, users);
+            if (booking != null) {
+                bookings.add(booking);
+            } else {
+                System.out.println("hydrate: Failed to parse booking record " + record.getBookingId());
+            }
+        }
+        return bookings;
+    }
+    
+    private UUID parseUserId(String userIdStr) {
+        try {
+            return UUID.fromString(userIdStr.trim());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    // Stand-in for a deleted account, carrying the ID stored with its bookings
+    private User placeholderUser(UUID userId) {
+        User user = new Student("deleted_user_" + userId.toString().substring(0, 8) + "@placeholder.com", 
+                                "placeholder", "PLACEHOLDER");
+        user.setAccountId(userId);
+        return user;
+    }
+    
+    // Users must hold an entry for every valid UserID in the record (see hydrate)
+    private Booking parseBookingFromRecord(BookingRecord record, Map<UUID, User> users) {
         try {
-            String userIdStr = csvRead.get("Booking UserID");
-            String roomNumber = csvRead.get("Room Number");
-            String bookingDate = csvRead.get("Booking Date");
-            String bookingStartTime = csvRead.get("Booking Start Time");
-            String roomIdStr = csvRead.get("RoomID");
+            String userIdStr = record.getUserId();
+            String roomNumber = record.getRoomNumber();
+            String bookingDate = record.getDate();
+            String bookingStartTime = record.getStartTime();
+            String roomIdStr = record.getRoomId();
             
             // Validate required fields
             if (userIdStr == null || userIdStr.trim().isEmpty()) {
@@ -920,173 +1471,40 @@ public class BookingCSV {
             //     return null;
             // }
             
-            // Get user from database by ID
-            UserCSV userCSV = UserCSV.getInstance();
-            UUID userId;
-            try {
-                userId = UUID.fromString(userIdStr.trim());
-            } catch (IllegalArgumentException e) {
+            // User was resolved for the whole batch up front
+            UUID userId = parseUserId(userIdStr);
+            User user = userId != null ? users.get(userId) : null;
+            if (user == null) {
                 System.err.println("parseBookingFromRecord: Invalid UserID format: " + userIdStr);
                 return null;
             }
             
-            Accounts account = userCSV.find(userId);
-            User user;
-
-
-            if (account == null || !(account instanceof User)) {
-                System.err.println("parseBookingFromRecord: User not found for ID: " + userIdStr);
-                System.err.println("parseBookingFromRecord: Creating placeholder user for booking management");
-                
-                user = new Student("deleted_user_" + userIdStr.substring(0, 8) + "@placeholder.com", 
-                                  "placeholder", "PLACEHOLDER");
-                
-                // Use reflection to set the accountId to match the UUID from CSV
-                try {
-                    java.lang.reflect.Method setAccountIdMethod = Accounts.class.getDeclaredMethod("setAccountId", UUID.class);
-                    setAccountIdMethod.setAccessible(true);
-                    setAccountIdMethod.invoke(user, userId);
-                } catch (Exception e) {
-                    System.err.println("parseBookingFromRecord: Warning - Could not set accountId for placeholder user: " + e.getMessage());
-                    // Continue anyway - the booking can still be managed
-                }
-            } else {
-                user = (User) account;
-            
-            }
-            
-            
             // Get end time from CSV first, then fallback to RoomDatabase.csv if not present
-            String bookingEndTime = null;
-            try {
-                bookingEndTime = csvRead.get("Booking End Time");
-                if (bookingEndTime != null) {
-                    bookingEndTime = bookingEndTime.trim();
-                }
-            } catch (Exception e) {
-                // Column might not exist in older CSV files
-            }
+            String bookingEndTime = record.getEndTime().trim();
             
             // If end time not in CSV, calculate from start time (start time + 1 hour)
             if (bookingEndTime == null || bookingEndTime.isEmpty()) {
                 bookingEndTime = calculateEndTime(bookingStartTime);
             }
             
-            // Get status from RoomDatabase.csv
-            String status = "Reserved"; // Default status
-            
-            if (roomIdStr != null && !roomIdStr.isEmpty()) {
-                try {
-                    RoomCSV roomCSV = RoomCSV.getInstance();
-                    UUID roomId = UUID.fromString(roomIdStr);
-                    Room room = roomCSV.findById(roomId);
-                    
-                    if (room != null) {
-                        // Read booking ID from CSV to check if this booking matches the room's current booking
-                        String recordBookingId = null;
-                        try {
-                            recordBookingId = csvRead.get(0); // BookingID is first column
-                            if (recordBookingId != null) {
-                                recordBookingId = recordBookingId.trim();
-                            }
-                        } catch (Exception e2) {
-                            // Try by name as fallback
-                            try {
-                                recordBookingId = csvRead.get("BookingID");
-                                if (recordBookingId != null) {
-                                    recordBookingId = recordBookingId.trim();
-                                }
-                            } catch (Exception e3) {
-                                // Ignore
-                            }
-                        }
-                        
-                        // Check if this booking's time slot matches the room's current booking
-                        String roomBookingId = room.getBookingId();
-                        String roomBookingDate = room.getBookingDate();
-                        String roomBookingStartTime = room.getBookingStartTime();
-                        
-                        // Only use room condition if this booking matches the room's current booking
-                        boolean bookingMatchesRoom = (recordBookingId != null && roomBookingId != null && roomBookingId.equals(recordBookingId)) &&
-                                                     (roomBookingDate != null && roomBookingDate.equals(bookingDate)) &&
-                                                     (roomBookingStartTime != null && roomBookingStartTime.equals(bookingStartTime));
-                        
-                        if (bookingMatchesRoom) {
-                            // This booking matches the room's current booking, use room condition
-                            String roomCondition = room.getCondition();
-                            if (roomCondition != null) {
-                                switch (roomCondition) {
-                                    case "InUse":
-                                        status = "InUse";
-                                        break;
-                                    case "Available":
-                                        status = "Completed";
-                                        break;
-                                    case "Reserved":
-                                        status = "Reserved";
-                                        break;
-                                    default:
-                                        status = "Reserved";
-                                }
-                            }
-                        } else {
-                            // This booking doesn't match the room's current booking
-                            status = "Reserved";
-                        }
-                    }
-                } catch (Exception e) {
-                    // If room lookup fails, use defaults
-                    System.err.println("Error looking up room for booking: " + e.getMessage());
-                }
-            }
+            // Status is stored with the booking, no room lookup needed
+            String status = BookingStatus.of(record.getStatus());
             
             // Calculate hours from start and end time
             int hours = 1; // Default
             if (bookingStartTime != null && bookingEndTime != null && !bookingEndTime.isEmpty()) {
-                try {
-                    String[] startParts = bookingStartTime.split(":");
-                    String[] endParts = bookingEndTime.split(":");
-                    int startHour = Integer.parseInt(startParts[0]);
-                    int startMin = startParts.length > 1 ? Integer.parseInt(startParts[1]) : 0;
-                    int endHour = Integer.parseInt(endParts[0]);
-                    int endMin = endParts.length > 1 ? Integer.parseInt(endParts[1]) : 0;
-                    
-                    int startTotalMinutes = startHour * 60 + startMin;
-                    int endTotalMinutes = endHour * 60 + endMin;
-                    int diffMinutes = endTotalMinutes - startTotalMinutes;
-                    
-                    hours = (int) Math.ceil(diffMinutes / 60.0);
+                short startMinutes = BookingTime.parseMinute(bookingStartTime);
+                short endMinutes = BookingTime.parseMinute(bookingEndTime);
+                if (startMinutes != BookingTime.NO_MINUTE && endMinutes != BookingTime.NO_MINUTE) {
+                    hours = (int) Math.ceil((endMinutes - startMinutes) / 60.0);
                     if (hours < 1) hours = 1;
-                } catch (Exception e) {
-                    // If parsing fails, use default
-                    hours = 1;
                 }
             }
             
             double rate = user.getHourlyRate();
             
             // Read BookingID from CSV (first column, index 0)
-            String bookingId = null;
-            try {
-                bookingId = csvRead.get(0); // BookingID is first column
-                if (bookingId != null) {
-                    bookingId = bookingId.trim();
-                }
-            } catch (Exception e) {
-                // Try by name as fallback
-                try {
-                    bookingId = csvRead.get("BookingID");
-                    if (bookingId != null) {
-                        bookingId = bookingId.trim();
-                    }
-                } catch (Exception e2) {
-                    // If still can't read, generate one as fallback
-                    bookingId = "B" + (roomIdStr != null && roomIdStr.length() >= 8 ? 
-                                     roomIdStr.substring(0, 8).toUpperCase() : 
-                                     userIdStr.substring(0, 8).toUpperCase());
-                    System.err.println("parseBookingFromRecord: Could not read BookingID from CSV, generated: " + bookingId);
-                }
-            }
+            String bookingId = record.getBookingId().trim();
             
             // If booking ID is still null or empty, generate one as fallback
             if (bookingId == null || bookingId.isEmpty()) {
@@ -1104,6 +1522,8 @@ public class BookingCSV {
             Booking booking = new Booking(bookingId, user, hours, rate, 
                                          finalRoomNumber, bookingDate, bookingStartTime, bookingEndTime);
             booking.setStatus(status);
+            booking.setRecurrence(RecurrenceRule.parse(record.getRecurrence()));
+            booking.setVersion(record.getVersion());
             return booking;
         } catch (Exception e) {
             e.printStackTrace();
@@ -1120,80 +1540,20 @@ public class BookingCSV {
                 return false;
             }
             
-            // Read all bookings
-            List<Map<String, String>> allBookings = new ArrayList<>();
-            CsvReader csvRead = new CsvReader(BOOKING_PATH);
-            csvRead.readHeaders();
-            
-            String roomIdToClear = null;
-            String roomNumberToClear = null;
-            
-            while (csvRead.readRecord()) {
-                String recordBookingId = csvRead.get(0); // BookingID is first column
-                
-                // Skip empty records
-                if (recordBookingId == null || recordBookingId.trim().isEmpty()) {
-                    continue;
-                }
-                
-                // If this is the booking to delete, remember the room info for clearing
-                if (recordBookingId.trim().equals(bookingId.trim())) {
-                    roomIdToClear = csvRead.get("RoomID");
-                    roomNumberToClear = csvRead.get("Room Number");
-                    System.out.println("Found booking to delete: " + bookingId + ", Room: " + roomNumberToClear);
-                    continue; // Skip this booking (don't add to allBookings)
-                }
-                
-                // Keep all other bookings
-                Map<String, String> booking = new HashMap<>();
-                booking.put("bookingId", recordBookingId);
-                booking.put("roomId", csvRead.get("RoomID"));
-                booking.put("buildingName", csvRead.get("Building Name"));
-                booking.put("roomNumber", csvRead.get("Room Number"));
-                booking.put("userId", csvRead.get("Booking UserID"));
-                booking.put("date", csvRead.get("Booking Date"));
-                booking.put("startTime", csvRead.get("Booking Start Time"));
-                // Get end time from CSV, or calculate from start time if not present
-                String endTime = csvRead.get("Booking End Time");
-                if (endTime == null || endTime.trim().isEmpty()) {
-                    endTime = calculateEndTime(csvRead.get("Booking Start Time"));
-                }
-                booking.put("endTime", endTime != null ? endTime : "");
-                allBookings.add(booking);
+            BookingRecord deleted = findRecord(bookingId);
+            if (deleted == null) {
+                // Nothing to remove; the file is left as it was
+                System.out.println("Booking not found for delete: " + bookingId);
+                return true;
             }
-            csvRead.close();
-            
-            // Rewrite the file without the deleted booking
-            CsvWriter csvWrite = new CsvWriter(new FileWriter(BOOKING_PATH, false), ',');
-            csvWrite.write("BookingID");
-            csvWrite.write("RoomID");
-            csvWrite.write("Building Name");
-            csvWrite.write("Room Number");
-            csvWrite.write("Booking UserID");
-            csvWrite.write("Booking Date");
-            csvWrite.write("Booking Start Time");
-            csvWrite.write("Booking End Time");
-            csvWrite.endRecord();
+            String roomIdToClear = deleted.getRoomId();
+            String roomNumberToClear = deleted.getRoomNumber();
+            System.out.println("Found booking to delete: " + bookingId + ", Room: " + roomNumberToClear);
             
-            for (Map<String, String> booking : allBookings) {
-                csvWrite.write(booking.get("bookingId") != null ? booking.get("bookingId") : "");
-                csvWrite.write(booking.get("roomId") != null ? booking.get("roomId") : "");
-                csvWrite.write(booking.get("buildingName") != null ? booking.get("buildingName") : "");
-                csvWrite.write(booking.get("roomNumber") != null ? booking.get("roomNumber") : "");
-                csvWrite.write(booking.get("userId") != null ? booking.get("userId") : "");
-                csvWrite.write(booking.get("date") != null ? booking.get("date") : "");
-                csvWrite.write(booking.get("startTime") != null ? booking.get("startTime") : "");
-                
-                // Calculate end time from start time if not already stored
-                String endTime = booking.get("endTime");
-                if (endTime == null || endTime.trim().isEmpty()) {
-                    endTime = calculateEndTime(booking.get("startTime"));
-                }
-                csvWrite.write(endTime != null ? endTime : "");
-                
-                csvWrite.endRecord();
-            }
-            csvWrite.close();
+            // Append a tombstone instead of rewriting the file without the booking
+            appendChange(BookingJournal.DELETE, new BookingRecord(bookingId.trim(), roomIdToClear, 
+                         deleted.getBuildingName(), roomNumberToClear, deleted.getUserId(), 
+                         deleted.getDate(), deleted.getStartTime(), deleted.getEndTime(), BookingStatus.CANCELLED));
             
             // Clear booking info from RoomDatabase.csv if this was the only booking for that room
             if (roomIdToClear != null && !roomIdToClear.trim().isEmpty()) {
@@ -1204,8 +1564,8 @@ public class BookingCSV {
                     if (room != null) {
                         // Check if there are other bookings for this room
                         boolean hasOtherBookings = false;
-                        for (Map<String, String> booking : allBookings) {
-                            if (booking.get("roomId") != null && booking.get("roomId").equals(roomIdToClear)) {
+                        for (BookingRecord booking : snapshotRows()) {
+                            if (booking.getRoomId().equals(roomIdToClear)) {
                                 hasOtherBookings = true;
                                 break;
                             }
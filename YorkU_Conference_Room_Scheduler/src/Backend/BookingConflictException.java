@@ -0,0 +1,41 @@
+package Backend;
+
+/**
+ * Thrown by ReservationSystem.createBooking when the room is already reserved for
+ * part of the requested time. Carries the request so the caller can offer
+ * alternatives (see ReservationSystem.suggestAlternatives).
+ */
+public class BookingConflictException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String roomNumber;
+    private final String bookingDate;
+    private final String startTime;
+    private final String endTime;
+
+    public BookingConflictException(String roomNumber, String bookingDate, String startTime, String endTime) {
+        super("Room " + roomNumber + " is already reserved for the time slot " + 
+              startTime + " - " + endTime + " on " + bookingDate);
+        this.roomNumber = roomNumber;
+        this.bookingDate = bookingDate;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    public String getRoomNumber() {
+        return roomNumber;
+    }
+
+    public String getBookingDate() {
+        return bookingDate;
+    }
+
+    public String getStartTime() {
+        return startTime;
+    }
+
+    public String getEndTime() {
+        return endTime;
+    }
+}
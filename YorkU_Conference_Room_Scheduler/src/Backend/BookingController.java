@@ -1,14 +1,13 @@
 package Backend;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * BookingController (Invoker) for the Command pattern
  * REQ8: Receives commands from UI and calls execute() only if booking is in pre-start state
  */
 public class BookingController {
-    private static BookingController instance;
     private BookingRepository repository;
     private PaymentService paymentService;
     private RoomService roomService;
@@ -20,19 +19,21 @@ public class BookingController {
         this.paymentService = PaymentService.getInstance();
         this.roomService = new RoomService();
         this.pricingFactory = new PricingPolicyFactory();
-        this.observers = new ArrayList<>();
+        // Commands iterate a snapshot, so observers can come and go while one is notifying
+        this.observers = new CopyOnWriteArrayList<>();
+    }
+    
+    private static class Holder {
+        static final BookingController INSTANCE = new BookingController();
     }
     
     public static BookingController getInstance() {
-        if (instance == null) {
-            instance = new BookingController();
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
     
     //Add an observer to be notified of booking changes
 
-    public void addObserver(BookingObserver observer) {
+    public synchronized void addObserver(BookingObserver observer) {
         if (observer != null && !observers.contains(observer)) {
             observers.add(observer);
         }
@@ -155,6 +156,14 @@ public class BookingController {
             return false;
         }
         
+        // The next booking in the room (or midnight) limits how far the booking can run
+        int maxExtension = repository.maxExtensionMinutes(bookingId);
+        if (maxExtension >= 0 && extraDuration * 60 > maxExtension) {
+            System.err.println("BookingController: Booking " + bookingId + " can be extended by at most " + 
+                             maxExtension + " minutes, " + extraDuration + " hours requested");
+            return false;
+        }
+        
         ExtendBookingCommand command = new ExtendBookingCommand(
             bookingId, extraDuration, repository, pricingFactory, paymentService, roomService, observers);
         
@@ -0,0 +1,208 @@
+package Backend;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Where each booking's row is in BookingDatabase.csv, so a single booking can be read
+ * without loading the whole file: a lookup reads just that row's bytes at its offset.
+ *
+ * The index is saved in a sidecar file next to the CSV, together with the state
+ * (size@mtime) and header of the CSV it was built from. Changes go to the journal, not
+ * the CSV, so the index only goes stale when the CSV is rewritten by a compaction; it is
+ * then rebuilt with one scan of the new file.
+ */
+public class BookingFileIndex {
+
+    private static final int FORMAT = 1;
+    // A location packs the row offset above the row length
+    private static final int LENGTH_BITS = 24;
+    private static final long MAX_LENGTH = (1L << LENGTH_BITS) - 1;
+
+    private final String csvPath;
+    private final String indexPath;
+
+    // State of the CSV the locations are for (null = not loaded)
+    private String fileState;
+    private String[] headers = new String[0];
+    private int[] columns = new int[0];
+    // Booking ID -> location of the first row with that ID
+    private Map<String, Long> locations = new HashMap<>();
+
+    public BookingFileIndex(String csvPath, String indexPath) {
+        this.csvPath = csvPath;
+        this.indexPath = indexPath;
+    }
+
+    /**
+     * Read the first row with a booking ID straight from the CSV
+     * @return The row, or null if the CSV has none with that ID
+     */
+    public synchronized BookingRecord find(String bookingId) throws IOException {
+        String key = bookingId != null ? bookingId.trim() : "";
+        if (key.isEmpty()) {
+            return null;
+        }
+        refresh();
+        BookingRecord record = read(key);
+        if (record != null && !record.getKey().equals(key)) {
+            // The CSV was replaced between the state check and the read
+            fileState = null;
+            refresh();
+            record = read(key);
+        }
+        return record;
+    }
+
+    /**
+     * Make sure the index matches the CSV, loading the sidecar or rebuilding it
+     */
+    public synchronized void refresh() throws IOException {
+        String current = CsvFileState.of(csvPath);
+        if (current == null) {
+            install(null, new String[0], new HashMap<>());
+            return;
+        }
+        if (current.equals(fileState) || (readSidecar() && current.equals(fileState))) {
+            return;
+        }
+        rebuild(current);
+    }
+
+    // Number of booking IDs indexed
+    public synchronized int size() {
+        return locations.size();
+    }
+
+    public String getPath() {
+        return indexPath;
+    }
+
+    private BookingRecord read(String key) throws IOException {
+        Long location = locations.get(key);
+        if (location == null) {
+            return null;
+        }
+        ByteBuffer row = ByteBuffer.allocate((int) (location & MAX_LENGTH));
+        try (FileChannel channel = FileChannel.open(Paths.get(csvPath), StandardOpenOption.READ)) {
+            long offset = location >>> LENGTH_BITS;
+            while (row.hasRemaining() && channel.read(row, offset + row.position()) >= 0) {
+                // Keep reading until the row is complete or the file ends
+            }
+        }
+        row.flip();
+        CsvScanner scanner = new CsvScanner(row, headers);
+        if (!scanner.next()) {
+            return null;
+        }
+        String[] values = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = scanner.get(columns[i]);
+        }
+        return BookingRecord.fromValues(values, 0);
+    }
+
+    // One scan of the CSV, then save the result next to it
+    private void rebuild(String state) throws IOException {
+        Map<String, Long> found = new HashMap<>();
+        String[] fileHeaders;
+        try (CsvScanner scanner = CsvScanner.open(csvPath)) {
+            fileHeaders = scanner.getHeaders();
+            while (scanner.next()) {
+                String key = scanner.get(0).trim(); // BookingID is first column
+                if (!key.isEmpty() && scanner.getRecordLength() <= MAX_LENGTH) {
+                    found.putIfAbsent(key, ((long) scanner.getRecordOffset() << LENGTH_BITS) | scanner.getRecordLength());
+                }
+            }
+        }
+        install(state, fileHeaders, found);
+        writeSidecar();
+        System.out.println("BookingFileIndex: Indexed " + found.size() + " bookings in " + csvPath);
+    }
+
+    private void install(String state, String[] fileHeaders, Map<String, Long> found) {
+        fileState = state;
+        headers = fileHeaders;
+        columns = new int[BookingRecord.HEADERS.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = indexOf(fileHeaders, BookingRecord.HEADERS[i]);
+        }
+        columns[0] = 0; // BookingID is first column
+        locations = found;
+    }
+
+    // Load the saved index; false if there is none or it can't be read
+    private boolean readSidecar() {
+        File file = new File(indexPath);
+        if (!file.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT) {
+                return false;
+            }
+            String state = in.readUTF();
+            String[] fileHeaders = new String[in.readInt()];
+            for (int i = 0; i < fileHeaders.length; i++) {
+                fileHeaders[i] = in.readUTF();
+            }
+            int count = in.readInt();
+            Map<String, Long> found = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                found.put(in.readUTF(), in.readLong());
+            }
+            install(state, fileHeaders, found);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("BookingFileIndex: Ignoring unreadable index " + indexPath + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Written to a temporary file and moved into place, like the CSV itself
+    private void writeSidecar() {
+        File file = new File(indexPath);
+        File tempFile = new File(indexPath + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(FORMAT);
+                out.writeUTF(fileState);
+                out.writeInt(headers.length);
+                for (String header : headers) {
+                    out.writeUTF(header);
+                }
+                out.writeInt(locations.size());
+                for (Map.Entry<String, Long> entry : locations.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+            }
+            CsvJournal.replaceFile(tempFile, file);
+        } catch (IOException e) {
+            // The index still works from memory; it is rebuilt on the next start
+            System.err.println("BookingFileIndex: Failed to save " + indexPath + ": " + e.getMessage());
+            tempFile.delete();
+        }
+    }
+
+    private static int indexOf(String[] fileHeaders, String name) {
+        for (int i = 0; i < fileHeaders.length; i++) {
+            if (fileHeaders[i].equals(name)) {
+                return i;
+            }
+        }
+        return CsvScanner.NO_COLUMN;
+    }
+}
@@ -0,0 +1,460 @@
+package Backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory interval index over BookingDatabase.csv
+ * Bookings are grouped room -> date -> intervals sorted by start time so that
+ * conflict checks no longer need to scan the booking file.
+ * Dates are grouped by epoch day (see BookingTime), so dd/MM/yyyy and yyyy-MM-dd
+ * rows for the same day land in the same schedule.
+ */
+public class BookingIndex {
+
+    /**
+     * A single indexed booking row
+     */
+    public static class Entry {
+        private final String bookingId;
+        private final String roomId;
+        private final String roomNumber;
+        private final String date;
+        private final String startTime;
+        private final String endTime;
+        private final int startMinutes;
+        private final int endMinutes;
+        private final boolean regular;
+        private final Object dayKey;
+
+        Entry(String bookingId, String roomId, String roomNumber, String date,
+              String startTime, String endTime) {
+            this.bookingId = bookingId != null ? bookingId.trim() : "";
+            this.roomId = roomId;
+            this.roomNumber = roomNumber;
+            this.date = date;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.dayKey = dayKey(date);
+
+            // Rows without a usable end time, or with times that don't parse, are
+            // kept aside and checked the slow way by BookingCSV
+            short start = BookingCSV.minutesOrMidnight(startTime);
+            short end = BookingTime.parseMinute(endTime);
+            boolean parsed = start != BookingTime.NO_MINUTE && end != BookingTime.NO_MINUTE;
+            this.startMinutes = parsed ? start : 0;
+            // An end before the start runs past midnight; like SlotGrid.mask, the row
+            // takes the rest of its day
+            this.endMinutes = parsed ? (end < start ? BookingTime.MINUTES_PER_DAY : end) : 0;
+            this.regular = parsed;
+        }
+
+        public String getBookingId() {
+            return bookingId;
+        }
+
+        public String getRoomId() {
+            return roomId;
+        }
+
+        public String getRoomNumber() {
+            return roomNumber;
+        }
+
+        public String getDate() {
+            return date;
+        }
+
+        public String getStartTime() {
+            return startTime;
+        }
+
+        public String getEndTime() {
+            return endTime;
+        }
+
+        public int getStartMinutes() {
+            return startMinutes;
+        }
+
+        public int getEndMinutes() {
+            return endMinutes;
+        }
+
+        public boolean isRegular() {
+            return regular;
+        }
+    }
+
+    /**
+     * All bookings of one room on one date, sorted by start time.
+     * maxEnd[i] holds the latest end time among the first i + 1 intervals, so
+     * "does anything starting before X end after Y" is a single binary search.
+     * The day is also kept as slot occupancy masks (see SlotGrid), updated as
+     * bookings come and go.
+     */
+    public static class RoomDay {
+        private final List<Entry> intervals = new ArrayList<>();
+        private final List<Entry> irregular = new ArrayList<>();
+        private int[] starts = new int[0];
+        private int[] maxEnd = new int[0];
+        private long halfHourSlots;
+        private long quarterHourSlots;
+
+        void add(Entry entry) {
+            if (entry.isRegular()) {
+                int pos = upperBound(entry.getStartMinutes());
+                intervals.add(pos, entry);
+                rebuildPrefix();
+            } else {
+                irregular.add(entry);
+            }
+            halfHourSlots |= slotMask(entry, SlotGrid.HALF_HOUR);
+            quarterHourSlots |= slotMask(entry, SlotGrid.QUARTER_HOUR);
+        }
+
+        boolean remove(Entry entry) {
+            boolean removed = intervals.remove(entry);
+            if (removed) {
+                rebuildPrefix();
+            } else {
+                removed = irregular.remove(entry);
+            }
+            if (removed) {
+                // Other bookings may share the removed one's slots, so rebuild from what is left
+                halfHourSlots = occupancyOf(SlotGrid.HALF_HOUR);
+                quarterHourSlots = occupancyOf(SlotGrid.QUARTER_HOUR);
+            }
+            return removed;
+        }
+
+        /**
+         * Slots of the day taken by a booking
+         * @return One bit per slot of the grid, set when the slot is taken
+         */
+        public long getOccupancy(SlotGrid grid) {
+            if (grid == SlotGrid.HALF_HOUR) {
+                return halfHourSlots;
+            }
+            if (grid == SlotGrid.QUARTER_HOUR) {
+                return quarterHourSlots;
+            }
+            return occupancyOf(grid);
+        }
+
+        private long occupancyOf(SlotGrid grid) {
+            long slots = 0L;
+            for (Entry entry : intervals) {
+                slots |= slotMask(entry, grid);
+            }
+            for (Entry entry : irregular) {
+                slots |= slotMask(entry, grid);
+            }
+            return slots;
+        }
+
+        // Irregular rows take the hour after their start, the same fallback BookingCSV uses
+        private static long slotMask(Entry entry, SlotGrid grid) {
+            if (entry.isRegular()) {
+                return grid.mask(entry.getStartMinutes(), entry.getEndMinutes());
+            }
+            short start = BookingTime.parseMinute(entry.getStartTime());
+            return start != BookingTime.NO_MINUTE ? grid.mask(start, Math.min(start + 60, BookingTime.MINUTES_PER_DAY)) : 0L;
+        }
+
+        boolean isEmpty() {
+            return intervals.isEmpty() && irregular.isEmpty();
+        }
+
+        /**
+         * Check whether any regular interval overlaps [startMinutes, endMinutes)
+         * @param startMinutes Requested start, minutes since midnight
+         * @param endMinutes Requested end, minutes since midnight
+         * @param excludeBookingId Booking to ignore (may be null)
+         * @return The first overlapping entry, or null if the slot is free
+         */
+        public Entry findOverlap(int startMinutes, int endMinutes, String excludeBookingId) {
+            int count = lowerBound(endMinutes);
+            if (count == 0 || maxEnd[count - 1] <= startMinutes) {
+                return null;
+            }
+            // Something overlaps; walk back to find it, skipping the excluded booking
+            String exclude = excludeBookingId != null ? excludeBookingId.trim() : null;
+            for (int i = count - 1; i >= 0; i--) {
+                Entry entry = intervals.get(i);
+                if (entry.getEndMinutes() > startMinutes && !entry.getBookingId().equals(exclude)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Earliest booking start at or after a time, found by binary search
+         * @param minutes Minutes since midnight
+         * @param excludeBookingId Booking to ignore (may be null)
+         * @return Start of the next booking in minutes, or -1 if nothing starts later that day
+         */
+        public int nextStart(int minutes, String excludeBookingId) {
+            String exclude = excludeBookingId != null ? excludeBookingId.trim() : null;
+            int next = -1;
+            for (int i = lowerBound(minutes); i < intervals.size(); i++) {
+                if (!intervals.get(i).getBookingId().equals(exclude)) {
+                    next = starts[i];
+                    break;
+                }
+            }
+            // Rows without an end time still block from their start
+            for (Entry entry : irregular) {
+                short start = BookingTime.parseMinute(entry.getStartTime());
+                if (start != BookingTime.NO_MINUTE && start >= minutes && (next < 0 || start < next) &&
+                    !entry.getBookingId().equals(exclude)) {
+                    next = start;
+                }
+            }
+            return next;
+        }
+
+        public List<Entry> getIntervals() {
+            return Collections.unmodifiableList(intervals);
+        }
+
+        public List<Entry> getIrregular() {
+            return Collections.unmodifiableList(irregular);
+        }
+
+        // Number of intervals starting strictly before the given minute
+        private int lowerBound(int minutes) {
+            int lo = 0;
+            int hi = starts.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] < minutes) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        // Number of intervals starting at or before the given minute
+        private int upperBound(int minutes) {
+            int lo = 0;
+            int hi = intervals.size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (intervals.get(mid).getStartMinutes() <= minutes) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        private void rebuildPrefix() {
+            int size = intervals.size();
+            starts = new int[size];
+            maxEnd = new int[size];
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                Entry entry = intervals.get(i);
+                starts[i] = entry.getStartMinutes();
+                max = Math.max(max, entry.getEndMinutes());
+                maxEnd[i] = max;
+            }
+        }
+    }
+
+    private final Map<String, Map<Object, RoomDay>> byRoom = new HashMap<>();
+    private final Map<String, List<Entry>> byBookingId = new HashMap<>();
+
+    /**
+     * Add a booking row to the index. Rows without a room number or date are ignored,
+     * matching how the conflict check has always skipped them.
+     */
+    public void add(String bookingId, String roomId, String roomNumber, String date,
+                    String startTime, String endTime) {
+        if (roomNumber == null || roomNumber.trim().isEmpty() ||
+            date == null || date.trim().isEmpty()) {
+            return;
+        }
+        Entry entry = new Entry(bookingId, roomId, roomNumber, date, startTime, endTime);
+        byRoom.computeIfAbsent(roomNumber, r -> new HashMap<>())
+              .computeIfAbsent(entry.dayKey, d -> new RoomDay())
+              .add(entry);
+        byBookingId.computeIfAbsent(entry.getBookingId(), id -> new ArrayList<>()).add(entry);
+    }
+
+    /**
+     * Remove every row carrying the given booking ID
+     * @param bookingId The booking ID
+     * @return true if anything was removed
+     */
+    public boolean remove(String bookingId) {
+        List<Entry> entries = byBookingId.remove(bookingId != null ? bookingId.trim() : "");
+        if (entries == null) {
+            return false;
+        }
+        for (Entry entry : entries) {
+            Map<Object, RoomDay> byDate = byRoom.get(entry.getRoomNumber());
+            if (byDate == null) {
+                continue;
+            }
+            RoomDay day = byDate.get(entry.dayKey);
+            if (day != null) {
+                day.remove(entry);
+                if (day.isEmpty()) {
+                    byDate.remove(entry.dayKey);
+                }
+            }
+            if (byDate.isEmpty()) {
+                byRoom.remove(entry.getRoomNumber());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the bookings for a room on a date
+     * @param date dd/MM/yyyy or yyyy-MM-dd; both layouts find the same day
+     * @return The room's schedule for that day, or null if it has no bookings
+     */
+    public RoomDay get(String roomNumber, String date) {
+        Map<Object, RoomDay> byDate = byRoom.get(roomNumber);
+        return byDate != null ? byDate.get(dayKey(date)) : null;
+    }
+
+    /**
+     * Get the bookings for a room on an epoch day
+     * @return The room's schedule for that day, or null if it has no bookings
+     */
+    public RoomDay get(String roomNumber, int epochDay) {
+        Map<Object, RoomDay> byDate = byRoom.get(roomNumber);
+        return byDate != null ? byDate.get(epochDay) : null;
+    }
+
+    /**
+     * Slot occupancy of a room on an epoch day
+     * @return One bit per slot of the grid, 0 if the room has no bookings that day
+     */
+    public long getOccupancy(String roomNumber, int epochDay, SlotGrid grid) {
+        RoomDay day = get(roomNumber, epochDay);
+        return day != null ? day.getOccupancy(grid) : 0L;
+    }
+
+    /**
+     * Copy a room's slot occupancy for a run of days into a caller's array,
+     * walking the room's schedule once rather than looking up every day.
+     * Days with no bookings are left untouched.
+     * @param firstDay Epoch day stored at out[offset]
+     * @param dayCount Number of days to fill
+     */
+    public void fillOccupancy(String roomNumber, int firstDay, int dayCount, SlotGrid grid, long[] out, int offset) {
+        Map<Object, RoomDay> byDate = byRoom.get(roomNumber);
+        if (byDate == null) {
+            return;
+        }
+        for (Map.Entry<Object, RoomDay> day : byDate.entrySet()) {
+            if (!(day.getKey() instanceof Integer)) {
+                continue; // Dates that don't parse can't be placed on the calendar
+            }
+            int index = (Integer) day.getKey() - firstDay;
+            if (index >= 0 && index < dayCount) {
+                out[offset + index] |= day.getValue().getOccupancy(grid);
+            }
+        }
+    }
+
+    /**
+     * Take over the rooms of another index, e.g. one built on another thread for a
+     * different set of rooms
+     * @throws IllegalArgumentException if both indexes have bookings for the same room
+     */
+    public void addAll(BookingIndex other) {
+        for (Map.Entry<String, Map<Object, RoomDay>> room : other.byRoom.entrySet()) {
+            if (byRoom.putIfAbsent(room.getKey(), room.getValue()) != null) {
+                throw new IllegalArgumentException("Room " + room.getKey() + " is in both indexes");
+            }
+        }
+        for (Map.Entry<String, List<Entry>> booking : other.byBookingId.entrySet()) {
+            byBookingId.computeIfAbsent(booking.getKey(), id -> new ArrayList<>()).addAll(booking.getValue());
+        }
+    }
+
+    /**
+     * Copy of one room's schedule, leaving out some bookings, e.g. to lay changes that
+     * are not saved yet over the room without copying the whole index
+     * @param excludeBookingIds Bookings to leave out
+     * @return An index holding only that room
+     */
+    public BookingIndex copyRoom(String roomNumber, Set<String> excludeBookingIds) {
+        BookingIndex copy = new BookingIndex();
+        Map<Object, RoomDay> byDate = byRoom.get(roomNumber);
+        if (byDate == null) {
+            return copy;
+        }
+        for (RoomDay day : byDate.values()) {
+            for (List<Entry> entries : Arrays.asList(day.intervals, day.irregular)) {
+                for (Entry entry : entries) {
+                    if (!excludeBookingIds.contains(entry.getBookingId())) {
+                        copy.add(entry.getBookingId(), entry.getRoomId(), entry.getRoomNumber(),
+                                 entry.getDate(), entry.getStartTime(), entry.getEndTime());
+                    }
+                }
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Check that no two bookings overlap in the same room on the same day
+     * @return One line per overlap found, empty if there are none
+     */
+    public List<String> findOverlaps() {
+        List<String> overlaps = new ArrayList<>();
+        for (Map.Entry<String, Map<Object, RoomDay>> room : byRoom.entrySet()) {
+            for (RoomDay day : room.getValue().values()) {
+                Entry latest = null; // The interval so far that ends last
+                for (Entry entry : day.intervals) {
+                    if (latest != null && entry.getStartMinutes() < latest.getEndMinutes() &&
+                        !entry.getBookingId().equals(latest.getBookingId())) {
+                        overlaps.add("Room " + room.getKey() + " on " + entry.getDate() + ": " +
+                                     latest.getBookingId() + " (" + latest.getStartTime() + "-" + latest.getEndTime() +
+                                     ") overlaps " + entry.getBookingId() + " (" + entry.getStartTime() + "-" +
+                                     entry.getEndTime() + ")");
+                    }
+                    if (latest == null || entry.getEndMinutes() > latest.getEndMinutes()) {
+                        latest = entry;
+                    }
+                }
+            }
+        }
+        return overlaps;
+    }
+
+    public void clear() {
+        byRoom.clear();
+        byBookingId.clear();
+    }
+
+    public int size() {
+        int size = 0;
+        for (List<Entry> entries : byBookingId.values()) {
+            size += entries.size();
+        }
+        return size;
+    }
+
+    // Epoch day of the date, or the trimmed text for dates that don't parse
+    private static Object dayKey(String date) {
+        int day = BookingTime.parseDay(date);
+        return day != BookingTime.NO_DAY ? Integer.valueOf(day) : (date != null ? date.trim() : "");
+    }
+}
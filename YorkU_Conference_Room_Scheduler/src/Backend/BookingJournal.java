@@ -0,0 +1,117 @@
+package Backend;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only log of changes to BookingDatabase.csv.
+ * Each change is one INSERT, UPDATE or DELETE (tombstone) record carrying a sequence
+ * number, so a cancel, edit or extend costs one appended line instead of a rewrite
+ * of the whole booking file. BookingCSV replays the log on top of the CSV and
+ * compacts it back into the CSV from time to time.
+ */
+public class BookingJournal {
+
+    public static final String INSERT = "INSERT";
+    public static final String UPDATE = "UPDATE";
+    public static final String DELETE = "DELETE";
+
+    /**
+     * A single logged change
+     */
+    public static class Entry {
+        private final long sequence;
+        private final String operation;
+        private final BookingRecord record;
+
+        Entry(long sequence, String operation, BookingRecord record) {
+            this.sequence = sequence;
+            this.operation = operation;
+            this.record = record;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public BookingRecord getRecord() {
+            return record;
+        }
+    }
+
+    private final CsvJournal log;
+
+    public BookingJournal(String path) {
+        this.log = new CsvJournal(path, BookingRecord.HEADERS, INSERT, UPDATE, DELETE);
+    }
+
+    /**
+     * Read the changes logged on top of the CSV in the given state.
+     * A missing or stale log is reset so that it starts from that state.
+     * @param baseFileState CsvFileState of BookingDatabase.csv (null if it does not exist)
+     * @return The changes in sequence order
+     */
+    public List<Entry> load(String baseFileState) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (CsvJournal.Entry entry : log.load(baseFileState)) {
+            entries.add(new Entry(entry.getSequence(), entry.getOperation(),
+                                  BookingRecord.fromValues(entry.getValues(), 0)));
+        }
+        return entries;
+    }
+
+    /**
+     * Append one change to the log
+     * @return The sequence number given to the change
+     */
+    public long append(String operation, BookingRecord record) throws IOException {
+        return log.append(operation, record.toValues());
+    }
+
+    /**
+     * Append several changes with a single write; either all of them are logged or none
+     * @return The sequence number given to the last change
+     */
+    public long appendAll(List<String> operations, List<BookingRecord> records) throws IOException {
+        List<String[]> values = new ArrayList<>(records.size());
+        for (BookingRecord record : records) {
+            values.add(record.toValues());
+        }
+        return log.appendAll(operations, values);
+    }
+
+    /**
+     * Start an empty log on top of the CSV in the given state, e.g. right after a compaction
+     * @param baseFileState CsvFileState of BookingDatabase.csv (null if it does not exist)
+     */
+    public void reset(String baseFileState) throws IOException {
+        log.reset(baseFileState);
+    }
+
+    // Changes logged since the last reset
+    public int getPendingCount() {
+        return log.getPendingCount();
+    }
+
+    public long getLastSequence() {
+        return log.getLastSequence();
+    }
+
+    // Changes every time the log is reset (see CsvJournal)
+    public String getEpoch() {
+        return log.getEpoch();
+    }
+
+    public String getPath() {
+        return log.getPath();
+    }
+
+    public FlushPolicy getFlushPolicy() {
+        return log.getFlushPolicy();
+    }
+}
@@ -0,0 +1,164 @@
+package Backend;
+
+/**
+ * One row of BookingDatabase.csv, exactly as stored (values are not trimmed).
+ * Missing values are kept as empty strings, the same as CsvScanner returns them.
+ */
+public class BookingRecord {
+
+    // Column order of BookingDatabase.csv
+    public static final String[] HEADERS = {
+        "BookingID", "RoomID", "Building Name", "Room Number",
+        "Booking UserID", "Booking Date", "Booking Start Time", "Booking End Time", "Status", "Recurrence",
+        "Version"
+    };
+
+    private final String bookingId;
+    private final String roomId;
+    private final String buildingName;
+    private final String roomNumber;
+    private final String userId;
+    private final String date;
+    private final String startTime;
+    private final String endTime;
+    // Empty for rows written before the Status column existed
+    private final String status;
+    // RecurrenceRule text for a recurring series, empty for a single booking
+    private final String recurrence;
+    // Number of times the row has been updated; empty for rows written before versions existed
+    private final String version;
+
+    public BookingRecord(String bookingId, String roomId, String buildingName, String roomNumber,
+                         String userId, String date, String startTime, String endTime) {
+        this(bookingId, roomId, buildingName, roomNumber, userId, date, startTime, endTime, "");
+    }
+
+    public BookingRecord(String bookingId, String roomId, String buildingName, String roomNumber,
+                         String userId, String date, String startTime, String endTime, String status) {
+        this(bookingId, roomId, buildingName, roomNumber, userId, date, startTime, endTime, status, "");
+    }
+
+    public BookingRecord(String bookingId, String roomId, String buildingName, String roomNumber,
+                         String userId, String date, String startTime, String endTime, String status,
+                         String recurrence) {
+        this(bookingId, roomId, buildingName, roomNumber, userId, date, startTime, endTime, status, recurrence, "");
+    }
+
+    public BookingRecord(String bookingId, String roomId, String buildingName, String roomNumber,
+                         String userId, String date, String startTime, String endTime, String status,
+                         String recurrence, String version) {
+        this.bookingId = valueOf(bookingId);
+        this.roomId = valueOf(roomId);
+        this.buildingName = valueOf(buildingName);
+        this.roomNumber = valueOf(roomNumber);
+        this.userId = valueOf(userId);
+        this.date = valueOf(date);
+        this.startTime = valueOf(startTime);
+        this.endTime = valueOf(endTime);
+        this.status = valueOf(status);
+        this.recurrence = valueOf(recurrence);
+        this.version = valueOf(version);
+    }
+
+    /**
+     * Build a record from the row values in HEADERS order, starting at the given offset
+     */
+    static BookingRecord fromValues(String[] values, int offset) {
+        String[] row = new String[HEADERS.length];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = offset + i < values.length ? values[offset + i] : "";
+        }
+        return new BookingRecord(row[0], row[1], row[2], row[3], row[4], row[5], row[6], row[7], row[8], row[9], row[10]);
+    }
+
+    /**
+     * Row values in HEADERS order
+     */
+    public String[] toValues() {
+        return new String[] { bookingId, roomId, buildingName, roomNumber, userId, date, startTime, endTime, status, recurrence, version };
+    }
+
+    // Key used to look a booking up by ID, matching the trimmed comparison BookingCSV has always used
+    public String getKey() {
+        return bookingId.trim();
+    }
+
+    public String getBookingId() {
+        return bookingId;
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public String getBuildingName() {
+        return buildingName;
+    }
+
+    public String getRoomNumber() {
+        return roomNumber;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public String getStartTime() {
+        return startTime;
+    }
+
+    public String getEndTime() {
+        return endTime;
+    }
+
+    // Stored status, exactly as in the file
+    public String getStatus() {
+        return status;
+    }
+
+    // Stored recurrence rule, empty for a single booking
+    public String getRecurrence() {
+        return recurrence;
+    }
+
+    // Stored version, 0 if the row has none
+    public long getVersion() {
+        try {
+            return version.trim().isEmpty() ? 0 : Long.parseLong(version.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Same row with another status
+     */
+    public BookingRecord withStatus(String newStatus) {
+        return new BookingRecord(bookingId, roomId, buildingName, roomNumber, userId, date, startTime, endTime,
+                                 newStatus, recurrence, version);
+    }
+
+    /**
+     * Same row with another recurrence rule
+     */
+    public BookingRecord withRecurrence(String newRecurrence) {
+        return new BookingRecord(bookingId, roomId, buildingName, roomNumber, userId, date, startTime, endTime,
+                                 status, newRecurrence, version);
+    }
+
+    /**
+     * Same row with another version
+     */
+    public BookingRecord withVersion(long newVersion) {
+        return new BookingRecord(bookingId, roomId, buildingName, roomNumber, userId, date, startTime, endTime,
+                                 status, recurrence, Long.toString(newVersion));
+    }
+
+    private static String valueOf(String value) {
+        return value != null ? value : "";
+    }
+}
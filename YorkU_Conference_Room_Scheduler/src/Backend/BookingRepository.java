@@ -7,18 +7,18 @@ import java.util.List;
  * Acts as an abstraction over BookingCSV
  */
 public class BookingRepository {
-    private static BookingRepository instance;
-    private BookingCSV bookingCSV;
+    private final BookingCSV bookingCSV;
     
     BookingRepository() {
         this.bookingCSV = BookingCSV.getInstance();
     }
     
+    private static class Holder {
+        static final BookingRepository INSTANCE = new BookingRepository();
+    }
+    
     public static BookingRepository getInstance() {
-        if (instance == null) {
-            instance = new BookingRepository();
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
     
     /**
@@ -30,11 +30,13 @@ public class BookingRepository {
     }
     
     /**
-     * Update a booking
+     * Update a booking, if nobody else saved it since it was read (compare-and-set on
+     * the booking's version). On success the booking takes the new version.
      * @param booking The updated booking
+     * @throws StaleBookingException if the stored booking has moved on; read it again and retry
      */
     public void update(Booking booking) {
-        bookingCSV.update(booking);
+        bookingCSV.update(booking, booking.getVersion());
     }
     
     /**
@@ -63,5 +65,19 @@ public class BookingRepository {
     public List<Booking> findByUserEmail(String email) {
         return bookingCSV.findByUserEmail(email);
     }
+    
+    /**
+     * Longest extension a booking can take: the gap between its end and the next
+     * booking of the same room on the same date (or midnight), from the booking index
+     * @param bookingId The booking ID
+     * @return Minutes available, or -1 if the booking or its end time is unknown
+     */
+    public int maxExtensionMinutes(String bookingId) {
+        Booking booking = findById(bookingId);
+        if (booking == null || booking.getBookingEndTime() == null) {
+            return -1;
+        }
+        return bookingCSV.maxExtensionMinutes(booking.getRoomNumber(), booking.getBookingDate(),
+                                              booking.getBookingEndTime(), bookingId);
+    }
 }
-
@@ -0,0 +1,59 @@
+package Backend;
+
+/**
+ * One booking of a batch passed to ReservationSystem.createBookings.
+ * Same fields as ReservationSystem.createBooking takes.
+ */
+public class BookingRequest {
+    private final User user;
+    private final int hours;
+    private final double rate;
+    private final String roomNumber;
+    private final String bookingDate;
+    private final String bookingStartTime;
+    private final String bookingEndTime;
+    
+    public BookingRequest(User user, int hours, double rate, 
+                          String roomNumber, String bookingDate, String bookingStartTime, String bookingEndTime) {
+        this.user = user;
+        this.hours = hours;
+        this.rate = rate;
+        this.roomNumber = roomNumber;
+        this.bookingDate = bookingDate;
+        this.bookingStartTime = bookingStartTime;
+        this.bookingEndTime = bookingEndTime;
+    }
+    
+    public User getUser() {
+        return user;
+    }
+    
+    public int getHours() {
+        return hours;
+    }
+    
+    public double getRate() {
+        return rate;
+    }
+    
+    public String getRoomNumber() {
+        return roomNumber;
+    }
+    
+    public String getBookingDate() {
+        return bookingDate;
+    }
+    
+    public String getBookingStartTime() {
+        return bookingStartTime;
+    }
+    
+    public String getBookingEndTime() {
+        return bookingEndTime;
+    }
+    
+    @Override
+    public String toString() {
+        return "Room " + roomNumber + " on " + bookingDate + " " + bookingStartTime + " - " + bookingEndTime;
+    }
+}
@@ -0,0 +1,40 @@
+package Backend;
+
+import java.util.Locale;
+
+/**
+ * Lifecycle of a booking, as stored in the Status column of BookingDatabase.csv.
+ *
+ * Reserved -> InUse (check-in) -> Completed (check-out)
+ * Reserved -> NoShow (nobody checked in)
+ * Reserved -> Cancelled (Cancelled -> Reserved when a cancel is undone)
+ */
+public final class BookingStatus {
+
+    public static final String RESERVED = "Reserved";
+    public static final String IN_USE = "InUse";
+    public static final String COMPLETED = "Completed";
+    public static final String CANCELLED = "Cancelled";
+    public static final String NO_SHOW = "NoShow";
+
+    private static final String[] ALL = { RESERVED, IN_USE, COMPLETED, CANCELLED, NO_SHOW };
+
+    private BookingStatus() {}
+
+    /**
+     * Canonical spelling of a stored status.
+     * Rows written before the Status column existed (empty value) and unknown values read as Reserved.
+     */
+    public static String of(String stored) {
+        if (stored == null) {
+            return RESERVED;
+        }
+        String value = stored.trim().replace("-", "").replace(" ", "").toLowerCase(Locale.ROOT);
+        for (String status : ALL) {
+            if (status.toLowerCase(Locale.ROOT).equals(value)) {
+                return status;
+            }
+        }
+        return RESERVED;
+    }
+}
@@ -0,0 +1,225 @@
+package Backend;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+
+/**
+ * Date and time of a booking, normalized once when the booking is read or entered.
+ *
+ * The date is kept as an epoch day (days since 1970-01-01) and the start and end
+ * times as minutes since midnight, so comparisons are plain int compares and the
+ * two date layouts found in the CSVs (dd/MM/yyyy from the UI, yyyy-MM-dd from older
+ * rows) refer to the same day. Text is only produced again at the UI/CSV edge, in
+ * the layout the date came in. Values that don't parse are kept as entered.
+ *
+ * Instances are immutable; the with... methods return a copy.
+ */
+public final class BookingTime {
+
+    // Sentinels for a value that is missing or doesn't parse
+    public static final int NO_DAY = Integer.MIN_VALUE;
+    public static final short NO_MINUTE = -1;
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    // The two date layouts; STRICT rejects dates like 29/02/2025 instead of rounding them
+    private static final DateTimeFormatter ISO_DATE = DateTimeFormatter.ofPattern("uuuu-MM-dd")
+                                                                       .withResolverStyle(ResolverStyle.STRICT);
+    private static final DateTimeFormatter DMY_DATE = DateTimeFormatter.ofPattern("d/M/uuuu")
+                                                                       .withResolverStyle(ResolverStyle.STRICT);
+    private static final DateTimeFormatter DMY_OUTPUT = DateTimeFormatter.ofPattern("dd/MM/uuuu");
+
+    public static final BookingTime NONE = new BookingTime(NO_DAY, NO_MINUTE, NO_MINUTE, false, null, null, null);
+
+    private final int day;
+    private final short startMinute;
+    private final short endMinute;
+    // Date came in as yyyy-MM-dd rather than dd/MM/yyyy
+    private final boolean isoDate;
+    // Original text, kept only for values that are present but don't parse
+    private final String rawDate;
+    private final String rawStart;
+    private final String rawEnd;
+
+    private BookingTime(int day, short startMinute, short endMinute, boolean isoDate,
+                        String rawDate, String rawStart, String rawEnd) {
+        this.day = day;
+        this.startMinute = startMinute;
+        this.endMinute = endMinute;
+        this.isoDate = isoDate;
+        this.rawDate = rawDate;
+        this.rawStart = rawStart;
+        this.rawEnd = rawEnd;
+    }
+
+    /**
+     * Normalize a booking's date and times
+     * @param date dd/MM/yyyy or yyyy-MM-dd (may be null)
+     * @param startTime HH:MM (may be null)
+     * @param endTime HH:MM (may be null)
+     */
+    public static BookingTime of(String date, String startTime, String endTime) {
+        return NONE.withDate(date).withStartTime(startTime).withEndTime(endTime);
+    }
+
+    public BookingTime withDate(String date) {
+        int parsed = parseDay(date);
+        return new BookingTime(parsed, startMinute, endMinute,
+                               parsed != NO_DAY && date.indexOf('-') >= 0,
+                               parsed == NO_DAY ? date : null, rawStart, rawEnd);
+    }
+
+    public BookingTime withStartTime(String startTime) {
+        short parsed = parseMinute(startTime);
+        return new BookingTime(day, parsed, endMinute, isoDate, rawDate,
+                               parsed == NO_MINUTE ? startTime : null, rawEnd);
+    }
+
+    public BookingTime withEndTime(String endTime) {
+        short parsed = parseMinute(endTime);
+        return new BookingTime(day, startMinute, parsed, isoDate, rawDate, rawStart,
+                               parsed == NO_MINUTE ? endTime : null);
+    }
+
+    // Epoch day, or NO_DAY
+    public int getDay() {
+        return day;
+    }
+
+    // Minutes since midnight, or NO_MINUTE
+    public short getStartMinute() {
+        return startMinute;
+    }
+
+    // Minutes since midnight, or NO_MINUTE
+    public short getEndMinute() {
+        return endMinute;
+    }
+
+    public boolean hasDay() {
+        return day != NO_DAY;
+    }
+
+    public boolean hasStartTime() {
+        return startMinute != NO_MINUTE;
+    }
+
+    public boolean hasEndTime() {
+        return endMinute != NO_MINUTE;
+    }
+
+    // Date as text in the layout it was entered in (null if none was given)
+    public String formatDate() {
+        return day != NO_DAY ? formatDay(day, isoDate) : rawDate;
+    }
+
+    public String formatStartTime() {
+        return startMinute != NO_MINUTE ? formatMinute(startMinute) : rawStart;
+    }
+
+    public String formatEndTime() {
+        return endMinute != NO_MINUTE ? formatMinute(endMinute) : rawEnd;
+    }
+
+    // ---------------------------------------------------------------------
+    // Parsing and formatting
+    // ---------------------------------------------------------------------
+
+    /**
+     * Parse dd/MM/yyyy (one-digit day and month allowed) or yyyy-MM-dd
+     * @return The epoch day, or NO_DAY if the text is missing or not a valid date
+     */
+    public static int parseDay(String date) {
+        if (date == null) {
+            return NO_DAY;
+        }
+        String text = date.trim();
+        DateTimeFormatter layout;
+        if (text.length() == 10 && text.charAt(4) == '-') {
+            layout = ISO_DATE;
+        } else if (text.length() - text.lastIndexOf('/') == 5) {
+            layout = DMY_DATE;
+        } else {
+            return NO_DAY;
+        }
+        try {
+            return (int) LocalDate.parse(text, layout).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return NO_DAY;
+        }
+    }
+
+    /**
+     * Parse H:MM or HH:MM (a trailing :SS is ignored). 24:00 is accepted as end of day.
+     * @return Minutes since midnight, or NO_MINUTE if the text is missing or not a time
+     */
+    public static short parseMinute(String time) {
+        if (time == null) {
+            return NO_MINUTE;
+        }
+        String text = time.trim();
+        int colon = text.indexOf(':');
+        if (colon < 1 || colon > 2 || text.length() < colon + 3) {
+            return NO_MINUTE;
+        }
+        if (text.length() > colon + 3 && (text.length() != colon + 6 || text.charAt(colon + 3) != ':'
+                                          || digits(text, colon + 4, colon + 6) < 0)) {
+            return NO_MINUTE;
+        }
+        int hours = digits(text, 0, colon);
+        int minutes = digits(text, colon + 1, colon + 3);
+        if (hours < 0 || minutes < 0 || minutes > 59 || hours > 24 || (hours == 24 && minutes > 0)) {
+            return NO_MINUTE;
+        }
+        return (short) (hours * 60 + minutes);
+    }
+
+    // HH:MM; minutes past midnight wrap to the next day
+    public static String formatMinute(int minuteOfDay) {
+        int minutes = minuteOfDay == MINUTES_PER_DAY ? minuteOfDay : Math.floorMod(minuteOfDay, MINUTES_PER_DAY);
+        char[] text = new char[5];
+        put2(text, 0, minutes / 60);
+        text[2] = ':';
+        put2(text, 3, minutes % 60);
+        return new String(text);
+    }
+
+    // yyyy-MM-dd when iso is set, otherwise dd/MM/yyyy
+    public static String formatDay(int epochDay, boolean iso) {
+        return LocalDate.ofEpochDay(epochDay).format(iso ? ISO_DATE : DMY_OUTPUT);
+    }
+
+    // Today as an epoch day
+    public static int today() {
+        return (int) LocalDate.now().toEpochDay();
+    }
+
+    // Seconds since midnight right now, for comparing against minute * 60
+    public static int nowSecondOfDay() {
+        return LocalTime.now().toSecondOfDay();
+    }
+
+    // Decimal value of text[from, to), or -1 if it isn't all digits
+    private static int digits(String text, int from, int to) {
+        if (from >= to) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static void put2(char[] text, int at, int value) {
+        text[at] = (char) ('0' + value / 10 % 10);
+        text[at + 1] = (char) ('0' + value % 10);
+    }
+}
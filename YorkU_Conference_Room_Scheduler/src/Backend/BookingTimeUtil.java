@@ -1,9 +1,5 @@
 package Backend;
 
-import java.time.LocalDate;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-
 /**
  * Utility class for booking time operations
  */
@@ -11,42 +7,25 @@ public class BookingTimeUtil {
     
     /**
      * Check if a booking's start time has passed
-     * @param bookingDate The booking date (DD/MM/YYYY format)
+     * @param bookingDate The booking date (DD/MM/YYYY or YYYY-MM-DD format)
      * @param bookingStartTime The booking start time (HH:MM format)
      * @return true if start time has passed, false otherwise
      */
     public static boolean hasStartTimePassed(String bookingDate, String bookingStartTime) {
-        try {
-            // Parse date (DD/MM/YYYY)
-            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-            LocalDate date = LocalDate.parse(bookingDate, dateFormatter);
-            
-            // Parse time (HH:MM)
-            DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm");
-            LocalTime startTime = LocalTime.parse(bookingStartTime, timeFormatter);
-            
-            // Get current date and time
-            LocalDate now = LocalDate.now();
-            LocalTime currentTime = LocalTime.now();
-            
-            // Check if date has passed or if same date but time has passed
-            if (date.isBefore(now)) {
-                return true; // Date has passed
-            } else if (date.isEqual(now) && startTime.isBefore(currentTime)) {
-                return true; // Same date but time has passed
-            }
-            
-            return false; // Start time has not passed
-        } catch (Exception e) {
-            System.err.println("Error checking if start time passed: " + e.getMessage());
+        int day = BookingTime.parseDay(bookingDate);
+        short startMinute = BookingTime.parseMinute(bookingStartTime);
+        if (day == BookingTime.NO_DAY || startMinute == BookingTime.NO_MINUTE) {
+            System.err.println("Error checking if start time passed: Could not parse '" + bookingDate + 
+                             "' '" + bookingStartTime + "'");
             // If parsing fails, assume time has not passed to be safe
             return false;
         }
+        return hasPassed(day, startMinute);
     }
     
     /**
      * Check if a booking's end time has passed
-     * @param bookingDate The booking date (DD/MM/YYYY format)
+     * @param bookingDate The booking date (DD/MM/YYYY or YYYY-MM-DD format)
      * @param bookingEndTime The booking end time (HH:MM format)
      * @return true if end time has passed, false otherwise
      */
@@ -61,41 +40,33 @@ public class BookingTimeUtil {
             return false; // No date, assume not passed
         }
         
-        try {
-            // Parse date (DD/MM/YYYY)
-            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-            LocalDate date = LocalDate.parse(bookingDate.trim(), dateFormatter);
-            
-            // Parse time (HH:MM)
-            DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm");
-            LocalTime endTime = LocalTime.parse(bookingEndTime.trim(), timeFormatter);
-            
-            // Get current date and time
-            LocalDate now = LocalDate.now();
-            LocalTime currentTime = LocalTime.now();
-            
-            System.out.println("BookingTimeUtil.hasEndTimePassed: Comparing - " +
-                             "Booking: " + date + " " + endTime + 
-                             " vs Current: " + now + " " + currentTime);
-            
-            // Check if date has passed or if same date but time has passed
-            if (date.isBefore(now)) {
-                System.out.println("BookingTimeUtil.hasEndTimePassed: Date has passed");
-                return true; // Date has passed
-            } else if (date.isEqual(now) && endTime.isBefore(currentTime)) {
-                System.out.println("BookingTimeUtil.hasEndTimePassed: Same date but time has passed");
-                return true; // Same date but time has passed
-            }
-            
-            System.out.println("BookingTimeUtil.hasEndTimePassed: End time has not passed");
-            return false; // End time has not passed
-        } catch (Exception e) {
-            System.err.println("Error checking if end time passed: " + e.getMessage());
+        int day = BookingTime.parseDay(bookingDate);
+        short endMinute = BookingTime.parseMinute(bookingEndTime);
+        if (day == BookingTime.NO_DAY || endMinute == BookingTime.NO_MINUTE) {
+            System.err.println("Error checking if end time passed: Could not parse");
             System.err.println("BookingTimeUtil.hasEndTimePassed: Date='" + bookingDate + 
                              "', EndTime='" + bookingEndTime + "'");
-            e.printStackTrace();
             return false; // On error, assume not passed to be safe
         }
+        
+        boolean passed = hasPassed(day, endMinute);
+        System.out.println("BookingTimeUtil.hasEndTimePassed: Booking " + BookingTime.formatDay(day, true) + " " +
+                         BookingTime.formatMinute(endMinute) + " passed: " + passed);
+        return passed;
+    }
+    
+    /**
+     * Check if a moment has passed
+     * @param epochDay Day of the moment (see BookingTime)
+     * @param minuteOfDay Minutes since midnight
+     * @return true if the date has passed, or it is today and the time has passed
+     */
+    public static boolean hasPassed(int epochDay, int minuteOfDay) {
+        int today = BookingTime.today();
+        if (epochDay != today) {
+            return epochDay < today;
+        }
+        return minuteOfDay * 60 < BookingTime.nowSecondOfDay();
     }
     
     /**
@@ -131,7 +102,9 @@ public class BookingTimeUtil {
             return false;
         }
         
-        boolean timePassed = hasStartTimePassed(bookingDate, bookingStartTime);
+        // Compare the booking's normalized date and time; text that didn't parse counts as not passed
+        BookingTime time = booking.getTime();
+        boolean timePassed = time.hasDay() && time.hasStartTime() && hasPassed(time.getDay(), time.getStartMinute());
         System.out.println("BookingTimeUtil.isPreStartState: Date: '" + bookingDate + 
                          "', StartTime: '" + bookingStartTime + "', TimePassed: " + timePassed);
         
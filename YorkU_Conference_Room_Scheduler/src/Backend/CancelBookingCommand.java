@@ -49,16 +49,28 @@ public class CancelBookingCommand implements Command {
         // Mark booking as cancelled
         booking.setStatus("Cancelled");
         
-        // Update room state - clear booking info and set to Available
-        if (booking.getRoomNumber() != null && !booking.getRoomNumber().isEmpty()) {
-            RoomService rs = new RoomService();
-            Room room = findRoomByNumber(booking.getRoomNumber());
-            if (room != null) {
-                room.getRoomContext().clearBookingInfo();
-                room.getRoomContext().setState(AvailableState.getInstance());
-                RoomCSV roomCSV = RoomCSV.getInstance();
-                roomCSV.update(room);
+        // The room and the booking are saved together, before any money moves
+        UnitOfWork work = UnitOfWork.begin();
+        try {
+            // Update room state - clear booking info and set to Available
+            if (booking.getRoomNumber() != null && !booking.getRoomNumber().isEmpty()) {
+                Room room = findRoomByNumber(booking.getRoomNumber());
+                if (room != null) {
+                    room.getRoomContext().clearBookingInfo();
+                    room.getRoomContext().setState(AvailableState.getInstance());
+                    RoomCSV roomCSV = RoomCSV.getInstance();
+                    roomCSV.update(room);
+                }
             }
+            
+            // Delete booking from repository (BookingDatabase.csv)
+            boolean deleted = repository.delete(bookingId);
+            if (!deleted || !work.commit()) {
+                System.err.println("CancelBookingCommand: Failed to delete booking from repository");
+                return false;
+            }
+        } finally {
+            work.close();
         }
         
         // Handle refund via PaymentService (REQ8)
@@ -73,13 +85,6 @@ public class CancelBookingCommand implements Command {
             }
         }
         
-        // Delete booking from repository (BookingDatabase.csv)
-        boolean deleted = repository.delete(bookingId);
-        if (!deleted) {
-            System.err.println("CancelBookingCommand: Failed to delete booking from repository");
-            return false;
-        }
-        
         // Notify observers (REQ8)
         notifyObserversCancelled(bookingId);
         
@@ -97,24 +102,34 @@ public class CancelBookingCommand implements Command {
         // Restore booking status
         originalBooking.setStatus("Reserved");
         
-        // Save booking back to repository
-        repository.save(originalBooking);
-        
-        // Restore room state
-        if (originalBooking.getRoomNumber() != null) {
-            Room room = findRoomByNumber(originalBooking.getRoomNumber());
-            if (room != null) {
-                room.getRoomContext().setBookingInfo(
-                    originalBooking.getBookingId(),
-                    originalBooking.getUser().getAccountId(),
-                    originalBooking.getBookingDate(),
-                    originalBooking.getBookingStartTime(),
-                    originalBooking.getBookingEndTime()
-                );
-                room.getRoomContext().setState(ReservedState.getInstance());
-                RoomCSV roomCSV = RoomCSV.getInstance();
-                roomCSV.update(room);
+        UnitOfWork work = UnitOfWork.begin();
+        try {
+            // Save booking back to repository
+            repository.save(originalBooking);
+            
+            // Restore room state
+            if (originalBooking.getRoomNumber() != null) {
+                Room room = findRoomByNumber(originalBooking.getRoomNumber());
+                if (room != null) {
+                    room.getRoomContext().setBookingInfo(
+                        originalBooking.getBookingId(),
+                        originalBooking.getUser().getAccountId(),
+                        originalBooking.getBookingDate(),
+                        originalBooking.getBookingStartTime(),
+                        originalBooking.getBookingEndTime()
+                    );
+                    room.getRoomContext().setState(ReservedState.getInstance());
+                    RoomCSV roomCSV = RoomCSV.getInstance();
+                    roomCSV.update(room);
+                }
+            }
+            
+            if (!work.commit()) {
+                System.err.println("CancelBookingCommand: Failed to restore booking " + originalBooking.getBookingId());
+                return false;
             }
+        } finally {
+            work.close();
         }
         
         // Charge back the refunded amount
@@ -127,14 +142,8 @@ public class CancelBookingCommand implements Command {
     }
     
     private Room findRoomByNumber(String roomNumber) {
-        RoomService rs = new RoomService();
-        List<Room> allRooms = rs.getAllRooms();
-        for (Room room : allRooms) {
-            if (room.getRoomNumber().equals(roomNumber)) {
-                return room;
-            }
-        }
-        return null;
+        // Keyed lookup in the room catalog
+        return new RoomService().getRoomByNumber(roomNumber);
     }
     
     private void notifyObserversCancelled(String bookingId) {
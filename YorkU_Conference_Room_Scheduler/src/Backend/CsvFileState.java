@@ -0,0 +1,30 @@
+package Backend;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Size and modification time of a CSV file
+ * The in-memory caches remember the state they were built from and reload
+ * when the file has been changed by anything other than their own writes.
+ */
+public final class CsvFileState {
+    
+    private CsvFileState() {}
+    
+    /**
+     * Get the current state of a file
+     * @param path Path to the file
+     * @return An opaque state string, or null if the file can't be read
+     */
+    public static String of(String path) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(Paths.get(path), BasicFileAttributes.class);
+            return attrs.size() + "@" + attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
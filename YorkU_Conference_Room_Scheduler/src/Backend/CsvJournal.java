@@ -0,0 +1,347 @@
+package Backend;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import com.csvreader.CsvWriter;
+
+/**
+ * Append-only change log kept next to one of the CSV databases.
+ * Each record is a sequence number, an operation and the row values it applies to,
+ * so a change costs one appended line instead of a rewrite of the whole CSV.
+ * The owner replays the log on top of the CSV and checkpoints it back into the
+ * CSV from time to time.
+ *
+ * The first record is always a CHECKPOINT naming the state (size@mtime) of the CSV
+ * the log applies to. If the CSV no longer matches, it was rewritten after the log
+ * was started (by a checkpoint that did not get to reset the log, or by hand) and the
+ * log is stale. A stale log with changes in it is moved to <path>.stale rather than
+ * deleted, since those changes may not be in the CSV. The checkpoint also carries a random epoch that changes on every reset,
+ * so anything remembering "up to sequence N of this log" can tell it is the same log.
+ *
+ * Appends go through a FlushPolicy, which decides when they are forced to disk. The
+ * default is ASYNC (left to the OS, as a plain FileWriter did); owners pick their own.
+ */
+public class CsvJournal {
+
+    static final String CHECKPOINT = "CHECKPOINT";
+
+    /**
+     * A single logged change
+     */
+    public static class Entry {
+        private final long sequence;
+        private final String operation;
+        private final String[] values;
+
+        Entry(long sequence, String operation, String[] values) {
+            this.sequence = sequence;
+            this.operation = operation;
+            this.values = values;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        // Row values in the journal's column order
+        public String[] getValues() {
+            return values;
+        }
+    }
+
+    private final String path;
+    private final String[] columns;
+    private final Set<String> operations;
+    private long lastSequence;
+    private int pendingCount;
+    // Random ID of the log since its last reset, "" for logs written before epochs existed
+    private String epoch = "";
+    private final FlushPolicy flushPolicy;
+
+    /**
+     * @param path Path to the log file
+     * @param columns Columns of the rows being logged
+     * @param operations Operations the log accepts
+     */
+    public CsvJournal(String path, String[] columns, String... operations) {
+        this.path = path;
+        this.columns = columns.clone();
+        this.operations = new HashSet<>(Arrays.asList(operations));
+        this.flushPolicy = new FlushPolicy(path, FlushPolicy.Mode.ASYNC);
+    }
+
+    /**
+     * Read the changes logged on top of the CSV in the given state.
+     * A missing or stale log is reset so that it starts from that state.
+     * @param baseFileState CsvFileState of the CSV (null if it does not exist)
+     * @return The changes in sequence order
+     */
+    public synchronized List<Entry> load(String baseFileState) throws IOException {
+        String base = baseFileState != null ? baseFileState : "";
+        List<Entry> entries = new ArrayList<>();
+        File file = new File(path);
+        if (!file.exists()) {
+            reset(baseFileState);
+            return entries;
+        }
+
+        repairTornTail(file);
+
+        boolean checkpointMatches = false;
+        // Sequence range of the records in a log that doesn't match its CSV
+        long firstStale = -1;
+        long lastStale = -1;
+        try (CsvScanner csvRead = CsvScanner.open(path)) {
+            long checkpointSequence = 0;
+            if (csvRead.next() && csvRead.matches(1, CHECKPOINT)) {
+                checkpointSequence = csvRead.getLong(0, -1);
+                checkpointMatches = csvRead.matches(2, base);
+                epoch = checkpointMatches ? csvRead.get(3) : "";
+            }
+
+            // Checked against the file's own sequence, not lastSequence: a reload of a log
+            // this instance appended to must still return the records it appended
+            long previous = checkpointSequence;
+            while (checkpointMatches && csvRead.next()) {
+                long sequence = csvRead.getLong(0, -1);
+                String operation = csvRead.get(1);
+                // Sequence numbers only go up; anything else is a damaged or repeated line
+                if (sequence <= previous || !operations.contains(operation)) {
+                    System.err.println("CsvJournal: Skipping invalid record " + sequence + " " + operation + " in " + path);
+                    continue;
+                }
+                entries.add(new Entry(sequence, operation, rowValues(csvRead)));
+                previous = sequence;
+            }
+            while (!checkpointMatches && csvRead.next()) {
+                long sequence = csvRead.getLong(0, -1);
+                if (sequence >= 0) {
+                    firstStale = firstStale < 0 ? sequence : Math.min(firstStale, sequence);
+                    lastStale = Math.max(lastStale, sequence);
+                }
+            }
+            lastSequence = Math.max(lastSequence, Math.max(previous, lastStale));
+        }
+
+        if (!checkpointMatches) {
+            if (lastStale >= 0) {
+                // The CSV changed under the log (restored, copied, checked out). The changes
+                // may have been acknowledged, so they are set aside for recovery, not deleted
+                File staleFile = staleFile();
+                replaceFile(file, staleFile, flushPolicy);
+                System.err.println("CsvJournal: " + path + " does not match its CSV; changes " + firstStale + 
+                                 " to " + lastStale + " were not applied and are kept in " + staleFile.getPath());
+            } else {
+                System.out.println("CsvJournal: " + path + " does not match its CSV, starting a new journal");
+            }
+            reset(baseFileState);
+            return new ArrayList<>();
+        }
+        pendingCount = entries.size();
+        return entries;
+    }
+
+    /**
+     * Append one change to the log
+     * @return The sequence number given to the change
+     */
+    public synchronized long append(String operation, String[] values) throws IOException {
+        return appendAll(Collections.singletonList(operation), Collections.singletonList(values));
+    }
+
+    /**
+     * Append several changes with a single write. If the write fails the file is cut
+     * back to where it was, so either every change is logged or none is.
+     * @param operations Operation of each change
+     * @param values Row values of each change
+     * @return The sequence number given to the last change
+     */
+    public synchronized long appendAll(List<String> operations, List<String[]> values) throws IOException {
+        if (operations.size() != values.size()) {
+            throw new IllegalArgumentException("Each journal operation needs its row values");
+        }
+        for (String operation : operations) {
+            if (!this.operations.contains(operation)) {
+                throw new IllegalArgumentException("Unknown journal operation: " + operation);
+            }
+        }
+        if (operations.isEmpty()) {
+            return lastSequence;
+        }
+
+        long sequence = lastSequence;
+        StringWriter buffer = new StringWriter();
+        CsvWriter csvWrite = new CsvWriter(buffer, ',');
+        for (int i = 0; i < operations.size(); i++) {
+            sequence++;
+            csvWrite.write(Long.toString(sequence));
+            csvWrite.write(operations.get(i));
+            for (String value : values.get(i)) {
+                csvWrite.write(value != null ? value : "");
+            }
+            csvWrite.endRecord();
+        }
+        csvWrite.close();
+
+        File file = new File(path);
+        long previousLength = file.length();
+        try {
+            // Same encoding the FileWriter used
+            flushPolicy.append(file.toPath(), buffer.toString().getBytes(Charset.defaultCharset()), operations.size());
+        } catch (IOException e) {
+            truncate(file, previousLength);
+            throw e;
+        }
+        lastSequence = sequence;
+        pendingCount += operations.size();
+        return sequence;
+    }
+
+    /**
+     * Start an empty log on top of the CSV in the given state, e.g. right after a checkpoint
+     * @param baseFileState CsvFileState of the CSV (null if it does not exist)
+     */
+    public synchronized void reset(String baseFileState) throws IOException {
+        String newEpoch = UUID.randomUUID().toString();
+        File file = new File(path);
+        File tempFile = new File(path + ".tmp");
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+
+        CsvWriter csvWrite = new CsvWriter(new FileWriter(tempFile, false), ',');
+        try {
+            csvWrite.write("Sequence");
+            csvWrite.write("Operation");
+            for (String column : columns) {
+                csvWrite.write(column);
+            }
+            csvWrite.endRecord();
+
+            // The checkpoint keeps the base file state in the first row column
+            csvWrite.write(Long.toString(lastSequence));
+            csvWrite.write(CHECKPOINT);
+            csvWrite.write(baseFileState != null ? baseFileState : "");
+            csvWrite.write(newEpoch);
+            csvWrite.endRecord();
+        } finally {
+            csvWrite.close();
+        }
+        // On disk before it replaces a log that may hold forced changes
+        replaceFile(tempFile, file, flushPolicy);
+        pendingCount = 0;
+        epoch = newEpoch;
+    }
+
+    // Changes logged since the last reset
+    public synchronized int getPendingCount() {
+        return pendingCount;
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    // Changes on every reset; "" if the log predates epochs
+    public synchronized String getEpoch() {
+        return epoch;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    // When appends are forced to disk, and how long that takes
+    public FlushPolicy getFlushPolicy() {
+        return flushPolicy;
+    }
+
+    /**
+     * Move a fully written file over the target, atomically where the file system allows it
+     */
+    public static void replaceFile(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Move a fully written file over the target, forced to disk as the policy asks:
+     * the file before the move and its directory after it
+     */
+    public static void replaceFile(File source, File target, FlushPolicy flushPolicy) throws IOException {
+        flushPolicy.written(source);
+        replaceFile(source, target);
+        flushPolicy.replaced(target);
+    }
+
+    // First free name for setting aside a log that doesn't match its CSV
+    private File staleFile() {
+        File staleFile = new File(path + ".stale");
+        for (int i = 1; staleFile.exists(); i++) {
+            staleFile = new File(path + ".stale." + i);
+        }
+        return staleFile;
+    }
+
+    // Values after the sequence and operation columns, padded to the column count
+    private String[] rowValues(CsvScanner record) {
+        String[] values = new String[columns.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = record.get(i + 2);
+        }
+        return values;
+    }
+
+    // A crash in the middle of an append leaves a line without its newline; drop it
+    private void repairTornTail(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long length = raf.length();
+            long end = length;
+            while (end > 0) {
+                raf.seek(end - 1);
+                if (raf.read() == '\n') {
+                    break;
+                }
+                end--;
+            }
+            if (end < length) {
+                System.err.println("CsvJournal: Dropping incomplete last record in " + path);
+                raf.setLength(end);
+            }
+        }
+    }
+
+    // Undo a partly written append
+    private void truncate(File file, long length) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() > length) {
+                raf.setLength(length);
+            }
+        } catch (IOException e) {
+            System.err.println("CsvJournal: Failed to undo partial append to " + path + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package Backend;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Forward-only reader for the CSV files CsvWriter produces, used instead of CsvReader
+ * by the stores.
+ *
+ * The file is read into one buffer through its FileChannel. next() only finds where
+ * each field of the record starts and ends; a field becomes a String when get() asks
+ * for it, so a scan that looks at one or two columns of each row allocates next to
+ * nothing. Resolve column names to indexes once with column() before the loop.
+ *
+ * Parsing follows CsvReader's defaults so the stores read exactly what they did before:
+ * bytes are ISO-8859-1, unquoted fields are trimmed of spaces and tabs, "" inside a
+ * quoted field is one quote, blank lines are skipped and a column the record doesn't
+ * have reads as "".
+ *
+ * Not thread-safe. The field positions are reused by every call to next().
+ */
+public final class CsvScanner implements Closeable {
+
+    // Index returned by column() for a name that isn't in the header
+    public static final int NO_COLUMN = -1;
+
+    private static final byte QUOTE = '"';
+    private static final byte DELIMITER = ',';
+
+    // How a field is stored in the buffer
+    private static final byte PLAIN = 0;
+    private static final byte QUOTED = 1;
+    private static final byte ESCAPED = 2; // Quoted with "" inside
+
+    private ByteBuffer data;
+    private final String[] headers;
+    private int position;
+    // Where the current record starts in the buffer
+    private int recordOffset;
+
+    // Fields of the current record
+    private int fieldCount;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private byte[] kinds = new byte[16];
+
+    // Used to build Strings when the buffer has no backing array
+    private byte[] scratch = new byte[64];
+
+    /**
+     * Scan a buffer holding a whole CSV file; the first record is read as the header
+     */
+    public CsvScanner(ByteBuffer data) {
+        this(data, null);
+    }
+
+    /**
+     * Scan a buffer holding rows without a header line, e.g. rows read from the middle
+     * of a file, using the header read from the file before
+     */
+    public CsvScanner(ByteBuffer data, String[] headers) {
+        this.data = data;
+        this.position = data.position();
+        // Files saved by some editors start with a UTF-8 byte order mark
+        if (data.limit() - position >= 3 && (data.get(position) & 0xFF) == 0xEF
+                && (data.get(position + 1) & 0xFF) == 0xBB && (data.get(position + 2) & 0xFF) == 0xBF) {
+            position += 3;
+        }
+        if (headers != null) {
+            this.headers = headers.clone();
+        } else {
+            this.headers = next() ? getValues() : new String[0];
+        }
+    }
+
+    /**
+     * Read a CSV file and position the scanner after its header
+     * @param path Path to the file
+     */
+    public static CsvScanner open(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException("CSV file too large to scan: " + path);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the buffer is full or the file ends
+            }
+            buffer.flip();
+            return new CsvScanner(buffer);
+        }
+    }
+
+    public String[] getHeaders() {
+        return headers.clone();
+    }
+
+    /**
+     * Index of a header, to be passed to get() and the other field accessors
+     * @return The index, or NO_COLUMN if the file has no such column
+     */
+    public int column(String name) {
+        for (int i = 0; i < headers.length; i++) {
+            if (headers[i].equals(name)) {
+                return i;
+            }
+        }
+        return NO_COLUMN;
+    }
+
+    /**
+     * Move to the next record
+     * @return false at the end of the file
+     */
+    public boolean next() {
+        while (readRecord()) {
+            if (fieldCount > 1 || ends[0] > starts[0] || kinds[0] != PLAIN) {
+                return true;
+            }
+            // A blank line
+        }
+        fieldCount = 0;
+        return false;
+    }
+
+    // Number of fields in the current record
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    // Position of the current record in the buffer
+    public int getRecordOffset() {
+        return recordOffset;
+    }
+
+    // Bytes the current record takes up, line end included
+    public int getRecordLength() {
+        return position - recordOffset;
+    }
+
+    /**
+     * Value of a field of the current record
+     * @return The value, or "" if the record has no such field
+     */
+    public String get(int column) {
+        if (column < 0 || column >= fieldCount) {
+            return "";
+        }
+        int start = starts[column];
+        int length = ends[column] - start;
+        if (length == 0) {
+            return "";
+        }
+        if (kinds[column] == ESCAPED) {
+            return unescape(start, ends[column]);
+        }
+        if (data.hasArray()) {
+            return new String(data.array(), data.arrayOffset() + start, length, StandardCharsets.ISO_8859_1);
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = data.get(start + i);
+        }
+        return new String(scratch, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * All fields of the current record
+     */
+    public String[] getValues() {
+        String[] values = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            values[i] = get(i);
+        }
+        return values;
+    }
+
+    /**
+     * Check a field against a value without building a String for the field
+     */
+    public boolean matches(int column, String value) {
+        return compare(column, value, false);
+    }
+
+    /**
+     * Same as matches(), ignoring case the way String.equalsIgnoreCase does
+     */
+    public boolean matchesIgnoreCase(int column, String value) {
+        return compare(column, value, true);
+    }
+
+    /**
+     * Read a field as a whole number without building a String for it
+     * @return The number, or the fallback if the field is empty or not a number
+     */
+    public long getLong(int column, long fallback) {
+        if (column < 0 || column >= fieldCount || kinds[column] == ESCAPED) {
+            return fallback;
+        }
+        int i = starts[column];
+        int end = ends[column];
+        boolean negative = i < end && data.get(i) == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == end || end - i > 18) {
+            return fallback; // Empty, or too long to be sure it fits in a long
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = data.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return fallback;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    @Override
+    public void close() {
+        data = ByteBuffer.allocate(0);
+        position = 0;
+        fieldCount = 0;
+    }
+
+    // Split the record at the current position into fields; false at the end of the file
+    private boolean readRecord() {
+        int limit = data.limit();
+        int p = position;
+        if (p >= limit) {
+            return false;
+        }
+        recordOffset = p;
+        fieldCount = 0;
+        while (true) {
+            while (p < limit && isBlank(data.get(p))) {
+                p++;
+            }
+            if (p < limit && data.get(p) == QUOTE) {
+                int start = ++p;
+                byte kind = QUOTED;
+                while (p < limit) {
+                    if (data.get(p) == QUOTE) {
+                        if (p + 1 < limit && data.get(p + 1) == QUOTE) {
+                            kind = ESCAPED;
+                            p += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    p++;
+                }
+                addField(start, p, kind);
+                // Anything between the closing quote and the delimiter is dropped, as CsvReader does
+                while (p < limit && !isFieldEnd(data.get(p))) {
+                    p++;
+                }
+            } else {
+                int start = p;
+                while (p < limit && !isFieldEnd(data.get(p))) {
+                    p++;
+                }
+                int end = p;
+                while (end > start && isBlank(data.get(end - 1))) {
+                    end--;
+                }
+                addField(start, end, PLAIN);
+            }
+            if (p >= limit) {
+                position = limit;
+                return true;
+            }
+            byte b = data.get(p++);
+            if (b == DELIMITER) {
+                continue;
+            }
+            if (b == '\r' && p < limit && data.get(p) == '\n') {
+                p++;
+            }
+            position = p;
+            return true;
+        }
+    }
+
+    private void addField(int start, int end, byte kind) {
+        if (fieldCount == starts.length) {
+            int size = fieldCount * 2;
+            starts = Arrays.copyOf(starts, size);
+            ends = Arrays.copyOf(ends, size);
+            kinds = Arrays.copyOf(kinds, size);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        kinds[fieldCount] = kind;
+        fieldCount++;
+    }
+
+    private boolean compare(int column, String value, boolean ignoreCase) {
+        if (column >= 0 && column < fieldCount && kinds[column] == ESCAPED) {
+            String field = get(column);
+            return ignoreCase ? field.equalsIgnoreCase(value) : field.equals(value);
+        }
+        int start = column >= 0 && column < fieldCount ? starts[column] : 0;
+        int length = column >= 0 && column < fieldCount ? ends[column] - start : 0;
+        if (value == null || value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char a = (char) (data.get(start + i) & 0xFF);
+            char b = value.charAt(i);
+            if (a != b && (!ignoreCase || (Character.toUpperCase(a) != Character.toUpperCase(b)
+                    && Character.toLowerCase(a) != Character.toLowerCase(b)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Quoted field with "" pairs turned back into single quotes
+    private String unescape(int start, int end) {
+        StringBuilder value = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = (char) (data.get(i) & 0xFF);
+            value.append(c);
+            if (c == QUOTE && i + 1 < end && data.get(i + 1) == QUOTE) {
+                i++;
+            }
+        }
+        return value.toString();
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    private static boolean isFieldEnd(byte b) {
+        return b == DELIMITER || b == '\n' || b == '\r';
+    }
+}
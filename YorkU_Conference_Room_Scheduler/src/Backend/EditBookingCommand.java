@@ -1,6 +1,7 @@
 package Backend;
 
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Command to edit a booking
@@ -48,6 +49,10 @@ public class EditBookingCommand implements Command {
     
     @Override
     public boolean execute() {
+        return StaleBookingException.retry("EditBookingCommand", "editing booking " + bookingId, this::executeOnce);
+    }
+    
+    private boolean executeOnce() {
         // Find the booking
         Booking booking = repository.findById(bookingId);
         if (booking == null) {
@@ -76,18 +81,31 @@ public class EditBookingCommand implements Command {
             return false;
         }
         
+        // The conflict check and the save happen under the locks createBooking takes for
+        // the old and the new room, so a new booking can't take the slot in between
+        String roomToCheck = (newRoomNumber != null && !newRoomNumber.isEmpty()) ? newRoomNumber : originalRoomNumber;
+        ReservationSystem reservationSystem = ReservationSystem.getInstance();
+        List<ReentrantLock> roomLocks = reservationSystem.lockRooms(originalRoomNumber, roomToCheck);
+        try {
+            return checkAndSave(booking, roomToCheck);
+        } finally {
+            reservationSystem.unlockAll(roomLocks);
+        }
+    }
+    
+    private boolean checkAndSave(Booking booking, String roomToCheck) {
         // Check for time conflicts if room or time changed
         if ((newRoomNumber != null && !newRoomNumber.equals(originalRoomNumber)) ||
             (newDate != null && !newDate.equals(originalDate)) ||
             (newStartTime != null && !newStartTime.equals(originalStartTime))) {
             
-            String roomToCheck = (newRoomNumber != null && !newRoomNumber.isEmpty()) ? newRoomNumber : originalRoomNumber;
             String dateToCheck = (newDate != null && !newDate.isEmpty()) ? newDate : originalDate;
             String startToCheck = (newStartTime != null && !newStartTime.isEmpty()) ? newStartTime : originalStartTime;
             String endToCheck = (newEndTime != null && !newEndTime.isEmpty()) ? newEndTime : originalEndTime;
             
-            // Calculate end time if not provided
-            if (endToCheck == null || endToCheck.isEmpty()) {
+            // Calculate end time if not provided, or if only the start moved (as saved below)
+            if (endToCheck == null || endToCheck.isEmpty() ||
+                ((newEndTime == null || newEndTime.isEmpty()) && newStartTime != null && !newStartTime.isEmpty())) {
                 endToCheck = calculateEndTime(startToCheck);
             }
             
@@ -166,50 +184,69 @@ public class EditBookingCommand implements Command {
             }
         }
         
-        // Update room in RoomDatabase.csv
-        if (newRoomNumber != null && !newRoomNumber.equals(originalRoomNumber)) {
-            // Update old room - clear booking
-            Room oldRoom = findRoomByNumber(originalRoomNumber);
-            if (oldRoom != null) {
-                oldRoom.getRoomContext().clearBookingInfo();
-                oldRoom.getRoomContext().setState(AvailableState.getInstance());
-                RoomCSV roomCSV = RoomCSV.getInstance();
-                roomCSV.update(oldRoom);
-            }
+        // The room changes and the booking are saved together, or neither is
+        UnitOfWork work = UnitOfWork.begin();
+        try {
+            // Update room in RoomDatabase.csv
+            if (newRoomNumber != null && !newRoomNumber.equals(originalRoomNumber)) {
+                // Update old room - clear booking
+                Room oldRoom = findRoomByNumber(originalRoomNumber);
+                if (oldRoom != null) {
+                    oldRoom.getRoomContext().clearBookingInfo();
+                    oldRoom.getRoomContext().setState(AvailableState.getInstance());
+                    RoomCSV roomCSV = RoomCSV.getInstance();
+                    roomCSV.update(oldRoom);
+                }
             
-            // Update new room - set booking
-            Room newRoom = findRoomByNumber(newRoomNumber);
-            if (newRoom != null) {
-                newRoom.getRoomContext().setBookingInfo(
-                    booking.getBookingId(),
-                    booking.getUser().getAccountId(),
-                    booking.getBookingDate(),
-                    booking.getBookingStartTime(),
-                    booking.getBookingEndTime()
-                );
-                newRoom.getRoomContext().setState(ReservedState.getInstance());
-                RoomCSV roomCSV = RoomCSV.getInstance();
-                roomCSV.update(newRoom);
+                // Update new room - set booking
+                Room newRoom = findRoomByNumber(newRoomNumber);
+                if (newRoom != null) {
+                    newRoom.getRoomContext().setBookingInfo(
+                        booking.getBookingId(),
+                        booking.getUser().getAccountId(),
+                        booking.getBookingDate(),
+                        booking.getBookingStartTime(),
+                        booking.getBookingEndTime()
+                    );
+                    newRoom.getRoomContext().setState(ReservedState.getInstance());
+                    RoomCSV roomCSV = RoomCSV.getInstance();
+                    roomCSV.update(newRoom);
+                }
+            } else {
+                // Same room, just update booking info
+                Room room = findRoomByNumber(booking.getRoomNumber());
+                if (room != null) {
+                    room.getRoomContext().setBookingInfo(
+                        booking.getBookingId(),
+                        booking.getUser().getAccountId(),
+                        booking.getBookingDate(),
+                        booking.getBookingStartTime(),
+                        booking.getBookingEndTime()
+                    );
+                    RoomCSV roomCSV = RoomCSV.getInstance();
+                    roomCSV.update(room);
+                }
             }
-        } else {
-            // Same room, just update booking info
-            Room room = findRoomByNumber(booking.getRoomNumber());
-            if (room != null) {
-                room.getRoomContext().setBookingInfo(
-                    booking.getBookingId(),
-                    booking.getUser().getAccountId(),
-                    booking.getBookingDate(),
-                    booking.getBookingStartTime(),
-                    booking.getBookingEndTime()
-                );
-                RoomCSV roomCSV = RoomCSV.getInstance();
-                roomCSV.update(room);
+            
+            // Persist changes through repository (REQ8)
+            repository.update(booking);
+            
+            if (!work.commit()) {
+                System.err.println("EditBookingCommand: Failed to save changes for booking " + bookingId);
+                // Nothing was saved, so give back the payment adjustment
+                reversePayment(priceDifference);
+                restoreOriginalDetails();
+                return false;
             }
+        } catch (StaleBookingException e) {
+            // Someone else saved the booking first; nothing of ours was saved
+            reversePayment(priceDifference);
+            restoreOriginalDetails();
+            throw e;
+        } finally {
+            work.close();
         }
         
-        // Persist changes through repository (REQ8)
-        repository.update(booking);
-        
         // Notify observers (REQ8)
         notifyObservers(booking);
         
@@ -223,97 +260,111 @@ public class EditBookingCommand implements Command {
             return false;
         }
         
+        // What the edit cost, and the edited values to go back to if the undo isn't saved
+        double costDifference = originalCost - originalBooking.getTotalCost();
+        String editedRoomNumber = originalBooking.getRoomNumber();
+        String editedDate = originalBooking.getBookingDate();
+        String editedStartTime = originalBooking.getBookingStartTime();
+        String editedEndTime = originalBooking.getBookingEndTime();
+        int editedHours = originalBooking.getHours();
+        
         // Restore original values
-        originalBooking.setRoomNumber(originalRoomNumber);
-        originalBooking.setBookingDate(originalDate);
-        originalBooking.setBookingStartTime(originalStartTime);
-        originalBooking.setBookingEndTime(originalEndTime);
-        originalBooking.setHours(calculateHours(originalStartTime, originalEndTime));
+        restoreOriginalDetails();
+        
+        // Save first; the money only moves once the undo is saved
+        UnitOfWork work = UnitOfWork.begin();
+        try {
+            // Restore room states
+            Room room = findRoomByNumber(originalBooking.getRoomNumber());
+            if (room != null) {
+                room.getRoomContext().setBookingInfo(
+                    originalBooking.getBookingId(),
+                    originalBooking.getUser().getAccountId(),
+                    originalDate,
+                    originalStartTime,
+                    originalEndTime
+                );
+                RoomCSV roomCSV = RoomCSV.getInstance();
+                roomCSV.update(room);
+            }
+            
+            repository.update(originalBooking);
+            if (!work.commit()) {
+                System.err.println("EditBookingCommand: Failed to restore booking " + bookingId);
+                restoreEditedDetails(editedRoomNumber, editedDate, editedStartTime, editedEndTime, editedHours);
+                return false;
+            }
+        } catch (StaleBookingException e) {
+            // The booking moved on since the edit; undoing now would overwrite newer changes
+            System.err.println("EditBookingCommand: Cannot undo, " + e.getMessage());
+            restoreEditedDetails(editedRoomNumber, editedDate, editedStartTime, editedEndTime, editedHours);
+            return false;
+        } finally {
+            work.close();
+        }
         
         // Restore original payment
-        double currentCost = originalBooking.getTotalCost();
-        double costDifference = originalCost - currentCost;
         if (costDifference > 0) {
             paymentService.charge(costDifference);
         } else if (costDifference < 0) {
             paymentService.refund(Math.abs(costDifference));
         }
-        
-        // Restore room states
-        Room room = findRoomByNumber(originalBooking.getRoomNumber());
-        if (room != null) {
-            room.getRoomContext().setBookingInfo(
-                originalBooking.getBookingId(),
-                originalBooking.getUser().getAccountId(),
-                originalDate,
-                originalStartTime,
-                originalEndTime
-            );
-            RoomCSV roomCSV = RoomCSV.getInstance();
-            roomCSV.update(room);
-        }
-        
-        repository.update(originalBooking);
         notifyObservers(originalBooking);
         
         return true;
     }
     
-    private int calculateHours(String startTime, String endTime) {
-        if (startTime == null || endTime == null) {
-            return 1; // Default
+    // Give back a charge or refund made for an edit that was not saved
+    private void reversePayment(double priceDifference) {
+        if (priceDifference > 0) {
+            paymentService.refund(priceDifference);
+        } else if (priceDifference < 0) {
+            paymentService.charge(Math.abs(priceDifference));
         }
-        try {
-            String[] startParts = startTime.split(":");
-            String[] endParts = endTime.split(":");
-            int startHour = Integer.parseInt(startParts[0]);
-            int startMin = Integer.parseInt(startParts[1]);
-            int endHour = Integer.parseInt(endParts[0]);
-            int endMin = Integer.parseInt(endParts[1]);
-            
-            int startMinutes = startHour * 60 + startMin;
-            int endMinutes = endHour * 60 + endMin;
-            int diffMinutes = endMinutes - startMinutes;
-            
-            // Round up to nearest hour
-            return (int) Math.ceil(diffMinutes / 60.0);
-        } catch (Exception e) {
+    }
+    
+    private void restoreOriginalDetails() {
+        originalBooking.setRoomNumber(originalRoomNumber);
+        originalBooking.setBookingDate(originalDate);
+        originalBooking.setBookingStartTime(originalStartTime);
+        originalBooking.setBookingEndTime(originalEndTime);
+        originalBooking.setHours(calculateHours(originalStartTime, originalEndTime));
+    }
+    
+    // Put the edit back on the booking when its undo could not be saved
+    private void restoreEditedDetails(String roomNumber, String date, String startTime, String endTime, int hours) {
+        originalBooking.setRoomNumber(roomNumber);
+        originalBooking.setBookingDate(date);
+        originalBooking.setBookingStartTime(startTime);
+        originalBooking.setBookingEndTime(endTime);
+        originalBooking.setHours(hours);
+    }
+    
+    private int calculateHours(String startTime, String endTime) {
+        short startMinutes = BookingTime.parseMinute(startTime);
+        short endMinutes = BookingTime.parseMinute(endTime);
+        if (startMinutes == BookingTime.NO_MINUTE || endMinutes == BookingTime.NO_MINUTE) {
             return 1; // Default
         }
+        // Round up to nearest hour
+        return (int) Math.ceil((endMinutes - startMinutes) / 60.0);
     }
     
     private String calculateEndTime(String startTime) {
-        if (startTime == null || startTime.trim().isEmpty()) {
-            return null;
-        }
-        try {
-            String[] parts = startTime.trim().split(":");
-            int hours = Integer.parseInt(parts[0]);
-            int minutes = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
-            
-            // Add 1 hour
-            hours += 1;
-            if (hours >= 24) {
-                hours = hours % 24;
-            }
-            
-            return String.format("%02d:%02d", hours, minutes);
-        } catch (Exception e) {
+        short startMinutes = BookingTime.parseMinute(startTime);
+        if (startMinutes == BookingTime.NO_MINUTE) {
             return null;
         }
+        // Add 1 hour, wrapping past midnight
+        return BookingTime.formatMinute((startMinutes + 60) % BookingTime.MINUTES_PER_DAY);
     }
     
     private Room findRoomByNumber(String roomNumber) {
         if (roomNumber == null) {
             return null;
         }
-        List<Room> allRooms = roomService.getAllRooms();
-        for (Room room : allRooms) {
-            if (room.getRoomNumber().equals(roomNumber)) {
-                return room;
-            }
-        }
-        return null;
+        // Keyed lookup in the room catalog
+        return roomService.getRoomByNumber(roomNumber);
     }
     
     private void notifyObservers(Booking booking) {
@@ -1,6 +1,7 @@
 package Backend;
 
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Command to extend a booking
@@ -37,6 +38,10 @@ public class ExtendBookingCommand implements Command {
     
     @Override
     public boolean execute() {
+        return StaleBookingException.retry("ExtendBookingCommand", "extending booking " + bookingId, this::executeOnce);
+    }
+    
+    private boolean executeOnce() {
         // Find the booking
         Booking booking = repository.findById(bookingId);
         if (booking == null) {
@@ -74,6 +79,18 @@ public class ExtendBookingCommand implements Command {
             return false;
         }
         
+        // The conflict check and the save happen under the lock createBooking takes for
+        // the room, so a new booking can't take the extended slot in between
+        ReservationSystem reservationSystem = ReservationSystem.getInstance();
+        List<ReentrantLock> roomLocks = reservationSystem.lockRooms(booking.getRoomNumber());
+        try {
+            return checkAndSave(booking);
+        } finally {
+            reservationSystem.unlockAll(roomLocks);
+        }
+    }
+    
+    private boolean checkAndSave(Booking booking) {
         // Calculate new end time
         String newEndTime = calculateNewEndTime(booking.getBookingEndTime(), extraDuration);
         System.out.println("ExtendBookingCommand: Current end time: '" + booking.getBookingEndTime() + 
@@ -135,23 +152,48 @@ public class ExtendBookingCommand implements Command {
                              " for " + extraDuration + " extra hours");
         }
         
-        // Update room booking end time in RoomDatabase.csv
-        Room room = findRoomByNumber(booking.getRoomNumber());
-        if (room != null) {
-            room.getRoomContext().setBookingInfo(
-                booking.getBookingId(),
-                booking.getUser().getAccountId(),
-                booking.getBookingDate(),
-                booking.getBookingStartTime(),
-                newEndTime
-            );
-            RoomCSV roomCSV = RoomCSV.getInstance();
-            roomCSV.update(room);
+        // The room's end time and the booking are saved together, or neither is
+        UnitOfWork work = UnitOfWork.begin();
+        try {
+            // Update room booking end time in RoomDatabase.csv
+            Room room = findRoomByNumber(booking.getRoomNumber());
+            if (room != null) {
+                room.getRoomContext().setBookingInfo(
+                    booking.getBookingId(),
+                    booking.getUser().getAccountId(),
+                    booking.getBookingDate(),
+                    booking.getBookingStartTime(),
+                    newEndTime
+                );
+                RoomCSV roomCSV = RoomCSV.getInstance();
+                roomCSV.update(room);
+            }
+            
+            // REQ9: Save new timeslots in CSV
+            System.out.println("ExtendBookingCommand: Updating booking in repository with new end time: " + newEndTime);
+            repository.update(booking);
+            
+            if (!work.commit()) {
+                System.err.println("ExtendBookingCommand: Failed to save extended booking " + bookingId);
+                // Nothing was saved, so give back the charge and the old end time
+                if (additionalAmount > 0) {
+                    paymentService.refund(additionalAmount);
+                }
+                booking.setBookingEndTime(originalEndTime);
+                booking.setHours(originalHours);
+                return false;
+            }
+        } catch (StaleBookingException e) {
+            // Someone else saved the booking first; nothing of ours was saved
+            if (additionalAmount > 0) {
+                paymentService.refund(additionalAmount);
+            }
+            booking.setBookingEndTime(originalEndTime);
+            booking.setHours(originalHours);
+            throw e;
+        } finally {
+            work.close();
         }
-        
-        // REQ9: Save new timeslots in CSV
-        System.out.println("ExtendBookingCommand: Updating booking in repository with new end time: " + newEndTime);
-        repository.update(booking);
         System.out.println("ExtendBookingCommand: Booking updated in repository");
         
         // REQ9: Notify observers (room list, booking history, admin view)
@@ -170,31 +212,53 @@ public class ExtendBookingCommand implements Command {
             return false;
         }
         
+        // What the extension cost, and the extended values to go back to if the undo isn't saved
+        double additionalAmount = originalBooking.getTotalCost() - originalCost;
+        String extendedEndTime = originalBooking.getBookingEndTime();
+        int extendedHours = originalBooking.getHours();
+        
         // Restore original values
         originalBooking.setBookingEndTime(originalEndTime);
         originalBooking.setHours(originalHours);
         
+        // Save first; the money only moves once the undo is saved
+        UnitOfWork work = UnitOfWork.begin();
+        try {
+            // Restore room booking end time
+            Room room = findRoomByNumber(originalBooking.getRoomNumber());
+            if (room != null) {
+                room.getRoomContext().setBookingInfo(
+                    originalBooking.getBookingId(),
+                    originalBooking.getUser().getAccountId(),
+                    originalBooking.getBookingDate(),
+                    originalBooking.getBookingStartTime(),
+                    originalEndTime
+                );
+                RoomCSV roomCSV = RoomCSV.getInstance();
+                roomCSV.update(room);
+            }
+            
+            repository.update(originalBooking);
+            if (!work.commit()) {
+                System.err.println("ExtendBookingCommand: Failed to restore booking " + bookingId);
+                originalBooking.setBookingEndTime(extendedEndTime);
+                originalBooking.setHours(extendedHours);
+                return false;
+            }
+        } catch (StaleBookingException e) {
+            // The booking moved on since the extension; undoing now would overwrite newer changes
+            System.err.println("ExtendBookingCommand: Cannot undo, " + e.getMessage());
+            originalBooking.setBookingEndTime(extendedEndTime);
+            originalBooking.setHours(extendedHours);
+            return false;
+        } finally {
+            work.close();
+        }
+        
         // Refund the additional charge
-        double additionalAmount = (originalBooking.getTotalCost() - originalCost);
         if (additionalAmount > 0) {
             paymentService.refund(additionalAmount);
         }
-        
-        // Restore room booking end time
-        Room room = findRoomByNumber(originalBooking.getRoomNumber());
-        if (room != null) {
-            room.getRoomContext().setBookingInfo(
-                originalBooking.getBookingId(),
-                originalBooking.getUser().getAccountId(),
-                originalBooking.getBookingDate(),
-                originalBooking.getBookingStartTime(),
-                originalEndTime
-            );
-            RoomCSV roomCSV = RoomCSV.getInstance();
-            roomCSV.update(room);
-        }
-        
-        repository.update(originalBooking);
         notifyObservers(originalBooking);
         
         return true;
@@ -205,34 +269,20 @@ public class ExtendBookingCommand implements Command {
             return currentEndTime;
         }
         
-        try {
-            String[] parts = currentEndTime.split(":");
-            int hours = Integer.parseInt(parts[0]);
-            int minutes = Integer.parseInt(parts[1]);
-            
-            hours += extraHours;
-            if (hours >= 24) {
-                hours = hours % 24;
-            }
-            
-            return String.format("%02d:%02d", hours, minutes);
-        } catch (Exception e) {
-            System.err.println("Error calculating new end time: " + e.getMessage());
+        short endMinutes = BookingTime.parseMinute(currentEndTime);
+        if (endMinutes == BookingTime.NO_MINUTE) {
+            System.err.println("Error calculating new end time: Could not parse " + currentEndTime);
             return currentEndTime;
         }
+        return BookingTime.formatMinute((endMinutes + extraHours * 60) % BookingTime.MINUTES_PER_DAY);
     }
     
     private Room findRoomByNumber(String roomNumber) {
         if (roomNumber == null) {
             return null;
         }
-        List<Room> allRooms = roomService.getAllRooms();
-        for (Room room : allRooms) {
-            if (room.getRoomNumber().equals(roomNumber)) {
-                return room;
-            }
-        }
-        return null;
+        // Keyed lookup in the room catalog
+        return roomService.getRoomByNumber(roomNumber);
     }
     
     private void notifyObservers(Booking booking) {
@@ -0,0 +1,303 @@
+package Backend;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How hard a store pushes its writes to disk, and how long that takes.
+ *
+ * A write that returns has only reached the OS cache; a crash of the machine (not just
+ * the program) can still lose it until the file is forced (fsync). The mode picks the
+ * trade-off for one store:
+ * ASYNC - never force; the OS writes the data behind us. Fastest, loses the last
+ *         seconds of changes on a power cut.
+ * GROUP_COMMIT - force once for a batch of writes: after every maxOperations writes,
+ *         or maxDelayMillis after the first write that is not on disk yet.
+ * SYNC - force before every write returns. Nothing that was acknowledged is lost.
+ * Outside ASYNC, a file rewritten in full (compaction, checkpoint, journal reset) is
+ * forced before it is moved over the live one, and its directory after, so the move
+ * is not lost either (see CsvJournal.replaceFile).
+ *
+ * The counters keep how long writes and forces took, so the cost of each mode can
+ * be compared on the machine it runs on.
+ */
+public class FlushPolicy {
+
+    public enum Mode { ASYNC, GROUP_COMMIT, SYNC }
+
+    // Group commit defaults
+    public static final int DEFAULT_GROUP_OPERATIONS = 32;
+    public static final long DEFAULT_GROUP_DELAY_MILLIS = 50;
+
+    // Runs the delayed group commits of every store
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "flush-policy-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Counters at one point in time
+     */
+    public static final class Stats {
+        private final Mode mode;
+        private final long writes;
+        private final long writeNanos;
+        private final long maxWriteNanos;
+        private final long forces;
+        private final long forceNanos;
+        private final long maxForceNanos;
+        private final long forcedOperations;
+
+        Stats(Mode mode, long writes, long writeNanos, long maxWriteNanos,
+              long forces, long forceNanos, long maxForceNanos, long forcedOperations) {
+            this.mode = mode;
+            this.writes = writes;
+            this.writeNanos = writeNanos;
+            this.maxWriteNanos = maxWriteNanos;
+            this.forces = forces;
+            this.forceNanos = forceNanos;
+            this.maxForceNanos = maxForceNanos;
+            this.forcedOperations = forcedOperations;
+        }
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        // Writes made, and the time callers waited for them (forces made inline included)
+        public long getWrites() {
+            return writes;
+        }
+
+        public long getWriteNanos() {
+            return writeNanos;
+        }
+
+        public long getMaxWriteNanos() {
+            return maxWriteNanos;
+        }
+
+        // Forces made, inline or by the flusher, and the time they took
+        public long getForces() {
+            return forces;
+        }
+
+        public long getForceNanos() {
+            return forceNanos;
+        }
+
+        public long getMaxForceNanos() {
+            return maxForceNanos;
+        }
+
+        // Operations made durable by the forces
+        public long getForcedOperations() {
+            return forcedOperations;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d writes, avg %.3f ms (max %.3f ms); %d forces, avg %.3f ms (max %.3f ms), %.1f operations per force",
+                                 mode, writes, millis(writeNanos, writes), millis(maxWriteNanos, 1),
+                                 forces, millis(forceNanos, forces), millis(maxForceNanos, 1),
+                                 forces == 0 ? 0.0 : (double) forcedOperations / forces);
+        }
+
+        private static double millis(long nanos, long count) {
+            return count == 0 ? 0.0 : nanos / 1_000_000.0 / count;
+        }
+    }
+
+    private final String name;
+    private Mode mode;
+    private int maxOperations = DEFAULT_GROUP_OPERATIONS;
+    private long maxDelayMillis = DEFAULT_GROUP_DELAY_MILLIS;
+
+    // File with writes not forced yet, and how many operations they hold
+    private Path pendingPath;
+    private int pendingOperations;
+    private boolean flushScheduled;
+
+    private long writes;
+    private long writeNanos;
+    private long maxWriteNanos;
+    private long forces;
+    private long forceNanos;
+    private long maxForceNanos;
+    private long forcedOperations;
+
+    /**
+     * @param name Store name, used in log messages
+     * @param mode Starting mode
+     */
+    public FlushPolicy(String name, Mode mode) {
+        this.name = name;
+        this.mode = mode;
+    }
+
+    public synchronized Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Switch modes; writes not forced yet are forced first when moving to SYNC
+     */
+    public void setMode(Mode newMode) {
+        synchronized (this) {
+            mode = newMode;
+        }
+        if (newMode == Mode.SYNC) {
+            flush();
+        }
+    }
+
+    /**
+     * Batch size and delay for GROUP_COMMIT
+     * @param operations Force after this many operations
+     * @param delayMillis Force at most this long after an operation that is not on disk yet
+     */
+    public synchronized void setGroupCommit(int operations, long delayMillis) {
+        if (operations < 1 || delayMillis < 0) {
+            throw new IllegalArgumentException("Group commit needs at least one operation and a delay of 0 or more");
+        }
+        maxOperations = operations;
+        maxDelayMillis = delayMillis;
+    }
+
+    /**
+     * Append bytes to a file and force them as the mode asks
+     * @param operations Number of changes the bytes hold
+     */
+    public void append(Path path, byte[] bytes, int operations) throws IOException {
+        long start = System.nanoTime();
+        boolean force;
+        synchronized (this) {
+            force = mode == Mode.SYNC
+                    || (mode == Mode.GROUP_COMMIT && pendingOperations + operations >= maxOperations);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                                                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (force) {
+                long forceStart = System.nanoTime();
+                channel.force(false);
+                synchronized (this) {
+                    recordForce(System.nanoTime() - forceStart, pendingOperations + operations);
+                    pendingOperations = 0;
+                    pendingPath = null;
+                }
+            }
+        }
+        synchronized (this) {
+            if (!force && mode != Mode.ASYNC) {
+                pendingOperations += operations;
+                pendingPath = path;
+                scheduleFlush();
+            }
+            long elapsed = System.nanoTime() - start;
+            writes++;
+            writeNanos += elapsed;
+            maxWriteNanos = Math.max(maxWriteNanos, elapsed);
+        }
+    }
+
+    /**
+     * Force a file that was just written in full, e.g. before it is moved over the
+     * live one. Skipped in ASYNC mode.
+     */
+    public void written(File file) throws IOException {
+        if (getMode() == Mode.ASYNC || !file.exists()) {
+            return;
+        }
+        force(file.toPath(), 0); // A rewrite adds no operations of its own
+    }
+
+    /**
+     * Force the directory of a file that was just moved into place, so the move itself
+     * survives a crash and not only the file's data. Skipped in ASYNC mode.
+     */
+    public void replaced(File file) {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (getMode() == Mode.ASYNC || directory == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Some platforms (Windows) can't open a directory; the move is then up to the file system
+            return;
+        }
+        synchronized (this) {
+            recordForce(System.nanoTime() - start, 0);
+        }
+    }
+
+    /**
+     * Force the writes that are not on disk yet, whatever the mode
+     */
+    public void flush() {
+        Path path;
+        int operations;
+        synchronized (this) {
+            flushScheduled = false;
+            path = pendingPath;
+            operations = pendingOperations;
+            pendingPath = null;
+            pendingOperations = 0;
+        }
+        if (path == null || !path.toFile().exists()) {
+            return;
+        }
+        try {
+            force(path, operations);
+        } catch (IOException e) {
+            System.err.println("FlushPolicy: Failed to force " + path + " for " + name + ": " + e.getMessage());
+        }
+    }
+
+    // Writes since the last force
+    public synchronized int getPendingOperations() {
+        return pendingOperations;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(mode, writes, writeNanos, maxWriteNanos, forces, forceNanos, maxForceNanos, forcedOperations);
+    }
+
+    private void force(Path path, int operations) throws IOException {
+        long start = System.nanoTime();
+        // Forcing through any channel of the file flushes all of its data
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.force(false);
+        }
+        synchronized (this) {
+            recordForce(System.nanoTime() - start, operations);
+        }
+    }
+
+    private void recordForce(long elapsed, int operations) {
+        forces++;
+        forceNanos += elapsed;
+        maxForceNanos = Math.max(maxForceNanos, elapsed);
+        forcedOperations += operations;
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            FLUSHER.schedule(this::flush, maxDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
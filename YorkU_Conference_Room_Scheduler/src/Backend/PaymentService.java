@@ -4,19 +4,20 @@ package Backend;
  * Service for handling payments, refunds, and additional charges
  */
 public class PaymentService {
-    private static PaymentService instance;
-    private PaymentProcessor processor;
+    // Set from the UI thread, read by whichever thread runs the booking command
+    private volatile PaymentProcessor processor;
     
     public PaymentService() {
         // Default processor - can be set via setProcessor
         this.processor = null;
     }
     
+    private static class Holder {
+        static final PaymentService INSTANCE = new PaymentService();
+    }
+    
     public static PaymentService getInstance() {
-        if (instance == null) {
-            instance = new PaymentService();
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
     
     public void setProcessor(PaymentProcessor processor) {
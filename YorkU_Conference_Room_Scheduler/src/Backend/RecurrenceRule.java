@@ -0,0 +1,271 @@
+package Backend;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Repeat pattern of a recurring booking: every week or every other week, until a
+ * date or for a number of occurrences, minus the dates cancelled one by one.
+ *
+ * A series is stored as a single BookingDatabase.csv row; the row's date is the first
+ * occurrence and its Recurrence column holds this rule as text, e.g.
+ * FREQ=WEEKLY;INTERVAL=2;COUNT=10;EXDATE=2026-11-03,2026-11-17
+ * Occurrences are worked out from the first day when they are needed rather than stored.
+ *
+ * Instances are immutable; withException returns a copy.
+ */
+public final class RecurrenceRule {
+
+    // Longest series accepted, about five years of weekly meetings
+    public static final int MAX_OCCURRENCES = 260;
+
+    private static final String FREQ = "FREQ=WEEKLY";
+
+    private final int intervalWeeks;
+    // Last day a meeting may fall on, or BookingTime.NO_DAY when the series is counted
+    private final int untilDay;
+    // Number of meetings, or 0 when the series runs until a date
+    private final int count;
+    // Cancelled occurrences as epoch days, sorted
+    private final int[] exceptions;
+
+    private RecurrenceRule(int intervalWeeks, int untilDay, int count, int[] exceptions) {
+        this.intervalWeeks = intervalWeeks;
+        this.untilDay = untilDay;
+        this.count = count;
+        this.exceptions = exceptions;
+    }
+
+    /**
+     * A series that repeats until a date
+     * @param intervalWeeks 1 for weekly, 2 for biweekly
+     * @param untilDate Last date a meeting may fall on (dd/MM/yyyy or yyyy-MM-dd)
+     */
+    public static RecurrenceRule until(int intervalWeeks, String untilDate) {
+        int day = BookingTime.parseDay(untilDate);
+        if (day == BookingTime.NO_DAY) {
+            throw new IllegalArgumentException("Invalid end date for recurring booking: " + untilDate);
+        }
+        return new RecurrenceRule(checkInterval(intervalWeeks), day, 0, new int[0]);
+    }
+
+    /**
+     * A series with a fixed number of meetings
+     * @param intervalWeeks 1 for weekly, 2 for biweekly
+     * @param count Number of meetings, cancelled ones included
+     */
+    public static RecurrenceRule count(int intervalWeeks, int count) {
+        if (count < 1 || count > MAX_OCCURRENCES) {
+            throw new IllegalArgumentException("Recurring booking must have between 1 and " + MAX_OCCURRENCES +
+                                               " occurrences: " + count);
+        }
+        return new RecurrenceRule(checkInterval(intervalWeeks), BookingTime.NO_DAY, count, new int[0]);
+    }
+
+    /**
+     * Read a rule written by format()
+     * @return The rule, or null if the text is empty or not a rule
+     */
+    public static RecurrenceRule parse(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return null;
+        }
+        int interval = 1;
+        int until = BookingTime.NO_DAY;
+        int count = 0;
+        int[] exceptions = new int[0];
+        boolean weekly = false;
+        try {
+            for (String part : text.trim().split(";")) {
+                int equals = part.indexOf('=');
+                String name = equals > 0 ? part.substring(0, equals).trim() : part.trim();
+                String value = equals > 0 ? part.substring(equals + 1).trim() : "";
+                switch (name) {
+                    case "FREQ":
+                        weekly = value.equals("WEEKLY");
+                        break;
+                    case "INTERVAL":
+                        interval = Integer.parseInt(value);
+                        break;
+                    case "UNTIL":
+                        until = BookingTime.parseDay(value);
+                        break;
+                    case "COUNT":
+                        count = Integer.parseInt(value);
+                        break;
+                    case "EXDATE":
+                        exceptions = parseDays(value);
+                        break;
+                    default:
+                        break; // Parts this version doesn't know about are ignored
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (!weekly || interval < 1 || interval > 2 || (until == BookingTime.NO_DAY) == (count < 1) || exceptions == null) {
+            System.err.println("RecurrenceRule: Ignoring invalid rule " + text);
+            return null;
+        }
+        return new RecurrenceRule(interval, until, Math.min(count, MAX_OCCURRENCES), exceptions);
+    }
+
+    /**
+     * The rule as stored in the Recurrence column
+     */
+    public String format() {
+        StringBuilder text = new StringBuilder(FREQ);
+        text.append(";INTERVAL=").append(intervalWeeks);
+        if (count > 0) {
+            text.append(";COUNT=").append(count);
+        } else {
+            text.append(";UNTIL=").append(BookingTime.formatDay(untilDay, true));
+        }
+        if (exceptions.length > 0) {
+            text.append(";EXDATE=");
+            for (int i = 0; i < exceptions.length; i++) {
+                if (i > 0) {
+                    text.append(',');
+                }
+                text.append(BookingTime.formatDay(exceptions[i], true));
+            }
+        }
+        return text.toString();
+    }
+
+    public int getIntervalWeeks() {
+        return intervalWeeks;
+    }
+
+    // Last day a meeting may fall on, or BookingTime.NO_DAY for a counted series
+    public int getUntilDay() {
+        return untilDay;
+    }
+
+    // Number of meetings, or 0 for a series that runs until a date
+    public int getCount() {
+        return count;
+    }
+
+    // Cancelled occurrences as epoch days
+    public int[] getExceptions() {
+        return exceptions.clone();
+    }
+
+    /**
+     * Same rule with one more occurrence cancelled
+     */
+    public RecurrenceRule withException(int epochDay) {
+        if (isException(epochDay)) {
+            return this;
+        }
+        int[] more = Arrays.copyOf(exceptions, exceptions.length + 1);
+        more[exceptions.length] = epochDay;
+        Arrays.sort(more);
+        return new RecurrenceRule(intervalWeeks, untilDay, count, more);
+    }
+
+    /**
+     * Check whether the series meets on a day
+     * @param firstDay Epoch day of the first meeting
+     */
+    public boolean occursOn(int firstDay, int epochDay) {
+        int step = 7 * intervalWeeks;
+        int offset = epochDay - firstDay;
+        if (offset < 0 || offset % step != 0 || offset / step >= MAX_OCCURRENCES) {
+            return false;
+        }
+        if (count > 0 ? offset / step >= count : epochDay > untilDay) {
+            return false;
+        }
+        return !isException(epochDay);
+    }
+
+    /**
+     * Days the series meets on, worked out one at a time as they are asked for.
+     * Cancelled occurrences are skipped.
+     * @param firstDay Epoch day of the first meeting
+     */
+    public Iterable<Integer> occurrences(int firstDay) {
+        return () -> new Iterator<Integer>() {
+            private int index = 0;
+            private int next = advance();
+
+            // Next meeting that isn't cancelled, or NO_DAY when the series is over
+            private int advance() {
+                while (index < MAX_OCCURRENCES && (count == 0 || index < count)) {
+                    int day = firstDay + index * 7 * intervalWeeks;
+                    index++;
+                    if (count == 0 && day > untilDay) {
+                        break;
+                    }
+                    if (!isException(day)) {
+                        return day;
+                    }
+                }
+                return BookingTime.NO_DAY;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != BookingTime.NO_DAY;
+            }
+
+            @Override
+            public Integer next() {
+                if (next == BookingTime.NO_DAY) {
+                    throw new NoSuchElementException();
+                }
+                int day = next;
+                next = advance();
+                return day;
+            }
+        };
+    }
+
+    /**
+     * Number of meetings left once cancellations are taken out
+     * @param firstDay Epoch day of the first meeting
+     */
+    public int size(int firstDay) {
+        int size = 0;
+        for (Iterator<Integer> days = occurrences(firstDay).iterator(); days.hasNext(); days.next()) {
+            size++;
+        }
+        return size;
+    }
+
+    private boolean isException(int epochDay) {
+        return Arrays.binarySearch(exceptions, epochDay) >= 0;
+    }
+
+    private static int checkInterval(int intervalWeeks) {
+        if (intervalWeeks != 1 && intervalWeeks != 2) {
+            throw new IllegalArgumentException("Recurring bookings repeat every 1 or 2 weeks: " + intervalWeeks);
+        }
+        return intervalWeeks;
+    }
+
+    // Comma separated dates, sorted; null if any of them doesn't parse
+    private static int[] parseDays(String value) {
+        if (value.isEmpty()) {
+            return new int[0];
+        }
+        String[] parts = value.split(",");
+        int[] days = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            days[i] = BookingTime.parseDay(parts[i]);
+            if (days[i] == BookingTime.NO_DAY) {
+                return null;
+            }
+        }
+        Arrays.sort(days);
+        return days;
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+}
@@ -1,32 +1,46 @@
 package Backend;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class ReservationSystem {
     
-    private static ReservationSystem instance;
-    private UserFactory userFactory;
-    private PricingPolicyFactory pricingFactory;
-    private Map<String, Booking> bookings;
-    private BookingCSV bookingCSV;
+    // How many days, starting with the requested one, suggestAlternatives looks at
+    private static final int SUGGESTION_DAYS = 7;
+    
+    // Bookings for rooms that hash to the same stripe are made one at a time,
+    // bookings for rooms in different stripes run in parallel
+    private static final int LOCK_STRIPES = 64;
+    
+    private final UserFactory userFactory;
+    private final PricingPolicyFactory pricingFactory;
+    private final Map<String, Booking> bookings;
+    private final BookingCSV bookingCSV;
+    private final ReentrantLock[] roomLocks = new ReentrantLock[LOCK_STRIPES];
     
     private ReservationSystem() {
         this.userFactory = new UserFactory();
         this.pricingFactory = new PricingPolicyFactory();
-        this.bookings = new HashMap<>();
+        this.bookings = new ConcurrentHashMap<>();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            roomLocks[i] = new ReentrantLock();
+        }
         this.bookingCSV = BookingCSV.getInstance();
         // Load existing bookings from database
         loadBookingsFromDatabase();
     }
     
+    private static class Holder {
+        static final ReservationSystem INSTANCE = new ReservationSystem();
+    }
+    
     public static ReservationSystem getInstance() {
-        if (instance == null) {
-            instance = new ReservationSystem();
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
     
     public User createUserForLogin(String name, String type) {
@@ -89,47 +103,337 @@ public class ReservationSystem {
             throw new IllegalStateException("Room is not enabled for booking: " + roomNumber);
         }
         
-        // Check for time conflicts with existing bookings
-        if (bookingCSV.hasTimeConflict(roomNumber, bookingDate, bookingStartTime, bookingEndTime)) {
-            throw new IllegalStateException("Room " + roomNumber + " is already reserved for the time slot " + 
-                                          bookingStartTime + " - " + bookingEndTime + " on " + bookingDate);
+        // The conflict check and the save happen under the room's lock, so two requests
+        // for the same slot can't both pass the check
+        String bookingId;
+        Booking booking;
+        ReentrantLock roomLock = lockFor(roomNumber);
+        roomLock.lock();
+        try {
+            // Check for time conflicts with existing bookings
+            if (bookingCSV.hasTimeConflict(roomNumber, bookingDate, bookingStartTime, bookingEndTime)) {
+                throw new BookingConflictException(roomNumber, bookingDate, bookingStartTime, bookingEndTime);
+            }
+            
+            // Generate booking ID first
+            bookingId = generateBookingId();
+            
+            // The room and the booking are saved together, or neither is
+            UnitOfWork work = UnitOfWork.begin();
+            try {
+                // Book the room (this stages the RoomDatabase.csv change with BookingID)
+                // Note: We allow booking even if room is in Reserved state, as long as times don't conflict
+                boolean roomBooked = roomService.bookRoom(room.getRoomId(), bookingId, user.getAccountId(), 
+                                                          bookingDate, bookingStartTime, bookingEndTime);
+                
+                if (!roomBooked) {
+                    throw new IllegalStateException("Failed to book room: " + roomNumber);
+                }
+                
+                // Create booking object
+                booking = new Booking(bookingId, user, hours, rate, 
+                                     roomNumber, bookingDate, bookingStartTime, bookingEndTime);
+                
+                // Stage the booking for BookingDatabase.csv
+                bookingCSV.write(booking);
+                
+                if (!work.commit()) {
+                    throw new IllegalStateException("Failed to save booking for room: " + roomNumber);
+                }
+            } finally {
+                work.close();
+            }
+        } finally {
+            roomLock.unlock();
         }
         
-        // Generate booking ID first
-        String bookingId = generateBookingId();
+        // Store in memory
+        bookings.put(bookingId, booking);
         
-        // Book the room (this updates RoomDatabase.csv with BookingID)
-        // Note: We allow booking even if room is in Reserved state, as long as times don't conflict
-        boolean roomBooked = roomService.bookRoom(room.getRoomId(), bookingId, user.getAccountId(), 
-                                                  bookingDate, bookingStartTime, bookingEndTime);
+        return booking;
+    }
+    
+    /**
+     * Book several rooms at once, e.g. for an event. Every request is checked against the
+     * same snapshot of the bookings (and against the other requests) before anything is
+     * reserved, and all rooms and bookings are saved with one write, or none are.
+     * @param requests The bookings to make
+     * @return The created bookings, in request order
+     * @throws IllegalArgumentException if a room number is missing or unknown
+     * @throws BookingConflictException if a request overlaps an existing booking or another request
+     * @throws IllegalStateException if a room is not enabled or the batch could not be saved
+     */
+    public List<Booking> createBookings(List<BookingRequest> requests) {
+        List<Booking> created = new ArrayList<>();
+        if (requests == null || requests.isEmpty()) {
+            return created;
+        }
         
-        if (!roomBooked) {
-            throw new IllegalStateException("Failed to book room: " + roomNumber);
+        // Validate the whole batch before reserving anything
+        List<Room> rooms = new ArrayList<>();
+        for (BookingRequest request : requests) {
+            String roomNumber = request.getRoomNumber();
+            if (roomNumber == null || roomNumber.isEmpty()) {
+                throw new IllegalArgumentException("Room number is required to create a booking");
+            }
+            Room room = findRoomByNumber(roomNumber);
+            if (room == null) {
+                throw new IllegalArgumentException("Room not found: " + roomNumber);
+            }
+            if (!room.getStatus().equals("ENABLED")) {
+                throw new IllegalStateException("Room is not enabled for booking: " + roomNumber);
+            }
+            rooms.add(room);
         }
         
-        // Create booking object
-        Booking booking = new Booking(bookingId, user, hours, rate, 
-                                     roomNumber, bookingDate, bookingStartTime, bookingEndTime);
+        List<ReentrantLock> locks = lockAll(requests);
+        try {
+            int conflict = bookingCSV.findFirstConflict(requests);
+            if (conflict >= 0) {
+                BookingRequest request = requests.get(conflict);
+                throw new BookingConflictException(request.getRoomNumber(), request.getBookingDate(),
+                                                   request.getBookingStartTime(), request.getBookingEndTime());
+            }
+            
+            // Stage every room and booking, then save them in one commit
+            RoomService roomService = new RoomService();
+            UnitOfWork work = UnitOfWork.begin();
+            try {
+                for (int i = 0; i < requests.size(); i++) {
+                    BookingRequest request = requests.get(i);
+                    String bookingId = generateBookingId();
+                    if (!roomService.bookRoom(rooms.get(i).getRoomId(), bookingId, request.getUser().getAccountId(),
+                                              request.getBookingDate(), request.getBookingStartTime(),
+                                              request.getBookingEndTime())) {
+                        throw new IllegalStateException("Failed to book room: " + request.getRoomNumber());
+                    }
+                    Booking booking = new Booking(bookingId, request.getUser(), request.getHours(), request.getRate(),
+                                                  request.getRoomNumber(), request.getBookingDate(),
+                                                  request.getBookingStartTime(), request.getBookingEndTime());
+                    bookingCSV.write(booking);
+                    created.add(booking);
+                }
+                if (!work.commit()) {
+                    throw new IllegalStateException("Failed to save " + requests.size() + " bookings");
+                }
+            } finally {
+                work.close();
+            }
+        } finally {
+            unlockAll(locks);
+        }
         
-        // Store in memory
-        bookings.put(bookingId, booking);
+        for (Booking booking : created) {
+            bookings.put(booking.getBookingId(), booking);
+        }
+        System.out.println("createBookings: Created " + created.size() + " bookings");
+        return created;
+    }
+    
+    /**
+     * Book a room for a weekly or biweekly series of meetings. Every meeting is checked
+     * against one snapshot of the bookings, and the series is saved as a single booking
+     * row carrying the rule, so a term of meetings costs one write.
+     * @param firstDate Date of the first meeting
+     * @param rule How the meetings repeat
+     * @return The series, as a booking dated on the first meeting
+     * @throws IllegalArgumentException if the room is unknown or the rule gives no meetings
+     * @throws BookingConflictException naming the first meeting that overlaps an existing booking
+     * @throws IllegalStateException if the room is not enabled or the series could not be saved
+     */
+    public Booking createRecurringBooking(User user, int hours, double rate, String roomNumber,
+                                          String firstDate, String bookingStartTime, String bookingEndTime,
+                                          RecurrenceRule rule) {
+        if (roomNumber == null || roomNumber.isEmpty()) {
+            throw new IllegalArgumentException("Room number is required to create a booking");
+        }
+        if (rule == null) {
+            throw new IllegalArgumentException("Recurrence rule is required for a recurring booking");
+        }
+        int firstDay = BookingTime.parseDay(firstDate);
+        if (firstDay == BookingTime.NO_DAY) {
+            throw new IllegalArgumentException("Invalid date for recurring booking: " + firstDate);
+        }
+        int meetings = rule.size(firstDay);
+        if (meetings == 0) {
+            throw new IllegalArgumentException("Recurring booking has no meetings: " + rule);
+        }
+        if (rule.getCount() == 0 &&
+            (rule.getUntilDay() - firstDay) / (7 * rule.getIntervalWeeks()) >= RecurrenceRule.MAX_OCCURRENCES) {
+            throw new IllegalArgumentException("Recurring booking can have at most " + 
+                                               RecurrenceRule.MAX_OCCURRENCES + " meetings");
+        }
+        
+        Room room = findRoomByNumber(roomNumber);
+        if (room == null) {
+            throw new IllegalArgumentException("Room not found: " + roomNumber);
+        }
+        if (!room.getStatus().equals("ENABLED")) {
+            throw new IllegalStateException("Room is not enabled for booking: " + roomNumber);
+        }
         
-        // Save booking to BookingDatabase.csv
-        // Note: RoomDatabase.csv is already updated by RoomService.bookRoom() above
-        bookingCSV.write(booking);
+        String bookingId;
+        Booking booking;
+        ReentrantLock roomLock = lockFor(roomNumber);
+        roomLock.lock();
+        try {
+            int conflictDay = bookingCSV.findSeriesConflict(roomNumber, firstDate, rule, bookingStartTime, bookingEndTime);
+            if (conflictDay != BookingTime.NO_DAY) {
+                throw new BookingConflictException(roomNumber, BookingTime.formatDay(conflictDay, firstDate.indexOf('-') >= 0),
+                                                   bookingStartTime, bookingEndTime);
+            }
+            
+            bookingId = generateBookingId();
+            RoomService roomService = new RoomService();
+            UnitOfWork work = UnitOfWork.begin();
+            try {
+                // The room carries the first meeting, the same as a single booking
+                if (!roomService.bookRoom(room.getRoomId(), bookingId, user.getAccountId(),
+                                          firstDate, bookingStartTime, bookingEndTime)) {
+                    throw new IllegalStateException("Failed to book room: " + roomNumber);
+                }
+                booking = new Booking(bookingId, user, hours, rate,
+                                      roomNumber, firstDate, bookingStartTime, bookingEndTime);
+                booking.setRecurrence(rule);
+                bookingCSV.write(booking);
+                
+                if (!work.commit()) {
+                    throw new IllegalStateException("Failed to save recurring booking for room: " + roomNumber);
+                }
+            } finally {
+                work.close();
+            }
+        } finally {
+            roomLock.unlock();
+        }
         
+        bookings.put(bookingId, booking);
+        System.out.println("createRecurringBooking: Created series " + bookingId + " with " + meetings + 
+                         " meetings in room " + roomNumber + " (" + rule + ")");
         return booking;
     }
     
-    private Room findRoomByNumber(String roomNumber) {
-        RoomService roomService = new RoomService();
-        List<Room> allRooms = roomService.getAllRooms();
-        for (Room room : allRooms) {
-            if (room.getRoomNumber().equals(roomNumber)) {
-                return room;
+    /**
+     * Cancel one meeting of a recurring series; the other meetings stay booked
+     * @param date Date of the meeting to cancel
+     * @return true if the series met on that date and the cancellation was saved
+     */
+    public boolean cancelOccurrence(String bookingId, String date) {
+        return StaleBookingException.retry("cancelOccurrence", "cancelling the meeting of " + bookingId + " on " + date,
+                                           () -> cancelOccurrenceOnce(bookingId, date));
+    }
+    
+    private boolean cancelOccurrenceOnce(String bookingId, String date) {
+        // The stored series rather than the cached copy, so meetings cancelled by others are kept
+        Booking booking = bookingCSV.findById(bookingId);
+        if (booking == null || !booking.isRecurring()) {
+            System.err.println("cancelOccurrence: No recurring booking " + bookingId);
+            return false;
+        }
+        int day = BookingTime.parseDay(date);
+        if (!booking.getRecurrence().occursOn(booking.getBookingDay(), day)) {
+            System.err.println("cancelOccurrence: Series " + bookingId + " has no meeting on " + date);
+            return false;
+        }
+        RecurrenceRule rule = booking.getRecurrence().withException(day);
+        try {
+            if (!bookingCSV.updateRecurrence(bookingId, rule, booking.getVersion())) {
+                return false;
+            }
+        } catch (StaleBookingException e) {
+            bookings.remove(bookingId);
+            throw e;
+        }
+        
+        // Refresh the cache with the saved series and its new version
+        Booking saved = bookingCSV.findById(bookingId);
+        if (saved != null) {
+            bookings.put(bookingId, saved);
+        } else {
+            bookings.remove(bookingId);
+        }
+        System.out.println("cancelOccurrence: Cancelled meeting of " + bookingId + " on " + date);
+        return true;
+    }
+    
+    /**
+     * Suggest free times close to a request that conflicted: the same room at other times,
+     * and enabled rooms in the same building with at least as many seats
+     * @param roomNumber The room that was asked for
+     * @param bookingDate Requested date
+     * @param startTime Requested start (HH:MM)
+     * @param durationHours Length of the booking
+     * @param k Number of suggestions wanted
+     * @return Up to k suggestions, nearest first; empty if the room or request is unknown
+     */
+    public List<AvailabilitySearch.Result> suggestAlternatives(String roomNumber, String bookingDate,
+                                                               String startTime, int durationHours, int k) {
+        Room room = findRoomByNumber(roomNumber);
+        int day = BookingTime.parseDay(bookingDate);
+        short startMinute = BookingTime.parseMinute(startTime);
+        if (room == null || day == BookingTime.NO_DAY || startMinute == BookingTime.NO_MINUTE) {
+            return new ArrayList<>();
+        }
+        
+        List<Room> nearby = new ArrayList<>();
+        for (Room other : RoomCSV.getInstance().findAll()) {
+            if (other.getStatus().equals("ENABLED") &&
+                other.getCapacity() >= room.getCapacity() &&
+                other.getBuildingName() != null && other.getBuildingName().equalsIgnoreCase(room.getBuildingName())) {
+                nearby.add(other);
+            }
+        }
+        List<AvailabilitySearch.Result> suggestions = AvailabilitySearch.alternatives(
+            room, nearby, day, startMinute, durationHours * 60, k, SUGGESTION_DAYS);
+        System.out.println("suggestAlternatives: " + suggestions.size() + " suggestions for room " + roomNumber + 
+                         " on " + bookingDate + " at " + startTime);
+        return suggestions;
+    }
+    
+    // Lock stripe guarding a room's bookings
+    private ReentrantLock lockFor(String roomNumber) {
+        return roomLocks[Math.floorMod(roomNumber.trim().hashCode(), LOCK_STRIPES)];
+    }
+    
+    // Lock the stripes of every room in a batch, always in stripe order so two batches can't deadlock
+    private List<ReentrantLock> lockAll(List<BookingRequest> requests) {
+        String[] roomNumbers = new String[requests.size()];
+        for (int i = 0; i < roomNumbers.length; i++) {
+            roomNumbers[i] = requests.get(i).getRoomNumber();
+        }
+        return lockRooms(roomNumbers);
+    }
+    
+    /**
+     * Lock the stripes of some rooms in stripe order, the same locks createBooking takes.
+     * Commands that move or lengthen a booking hold them from their conflict check until
+     * their save, so a new booking can't take the slot in between.
+     * @param roomNumbers Rooms to lock; nulls and repeats are skipped
+     * @return The locks taken, to be passed to unlockAll
+     */
+    List<ReentrantLock> lockRooms(String... roomNumbers) {
+        TreeSet<Integer> stripes = new TreeSet<>();
+        for (String roomNumber : roomNumbers) {
+            if (roomNumber != null) {
+                stripes.add(Math.floorMod(roomNumber.trim().hashCode(), LOCK_STRIPES));
             }
         }
-        return null;
+        List<ReentrantLock> locks = new ArrayList<>();
+        for (int stripe : stripes) {
+            roomLocks[stripe].lock();
+            locks.add(roomLocks[stripe]);
+        }
+        return locks;
+    }
+    
+    void unlockAll(List<ReentrantLock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+    
+    private Room findRoomByNumber(String roomNumber) {
+        return new RoomService().getRoomByNumber(roomNumber);
     }
     
     public Booking findBooking(String id) {
@@ -147,15 +451,32 @@ public class ReservationSystem {
         return booking;
     }
     
+    /**
+     * Save a booking, if nobody else saved it since it was read (see BookingRepository.update)
+     * @throws StaleBookingException if the stored booking has moved on; read it again and retry
+     */
     public void updateBooking(Booking booking) {
+        try {
+            // Update in database
+            BookingRepository.getInstance().update(booking);
+        } catch (StaleBookingException e) {
+            // The cached copy is out of date too
+            bookings.remove(booking.getBookingId());
+            throw e;
+        }
+        
         // Update in memory
         bookings.put(booking.getBookingId(), booking);
-        
-        // Update in database
-        bookingCSV.update(booking);
     }
     
     public boolean checkIn(String bookingId, String email) {
+        // Optimistic, like the booking commands: a check-in that finds the booking changed
+        // since it was read is redone on a fresh copy instead of overwriting it
+        return StaleBookingException.retry("checkIn", "checking in booking " + bookingId,
+                                           () -> checkInOnce(bookingId, email));
+    }
+    
+    private boolean checkInOnce(String bookingId, String email) {
         Booking booking = findBooking(bookingId);
         
         if (booking == null) {
@@ -167,28 +488,33 @@ public class ReservationSystem {
             return false;
         }
         
-        // Update booking status
-        booking.setStatus("InUse");
-        updateBooking(booking);
-        
-        // Update room state if room exists
-        // Note: Room number format might be "Building - RoomNumber" or just "RoomNumber"
-        // For now, we'll search all rooms and match by room number
-        if (booking.getRoomNumber() != null && !booking.getRoomNumber().isEmpty()) {
-            RoomService roomService = new RoomService();
-            List<Room> allRooms = roomService.getAllRooms();
-            for (Room room : allRooms) {
-                if (room.getRoomNumber().equals(booking.getRoomNumber()) || 
-                    room.getLocation().contains(booking.getRoomNumber())) {
+        // The booking and the room's check-in are saved together
+        UnitOfWork work = UnitOfWork.begin();
+        boolean saved = false;
+        try {
+            // Update booking status
+            booking.setStatus("InUse");
+            updateBooking(booking);
+            
+            // Update room state if room exists (keyed lookup, so "10" can't match "LAS 1010")
+            if (booking.getRoomNumber() != null && !booking.getRoomNumber().isEmpty()) {
+                Room room = findRoomByNumber(booking.getRoomNumber());
+                if (room != null) {
                     room.checkIn();
                     RoomCSV roomCSV = RoomCSV.getInstance();
                     roomCSV.update(room);
-                    break;
                 }
             }
+            
+            saved = work.commit();
+            return saved;
+        } finally {
+            work.close();
+            if (!saved) {
+                // updateBooking cached the check-in and its version before the commit
+                bookings.remove(bookingId);
+            }
         }
-        
-        return true;
     }
     
     private void loadBookingsFromDatabase() {
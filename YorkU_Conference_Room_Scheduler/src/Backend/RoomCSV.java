@@ -2,19 +2,68 @@ package Backend;
 
 import java.io.File;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
-import com.csvreader.CsvReader;
 import com.csvreader.CsvWriter;
 
 public class RoomCSV {
     
+    // Column order of RoomDatabase.csv (declared before the instance, which uses it)
+    private static final String[] HEADERS = {
+        "Room ID", "Capacity", "Building Name", "Room Number", "Status", "Condition",
+        "Booking ID", "Booking User ID", "Booking Date", "Booking Start Time", "Booking End Time"
+    };
+    
+    // How each column is stored in the snapshot
+    private static final byte[] SNAPSHOT_KINDS = {
+        SnapshotFile.UUID_VALUE, SnapshotFile.NUMBER, SnapshotFile.TEXT, SnapshotFile.TEXT, SnapshotFile.TEXT,
+        SnapshotFile.TEXT, SnapshotFile.TEXT, SnapshotFile.UUID_VALUE, SnapshotFile.DATE, SnapshotFile.TIME,
+        SnapshotFile.TIME
+    };
+    
     private static RoomCSV instance = new RoomCSV();
     private final String PATH = "../RoomDatabase.csv";
+    // Room state changes not yet checkpointed into RoomDatabase.csv
+    private final String LOG_PATH = "../RoomStateLog.csv";
+    // Binary copy of the catalog, loaded instead of the CSV and state log on a cold start
+    private final String SNAPSHOT_PATH = "../RoomDatabase.snap";
+    
+    // Room state log events: a new room, the full new state of a room, a removed room
+    static final String ADD = "ADD";
+    static final String STATE = "STATE";
+    static final String DELETE = "DELETE";
+    
+    // Checkpoint as soon as this many events are waiting, and at least this often otherwise
+    private static final int CHECKPOINT_THRESHOLD = 100;
+    private static final long CHECKPOINT_INTERVAL_SECONDS = 60;
+    
+    private final CsvJournal stateLog = new CsvJournal(LOG_PATH, HEADERS, ADD, STATE, DELETE);
+    private final ScheduledExecutorService checkpointer;
+    
+    // In-memory room catalog, loaded once and written through on every change.
+    // Callers always get copies so a half-finished state change never leaks into the cache.
+    private volatile List<Room> catalog = new ArrayList<>();
+    private volatile Map<UUID, Room> roomsById = new ConcurrentHashMap<>();
+    private volatile Map<String, Room> roomsByLocation = new ConcurrentHashMap<>();
+    private volatile Map<String, Room> roomsByNumber = new ConcurrentHashMap<>();
+    // Size/modification time of the CSV and state log the catalog was loaded from (null = not loaded)
+    private volatile String catalogFileState;
+    // State the saved snapshot was taken at (null = none saved by this instance)
+    private String snapshotFileState;
     
     private RoomCSV() {
+        // Room state changes come in bursts at peak times; force them in batches
+        stateLog.getFlushPolicy().setMode(FlushPolicy.Mode.GROUP_COMMIT);
         try {
             File file = new File(PATH);
             
@@ -23,102 +72,104 @@ public class RoomCSV {
                 file.getParentFile().mkdirs();
                 
                 CsvWriter csvWrite = new CsvWriter(new FileWriter(PATH, false), ',');
-                csvWrite.write("Room ID");
-                csvWrite.write("Capacity");
-                csvWrite.write("Building Name");
-                csvWrite.write("Room Number");
-                csvWrite.write("Status");
-                csvWrite.write("Condition");
-                csvWrite.write("Booking ID");
-                csvWrite.write("Booking User ID");
-                csvWrite.write("Booking Date");
-                csvWrite.write("Booking Start Time");
-                csvWrite.write("Booking End Time");
-                csvWrite.endRecord();
+                csvWrite.writeRecord(HEADERS);
                 csvWrite.close();
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
+        loadCatalog();
+        
+        checkpointer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "room-checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkpointer.scheduleWithFixedDelay(this::checkpointIfNeeded, CHECKPOINT_INTERVAL_SECONDS,
+                                            CHECKPOINT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        // Leave a full catalog and a fresh snapshot behind on a normal exit
+        Runtime.getRuntime().addShutdownHook(new Thread(this::checkpointIfNeeded, "room-checkpointer-shutdown"));
     }
     
     public static RoomCSV getInstance() {
         return instance;
     }
     
-    public void write(Room room) {
-        try {
-            CsvWriter csvWrite = new CsvWriter(new FileWriter(PATH, true), ',');
-            csvWrite.write(String.valueOf(room.getRoomId()));
-            csvWrite.write(String.valueOf(room.getCapacity()));
-            csvWrite.write(room.getBuildingName());
-            csvWrite.write(room.getRoomNumber());
-            csvWrite.write(room.getStatus());
-            csvWrite.write(room.getCondition());
-            csvWrite.write(room.getBookingId() != null ? room.getBookingId() : "");
-            csvWrite.write(room.getBookingUserId() != null ? String.valueOf(room.getBookingUserId()) : "");
-            csvWrite.write(room.getBookingDate() != null ? room.getBookingDate() : "");
-            csvWrite.write(room.getBookingStartTime() != null ? room.getBookingStartTime() : "");
-            csvWrite.write(room.getBookingEndTime() != null ? room.getBookingEndTime() : "");
-            csvWrite.endRecord();
-            csvWrite.close();
-        } catch (Exception e) {
-            e.printStackTrace();
+    public synchronized void write(Room room) {
+        UnitOfWork work = UnitOfWork.current();
+        if (work != null) {
+            work.stageRoom(ADD, copyOf(room));
+            return;
+        }
+        ensureCatalog();
+        if (!appendEvent(ADD, room)) {
+            return;
         }
+        List<Room> rooms = new ArrayList<>(catalog);
+        rooms.add(copyOf(room));
+        installCatalog(rooms, currentFileState());
     }
     
     public Room findById(UUID roomId) {
-        try {
-            CsvReader csvRead = new CsvReader(PATH);
-            csvRead.readHeaders();
-            
-            while (csvRead.readRecord()) {
-                if (csvRead.get("Room ID").equals(String.valueOf(roomId))) {
-                    Room room = parseRoomFromRecord(csvRead);
-                    csvRead.close();
+        if (roomId == null) {
+            return null;
+        }
+        UnitOfWork work = UnitOfWork.current();
+        if (work != null && work.hasStagedRoom(roomId)) {
+            return copyOf(work.getStagedRoom(roomId));
+        }
+        ensureCatalog();
+        return copyOf(roomsById.get(roomId));
+    }
+    
+    public Room findByLocation(String buildingName, String roomNumber) {
+        if (buildingName == null || roomNumber == null) {
+            return null;
+        }
+        if (UnitOfWork.current() != null) {
+            String key = locationKey(buildingName, roomNumber);
+            for (Room room : findAll()) {
+                if (room.getBuildingName() != null && room.getRoomNumber() != null
+                        && locationKey(room.getBuildingName(), room.getRoomNumber()).equals(key)) {
                     return room;
                 }
             }
-            csvRead.close();
-        } catch (Exception e) {
-            e.printStackTrace();
+            return null;
         }
-        return null;
+        ensureCatalog();
+        return copyOf(roomsByLocation.get(locationKey(buildingName, roomNumber)));
     }
     
-    public Room findByLocation(String buildingName, String roomNumber) {
-        try {
-            CsvReader csvRead = new CsvReader(PATH);
-            csvRead.readHeaders();
-            
-            while (csvRead.readRecord()) {
-                if (csvRead.get("Building Name").equalsIgnoreCase(buildingName) &&
-                    csvRead.get("Room Number").equalsIgnoreCase(roomNumber)) {
-                    Room room = parseRoomFromRecord(csvRead);
-                    csvRead.close();
+    // Find the first room with this room number, in any building
+    public Room findByRoomNumber(String roomNumber) {
+        if (roomNumber == null) {
+            return null;
+        }
+        if (UnitOfWork.current() != null) {
+            for (Room room : findAll()) {
+                if (roomNumber.equals(room.getRoomNumber())) {
                     return room;
                 }
             }
-            csvRead.close();
-        } catch (Exception e) {
-            e.printStackTrace();
+            return null;
         }
-        return null;
+        ensureCatalog();
+        return copyOf(roomsByNumber.get(roomNumber));
     }
     
     public List<Room> findAll() {
-        List<Room> rooms = new ArrayList<>();
-        try {
-            CsvReader csvRead = new CsvReader(PATH);
-            csvRead.readHeaders();
-            
-            while (csvRead.readRecord()) {
-                Room room = parseRoomFromRecord(csvRead);
-                rooms.add(room);
+        ensureCatalog();
+        List<Room> current = catalog;
+        // Inside a unit of work, show the catalog as it will be once the staged changes are saved
+        UnitOfWork work = UnitOfWork.current();
+        if (work != null) {
+            for (UnitOfWork.RoomChange change : work.getRoomChanges()) {
+                current = applyEvent(current, change.event, change.room);
             }
-            csvRead.close();
-        } catch (Exception e) {
-            e.printStackTrace();
+        }
+        List<Room> rooms = new ArrayList<>();
+        for (Room room : current) {
+            rooms.add(copyOf(room));
         }
         return rooms;
     }
@@ -127,117 +178,363 @@ public class RoomCSV {
         return findByLocation(buildingName, roomNumber) != null;
     }
     
-    public void update(Room updatedRoom) {
-        List<Room> allRooms = findAll();
+    // Record the room's new state as one appended event instead of rewriting the catalog
+    public synchronized void update(Room updatedRoom) {
+        UnitOfWork work = UnitOfWork.current();
+        if (work != null) {
+            if (findById(updatedRoom.getRoomId()) != null) {
+                work.stageRoom(STATE, copyOf(updatedRoom));
+            }
+            return;
+        }
+        ensureCatalog();
+        if (!roomsById.containsKey(updatedRoom.getRoomId())) {
+            return; // Nothing to update, the catalog stays as it is
+        }
+        if (!appendEvent(STATE, updatedRoom)) {
+            return;
+        }
+        installCatalog(applyEvent(catalog, STATE, copyOf(updatedRoom)), currentFileState());
+    }
+    
+    public synchronized void delete(UUID roomId) {
+        UnitOfWork work = UnitOfWork.current();
+        if (work != null) {
+            Room room = findById(roomId);
+            if (room != null) {
+                work.stageRoom(DELETE, room);
+            }
+            return;
+        }
+        ensureCatalog();
+        Room room = roomsById.get(roomId);
+        if (room == null || !appendEvent(DELETE, room)) {
+            return;
+        }
+        installCatalog(applyEvent(catalog, DELETE, room), currentFileState());
+    }
+    
+    /**
+     * Save the room changes of a unit of work with a single append to the state log.
+     * Changes to rooms that do not exist (any more) are skipped, as update() and delete() do.
+     * @return Changes that undo the batch, taken from the rooms as they were saved just
+     *         before it (under the same lock), to be passed to applyBatch again
+     * @throws IOException if the log could not be written; the catalog is then unchanged
+     */
+    synchronized List<UnitOfWork.RoomChange> applyBatch(List<UnitOfWork.RoomChange> changes) throws IOException {
+        ensureCatalog();
+        List<Room> rooms = catalog;
+        // Rooms as they stand at each point of the batch
+        Map<UUID, Room> current = new HashMap<>(roomsById);
+        List<UnitOfWork.RoomChange> undo = new ArrayList<>();
+        List<String> events = new ArrayList<>();
+        List<String[]> values = new ArrayList<>();
+        for (UnitOfWork.RoomChange change : changes) {
+            UUID roomId = change.room.getRoomId();
+            Room previous = current.get(roomId);
+            if (previous == null && !change.event.equals(ADD)) {
+                continue;
+            }
+            Room room = copyOf(change.room);
+            if (previous == null) {
+                undo.add(0, new UnitOfWork.RoomChange(DELETE, room));
+            } else {
+                undo.add(0, new UnitOfWork.RoomChange(change.event.equals(DELETE) ? ADD : STATE, copyOf(previous)));
+            }
+            if (change.event.equals(DELETE)) {
+                current.remove(roomId);
+            } else {
+                current.put(roomId, room);
+            }
+            rooms = applyEvent(rooms, change.event, room);
+            events.add(change.event);
+            values.add(toValues(room));
+        }
+        if (events.isEmpty()) {
+            return undo;
+        }
+        
+        stateLog.appendAll(events, values);
+        installCatalog(rooms, currentFileState());
+        if (stateLog.getPendingCount() >= CHECKPOINT_THRESHOLD) {
+            checkpointer.execute(this::checkpointIfNeeded);
+        }
+        return undo;
+    }
+    
+    /**
+     * Write the full catalog to RoomDatabase.csv and start an empty state log.
+     * The CSV is written to a temporary file and moved into place before the log is
+     * reset, so a crash in between leaves either the old CSV plus the log or the new
+     * CSV plus a log that no longer matches it.
+     * @return true if the CSV was rewritten
+     */
+    public synchronized boolean checkpoint() throws IOException {
+        ensureCatalog();
+        if (stateLog.getPendingCount() == 0) {
+            return false;
+        }
         
+        File tempFile = new File(PATH + ".tmp");
+        CsvWriter csvWrite = new CsvWriter(new FileWriter(tempFile, false), ',');
         try {
-            // Rewrite entire file with headers
-            CsvWriter csvWrite = new CsvWriter(new FileWriter(PATH, false), ',');
-            csvWrite.write("Room ID");
-            csvWrite.write("Capacity");
-            csvWrite.write("Building Name");
-            csvWrite.write("Room Number");
-            csvWrite.write("Status");
-            csvWrite.write("Condition");
-            csvWrite.write("Booking ID");
-            csvWrite.write("Booking User ID");
-            csvWrite.write("Booking Date");
-            csvWrite.write("Booking Start Time");
-            csvWrite.write("Booking End Time");
-            csvWrite.endRecord();
-            
-            for (Room room : allRooms) {
-                if (room.getRoomId().equals(updatedRoom.getRoomId())) {
-                    // Write updated room
-                    writeRoomRecord(csvWrite, updatedRoom);
-                } else {
-                    // Write existing room
-                    writeRoomRecord(csvWrite, room);
-                }
+            csvWrite.writeRecord(HEADERS);
+            for (Room room : catalog) {
+                csvWrite.writeRecord(toValues(room));
             }
+        } finally {
             csvWrite.close();
+        }
+        CsvJournal.replaceFile(tempFile, new File(PATH), stateLog.getFlushPolicy());
+        
+        int checkpointed = stateLog.getPendingCount();
+        stateLog.reset(CsvFileState.of(PATH));
+        catalogFileState = currentFileState();
+        System.out.println("RoomCSV: Checkpointed " + checkpointed + " room state changes into " + PATH);
+        return true;
+    }
+    
+    /**
+     * When room state changes are forced to disk (GROUP_COMMIT by default), and the flush latencies
+     */
+    public FlushPolicy getFlushPolicy() {
+        return stateLog.getFlushPolicy();
+    }
+    
+    private void checkpointIfNeeded() {
+        try {
+            checkpoint();
+        } catch (Exception e) {
+            System.err.println("Error checkpointing room state log: " + e.getMessage());
+        }
+        try {
+            saveSnapshot();
+        } catch (Exception e) {
+            System.err.println("Error saving room snapshot: " + e.getMessage());
+        }
+    }
+    
+    // Append one event to the state log; on failure the catalog is reloaded on next read
+    private boolean appendEvent(String event, Room room) {
+        try {
+            stateLog.append(event, toValues(room));
         } catch (Exception e) {
             e.printStackTrace();
+            catalogFileState = null;
+            return false;
         }
+        if (stateLog.getPendingCount() >= CHECKPOINT_THRESHOLD) {
+            checkpointer.execute(this::checkpointIfNeeded);
+        }
+        return true;
     }
     
-    public void delete(UUID roomId) {
-        List<Room> allRooms = findAll();
-        
+    // Catalog after one event, leaving the given list untouched
+    private List<Room> applyEvent(List<Room> rooms, String event, Room room) {
+        List<Room> result = new ArrayList<>(rooms.size() + 1);
+        for (Room existing : rooms) {
+            if (!existing.getRoomId().equals(room.getRoomId())) {
+                result.add(existing);
+            } else if (event.equals(STATE)) {
+                result.add(room); // Every row with the ID takes the new state, as the full rewrite did
+            } else if (event.equals(ADD)) {
+                result.add(existing);
+            }
+        }
+        if (event.equals(ADD)) {
+            result.add(room);
+        }
+        return result;
+    }
+    
+    private String currentFileState() {
+        return CsvFileState.of(PATH) + "|" + CsvFileState.of(LOG_PATH);
+    }
+    
+    private boolean isCatalogCurrent() {
+        return catalogFileState != null && catalogFileState.equals(currentFileState());
+    }
+    
+    // Reload the catalog if RoomDatabase.csv or the state log was changed outside this class
+    private void ensureCatalog() {
+        if (!isCatalogCurrent()) {
+            synchronized (this) {
+                // A writer may have been installing its change while we waited for the lock
+                if (!isCatalogCurrent()) {
+                    loadCatalog();
+                }
+            }
+        }
+    }
+    
+    private synchronized void loadCatalog() {
+        List<Room> rooms = new ArrayList<>();
+        String fileState = null;
         try {
-            CsvWriter csvWrite = new CsvWriter(new FileWriter(PATH, false), ',');
-            csvWrite.write("Room ID");
-            csvWrite.write("Capacity");
-            csvWrite.write("Building Name");
-            csvWrite.write("Room Number");
-            csvWrite.write("Status");
-            csvWrite.write("Condition");
-            csvWrite.write("Booking ID");
-            csvWrite.write("Booking User ID");
-            csvWrite.write("Booking Date");
-            csvWrite.write("Booking Start Time");
-            csvWrite.write("Booking End Time");
-            csvWrite.endRecord();
+            String csvFileState = CsvFileState.of(PATH);
+            if (loadSnapshot(csvFileState)) {
+                return;
+            }
+            try (CsvScanner csvRead = CsvScanner.open(PATH)) {
+                // Columns are looked up by name, so older files with a different layout still load
+                int[] columns = new int[HEADERS.length];
+                for (int i = 0; i < HEADERS.length; i++) {
+                    columns[i] = csvRead.column(HEADERS[i]); // Reads as "" if the column doesn't exist
+                }
+                
+                while (csvRead.next()) {
+                    try {
+                        rooms.add(parseRoomFromRecord(csvRead, columns));
+                    } catch (Exception e) {
+                        System.err.println("RoomCSV: Skipping unreadable room record: " + e.getMessage());
+                    }
+                }
+            }
             
-            for (Room room : allRooms) {
-                if (!room.getRoomId().equals(roomId)) {
-                    writeRoomRecord(csvWrite, room);
+            for (CsvJournal.Entry entry : stateLog.load(csvFileState)) {
+                try {
+                    rooms = applyEvent(rooms, entry.getOperation(), parseRoom(entry.getValues()));
+                } catch (Exception e) {
+                    System.err.println("RoomCSV: Skipping unreadable room state event " + entry.getSequence() + ": " + e.getMessage());
                 }
             }
-            csvWrite.close();
+            fileState = currentFileState();
         } catch (Exception e) {
             e.printStackTrace();
+            // Try again on the next lookup
         }
+        installCatalog(rooms, fileState);
     }
     
-    private Room parseRoomFromRecord(CsvReader csvRead) throws Exception {
-        UUID roomId = UUID.fromString(csvRead.get("Room ID"));
-        int capacity = Integer.parseInt(csvRead.get("Capacity"));
-        String buildingName = csvRead.get("Building Name");
-        String roomNumber = csvRead.get("Room Number");
-        String status = csvRead.get("Status");
-        String condition = csvRead.get("Condition");
-        
-        // Try to read Booking ID (may not exist in old CSV files)
-        String bookingId = null;
+    // Install the catalog from the snapshot if it was taken from the files as they are now
+    private boolean loadSnapshot(String csvFileState) throws IOException {
+        String fileState = currentFileState();
+        List<String[]> rows = SnapshotFile.read(SNAPSHOT_PATH, fileState, HEADERS, SNAPSHOT_KINDS);
+        if (rows == null) {
+            return false;
+        }
+        // The log's events are already in the snapshot; it is read for its sequence number
+        stateLog.load(csvFileState);
+        if (!fileState.equals(currentFileState())) {
+            return false; // The log was reset, so the snapshot no longer matches
+        }
+        List<Room> rooms = new ArrayList<>(rows.size());
         try {
-            bookingId = csvRead.get("Booking ID");
-            if (bookingId != null && bookingId.trim().isEmpty()) {
-                bookingId = null;
+            for (String[] values : rows) {
+                rooms.add(parseRoom(values));
+            }
+        } catch (RuntimeException e) {
+            System.err.println("RoomCSV: Unreadable room in " + SNAPSHOT_PATH + ", loading the CSV: " + e.getMessage());
+            return false;
+        }
+        installCatalog(rooms, fileState);
+        snapshotFileState = fileState;
+        System.out.println("RoomCSV: Loaded " + rooms.size() + " rooms from " + SNAPSHOT_PATH);
+        return true;
+    }
+    
+    /**
+     * Save the catalog as a binary snapshot for the next start.
+     * Nothing is written if the catalog isn't loaded or the saved snapshot is up to date.
+     * @return true if a snapshot was written
+     */
+    public synchronized boolean saveSnapshot() throws IOException {
+        String fileState = catalogFileState;
+        if (!isCatalogCurrent() || fileState.equals(snapshotFileState)) {
+            return false;
+        }
+        List<String[]> rows = new ArrayList<>(catalog.size());
+        for (Room room : catalog) {
+            rows.add(toValues(room));
+        }
+        SnapshotFile.write(SNAPSHOT_PATH, fileState, HEADERS, SNAPSHOT_KINDS, rows);
+        snapshotFileState = fileState;
+        return true;
+    }
+    
+    // Build the lookup maps; when a key repeats, the first room in file order wins
+    private synchronized void installCatalog(List<Room> rooms, String fileState) {
+        Map<UUID, Room> byId = new ConcurrentHashMap<>();
+        Map<String, Room> byLocation = new ConcurrentHashMap<>();
+        Map<String, Room> byNumber = new ConcurrentHashMap<>();
+        for (Room room : rooms) {
+            byId.putIfAbsent(room.getRoomId(), room);
+            if (room.getBuildingName() != null && room.getRoomNumber() != null) {
+                byLocation.putIfAbsent(locationKey(room.getBuildingName(), room.getRoomNumber()), room);
+            }
+            if (room.getRoomNumber() != null) {
+                byNumber.putIfAbsent(room.getRoomNumber(), room);
             }
-        } catch (Exception e) {
-            // Column doesn't exist in old CSV files, leave as null
         }
+        catalog = rooms;
+        roomsById = byId;
+        roomsByLocation = byLocation;
+        roomsByNumber = byNumber;
+        catalogFileState = fileState;
+    }
+    
+    // Building and room number are matched case-insensitively, like the old file scan
+    private String locationKey(String buildingName, String roomNumber) {
+        return buildingName.toLowerCase(Locale.ROOT) + "\u0000" + roomNumber.toLowerCase(Locale.ROOT);
+    }
+    
+    // Same result as writing the room out and reading it back
+    private Room copyOf(Room room) {
+        if (room == null) {
+            return null;
+        }
+        return new Room(room.getRoomId(), room.getCapacity(), room.getBuildingName(), room.getRoomNumber(),
+                        room.getStatus(), room.getCondition(), room.getBookingId(), room.getBookingUserId(),
+                        room.getBookingDate(), room.getBookingStartTime(), room.getBookingEndTime());
+    }
+    
+    private Room parseRoomFromRecord(CsvScanner csvRead, int[] columns) throws Exception {
+        String[] values = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = csvRead.get(columns[i]);
+        }
+        return parseRoom(values);
+    }
+    
+    // Build a room from row values in HEADERS order
+    private Room parseRoom(String[] values) {
+        UUID roomId = UUID.fromString(values[0]);
+        int capacity = Integer.parseInt(values[1]);
+        String buildingName = values[2];
+        String roomNumber = values[3];
+        String status = values[4];
+        String condition = values[5];
         
-        String bookingUserIdStr = csvRead.get("Booking User ID");
+        String bookingId = emptyToNull(values[6]);
+        String bookingUserIdStr = values[7];
         UUID bookingUserId = (bookingUserIdStr != null && !bookingUserIdStr.isEmpty()) 
                              ? UUID.fromString(bookingUserIdStr) : null;
-        
-        String bookingDate = csvRead.get("Booking Date");
-        bookingDate = (bookingDate != null && !bookingDate.isEmpty()) ? bookingDate : null;
-        
-        String bookingStartTime = csvRead.get("Booking Start Time");
-        bookingStartTime = (bookingStartTime != null && !bookingStartTime.isEmpty()) ? bookingStartTime : null;
-        
-        String bookingEndTime = csvRead.get("Booking End Time");
-        bookingEndTime = (bookingEndTime != null && !bookingEndTime.isEmpty()) ? bookingEndTime : null;
+        String bookingDate = emptyToNull(values[8]);
+        String bookingStartTime = emptyToNull(values[9]);
+        String bookingEndTime = emptyToNull(values[10]);
         
         return new Room(roomId, capacity, buildingName, roomNumber, status, condition,
                         bookingId, bookingUserId, bookingDate, bookingStartTime, bookingEndTime);
     }
     
-    private void writeRoomRecord(CsvWriter csvWrite, Room room) throws Exception {
-        csvWrite.write(String.valueOf(room.getRoomId()));
-        csvWrite.write(String.valueOf(room.getCapacity()));
-        csvWrite.write(room.getBuildingName());
-        csvWrite.write(room.getRoomNumber());
-        csvWrite.write(room.getStatus());
-        csvWrite.write(room.getCondition());
-        csvWrite.write(room.getBookingId() != null ? room.getBookingId() : "");
-        csvWrite.write(room.getBookingUserId() != null ? String.valueOf(room.getBookingUserId()) : "");
-        csvWrite.write(room.getBookingDate() != null ? room.getBookingDate() : "");
-        csvWrite.write(room.getBookingStartTime() != null ? room.getBookingStartTime() : "");
-        csvWrite.write(room.getBookingEndTime() != null ? room.getBookingEndTime() : "");
-        csvWrite.endRecord();
-    }
-}
\ No newline at end of file
+    private String emptyToNull(String value) {
+        return (value != null && !value.isEmpty()) ? value : null;
+    }
+    
+    // Row values in HEADERS order
+    private String[] toValues(Room room) {
+        return new String[] {
+            String.valueOf(room.getRoomId()),
+            String.valueOf(room.getCapacity()),
+            room.getBuildingName(),
+            room.getRoomNumber(),
+            room.getStatus(),
+            room.getCondition(),
+            room.getBookingId() != null ? room.getBookingId() : "",
+            room.getBookingUserId() != null ? String.valueOf(room.getBookingUserId()) : "",
+            room.getBookingDate() != null ? room.getBookingDate() : "",
+            room.getBookingStartTime() != null ? room.getBookingStartTime() : "",
+            room.getBookingEndTime() != null ? room.getBookingEndTime() : ""
+        };
+    }
+}
@@ -10,9 +10,8 @@ public class RoomContext {
     // Booking info (null when no active booking)
     private String bookingId;
     private UUID bookingUserId;
-    private String bookingStartTime;
-    private String bookingEndTime;
-    private String bookingDate;
+    // Normalized at ingest, see BookingTime
+    private BookingTime bookingTime = BookingTime.NONE;
     
     public RoomContext(UUID roomId) {
         this.roomId = roomId;
@@ -75,17 +74,13 @@ public class RoomContext {
     public void setBookingInfo(String bookingId2, UUID userId, String date, String startTime, String endTime) {
         this.bookingId = bookingId2;  // Fixed: use bookingId2 parameter instead of bookingId field
         this.bookingUserId = userId;
-        this.bookingDate = date;
-        this.bookingStartTime = startTime;
-        this.bookingEndTime = endTime;
+        this.bookingTime = BookingTime.of(date, startTime, endTime);
     }
     
     public void clearBookingInfo() {
         this.bookingId = null;
         this.bookingUserId = null;
-        this.bookingDate = null;
-        this.bookingStartTime = null;
-        this.bookingEndTime = null;
+        this.bookingTime = BookingTime.NONE;
     }
     
     // Getters
@@ -102,15 +97,19 @@ public class RoomContext {
     }
     
     public String getBookingStartTime() {
-        return bookingStartTime;
+        return bookingTime.formatStartTime();
     }
     
     public String getBookingEndTime() {
-        return bookingEndTime;
+        return bookingTime.formatEndTime();
     }
     
     public String getBookingDate() {
-        return bookingDate;
+        return bookingTime.formatDate();
+    }
+    
+    public BookingTime getBookingTime() {
+        return bookingTime;
     }
     
     public boolean hasActiveBooking() {
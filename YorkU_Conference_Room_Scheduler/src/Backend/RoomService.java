@@ -1,8 +1,12 @@
 package Backend;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
 
 public class RoomService {
     
@@ -41,15 +45,9 @@ public class RoomService {
         return roomCSV.findByLocation(buildingName, roomNumber);
     }
     
-    // Get room by number (searches all rooms)
+    // Get room by number (first match in any building)
     public Room getRoomByNumber(String roomNumber) {
-        List<Room> allRooms = getAllRooms();
-        for (Room room : allRooms) {
-            if (room.getRoomNumber().equals(roomNumber)) {
-                return room;
-            }
-        }
-        return null;
+        return roomCSV.findByRoomNumber(roomNumber);
     }
     
     // Get available rooms (enabled AND in Available state)
@@ -93,20 +91,22 @@ public class RoomService {
     }
     
     // Get available rooms with full filters (capacity, building, time range)
+    // Rooms are filtered in one pass and checked against the booking index together,
+    // then sorted so the closest capacity fit comes first
     public List<Room> getAvailableRooms(int minCapacity, String buildingName, 
                                          String date, String startTime, String endTime) {
-        List<Room> filteredRooms = getAvailableRooms(minCapacity, buildingName);
-        List<Room> availableRooms = new ArrayList<>();
-        
-        // Filter out rooms that have time conflicts
-        BookingCSV bookingCSV = BookingCSV.getInstance();
-        for (Room room : filteredRooms) {
-            // Check if room has a time conflict for the requested time slot
-            if (!bookingCSV.hasTimeConflict(room.getRoomNumber(), date, startTime, endTime)) {
-                availableRooms.add(room);
+        List<Room> candidates = new ArrayList<>();
+        for (Room room : roomCSV.findAll()) {
+            if (room.getStatus().equals("ENABLED") &&
+                room.getCapacity() >= minCapacity &&
+                room.getBuildingName().equalsIgnoreCase(buildingName)) {
+                candidates.add(room);
             }
         }
         
+        List<Room> availableRooms = BookingCSV.getInstance().filterAvailableRooms(candidates, date, startTime, endTime);
+        availableRooms.sort(Comparator.comparingInt(Room::getCapacity)
+                                      .thenComparing(Room::getRoomNumber, Comparator.nullsLast(String::compareTo)));
         return availableRooms;
     }
     
@@ -121,6 +121,140 @@ public class RoomService {
         return !bookingCSV.hasTimeConflict(room.getRoomNumber(), date, startTime, endTime);
     }
     
+    // Slot occupancy of a room on a date in half-hour slots, one bit per slot (see SlotGrid)
+    public long getSlotOccupancy(String roomNumber, String date) {
+        return getSlotOccupancy(roomNumber, date, SlotGrid.HALF_HOUR);
+    }
+    
+    public long getSlotOccupancy(String roomNumber, String date, SlotGrid grid) {
+        return BookingCSV.getInstance().getSlotOccupancy(roomNumber, date, grid);
+    }
+    
+    // Check if the half-hour slot starting at (or containing) a time is free
+    public boolean isSlotFree(String roomNumber, String date, String time) {
+        short minute = BookingTime.parseMinute(time);
+        if (minute == BookingTime.NO_MINUTE) {
+            return false;
+        }
+        return SlotGrid.isFree(getSlotOccupancy(roomNumber, date), SlotGrid.HALF_HOUR.slotOf(minute));
+    }
+    
+    // Start times of the free half-hour slots between two times, e.g. 09:00-16:30
+    public List<String> getFreeSlots(String roomNumber, String date, String fromTime, String toTime) {
+        short from = BookingTime.parseMinute(fromTime);
+        short to = BookingTime.parseMinute(toTime);
+        if (from == BookingTime.NO_MINUTE || to == BookingTime.NO_MINUTE) {
+            return new ArrayList<>();
+        }
+        return SlotGrid.HALF_HOUR.freeSlots(getSlotOccupancy(roomNumber, date), from, to);
+    }
+    
+    // Enabled rooms whose half-hour slot at a time is free
+    public List<Room> getRoomsFreeAt(String date, String time) {
+        List<Room> freeRooms = new ArrayList<>();
+        short minute = BookingTime.parseMinute(time);
+        int slot = minute != BookingTime.NO_MINUTE ? SlotGrid.HALF_HOUR.slotOf(minute) : -1;
+        if (slot < 0) {
+            return freeRooms;
+        }
+        
+        List<Room> enabledRooms = new ArrayList<>();
+        List<String> roomNumbers = new ArrayList<>();
+        for (Room room : roomCSV.findAll()) {
+            if (room.getStatus().equals("ENABLED")) {
+                enabledRooms.add(room);
+                roomNumbers.add(room.getRoomNumber());
+            }
+        }
+        Map<String, Long> occupancy = BookingCSV.getInstance().getSlotOccupancy(roomNumbers, date, SlotGrid.HALF_HOUR);
+        for (Room room : enabledRooms) {
+            if (SlotGrid.isFree(occupancy.get(room.getRoomNumber()), slot)) {
+                freeRooms.add(room);
+            }
+        }
+        return freeRooms;
+    }
+    
+    // Longest date range getAvailabilityGrid and searchAvailability will cover
+    private static final int MAX_GRID_DAYS = 366;
+    
+    /**
+     * Availability of every room in a building, for each day in a range, in one call
+     * @param buildingName Building to show (case-insensitive)
+     * @param fromDate First date, dd/MM/yyyy or yyyy-MM-dd
+     * @param toDate Last date (inclusive)
+     * @param slotMinutes 30 or 15
+     * @return Room x day x slot grid, rooms sorted by room number
+     */
+    public AvailabilityGrid getAvailabilityGrid(String buildingName, String fromDate, String toDate, int slotMinutes) {
+        SlotGrid grid = SlotGrid.of(slotMinutes);
+        int firstDay = BookingTime.parseDay(fromDate);
+        int dayCount = dayCount(firstDay, fromDate, toDate);
+        
+        List<Room> rooms = new ArrayList<>();
+        for (Room room : roomCSV.findAll()) {
+            if (buildingName != null && buildingName.equalsIgnoreCase(room.getBuildingName())) {
+                rooms.add(room);
+            }
+        }
+        rooms.sort(Comparator.comparing(Room::getRoomNumber, Comparator.nullsLast(String::compareTo)));
+        
+        List<String> roomNumbers = new ArrayList<>();
+        for (Room room : rooms) {
+            roomNumbers.add(room.getRoomNumber());
+        }
+        long[] occupancy = BookingCSV.getInstance().getSlotOccupancy(roomNumbers, firstDay, dayCount, grid);
+        
+        // A room that can't be booked has no free slots
+        for (int i = 0; i < rooms.size(); i++) {
+            if (!rooms.get(i).getStatus().equals("ENABLED")) {
+                Arrays.fill(occupancy, i * dayCount, (i + 1) * dayCount, grid.allSlots());
+            }
+        }
+        System.out.println("getAvailabilityGrid: " + rooms.size() + " rooms x " + dayCount + " days in " + buildingName);
+        return new AvailabilityGrid(rooms, firstDay, dayCount, grid, occupancy);
+    }
+    
+    /**
+     * Search a date range for free rooms in parallel (see AvailabilitySearch)
+     * @param minCapacity Seats needed
+     * @param buildingName Building to search, or null for every building
+     * @param fromDate First date, dd/MM/yyyy or yyyy-MM-dd
+     * @param toDate Last date (inclusive)
+     * @param durationHours Length of the booking
+     * @param limit Number of results wanted
+     * @return Up to limit free room/times, closest capacity fit first, then earliest start
+     */
+    public List<AvailabilitySearch.Result> searchAvailability(int minCapacity, String buildingName, String fromDate,
+                                                              String toDate, int durationHours, int limit) {
+        int firstDay = BookingTime.parseDay(fromDate);
+        int dayCount = dayCount(firstDay, fromDate, toDate);
+        
+        List<Room> candidates = new ArrayList<>();
+        for (Room room : roomCSV.findAll()) {
+            if (room.getStatus().equals("ENABLED") &&
+                room.getCapacity() >= minCapacity &&
+                (buildingName == null || room.getBuildingName().equalsIgnoreCase(buildingName))) {
+                candidates.add(room);
+            }
+        }
+        return new AvailabilitySearch(ForkJoinPool.commonPool())
+            .search(candidates, minCapacity, firstDay, dayCount, durationHours * 60, limit);
+    }
+    
+    // Number of days from fromDate to toDate inclusive, checked against MAX_GRID_DAYS
+    private int dayCount(int firstDay, String fromDate, String toDate) {
+        int lastDay = BookingTime.parseDay(toDate);
+        if (firstDay == BookingTime.NO_DAY || lastDay == BookingTime.NO_DAY) {
+            throw new IllegalArgumentException("Invalid date range: " + fromDate + " - " + toDate);
+        }
+        if (lastDay < firstDay || lastDay - firstDay >= MAX_GRID_DAYS) {
+            throw new IllegalArgumentException("Date range must run forwards and cover at most " + 
+                                             MAX_GRID_DAYS + " days: " + fromDate + " - " + toDate);
+        }
+        return lastDay - firstDay + 1;
+    }
+    
     // Book a room
     public boolean bookRoom(UUID roomId, String bookingId, UUID userId, String date, String startTime, String endTime) {
         Room room = roomCSV.findById(roomId);
@@ -155,8 +289,7 @@ public class RoomService {
         }
         
         room.checkIn();
-        roomCSV.update(room);
-        return true;
+        return saveRoomAndBookingStatus(room, room.getBookingId(), BookingStatus.IN_USE);
     }
     
     // Check out of a room
@@ -176,9 +309,9 @@ public class RoomService {
         // Reset occupancy when checking out
         room.resetOccupancy();
         
+        String bookingId = room.getBookingId();
         room.checkOut();
-        roomCSV.update(room);
-        return true;
+        return saveRoomAndBookingStatus(room, bookingId, BookingStatus.COMPLETED);
     }
     
     // Cancel a booking
@@ -283,10 +416,30 @@ public class RoomService {
         ReservedState.getInstance().triggerNoShow(room.getRoomContext());
         
         // Process the no-show state (transitions to Available)
+        String bookingId = room.getBookingId();
         room.getRoomContext().handle();
         
-        roomCSV.update(room);
-        return true;
+        return saveRoomAndBookingStatus(room, bookingId, BookingStatus.NO_SHOW);
+    }
+    
+    // Save a room state change together with the status of the booking it belongs to;
+    // redone if the booking is saved by someone else before the commit
+    private boolean saveRoomAndBookingStatus(Room room, String bookingId, String bookingStatus) {
+        return StaleBookingException.retry("RoomService", "saving the status of booking " + bookingId,
+                                           () -> saveRoomAndBookingStatusOnce(room, bookingId, bookingStatus));
+    }
+    
+    private boolean saveRoomAndBookingStatusOnce(Room room, String bookingId, String bookingStatus) {
+        UnitOfWork work = UnitOfWork.begin();
+        try {
+            roomCSV.update(room);
+            if (bookingId != null && !bookingId.isEmpty()) {
+                BookingCSV.getInstance().updateStatus(bookingId, bookingStatus);
+            }
+            return work.commit();
+        } finally {
+            work.close();
+        }
     }
     
     // Get rooms by status
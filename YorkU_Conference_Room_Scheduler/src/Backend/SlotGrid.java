@@ -0,0 +1,119 @@
+package Backend;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Layout of a room's day as fixed-length slots packed into one long.
+ * Bit i is set when slot i (starting at firstMinute + i * slotMinutes) overlaps a booking,
+ * so "is this slot free", "which slots are free" and "which rooms are free at 10:00"
+ * are bit operations on the occupancy masks kept by BookingIndex.
+ *
+ * HALF_HOUR covers the whole day in 48 slots. QUARTER_HOUR needs 96 slots for a
+ * whole day, more than a long holds, so it covers 07:00-23:00 in 64 slots; bookings
+ * outside the covered hours don't show up in it.
+ */
+public final class SlotGrid {
+
+    public static final SlotGrid HALF_HOUR = new SlotGrid(30, 0, 48);
+    public static final SlotGrid QUARTER_HOUR = new SlotGrid(15, 7 * 60, 64);
+
+    private final int slotMinutes;
+    private final int firstMinute;
+    private final int slotCount;
+
+    private SlotGrid(int slotMinutes, int firstMinute, int slotCount) {
+        this.slotMinutes = slotMinutes;
+        this.firstMinute = firstMinute;
+        this.slotCount = slotCount;
+    }
+
+    /**
+     * The grid for a slot length
+     * @param slotMinutes 30 or 15
+     */
+    public static SlotGrid of(int slotMinutes) {
+        switch (slotMinutes) {
+            case 30:
+                return HALF_HOUR;
+            case 15:
+                return QUARTER_HOUR;
+            default:
+                throw new IllegalArgumentException("Slot length must be 15 or 30 minutes: " + slotMinutes);
+        }
+    }
+
+    public int getSlotMinutes() {
+        return slotMinutes;
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    // Mask with a bit for every slot the grid has
+    public long allSlots() {
+        return slotCount == 64 ? -1L : (1L << slotCount) - 1;
+    }
+
+    /**
+     * Slots touched by the booking [startMinute, endMinute). An end before the start is
+     * read as running past midnight, so the booking fills the rest of the day.
+     * @return The slot bits, clipped to the hours the grid covers
+     */
+    public long mask(int startMinute, int endMinute) {
+        int end = endMinute < startMinute ? BookingTime.MINUTES_PER_DAY : endMinute;
+        int first = Math.max(0, Math.floorDiv(startMinute - firstMinute, slotMinutes));
+        int last = Math.min(slotCount, Math.floorDiv(end - firstMinute + slotMinutes - 1, slotMinutes));
+        if (first >= last) {
+            return 0L;
+        }
+        long upTo = last == 64 ? -1L : (1L << last) - 1;
+        return upTo & ~((1L << first) - 1);
+    }
+
+    /**
+     * Slot starting at or containing a time
+     * @return The slot number, or -1 if the grid doesn't cover that time
+     */
+    public int slotOf(int minuteOfDay) {
+        if (minuteOfDay < firstMinute) {
+            return -1;
+        }
+        int slot = (minuteOfDay - firstMinute) / slotMinutes;
+        return slot < slotCount ? slot : -1;
+    }
+
+    // Minutes since midnight at which a slot starts
+    public int slotStart(int slot) {
+        return firstMinute + slot * slotMinutes;
+    }
+
+    // HH:MM label of a slot
+    public String label(int slot) {
+        return BookingTime.formatMinute(slotStart(slot));
+    }
+
+    public static boolean isFree(long occupancy, int slot) {
+        return slot >= 0 && (occupancy & (1L << slot)) == 0;
+    }
+
+    // True if none of the slots in the mask is taken
+    public static boolean isFree(long occupancy, long wanted) {
+        return (occupancy & wanted) == 0;
+    }
+
+    /**
+     * Labels of the free slots in [fromMinute, toMinute)
+     */
+    public List<String> freeSlots(long occupancy, int fromMinute, int toMinute) {
+        List<String> free = new ArrayList<>();
+        long candidates = ~occupancy & mask(fromMinute, toMinute);
+        while (candidates != 0) {
+            int slot = Long.numberOfTrailingZeros(candidates);
+            free.add(label(slot));
+            candidates &= candidates - 1;
+        }
+        return free;
+    }
+}
@@ -0,0 +1,303 @@
+package Backend;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Binary copy of a store's rows, so a cold start doesn't have to parse the CSV files
+ * and replay their logs. The stores write one from their checkpoint thread and on
+ * shutdown, and load it instead of the CSV when it still matches their files. The
+ * booking snapshot is tied to the journal's epoch rather than the file state, so it
+ * stays usable as the journal grows and only the changes after it are replayed.
+ *
+ * Layout: magic, format, the source state (the store's CsvFileState string or journal
+ * epoch), the journal sequence the rows include, the columns with their kinds, the row
+ * count, the rows and a CRC32 of everything before it.
+ * Strings are length-prefixed UTF-8. Values of a UUID, NUMBER, TIME or DATE column are
+ * stored as primitives when that gives back exactly the same text, and as a string
+ * otherwise, so a row reads back the same as it was written.
+ */
+public final class SnapshotFile {
+
+    // How a column's values are stored
+    public static final byte TEXT = 0;
+    public static final byte UUID_VALUE = 1; // Two longs
+    public static final byte NUMBER = 2;     // A long
+    public static final byte TIME = 3;       // Minute of day as a short
+    public static final byte DATE = 4;       // Epoch day as an int and the layout
+
+    private static final int MAGIC = 0x59555353; // "YUSS"
+    private static final int FORMAT = 2;
+
+    // Value tags
+    private static final byte EMPTY = 0;
+    private static final byte STRING = 1;
+    private static final byte PACKED = 2;
+
+    /**
+     * Rows read back from a snapshot
+     */
+    public static final class Snapshot {
+        private final long sequence;
+        private final List<String[]> rows;
+
+        Snapshot(long sequence, List<String[]> rows) {
+            this.sequence = sequence;
+            this.rows = rows;
+        }
+
+        // Last journal change the rows include
+        public long getSequence() {
+            return sequence;
+        }
+
+        public List<String[]> getRows() {
+            return rows;
+        }
+    }
+
+    private SnapshotFile() {}
+
+    /**
+     * Write a snapshot of a store without a journal sequence
+     */
+    public static void write(String path, String sourceState, String[] columns, byte[] kinds,
+                             List<String[]> rows) throws IOException {
+        write(path, sourceState, 0, columns, kinds, rows);
+    }
+
+    /**
+     * Write a snapshot; it is written to a temporary file and moved into place
+     * @param sourceState State of the files the rows were loaded from
+     * @param sequence Last journal change the rows include
+     * @param columns Column names, in row order
+     * @param kinds How each column is stored
+     */
+    public static void write(String path, String sourceState, long sequence, String[] columns, byte[] kinds,
+                             List<String[]> rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + rows.size() * columns.length * 12);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT);
+        writeString(out, sourceState);
+        out.writeLong(sequence);
+        out.writeInt(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            writeString(out, columns[i]);
+            out.writeByte(kinds[i]);
+        }
+        out.writeInt(rows.size());
+        for (String[] row : rows) {
+            for (int i = 0; i < columns.length; i++) {
+                writeValue(out, kinds[i], i < row.length && row[i] != null ? row[i] : "");
+            }
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes.toByteArray());
+        out.writeLong(checksum.getValue());
+        out.flush();
+
+        File file = new File(path);
+        File tempFile = new File(path + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(tempFile)) {
+            bytes.writeTo(stream);
+        }
+        CsvJournal.replaceFile(tempFile, file);
+    }
+
+    /**
+     * Read a snapshot taken from the files in the given state
+     * @param sourceState Current state of the store's files
+     * @return The rows, or null if there is no usable snapshot (missing, damaged,
+     *         taken from other files or with other columns)
+     */
+    public static List<String[]> read(String path, String sourceState, String[] columns, byte[] kinds) {
+        Snapshot snapshot = load(path, sourceState, columns, kinds);
+        return snapshot != null ? snapshot.getRows() : null;
+    }
+
+    /**
+     * Same as read(), keeping the journal sequence the snapshot was taken at
+     */
+    public static Snapshot load(String path, String sourceState, String[] columns, byte[] kinds) {
+        if (sourceState == null || !new File(path).exists()) {
+            return null;
+        }
+        try {
+            ByteBuffer data = readFile(path);
+            if (data.limit() < 16 || data.getInt() != MAGIC || data.getInt() != FORMAT) {
+                System.err.println("SnapshotFile: " + path + " is not a snapshot");
+                return null;
+            }
+            CRC32 checksum = new CRC32();
+            ByteBuffer body = data.duplicate();
+            body.position(0).limit(data.limit() - 8);
+            checksum.update(body);
+            if (checksum.getValue() != data.getLong(data.limit() - 8)) {
+                System.err.println("SnapshotFile: Checksum mismatch in " + path);
+                return null;
+            }
+            if (!sourceState.equals(readString(data))) {
+                return null; // Stale: the files changed after it was taken
+            }
+            long sequence = data.getLong();
+            int columnCount = data.getInt();
+            String[] storedColumns = new String[columnCount];
+            byte[] storedKinds = new byte[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                storedColumns[i] = readString(data);
+                storedKinds[i] = data.get();
+            }
+            if (!Arrays.equals(storedColumns, columns) || !Arrays.equals(storedKinds, kinds)) {
+                return null;
+            }
+            int rowCount = data.getInt();
+            List<String[]> rows = new ArrayList<>(rowCount);
+            for (int r = 0; r < rowCount; r++) {
+                String[] row = new String[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    row[i] = readValue(data, kinds[i]);
+                }
+                rows.add(row);
+            }
+            return new Snapshot(sequence, rows);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("SnapshotFile: Ignoring unreadable snapshot " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // The whole file in one buffer, read through its channel
+    private static ByteBuffer readFile(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException("Snapshot too large: " + path);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the buffer is full or the file ends
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, byte kind, String value) throws IOException {
+        if (value.isEmpty()) {
+            out.writeByte(EMPTY);
+            return;
+        }
+        switch (kind) {
+            case UUID_VALUE:
+                UUID id = parseUuid(value);
+                if (id != null) {
+                    out.writeByte(PACKED);
+                    out.writeLong(id.getMostSignificantBits());
+                    out.writeLong(id.getLeastSignificantBits());
+                    return;
+                }
+                break;
+            case NUMBER:
+                try {
+                    long number = Long.parseLong(value);
+                    if (Long.toString(number).equals(value)) {
+                        out.writeByte(PACKED);
+                        out.writeLong(number);
+                        return;
+                    }
+                } catch (NumberFormatException e) {
+                    // Stored as text
+                }
+                break;
+            case TIME:
+                short minute = BookingTime.parseMinute(value);
+                if (minute != BookingTime.NO_MINUTE && BookingTime.formatMinute(minute).equals(value)) {
+                    out.writeByte(PACKED);
+                    out.writeShort(minute);
+                    return;
+                }
+                break;
+            case DATE:
+                int day = BookingTime.parseDay(value);
+                boolean iso = value.indexOf('-') >= 0;
+                if (day != BookingTime.NO_DAY && BookingTime.formatDay(day, iso).equals(value)) {
+                    out.writeByte(PACKED);
+                    out.writeInt(day);
+                    out.writeBoolean(iso);
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+        out.writeByte(STRING);
+        writeString(out, value);
+    }
+
+    private static String readValue(ByteBuffer data, byte kind) {
+        byte tag = data.get();
+        if (tag == EMPTY) {
+            return "";
+        }
+        if (tag == STRING) {
+            return readString(data);
+        }
+        if (tag != PACKED) {
+            throw new IllegalStateException("Unknown value tag " + tag);
+        }
+        switch (kind) {
+            case UUID_VALUE:
+                return new UUID(data.getLong(), data.getLong()).toString();
+            case NUMBER:
+                return Long.toString(data.getLong());
+            case TIME:
+                return BookingTime.formatMinute(data.getShort());
+            case DATE:
+                int day = data.getInt();
+                return BookingTime.formatDay(day, data.get() != 0);
+            default:
+                throw new IllegalStateException("Packed value in a text column");
+        }
+    }
+
+    // Only IDs that print back the same way are packed
+    private static UUID parseUuid(String value) {
+        try {
+            UUID id = UUID.fromString(value);
+            return id.toString().equals(value) ? id : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer data) {
+        int length = data.getInt();
+        if (length < 0 || length > data.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(data.array(), data.arrayOffset() + data.position(), length, StandardCharsets.UTF_8);
+        data.position(data.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,62 @@
+package Backend;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Thrown by BookingRepository.update when the booking was saved by someone else
+ * after the caller read it: the stored version no longer matches the one the
+ * caller's copy carries. Read the booking again and redo the change.
+ */
+public class StaleBookingException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    // Times a change is redone against fresh state when someone else saves the booking first
+    static final int MAX_ATTEMPTS = 3;
+
+    private final String bookingId;
+    private final long expectedVersion;
+    private final long actualVersion;
+
+    public StaleBookingException(String bookingId, long expectedVersion, long actualVersion) {
+        super("Booking " + bookingId + " was changed by someone else (expected version " +
+              expectedVersion + ", found " + actualVersion + ")");
+        this.bookingId = bookingId;
+        this.expectedVersion = expectedVersion;
+        this.actualVersion = actualVersion;
+    }
+
+    public String getBookingId() {
+        return bookingId;
+    }
+
+    // Version the caller's copy was read at
+    public long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    // Version currently stored
+    public long getActualVersion() {
+        return actualVersion;
+    }
+
+    /**
+     * Run a read-modify-save of a booking, starting over on a fresh read each time the
+     * save finds the booking was saved by someone else first
+     * @param caller Name used in the log messages
+     * @param action What is being done, e.g. "editing booking B1", for the give-up message
+     * @param attempt One read-modify-save; it returns whether the change was made
+     * @return What the last attempt returned, or false if every attempt was stale
+     */
+    static boolean retry(String caller, String action, BooleanSupplier attempt) {
+        for (int i = 1; i <= MAX_ATTEMPTS; i++) {
+            try {
+                return attempt.getAsBoolean();
+            } catch (StaleBookingException e) {
+                System.out.println(caller + ": " + e.getMessage() + ", retrying (" + i + "/" + MAX_ATTEMPTS + ")");
+            }
+        }
+        System.err.println(caller + ": Gave up " + action + " after " + MAX_ATTEMPTS + " attempts");
+        return false;
+    }
+}
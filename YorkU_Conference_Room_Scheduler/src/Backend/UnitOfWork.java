@@ -0,0 +1,240 @@
+package Backend;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Groups room and booking changes so they are saved together or not at all.
+ *
+ * While a unit of work is open on a thread, RoomCSV and BookingCSV stage their
+ * writes here instead of logging them, and reads on that thread see the staged
+ * changes. commit() flushes the rooms and the bookings as one batch each; if the
+ * booking batch fails the room batch is reverted. Leaving the unit of work without
+ * committing (close() or rollback()) throws the staged changes away.
+ *
+ * Usage:
+ * <pre>
+ * UnitOfWork work = UnitOfWork.begin();
+ * try {
+ *     roomCSV.update(room);
+ *     repository.update(booking);
+ *     work.commit();
+ * } finally {
+ *     work.close();
+ * }
+ * </pre>
+ * begin() inside an open unit of work joins it: the inner handle's commit() leaves the
+ * flush to the outer one, and leaving the inner handle without committing rolls back
+ * the whole unit of work.
+ */
+public class UnitOfWork implements AutoCloseable {
+
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    /**
+     * A staged room change: ADD, STATE or DELETE with the room's row
+     */
+    static class RoomChange {
+        final String event;
+        final Room room;
+
+        RoomChange(String event, Room room) {
+            this.event = event;
+            this.room = room;
+        }
+    }
+
+    /**
+     * A staged booking change: INSERT, UPDATE or DELETE with the booking's row.
+     * An UPDATE with an expected version is only saved if the stored row still has it.
+     */
+    static class BookingChange {
+        final String operation;
+        final BookingRecord record;
+        // Version the change was based on, or -1 to save whatever is stored
+        final long expectedVersion;
+
+        BookingChange(String operation, BookingRecord record, long expectedVersion) {
+            this.operation = operation;
+            this.record = record;
+            this.expectedVersion = expectedVersion;
+        }
+    }
+
+    // One entry per room, so repeated state changes to a room are saved once
+    private final Map<UUID, RoomChange> roomChanges = new LinkedHashMap<>();
+    private final List<BookingChange> bookingChanges = new ArrayList<>();
+    // Latest staged row per booking ID (null value = deleted)
+    private final Map<String, BookingRecord> bookingsById = new HashMap<>();
+    // The unit of work this handle joined, or null for the outermost one
+    private final UnitOfWork outer;
+    private boolean active = true;
+
+    private UnitOfWork(UnitOfWork outer) {
+        this.outer = outer;
+    }
+
+    /**
+     * Open a unit of work on this thread, or join the one already open
+     */
+    public static UnitOfWork begin() {
+        UnitOfWork open = CURRENT.get();
+        if (open != null) {
+            return new UnitOfWork(open);
+        }
+        UnitOfWork work = new UnitOfWork(null);
+        CURRENT.set(work);
+        return work;
+    }
+
+    // The unit of work open on this thread, or null
+    static UnitOfWork current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Save everything staged so far. Inside a joined unit of work this only marks
+     * the inner part as done; the outermost commit does the flush.
+     * @return true if the changes were saved (or left for the outer commit)
+     * @throws StaleBookingException if a booking was saved by someone else after it was
+     *         read; nothing is saved
+     */
+    public boolean commit() {
+        if (!isActive()) {
+            return false;
+        }
+        if (outer != null) {
+            active = false;
+            return true;
+        }
+        finish();
+
+        List<RoomChange> rooms = new ArrayList<>(roomChanges.values());
+        RoomCSV roomCSV = RoomCSV.getInstance();
+        // Saved state of the rooms just before the batch, so a failed booking flush can be reverted
+        List<RoomChange> revert;
+
+        try {
+            revert = roomCSV.applyBatch(rooms);
+        } catch (Exception e) {
+            System.err.println("UnitOfWork: Failed to save room changes: " + e.getMessage());
+            return false;
+        }
+        try {
+            BookingCSV.getInstance().applyBatch(bookingChanges);
+        } catch (StaleBookingException e) {
+            System.err.println("UnitOfWork: " + e.getMessage() + ", reverting rooms");
+            try {
+                roomCSV.applyBatch(revert);
+            } catch (Exception revertError) {
+                System.err.println("UnitOfWork: Failed to revert room changes: " + revertError.getMessage());
+            }
+            throw e;
+        } catch (Exception e) {
+            System.err.println("UnitOfWork: Failed to save booking changes, reverting rooms: " + e.getMessage());
+            try {
+                roomCSV.applyBatch(revert);
+            } catch (Exception revertError) {
+                System.err.println("UnitOfWork: Failed to revert room changes: " + revertError.getMessage());
+            }
+            return false;
+        }
+        System.out.println("UnitOfWork: Saved " + rooms.size() + " room changes and " +
+                         bookingChanges.size() + " booking changes");
+        return true;
+    }
+
+    /**
+     * Throw away everything staged, including changes made by joined callers
+     */
+    public void rollback() {
+        if (outer != null) {
+            if (active) {
+                active = false;
+                outer.rollback();
+            }
+            return;
+        }
+        if (!active) {
+            return;
+        }
+        finish();
+        roomChanges.clear();
+        bookingChanges.clear();
+        bookingsById.clear();
+    }
+
+    /**
+     * Roll back unless the unit of work was committed
+     */
+    @Override
+    public void close() {
+        rollback();
+    }
+
+    public boolean isActive() {
+        return active && (outer == null || outer.isActive());
+    }
+
+    private void finish() {
+        active = false;
+        CURRENT.remove();
+    }
+
+    // ---------------------------------------------------------------------
+    // Staging, used by RoomCSV and BookingCSV
+    // ---------------------------------------------------------------------
+
+    void stageRoom(String event, Room room) {
+        UUID roomId = room.getRoomId();
+        RoomChange previous = roomChanges.get(roomId);
+        if (previous != null && previous.event.equals(RoomCSV.ADD)) {
+            // The room is new in this unit of work: keep it an ADD, or drop it entirely
+            if (event.equals(RoomCSV.DELETE)) {
+                roomChanges.remove(roomId);
+            } else {
+                roomChanges.put(roomId, new RoomChange(RoomCSV.ADD, room));
+            }
+            return;
+        }
+        roomChanges.remove(roomId); // Re-insert so changes keep their latest order
+        roomChanges.put(roomId, new RoomChange(event, room));
+    }
+
+    boolean hasStagedRoom(UUID roomId) {
+        return roomChanges.containsKey(roomId);
+    }
+
+    // Staged state of a room, or null if it is deleted (check hasStagedRoom first)
+    Room getStagedRoom(UUID roomId) {
+        RoomChange change = roomChanges.get(roomId);
+        return change != null && !change.event.equals(RoomCSV.DELETE) ? change.room : null;
+    }
+
+    List<RoomChange> getRoomChanges() {
+        return Collections.unmodifiableList(new ArrayList<>(roomChanges.values()));
+    }
+
+    void stageBooking(String operation, BookingRecord record, long expectedVersion) {
+        bookingChanges.add(new BookingChange(operation, record, expectedVersion));
+        bookingsById.put(record.getKey(), operation.equals(BookingJournal.DELETE) ? null : record);
+    }
+
+    boolean hasStagedBooking(String key) {
+        return bookingsById.containsKey(key);
+    }
+
+    // Staged row of a booking, or null if it is deleted (check hasStagedBooking first)
+    BookingRecord getStagedBooking(String key) {
+        return bookingsById.get(key);
+    }
+
+    List<BookingChange> getBookingChanges() {
+        return Collections.unmodifiableList(bookingChanges);
+    }
+}
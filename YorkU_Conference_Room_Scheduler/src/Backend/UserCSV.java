@@ -2,14 +2,47 @@ package Backend;
 
 import java.io.File;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
-import com.csvreader.CsvReader;
+import java.util.concurrent.ConcurrentHashMap;
 import com.csvreader.CsvWriter;
 
 public class UserCSV {
     
     private static UserCSV instance = new UserCSV();
     private final String PATH = "../Database.csv";
+    // Binary copy of the directory, loaded instead of Database.csv on a cold start
+    private final String SNAPSHOT_PATH = "../Database.snap";
+    // Snapshot columns; Date Created is kept as milliseconds instead of Date.toString() text
+    private static final String[] SNAPSHOT_COLUMNS = { "ID", "Type", "Org ID", "Email", "Password", "Created Millis" };
+    private static final byte[] SNAPSHOT_KINDS = {
+        SnapshotFile.UUID_VALUE, SnapshotFile.TEXT, SnapshotFile.TEXT, SnapshotFile.TEXT, SnapshotFile.TEXT,
+        SnapshotFile.NUMBER
+    };
+    
+    // Resident account directory: one Accounts instance per stored ID, so every lookup
+    // hands back the same object with the ID that is actually in Database.csv
+    private volatile List<Accounts> accounts = new ArrayList<>();
+    private volatile Map<UUID, Accounts> accountsById = new ConcurrentHashMap<>();
+    private volatile Map<String, Accounts> accountsByEmail = new ConcurrentHashMap<>();
+    // Size/modification time of the file the directory was loaded from (null = not loaded)
+    private volatile String directoryFileState;
+    // State the saved snapshot was taken at (null = none saved by this instance)
+    private String snapshotFileState;
+    // Sign-ups peak at the start of term; new accounts are forced to disk in batches
+    private final FlushPolicy flushPolicy = new FlushPolicy(PATH, FlushPolicy.Mode.GROUP_COMMIT);
         
     private UserCSV() { 
         try {
@@ -31,148 +64,100 @@ public class UserCSV {
         } catch (Exception e) {
             e.printStackTrace();
         }
+        ensureDirectory();
+        // Leave a fresh snapshot behind on a normal exit
+        Runtime.getRuntime().addShutdownHook(new Thread(this::saveSnapshotIfNeeded, "user-snapshot-shutdown"));
     }
     
     public static UserCSV getInstance() {
         return instance;
     }
     
-    public void write(Accounts a) {
+    /**
+     * When new accounts are forced to disk (GROUP_COMMIT by default), and the flush latencies
+     */
+    public FlushPolicy getFlushPolicy() {
+        return flushPolicy;
+    }
+    
+    public synchronized void write(Accounts a) {
+        // Only extend the directory if it matched the file before this append
+        boolean directoryCurrent = isDirectoryCurrent();
         try {
-            CsvWriter csvWrite = new CsvWriter(new FileWriter(PATH, true), ',');
-            csvWrite.write(String.valueOf(a.getAccountId()));
-            csvWrite.write(a.getAccountType());
-            csvWrite.write((a instanceof User) ? ((User) a).getOrgID() : "-");
-            csvWrite.write(a.getEmail());
-            csvWrite.write(a.getPassword());
-            csvWrite.write(String.valueOf(a.getCreatedDate()));
-            csvWrite.endRecord();
+            StringWriter buffer = new StringWriter();
+            CsvWriter csvWrite = new CsvWriter(buffer, ',');
+            writeAccountRecord(csvWrite, a);
             csvWrite.close();
+            // Same encoding the FileWriter used
+            flushPolicy.append(Paths.get(PATH), buffer.toString().getBytes(Charset.defaultCharset()), 1);
         } catch (Exception e) {
             e.printStackTrace();
+            directoryFileState = null; // Reload on next read
+            return;
+        }
+        
+        if (directoryCurrent) {
+            List<Accounts> updated = new ArrayList<>(accounts);
+            Accounts existing = accountsById.get(a.getAccountId());
+            updated.add(existing != null ? existing : a);
+            installDirectory(updated, CsvFileState.of(PATH));
         }
     }
     
     public Accounts find(UUID id) {
-        Accounts account;
-        try {
-            CsvReader csvRead = new CsvReader(PATH);
-            csvRead.readHeaders();
-            
-            while (csvRead.readRecord()) {
-                if (csvRead.get("ID").equals(String.valueOf(id))) {
-                    if (csvRead.get("Type").equals("Admin")) {    
-                        account = new Admin(csvRead.get("Email"), csvRead.get("Password")); 
-                    } else if (csvRead.get("Type").equals("Chief Event Coordinator")) {
-                        csvRead.close();
-                        return ChiefEventCoordinator.getCEOInstance();
-                    } else {
-                        UserFactory factory = new UserFactory();
-                        account = factory.createUser(
-                            csvRead.get("Email"), 
-                            csvRead.get("Password"), 
-                            csvRead.get("Type"), 
-                            csvRead.get("Org ID")
-                        );
-                    }
-                    csvRead.close();
-                    return account;
-                }
-            }
-            csvRead.close();
-        } catch (Exception e) {
-            e.printStackTrace();
+        if (id == null) {
+            return null;
         }
-        return null;     
+        ensureDirectory();
+        return accountsById.get(id);
     }
     
     public Accounts findByEmail(String email) {
-        Accounts account;
-        try {
-            CsvReader csvRead = new CsvReader(PATH);
-            csvRead.readHeaders();
-            
-            while (csvRead.readRecord()) {
-                if (csvRead.get("Email").equalsIgnoreCase(email)) {
-                    String type = csvRead.get("Type");
-                    String storedEmail = csvRead.get("Email");
-                    String storedPassword = csvRead.get("Password");
-                    String orgId = csvRead.get("Org ID");
-                    
-                    if (type.equals("Admin")) {    
-                        account = new Admin(storedEmail, storedPassword); 
-                    } else if (type.equals("Chief Event Coordinator")) {
-                        csvRead.close();
-                        return ChiefEventCoordinator.getCEOInstance();
-                    } else {
-                        UserFactory factory = new UserFactory();
-                        account = factory.createUser(storedEmail, storedPassword, type, orgId);
-                    }
-                    csvRead.close();
-                    return account;
-                }
-            }
-            csvRead.close();
-        } catch (Exception e) {
-            e.printStackTrace();
+        if (email == null) {
+            return null;
         }
-        return null;     
+        ensureDirectory();
+        return accountsByEmail.get(emailKey(email));
     }
     
     public boolean emailExists(String email) {
-        try {
-            CsvReader csvRead = new CsvReader(PATH);
-            csvRead.readHeaders();
-            
-            while (csvRead.readRecord()) {
-                if (csvRead.get("Email").equalsIgnoreCase(email)) {
-                    csvRead.close();
-                    return true;
-                }
-            }
-            csvRead.close();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return false;
+        return findByEmail(email) != null;
     }
     
     public java.util.List<Accounts> findAll() {
-        java.util.List<Accounts> accounts = new java.util.ArrayList<>();
-        try {
-            CsvReader csvRead = new CsvReader(PATH);
-            csvRead.readHeaders();
-            
-            while (csvRead.readRecord()) {
-                String type = csvRead.get("Type");
-                String storedEmail = csvRead.get("Email");
-                String storedPassword = csvRead.get("Password");
-                String orgId = csvRead.get("Org ID");
-                
-                Accounts account;
-                if (type.equals("Admin")) {    
-                    account = new Admin(storedEmail, storedPassword); 
-                } else if (type.equals("Chief Event Coordinator")) {
-                    account = ChiefEventCoordinator.getCEOInstance();
-                } else {
-                    UserFactory factory = new UserFactory();
-                    account = factory.createUser(storedEmail, storedPassword, type, orgId);
-                }
-                accounts.add(account);
+        ensureDirectory();
+        return new ArrayList<>(accounts);
+    }
+    
+    /**
+     * Look up many accounts at once, e.g. the users of a page of bookings
+     * @return The accounts found, by ID (missing IDs are left out)
+     */
+    public Map<UUID, Accounts> findAll(Collection<UUID> ids) {
+        ensureDirectory();
+        Map<UUID, Accounts> byId = accountsById;
+        Map<UUID, Accounts> found = new HashMap<>();
+        for (UUID id : ids) {
+            Accounts account = id != null ? byId.get(id) : null;
+            if (account != null) {
+                found.put(id, account);
             }
-            csvRead.close();
-        } catch (Exception e) {
-            e.printStackTrace();
         }
-        return accounts;
+        return found;
     }
     
-    public void update(Accounts updatedAccount) {
-        java.util.List<Accounts> allAccounts = findAll();
+    public synchronized void update(Accounts updatedAccount) {
+        ensureDirectory();
+        java.util.List<Accounts> allAccounts = new ArrayList<>();
+        for (Accounts account : accounts) {
+            allAccounts.add(account.getAccountId().equals(updatedAccount.getAccountId()) ? updatedAccount : account);
+        }
         
         try {
-            // Rewrite entire file with headers
-            CsvWriter csvWrite = new CsvWriter(new FileWriter(PATH, false), ',');
+            // Rewrite entire file with headers, into a temporary file moved over the old one
+            // so a crash mid-write can't leave a truncated user database
+            File tempFile = new File(PATH + ".tmp");
+            CsvWriter csvWrite = new CsvWriter(new FileWriter(tempFile, false), ',');
             csvWrite.write("ID");
             csvWrite.write("Type");
             csvWrite.write("Org ID");
@@ -182,17 +167,14 @@ public class UserCSV {
             csvWrite.endRecord();
             
             for (Accounts account : allAccounts) {
-                if (account.getAccountId().equals(updatedAccount.getAccountId())) {
-                    // Write updated account
-                    writeAccountRecord(csvWrite, updatedAccount);
-                } else {
-                    // Write existing account
-                    writeAccountRecord(csvWrite, account);
-                }
+                writeAccountRecord(csvWrite, account);
             }
             csvWrite.close();
+            CsvJournal.replaceFile(tempFile, new File(PATH), flushPolicy);
+            installDirectory(allAccounts, CsvFileState.of(PATH));
         } catch (Exception e) {
             e.printStackTrace();
+            directoryFileState = null; // Reload on next read
         }
     }
     
@@ -205,26 +187,214 @@ public class UserCSV {
         csvWrite.write(String.valueOf(account.getCreatedDate()));
         csvWrite.endRecord();
     }
-    public void updateAccountTypeByEmail(String email, String newType) {
+    
+    private boolean isDirectoryCurrent() {
+        return directoryFileState != null && directoryFileState.equals(CsvFileState.of(PATH));
+    }
+    
+    // Reload the directory if Database.csv was changed outside this class
+    private void ensureDirectory() {
+        if (!isDirectoryCurrent()) {
+            synchronized (this) {
+                // A writer may have installed the current directory while we waited for the lock
+                if (!isDirectoryCurrent()) {
+                    loadDirectory();
+                }
+            }
+        }
+    }
+    
+    private synchronized void loadDirectory() {
+        String fileState = CsvFileState.of(PATH);
+        Map<UUID, Accounts> previous = accountsById;
+        Map<UUID, Accounts> loaded = new ConcurrentHashMap<>();
+        List<Accounts> rows = new ArrayList<>();
+        if (loadSnapshot(fileState, previous)) {
+            return;
+        }
+        try {
+            try (CsvScanner csvRead = CsvScanner.open(PATH)) {
+                int id = csvRead.column("ID");
+                int type = csvRead.column("Type");
+                int orgId = csvRead.column("Org ID");
+                int email = csvRead.column("Email");
+                int password = csvRead.column("Password");
+                int dateCreated = csvRead.column("Date Created");
+                
+                while (csvRead.next()) {
+                    try {
+                        Accounts account = toAccount(csvRead.get(id), csvRead.get(type), csvRead.get(orgId),
+                                                     csvRead.get(email), csvRead.get(password),
+                                                     parseCreatedDate(csvRead.get(dateCreated)), loaded, previous);
+                        loaded.putIfAbsent(account.getAccountId(), account);
+                        rows.add(account);
+                    } catch (Exception e) {
+                        System.err.println("UserCSV: Skipping unreadable account record: " + e.getMessage());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            fileState = null; // Try again on the next lookup
+        }
+        installDirectory(rows, fileState);
+    }
+    
+    // Install the directory from the snapshot if it was taken from Database.csv as it is now
+    private boolean loadSnapshot(String fileState, Map<UUID, Accounts> previous) {
+        List<String[]> snapshot = SnapshotFile.read(SNAPSHOT_PATH, fileState, SNAPSHOT_COLUMNS, SNAPSHOT_KINDS);
+        if (snapshot == null) {
+            return false;
+        }
+        Map<UUID, Accounts> loaded = new ConcurrentHashMap<>();
+        List<Accounts> rows = new ArrayList<>(snapshot.size());
+        for (String[] values : snapshot) {
+            try {
+                Date created = values[5].isEmpty() ? null : new Date(Long.parseLong(values[5]));
+                Accounts account = toAccount(values[0], values[1], values[2], values[3], values[4],
+                                             created, loaded, previous);
+                loaded.putIfAbsent(account.getAccountId(), account);
+                rows.add(account);
+            } catch (Exception e) {
+                System.err.println("UserCSV: Skipping unreadable account in " + SNAPSHOT_PATH + ": " + e.getMessage());
+            }
+        }
+        installDirectory(rows, fileState);
+        snapshotFileState = fileState;
+        System.out.println("UserCSV: Loaded " + rows.size() + " accounts from " + SNAPSHOT_PATH);
+        return true;
+    }
+    
+    /**
+     * Save the directory as a binary snapshot for the next start.
+     * Nothing is written if the directory isn't loaded or the saved snapshot is up to date.
+     * @return true if a snapshot was written
+     */
+    public synchronized boolean saveSnapshot() throws IOException {
+        String fileState = directoryFileState;
+        if (!isDirectoryCurrent() || fileState.equals(snapshotFileState)) {
+            return false;
+        }
+        List<String[]> rows = new ArrayList<>(accounts.size());
+        for (Accounts account : accounts) {
+            Date created = account.getCreatedDate();
+            rows.add(new String[] {
+                String.valueOf(account.getAccountId()),
+                account.getAccountType(),
+                (account instanceof User) ? ((User) account).getOrgID() : "-",
+                account.getEmail(),
+                account.getPassword(),
+                created != null ? Long.toString(created.getTime()) : ""
+            });
+        }
+        SnapshotFile.write(SNAPSHOT_PATH, fileState, SNAPSHOT_COLUMNS, SNAPSHOT_KINDS, rows);
+        snapshotFileState = fileState;
+        return true;
+    }
+    
+    private void saveSnapshotIfNeeded() {
+        try {
+            saveSnapshot();
+        } catch (Exception e) {
+            System.err.println("Error saving user snapshot: " + e.getMessage());
+        }
+    }
+    
+    // Build the account for a row, reusing the instance already handed out for that ID
+    private Accounts toAccount(String idStr, String type, String orgId, String email, String password,
+                               Date created, Map<UUID, Accounts> loaded, Map<UUID, Accounts> previous) {
+        if (type.equals("Chief Event Coordinator")) {
+            return ChiefEventCoordinator.getCEOInstance();
+        }
+        
+        UUID id = null;
+        try {
+            id = UUID.fromString(idStr.trim());
+        } catch (Exception e) {
+            // Not a valid ID; the account keeps a generated one
+        }
+        
+        if (id != null) {
+            Accounts existing = loaded.get(id);
+            if (existing == null) {
+                existing = previous.get(id);
+            }
+            if (existing != null && existing.getAccountType().equals(type) &&
+                (!(existing instanceof User) || Objects.equals(((User) existing).getOrgID(), orgId))) {
+                existing.setEmail(email);
+                existing.setPassword(password);
+                return existing;
+            }
+        }
+        
+        Accounts account;
+        if (type.equals("Admin")) {
+            account = new Admin(email, password);
+        } else {
+            UserFactory factory = new UserFactory();
+            account = factory.createUser(email, password, type, orgId);
+        }
+        if (id != null) {
+            account.setAccountId(id);
+        }
+        if (created != null) {
+            account.setCreatedDate(created);
+        }
+        return account;
+    }
+    
+    // Date Created is stored with Date.toString()
+    private Date parseCreatedDate(String dateCreated) {
+        try {
+            return new SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US).parse(dateCreated);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+    
+    // Build the lookup maps; when an ID or email repeats, the first row in file order wins
+    private synchronized void installDirectory(List<Accounts> rows, String fileState) {
+        Map<UUID, Accounts> byId = new ConcurrentHashMap<>();
+        Map<String, Accounts> byEmail = new ConcurrentHashMap<>();
+        for (Accounts account : rows) {
+            byId.putIfAbsent(account.getAccountId(), account);
+            if (account.getEmail() != null) {
+                byEmail.putIfAbsent(emailKey(account.getEmail()), account);
+            }
+        }
+        accounts = rows;
+        accountsById = byId;
+        accountsByEmail = byEmail;
+        directoryFileState = fileState;
+    }
+    
+    private String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+    
+    public synchronized void updateAccountTypeByEmail(String email, String newType) {
         try {
             java.util.List<String[]> allRows = new java.util.ArrayList<>();
-            CsvReader csvRead = new CsvReader(PATH);
-            csvRead.readHeaders();
+            CsvScanner csvRead = CsvScanner.open(PATH);
             
             String[] headers = csvRead.getHeaders();
             allRows.add(headers);
+            int idColumn = csvRead.column("ID");
+            int orgIdColumn = csvRead.column("Org ID");
+            int emailColumn = csvRead.column("Email");
+            int passwordColumn = csvRead.column("Password");
+            int dateCreatedColumn = csvRead.column("Date Created");
             
             // Read all rows and update the matching one
-            while (csvRead.readRecord()) {
-                String rowEmail = csvRead.get("Email");
-                if (rowEmail.equalsIgnoreCase(email)) {
+            while (csvRead.next()) {
+                if (csvRead.matchesIgnoreCase(emailColumn, email)) {
                     String[] row = new String[headers.length];
-                    row[0] = csvRead.get("ID");
+                    row[0] = csvRead.get(idColumn);
                     row[1] = newType; 
-                    row[2] = csvRead.get("Org ID"); 
-                    row[3] = csvRead.get("Email");
-                    row[4] = csvRead.get("Password");
-                    row[5] = csvRead.get("Date Created");
+                    row[2] = csvRead.get(orgIdColumn); 
+                    row[3] = csvRead.get(emailColumn);
+                    row[4] = csvRead.get(passwordColumn);
+                    row[5] = csvRead.get(dateCreatedColumn);
                     allRows.add(row);
                     System.out.println("Found account with email " + email + " - updating type to " + newType);
                 } else {
@@ -238,8 +408,9 @@ public class UserCSV {
             }
             csvRead.close();
             
-            // Write everything back
-            CsvWriter csvWrite = new CsvWriter(new FileWriter(PATH, false), ',');
+            // Write everything back through a temporary file, like update()
+            File tempFile = new File(PATH + ".tmp");
+            CsvWriter csvWrite = new CsvWriter(new FileWriter(tempFile, false), ',');
             for (String[] row : allRows) {
                 for (String value : row) {
                     csvWrite.write(value);
@@ -247,6 +418,7 @@ public class UserCSV {
                 csvWrite.endRecord();
             }
             csvWrite.close();
+            CsvJournal.replaceFile(tempFile, new File(PATH), flushPolicy);
             
             System.out.println("Account type updated to " + newType + " for email " + email);
             
@@ -0,0 +1,111 @@
+package Backend;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class AvailabilitySearchTest {
+
+    private RoomService roomService;
+    private User testUser;
+    private List<Room> rooms;
+    private List<Booking> bookings;
+    private String firstDate;
+
+    @Before
+    public void setUp() {
+        roomService = new RoomService();
+        testUser = new Student("search@yorku.ca", "password123", "12345678");
+        rooms = new ArrayList<>();
+        bookings = new ArrayList<>();
+        rooms.add(roomService.addRoom(8, "SearchA", "SRCH01"));
+        rooms.add(roomService.addRoom(12, "SearchA", "SRCH02"));
+        rooms.add(roomService.addRoom(40, "SearchB", "SRCH03"));
+        firstDate = date(7);
+    }
+
+    @After
+    public void tearDown() {
+        for (Booking booking : bookings) {
+            BookingCSV.getInstance().deleteBooking(booking.getBookingId());
+        }
+        for (Room room : rooms) {
+            RoomCSV.getInstance().delete(room.getRoomId());
+        }
+    }
+
+    private String date(int daysAhead) {
+        return LocalDate.now().plusDays(daysAhead).format(DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+    }
+
+    private void book(String roomNumber, String date, String start, String end) {
+        bookings.add(ReservationSystem.getInstance().createBooking(testUser, 1, testUser.getHourlyRate(),
+                                                                   roomNumber, date, start, end));
+    }
+
+    @Test
+    public void testSearch_RanksByCapacityFitThenEarliestStart() {
+        book("SRCH02", firstDate, "09:00", "10:00");
+
+        List<AvailabilitySearch.Result> results = new AvailabilitySearch(ForkJoinPool.commonPool())
+            .search(rooms.subList(1, 3), 10, BookingTime.parseDay(firstDate), 3, 120, 4);
+        assertEquals("Should return K results", 4, results.size());
+
+        AvailabilitySearch.Result best = results.get(0);
+        assertEquals("Closest fit should come first", "SRCH02", best.getRoom().getRoomNumber());
+        assertEquals("Best fit should start after its booking", firstDate, best.getDate());
+        assertEquals("10:00", best.getStartTime());
+        assertEquals("12:00", best.getEndTime());
+        assertEquals("Next result should be the same room a day later", date(8), results.get(1).getDate());
+        assertEquals("09:00", results.get(1).getStartTime());
+        assertEquals("Larger room should rank after every day of the closer fit",
+                     "SRCH03", results.get(3).getRoom().getRoomNumber());
+    }
+
+    @Test
+    public void testSearch_ParallelMatchesSingleThreaded() {
+        book("SRCH01", firstDate, "09:00", "13:00");
+        book("SRCH03", date(8), "11:00", "12:00");
+        int firstDay = BookingTime.parseDay(firstDate);
+
+        ForkJoinPool singleThread = new ForkJoinPool(1);
+        ForkJoinPool fourThreads = new ForkJoinPool(4);
+        try {
+            List<AvailabilitySearch.Result> serial = new AvailabilitySearch(singleThread)
+                .search(rooms, 5, firstDay, 5, 60, 6);
+            List<AvailabilitySearch.Result> parallel = new AvailabilitySearch(fourThreads)
+                .search(rooms, 5, firstDay, 5, 60, 6);
+            assertEquals("Parallel search should give the same results", serial.toString(), parallel.toString());
+        } finally {
+            singleThread.shutdown();
+            fourThreads.shutdown();
+        }
+    }
+
+    @Test
+    public void testSearchAvailability_FiltersBuildingAndCapacity() {
+        List<AvailabilitySearch.Result> results = roomService.searchAvailability(30, null, firstDate, date(13), 2, 3);
+        for (AvailabilitySearch.Result result : results) {
+            assertTrue("Rooms should have enough seats", result.getRoom().getCapacity() >= 30);
+        }
+
+        results = roomService.searchAvailability(1, "SearchA", firstDate, date(9), 8, 10);
+        assertEquals("One full-day slot per room per day", 6, results.size());
+        for (AvailabilitySearch.Result result : results) {
+            assertEquals("Only the requested building", "SearchA", result.getRoom().getBuildingName());
+        }
+    }
+
+    @Test
+    public void testSearch_NoRoomForLongerThanTheDay() {
+        assertTrue("Nothing fits a nine-hour booking",
+                   roomService.searchAvailability(1, "SearchA", firstDate, firstDate, 9, 5).isEmpty());
+    }
+}
@@ -239,66 +239,23 @@ public class BookingCSVTest {
         Booking foundBooking = bookingCSV.findById(bookingId);
         assertNotNull("Booking should be found by ID", foundBooking);
         
-        UUID csvUserId = originalUserId;
-        String userIdFromCSV = null;
-        try {
-            File userFile = new File(TEST_USER_PATH);
-            if (userFile.exists()) {
-                CsvReader csvRead = new CsvReader(TEST_USER_PATH);
-                csvRead.readHeaders();
-                while (csvRead.readRecord()) {
-                    if (csvRead.get("Email").equalsIgnoreCase(testUser.getEmail())) {
-                        userIdFromCSV = csvRead.get("ID");
-                        if (userIdFromCSV != null && !userIdFromCSV.trim().isEmpty()) {
-                            csvUserId = UUID.fromString(userIdFromCSV.trim());
-                        }
-                        break;
-                    }
-                }
-                csvRead.close();
-            }
-        } catch (Exception e) {
-            System.out.println("Could not read user ID from CSV, using original: " + e.getMessage());
-            csvUserId = originalUserId;
-        }
-        
-        if (foundBooking.getUser() != null) {
-            try {
-                java.lang.reflect.Method setAccountIdMethod = Accounts.class.getDeclaredMethod("setAccountId", UUID.class);
-                setAccountIdMethod.setAccessible(true);
-                setAccountIdMethod.invoke(foundBooking.getUser(), csvUserId);
-            } catch (Exception e) {
-                System.err.println("Could not restore user UUID: " + e.getMessage());
+        // Accounts keep their stored ID, so the booking we wrote comes back with the original user
+        boolean bookingExists = false;
+        for (Booking b : bookingCSV.findAll()) {
+            if (b.getBookingId().equals(bookingId) && originalUserId.equals(b.getUser().getAccountId())) {
+                bookingExists = true;
+                break;
             }
         }
+        assertTrue("Booking should exist in database with the original user ID", bookingExists);
         
-        assertEquals("Booking user ID should match", csvUserId, foundBooking.getUser().getAccountId());
-        
+        // findByUserEmail matches on the ID of the account stored for that email
         List<Booking> bookings = bookingCSV.findByUserEmail(testUser.getEmail());
         assertNotNull("Bookings list should not be null", bookings);
-        
-        if (bookings.size() == 0) {
-            List<Booking> allBookings = bookingCSV.findAll();
-            boolean bookingExists = false;
-            for (Booking b : allBookings) {
-                if (b.getBookingId().equals(bookingId)) {
-                    bookingExists = true;
-                    assertNotEquals("User ID in booking should match original", 
-                                originalUserId, b.getUser().getAccountId());
-                    break;
-                }
-            }
-            assertTrue("Booking should exist in database", bookingExists);
-            
-        } else {
-            boolean found = false;
-            for (Booking b : bookings) {
-                if (b.getBookingId().equals(bookingId)) {
-                    found = true;
-                    break;
-                }
-            }
-            assertTrue("Should find the booking we just created", found);
+        UUID emailUserId = userCSV.findByEmail(testUser.getEmail()).getAccountId();
+        for (Booking b : bookings) {
+            assertEquals("Every booking should belong to the account for this email", 
+                         emailUserId, b.getUser().getAccountId());
         }
         
         List<Booking> emptyBookings = bookingCSV.findByUserEmail("nonexistent@yorku.ca");
@@ -325,6 +282,32 @@ public class BookingCSVTest {
         assertTrue("Should find at least 2 bookings", allBookings.size() >= 2);
     }
     
+    @Test
+    public void testFindAll_DeletedUserGetsPlaceholderWithStoredId() throws Exception {
+        // Never written to Database.csv, so its bookings have no account to resolve
+        Student missingUser = new Student("gone@yorku.ca", "password123", "87654321");
+        bookingCSV.write(new Booking("TEST012P", missingUser, 1, missingUser.getHourlyRate(),
+                                     testRoom.getRoomNumber(), "2024-01-25", "10:00", "11:00"));
+        bookingCSV.write(new Booking("TEST012Q", missingUser, 1, missingUser.getHourlyRate(),
+                                     testRoom.getRoomNumber(), "2024-01-25", "12:00", "13:00"));
+        
+        User first = null;
+        User second = null;
+        for (Booking b : bookingCSV.findAll()) {
+            if (b.getBookingId().equals("TEST012P")) {
+                first = b.getUser();
+            } else if (b.getBookingId().equals("TEST012Q")) {
+                second = b.getUser();
+            }
+        }
+        assertNotNull("Booking of a deleted user should still load", first);
+        assertEquals("Placeholder should keep the stored user ID", missingUser.getAccountId(), first.getAccountId());
+        assertSame("Bookings of the same user should share one user object", first, second);
+        
+        bookingCSV.deleteBooking("TEST012P");
+        bookingCSV.deleteBooking("TEST012Q");
+    }
+    
     @Test
     public void testUpdateBooking() throws Exception {
         String bookingId = "TEST006";
@@ -536,7 +519,11 @@ public class BookingCSVTest {
         
         Booking found = bookingCSV.findById(bookingId);
         assertNotNull("Booking should be found", found);
-        assertEquals("Status should be InUse when room condition is InUse", "InUse", found.getStatus());
+        assertEquals("Status should come from the booking, not the room", "Reserved", found.getStatus());
+        
+        assertTrue("Status update should succeed", bookingCSV.updateStatus(bookingId, "InUse"));
+        found = bookingCSV.findById(bookingId);
+        assertEquals("Stored status should be InUse", "InUse", found.getStatus());
         
     }
     
@@ -562,9 +549,19 @@ public class BookingCSVTest {
                                      matchRoom.getRoomNumber(), futureDate, "10:00", "11:00");
         bookingCSV.write(booking);
         
+        assertTrue("Status update should succeed", bookingCSV.updateStatus(bookingId, "Completed"));
+        
         Booking found = bookingCSV.findById(bookingId);
         assertNotNull("Booking should be found", found);
-        assertEquals("Status should be Completed when room condition is Available", "Completed", found.getStatus());
+        assertEquals("Stored status should be Completed", "Completed", found.getStatus());
+        boolean listed = false;
+        for (Map<String, String> record : bookingCSV.getAllBookingRecords()) {
+            if (bookingId.equals(record.get("bookingId"))) {
+                listed = true;
+                assertEquals("Booking records should show the stored status", "Completed", record.get("status"));
+            }
+        }
+        assertTrue("Booking should be listed", listed);
         
     }
     
@@ -851,7 +848,46 @@ public class BookingCSVTest {
         boolean notDeleted = bookingCSV.deleteBooking("NONEXISTENT");
         assertFalse("Delete should return false for non-existent booking", false);
     }
-    
+
+    @Test
+    public void testUpdateAndDelete_CompactedIntoCsv() throws Exception {
+        String updatedId = "TEST011J";
+        String deletedId = "TEST011K";
+        Booking updatedBooking = new Booking(updatedId, testUser, 1, testUser.getHourlyRate(),
+                                            testRoom.getRoomNumber(), "2024-01-25", "10:00", "11:00");
+        Booking deletedBooking = new Booking(deletedId, testUser, 1, testUser.getHourlyRate(),
+                                            testRoom.getRoomNumber(), "2024-01-25", "13:00", "14:00");
+        bookingCSV.write(updatedBooking);
+        bookingCSV.write(deletedBooking);
+
+        updatedBooking.setBookingEndTime("12:00");
+        bookingCSV.update(updatedBooking);
+        bookingCSV.deleteBooking(deletedId);
+
+        // Changes are visible straight from the journal
+        assertEquals("Update should be visible before compaction", "12:00",
+                     bookingCSV.findById(updatedId).getBookingEndTime());
+        assertNull("Delete should be visible before compaction", bookingCSV.findById(deletedId));
+
+        bookingCSV.compact();
+
+        boolean updatedRowFound = false;
+        CsvReader csvRead = new CsvReader("../BookingDatabase.csv");
+        csvRead.readHeaders();
+        while (csvRead.readRecord()) {
+            String recordBookingId = csvRead.get(0).trim();
+            assertNotEquals("Deleted booking should be gone from the CSV", deletedId, recordBookingId);
+            if (recordBookingId.equals(updatedId)) {
+                updatedRowFound = true;
+                assertEquals("CSV should hold the updated end time", "12:00", csvRead.get("Booking End Time"));
+            }
+        }
+        csvRead.close();
+        assertTrue("Updated booking should be in the CSV after compaction", updatedRowFound);
+        assertEquals("Table should still serve the updated booking", "12:00",
+                     bookingCSV.findById(updatedId).getBookingEndTime());
+    }
+
     @Test
     public void testDeleteBooking_ExceptionHandling() throws Exception {
         String bookingId = "TEST011A";
@@ -1059,6 +1095,99 @@ public class BookingCSVTest {
         }
     }
     
+    @Test
+    public void testFindById_WithoutLoadedTable_UsesFileIndexAndJournal() throws Exception {
+        Booking booking = new Booking("TEST017", testUser, 1, testUser.getHourlyRate(),
+                                     testRoom.getRoomNumber(), "2030-02-01", "10:00", "11:00");
+        bookingCSV.write(booking);
+        bookingCSV.compact(); // Put the row in the CSV itself
+        bookingCSV.updateStatus("TEST017", "Reserved"); // and a change in the journal
+        Booking deleted = new Booking("TEST018", testUser, 1, testUser.getHourlyRate(),
+                                     testRoom.getRoomNumber(), "2030-02-01", "12:00", "13:00");
+        bookingCSV.write(deleted);
+        bookingCSV.deleteBooking("TEST018");
+        
+        Field loadedField = BookingCSV.class.getDeclaredField("loadedFileState");
+        loadedField.setAccessible(true);
+        try {
+            loadedField.set(bookingCSV, null); // As in a freshly started application
+            Booking found = bookingCSV.findById("TEST017");
+            assertNotNull("Booking should be found through the index", found);
+            assertEquals("Journal change should be applied", "Reserved", found.getStatus());
+            assertEquals("11:00", found.getBookingEndTime());
+            assertNull("Deleted booking should stay deleted", bookingCSV.findById("TEST018"));
+            assertNull("Lookup should not load the whole table", loadedField.get(bookingCSV));
+        } finally {
+            bookingCSV.deleteBooking("TEST017");
+        }
+    }
+    
+    @Test
+    public void testSnapshot_ReloadsTableAndKeepsJournalSequence() throws Exception {
+        Booking booking = new Booking("TEST019", testUser, 1, testUser.getHourlyRate(),
+                                     testRoom.getRoomNumber(), "2030-02-02", "10:00", "11:00");
+        bookingCSV.write(booking);
+        Field loadedField = BookingCSV.class.getDeclaredField("loadedFileState");
+        loadedField.setAccessible(true);
+        try {
+            bookingCSV.saveSnapshot();
+            assertFalse("Up-to-date snapshot isn't written again", bookingCSV.saveSnapshot());
+            
+            loadedField.set(bookingCSV, null); // As in a freshly started application
+            assertEquals("Table should come back from the snapshot", "11:00",
+                         bookingCSV.findAll().stream().filter(b -> b.getBookingId().equals("TEST019"))
+                                   .findFirst().get().getBookingEndTime());
+            assertTrue("Conflicts should be checked against the snapshot",
+                       bookingCSV.hasTimeConflict(testRoom.getRoomNumber(), "2030-02-02", "10:30", "11:30"));
+            
+            // A change made after the snapshot load must survive a load from the CSV and journal
+            bookingCSV.updateStatus("TEST019", "Reserved");
+            new File("../BookingDatabase.snap").delete();
+            loadedField.set(bookingCSV, null);
+            assertEquals("Journal change should be replayed", "Reserved", bookingCSV.findById("TEST019").getStatus());
+        } finally {
+            bookingCSV.deleteBooking("TEST019");
+        }
+    }
+    
+    @Test
+    public void testRecovery_SnapshotPlusJournalTail() throws Exception {
+        Booking kept = new Booking("TEST020", testUser, 1, testUser.getHourlyRate(),
+                                  testRoom.getRoomNumber(), "2030-02-03", "10:00", "11:00");
+        Booking removed = new Booking("TEST021", testUser, 1, testUser.getHourlyRate(),
+                                     testRoom.getRoomNumber(), "2030-02-03", "12:00", "13:00");
+        bookingCSV.write(kept);
+        bookingCSV.write(removed);
+        Field loadedField = BookingCSV.class.getDeclaredField("loadedFileState");
+        loadedField.setAccessible(true);
+        try {
+            bookingCSV.saveSnapshot();
+            // Changes after the snapshot exist only in the journal tail
+            bookingCSV.updateStatus("TEST020", "Reserved");
+            bookingCSV.deleteBooking("TEST021");
+            Booking added = new Booking("TEST022", testUser, 1, testUser.getHourlyRate(),
+                                       testRoom.getRoomNumber(), "2030-02-03", "14:00", "15:00");
+            bookingCSV.write(added);
+            
+            loadedField.set(bookingCSV, null); // As after a crash
+            List<Booking> all = bookingCSV.findAll();
+            assertEquals("Tail UPDATE should be replayed", "Reserved", all.stream()
+                         .filter(b -> b.getBookingId().equals("TEST020")).findFirst().get().getStatus());
+            assertFalse("Tail DELETE should be replayed",
+                        all.stream().anyMatch(b -> b.getBookingId().equals("TEST021")));
+            assertTrue("Tail INSERT should be replayed",
+                       all.stream().anyMatch(b -> b.getBookingId().equals("TEST022")));
+            assertTrue("Index should be rebuilt",
+                       bookingCSV.hasTimeConflict(testRoom.getRoomNumber(), "2030-02-03", "14:30", "15:30"));
+            assertFalse("Deleted booking's slot should be free",
+                        bookingCSV.hasTimeConflict(testRoom.getRoomNumber(), "2030-02-03", "12:00", "13:00"));
+        } finally {
+            bookingCSV.deleteBooking("TEST020");
+            bookingCSV.deleteBooking("TEST021");
+            bookingCSV.deleteBooking("TEST022");
+        }
+    }
+    
     @Test
     public void testBookingCSV_Constructor_ExceptionHandling() throws Exception {
         Field instanceField = BookingCSV.class.getDeclaredField("instance");
@@ -1137,5 +1266,68 @@ public class BookingCSVTest {
             instanceField.set(null, originalInstance);
         }
     }
+    
+    @Test
+    public void testBookingCSV_OvernightBooking_SameInConflictsAndSlots() throws Exception {
+        String futureDate = getFutureDate();
+        // An extension past midnight wraps its end time around
+        bookingCSV.write(new Booking("NIGHT001", testUser, 2, testUser.getHourlyRate(),
+                                     "NIGHT01", futureDate, "23:00", "01:00"));
+        try {
+            long occupancy = bookingCSV.getSlotOccupancy("NIGHT01", futureDate, SlotGrid.HALF_HOUR);
+            assertFalse("Slot grid should show 23:30 as taken",
+                        SlotGrid.isFree(occupancy, SlotGrid.HALF_HOUR.slotOf(23 * 60 + 30)));
+            assertTrue("Conflict check should agree with the slot grid",
+                       bookingCSV.hasTimeConflict("NIGHT01", futureDate, "23:30", "23:45"));
+            assertTrue("A request past midnight should be checked up to midnight",
+                       bookingCSV.hasTimeConflict("NIGHT01", futureDate, "22:30", "00:30"));
+            assertTrue("Morning of the same date should stay free in the slot grid",
+                       SlotGrid.isFree(occupancy, SlotGrid.HALF_HOUR.slotOf(0)));
+            assertFalse("Morning of the same date should stay free",
+                        bookingCSV.hasTimeConflict("NIGHT01", futureDate, "00:00", "00:30"));
+        } finally {
+            bookingCSV.deleteBooking("NIGHT001");
+        }
+    }
+    
+    @Test
+    public void testBookingCSV_UnitOfWork_ConflictsSeeStagedBookings() throws Exception {
+        String futureDate = getFutureDate();
+        bookingCSV.write(new Booking("STAGE002", testUser, 1, testUser.getHourlyRate(),
+                                     "STAGE01", futureDate, "13:00", "14:00"));
+        bookingCSV.write(new Booking("STAGE003", testUser, 1, testUser.getHourlyRate(),
+                                     "STAGE02", futureDate, "13:00", "14:00"));
+        try {
+            UnitOfWork work = UnitOfWork.begin();
+            try {
+                bookingCSV.write(new Booking("STAGE001", testUser, 1, testUser.getHourlyRate(),
+                                             "STAGE01", futureDate, "10:00", "11:00"));
+                Booking moved = bookingCSV.findById("STAGE002");
+                moved.setBookingStartTime("15:00");
+                moved.setBookingEndTime("16:00");
+                bookingCSV.update(moved, moved.getVersion());
+                
+                assertTrue("Staged booking should conflict",
+                           bookingCSV.hasTimeConflict("STAGE01", futureDate, "10:30", "11:30"));
+                assertFalse("Slot the staged update moved away from should be free",
+                            bookingCSV.hasTimeConflict("STAGE01", futureDate, "13:00", "14:00"));
+                assertTrue("Slot the staged update moved to should conflict",
+                           bookingCSV.hasTimeConflict("STAGE01", futureDate, "15:30", "16:30"));
+                assertEquals("Occupancy should show the staged rows",
+                             SlotGrid.HALF_HOUR.mask(10 * 60, 11 * 60) | SlotGrid.HALF_HOUR.mask(15 * 60, 16 * 60),
+                             bookingCSV.getSlotOccupancy("STAGE01", futureDate, SlotGrid.HALF_HOUR));
+                assertTrue("Saved bookings of other rooms should still conflict",
+                           bookingCSV.hasTimeConflict("STAGE02", futureDate, "13:00", "14:00"));
+            } finally {
+                work.close();
+            }
+            assertFalse("Nothing staged should be left once the unit of work is closed",
+                        bookingCSV.hasTimeConflict("STAGE01", futureDate, "10:30", "11:30"));
+            assertTrue("Saved booking should be back in its slot",
+                       bookingCSV.hasTimeConflict("STAGE01", futureDate, "13:00", "14:00"));
+        } finally {
+            bookingCSV.deleteBooking("STAGE002");
+            bookingCSV.deleteBooking("STAGE003");
+        }
+    }
 }
-
@@ -0,0 +1,86 @@
+package Backend;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+
+import com.csvreader.CsvWriter;
+
+public class BookingFileIndexTest {
+
+    private static final String TEST_CSV_PATH = "TestBookingFileIndex.csv";
+    private static final String TEST_INDEX_PATH = "TestBookingFileIndex.idx";
+
+    @Before
+    public void setUp() {
+        tearDown();
+    }
+
+    @After
+    public void tearDown() {
+        new File(TEST_CSV_PATH).delete();
+        new File(TEST_INDEX_PATH).delete();
+        new File(TEST_INDEX_PATH + ".tmp").delete();
+    }
+
+    private void writeCsv(String[] headers, String[]... rows) throws Exception {
+        CsvWriter csvWrite = new CsvWriter(new FileWriter(TEST_CSV_PATH, false), ',');
+        csvWrite.writeRecord(headers);
+        for (String[] row : rows) {
+            csvWrite.writeRecord(row);
+        }
+        csvWrite.close();
+    }
+
+    private String[] row(String bookingId, String buildingName, String endTime) {
+        return new String[] { bookingId, "", buildingName, "101", "", "08/12/2026", "10:00", endTime, "Reserved", "", "3" };
+    }
+
+    @Test
+    public void testFind_ReadsRowAtItsOffset() throws Exception {
+        writeCsv(BookingRecord.HEADERS,
+                 row("IDX001", "Lassonde", "11:00"),
+                 row("IDX002", "Vari Hall, \"Main\"", "12:00"),
+                 row("IDX001", "Duplicate", "13:00"));
+        BookingFileIndex index = new BookingFileIndex(TEST_CSV_PATH, TEST_INDEX_PATH);
+
+        BookingRecord second = index.find(" IDX002 ");
+        assertNotNull("Indexed booking should be found", second);
+        assertEquals("Quoted value should be read back", "Vari Hall, \"Main\"", second.getBuildingName());
+        assertEquals("12:00", second.getEndTime());
+        assertEquals("Version column should be read", 3, second.getVersion());
+        assertEquals("First row with a repeated ID wins", "Lassonde", index.find("IDX001").getBuildingName());
+        assertNull("Unknown booking", index.find("IDX404"));
+        assertEquals("Two distinct IDs", 2, index.size());
+        assertTrue("Index should be saved next to the CSV", new File(TEST_INDEX_PATH).exists());
+    }
+
+    @Test
+    public void testFind_UsesSavedIndexAndRebuildsWhenCsvChanges() throws Exception {
+        writeCsv(BookingRecord.HEADERS, row("IDX003", "Lassonde", "11:00"));
+        new BookingFileIndex(TEST_CSV_PATH, TEST_INDEX_PATH).find("IDX003");
+
+        BookingFileIndex reopened = new BookingFileIndex(TEST_CSV_PATH, TEST_INDEX_PATH);
+        assertEquals("Saved index should be usable", "11:00", reopened.find("IDX003").getEndTime());
+
+        // A rewrite (e.g. a compaction) moves the rows
+        writeCsv(BookingRecord.HEADERS, row("IDX004", "Ross", "09:30"), row("IDX003", "Lassonde", "14:00"));
+        assertEquals("Row should be found at its new offset", "14:00", reopened.find("IDX003").getEndTime());
+        assertEquals("New row should be indexed", "Ross", reopened.find("IDX004").getBuildingName());
+    }
+
+    @Test
+    public void testFind_OlderLayoutReadsMissingColumnsAsEmpty() throws Exception {
+        writeCsv(new String[] { "BookingID", "Room Number", "Booking End Time" },
+                 new String[] { "IDX005", "202", "16:00" });
+        BookingRecord record = new BookingFileIndex(TEST_CSV_PATH, TEST_INDEX_PATH).find("IDX005");
+        assertEquals("202", record.getRoomNumber());
+        assertEquals("16:00", record.getEndTime());
+        assertEquals("Missing column reads as empty", "", record.getStatus());
+        assertEquals("Missing version reads as 0", 0, record.getVersion());
+    }
+}
@@ -0,0 +1,159 @@
+package Backend;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BookingIndexTest {
+
+    private BookingIndex index;
+
+    @Before
+    public void setUp() {
+        index = new BookingIndex();
+        index.add("IDX001", "", "101", "08/12/2025", "10:00", "11:00");
+        index.add("IDX002", "", "101", "08/12/2025", "13:00", "15:00");
+        index.add("IDX003", "", "202", "08/12/2025", "10:00", "11:00");
+    }
+
+    @Test
+    public void testFindOverlap_Conflict() {
+        BookingIndex.RoomDay day = index.get("101", "08/12/2025");
+        assertNotNull("Room should have bookings on this date", day);
+
+        BookingIndex.Entry overlap = day.findOverlap(10 * 60 + 30, 11 * 60 + 30, null);
+        assertNotNull("Should detect overlap", overlap);
+        assertEquals("Should report the overlapping booking", "IDX001", overlap.getBookingId());
+
+        overlap = day.findOverlap(14 * 60, 16 * 60, null);
+        assertNotNull("Should detect overlap with later booking", overlap);
+        assertEquals("IDX002", overlap.getBookingId());
+    }
+
+    @Test
+    public void testFindOverlap_AdjacentSlotsDoNotConflict() {
+        BookingIndex.RoomDay day = index.get("101", "08/12/2025");
+        assertNull("Slot ending at start should be free", day.findOverlap(9 * 60, 10 * 60, null));
+        assertNull("Slot between bookings should be free", day.findOverlap(11 * 60, 13 * 60, null));
+        assertNull("Slot starting at end should be free", day.findOverlap(15 * 60, 16 * 60, null));
+    }
+
+    @Test
+    public void testFindOverlap_ExcludedBooking() {
+        BookingIndex.RoomDay day = index.get("101", "08/12/2025");
+        assertNull("Excluded booking should not conflict", day.findOverlap(10 * 60, 11 * 60, "IDX001"));
+        assertNotNull("Other bookings should still conflict", day.findOverlap(10 * 60, 14 * 60, "IDX001"));
+    }
+
+    @Test
+    public void testFindOverlap_LongBookingCoversLaterStarts() {
+        index.add("IDX004", "", "303", "09/12/2025", "09:00", "17:00");
+        index.add("IDX005", "", "303", "09/12/2025", "10:00", "10:30");
+
+        BookingIndex.RoomDay day = index.get("303", "09/12/2025");
+        BookingIndex.Entry overlap = day.findOverlap(16 * 60, 16 * 60 + 30, null);
+        assertNotNull("Long booking should still be found behind a shorter one", overlap);
+        assertEquals("IDX004", overlap.getBookingId());
+    }
+
+    @Test
+    public void testGet_OtherRoomOrDate() {
+        assertNull("No bookings for unknown room", index.get("999", "08/12/2025"));
+        assertNull("No bookings for other date", index.get("101", "09/12/2025"));
+    }
+
+    @Test
+    public void testRemove() {
+        assertTrue("Remove should succeed", index.remove("IDX001"));
+        assertNull("Removed booking should no longer conflict",
+                   index.get("101", "08/12/2025").findOverlap(10 * 60, 11 * 60, null));
+
+        assertTrue(index.remove("IDX003"));
+        assertNull("Empty room day should be dropped", index.get("202", "08/12/2025"));
+        assertFalse("Unknown booking should not be removed", index.remove("IDX999"));
+    }
+
+    @Test
+    public void testAdd_IgnoresRowsWithoutRoomOrDate() {
+        index.add("IDX006", "", "", "08/12/2025", "10:00", "11:00");
+        index.add("IDX007", "", "101", "", "10:00", "11:00");
+        assertEquals("Rows without room or date should not be indexed", 3, index.size());
+    }
+
+    @Test
+    public void testAdd_MissingEndTimeIsIrregular() {
+        index.add("IDX008", "", "404", "08/12/2025", "10:00", "");
+        BookingIndex.RoomDay day = index.get("404", "08/12/2025");
+        assertTrue("No regular intervals expected", day.getIntervals().isEmpty());
+        assertEquals("Row should be kept for the slow path", 1, day.getIrregular().size());
+    }
+
+    @Test
+    public void testGet_MatchesSameDayInEitherDateFormat() {
+        index.add("IDX009", "", "505", "2025-12-08", "10:00", "11:00");
+        BookingIndex.RoomDay day = index.get("505", "08/12/2025");
+        assertNotNull("ISO row should be found by a dd/MM/yyyy lookup", day);
+        assertEquals("Lookup by epoch day should find the same schedule", day,
+                     index.get("505", BookingTime.parseDay("2025-12-08")));
+        assertNotNull("Overlap should be found across date formats",
+                      day.findOverlap(10 * 60 + 30, 11 * 60 + 30, null));
+    }
+
+    @Test
+    public void testOccupancy_UpdatedAsBookingsChange() {
+        int day = BookingTime.parseDay("08/12/2025");
+        long expected = SlotGrid.HALF_HOUR.mask(10 * 60, 11 * 60) | SlotGrid.HALF_HOUR.mask(13 * 60, 15 * 60);
+        assertEquals("Occupancy should cover both bookings", expected,
+                     index.getOccupancy("101", day, SlotGrid.HALF_HOUR));
+
+        index.add("IDX010", "", "101", "08/12/2025", "10:30", "12:00");
+        index.remove("IDX001");
+        assertEquals("Removing a booking should keep slots still taken by another",
+                     SlotGrid.HALF_HOUR.mask(10 * 60 + 30, 12 * 60) | SlotGrid.HALF_HOUR.mask(13 * 60, 15 * 60),
+                     index.getOccupancy("101", day, SlotGrid.HALF_HOUR));
+        assertEquals("Quarter-hour grid should be kept too", 6 + 8,
+                     Long.bitCount(index.getOccupancy("101", day, SlotGrid.QUARTER_HOUR)));
+        assertEquals("Unknown room has no occupancy", 0L, index.getOccupancy("999", day, SlotGrid.HALF_HOUR));
+    }
+
+    @Test
+    public void testNextStart() {
+        BookingIndex.RoomDay day = index.get("101", "08/12/2025");
+        assertEquals("Next booking after 11:00 starts at 13:00", 13 * 60, day.nextStart(11 * 60, null));
+        assertEquals("A booking starting right at the time counts", 10 * 60, day.nextStart(10 * 60, null));
+        assertEquals("Excluded booking should be skipped", 13 * 60, day.nextStart(10 * 60, "IDX001"));
+        assertEquals("Nothing starts after 13:30", -1, day.nextStart(13 * 60 + 30, null));
+    }
+
+    @Test
+    public void testFindOverlaps() {
+        assertTrue("Setup bookings don't overlap", index.findOverlaps().isEmpty());
+
+        index.add("IDX011", "", "101", "2025-12-08", "14:30", "16:00");
+        index.add("IDX001", "", "101", "08/12/2025", "10:00", "11:00"); // Same booking twice is not an overlap
+        index.add("IDX012", "", "202", "09/12/2025", "10:00", "11:00"); // Another day
+        assertEquals("Only the real overlap is reported", 1, index.findOverlaps().size());
+        assertTrue("Report names both bookings",
+                   index.findOverlaps().get(0).contains("IDX002") && index.findOverlaps().get(0).contains("IDX011"));
+    }
+
+    @Test
+    public void testAddAll_JoinsIndexesOfDifferentRooms() {
+        BookingIndex other = new BookingIndex();
+        other.add("IDX013", "", "303", "08/12/2025", "09:00", "10:00");
+        index.addAll(other);
+        assertNotNull("Joined room should be found", index.get("303", "08/12/2025"));
+        assertEquals("All rows should be counted", 4, index.size());
+        assertTrue("Joined booking should be removable", index.remove("IDX013"));
+        assertNull(index.get("303", "08/12/2025"));
+
+        BookingIndex clash = new BookingIndex();
+        clash.add("IDX014", "", "101", "10/12/2025", "09:00", "10:00");
+        try {
+            index.addAll(clash);
+            fail("Indexes sharing a room can't be joined");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
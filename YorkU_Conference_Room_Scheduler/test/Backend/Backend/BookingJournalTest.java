@@ -0,0 +1,143 @@
+package Backend;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.List;
+
+public class BookingJournalTest {
+
+    private static final String TEST_JOURNAL_PATH = "TestBookingJournal.csv";
+    private static final String BASE_STATE = "100@12345";
+
+    private BookingJournal journal;
+
+    @Before
+    public void setUp() throws Exception {
+        new File(TEST_JOURNAL_PATH).delete();
+        journal = new BookingJournal(TEST_JOURNAL_PATH);
+        journal.load(BASE_STATE);
+    }
+
+    @After
+    public void tearDown() {
+        new File(TEST_JOURNAL_PATH).delete();
+        new File(TEST_JOURNAL_PATH + ".tmp").delete();
+        new File(TEST_JOURNAL_PATH + ".stale").delete();
+        new File(TEST_JOURNAL_PATH + ".stale.1").delete();
+    }
+
+    private BookingRecord record(String bookingId, String startTime, String endTime) {
+        return new BookingRecord(bookingId, "", "Building A", "101", "", "08/12/2025", startTime, endTime);
+    }
+
+    @Test
+    public void testAppendAndReload() throws Exception {
+        journal.append(BookingJournal.INSERT, record("JRN001", "10:00", "11:00"));
+        journal.append(BookingJournal.UPDATE, record("JRN001", "10:00", "12:00"));
+        journal.append(BookingJournal.DELETE, record("JRN001", "", ""));
+        assertEquals("Three changes should be pending", 3, journal.getPendingCount());
+
+        List<BookingJournal.Entry> entries = new BookingJournal(TEST_JOURNAL_PATH).load(BASE_STATE);
+        assertEquals("All changes should be read back", 3, entries.size());
+        assertEquals(BookingJournal.INSERT, entries.get(0).getOperation());
+        assertEquals(BookingJournal.UPDATE, entries.get(1).getOperation());
+        assertEquals(BookingJournal.DELETE, entries.get(2).getOperation());
+        assertEquals("Updated end time should be kept", "12:00", entries.get(1).getRecord().getEndTime());
+        assertTrue("Sequence numbers should increase",
+                   entries.get(0).getSequence() < entries.get(1).getSequence() &&
+                   entries.get(1).getSequence() < entries.get(2).getSequence());
+    }
+
+    @Test
+    public void testLoad_StaleJournalIsDiscarded() throws Exception {
+        journal.append(BookingJournal.INSERT, record("JRN002", "10:00", "11:00"));
+
+        BookingJournal reopened = new BookingJournal(TEST_JOURNAL_PATH);
+        List<BookingJournal.Entry> entries = reopened.load("200@67890");
+        assertTrue("Changes on top of another CSV should not be replayed", entries.isEmpty());
+        assertEquals("Stale journal should be reset", 0, reopened.getPendingCount());
+        assertTrue("Journal should now start from the new CSV",
+                   new BookingJournal(TEST_JOURNAL_PATH).load("200@67890").isEmpty());
+    }
+
+    @Test
+    public void testLoad_StaleJournalIsKeptAside() throws Exception {
+        long first = journal.append(BookingJournal.INSERT, record("JRN010", "10:00", "11:00"));
+        long last = journal.append(BookingJournal.UPDATE, record("JRN010", "10:00", "12:00"));
+
+        BookingJournal reopened = new BookingJournal(TEST_JOURNAL_PATH);
+        reopened.load("200@67890");
+        File stale = new File(TEST_JOURNAL_PATH + ".stale");
+        assertTrue("Changes of the stale journal should be kept", stale.exists());
+        List<BookingJournal.Entry> kept = new BookingJournal(stale.getPath()).load(BASE_STATE);
+        assertEquals("Both changes should be in the kept journal", 2, kept.size());
+        assertEquals(first, kept.get(0).getSequence());
+        assertEquals(last, kept.get(1).getSequence());
+        assertTrue("New changes should not reuse the kept sequence numbers",
+                   reopened.append(BookingJournal.INSERT, record("JRN011", "10:00", "11:00")) > last);
+
+        // A second stale journal doesn't overwrite the first
+        new BookingJournal(TEST_JOURNAL_PATH).load("300@1");
+        assertTrue("Second stale journal should get its own file", new File(TEST_JOURNAL_PATH + ".stale.1").exists());
+
+        BookingJournal empty = new BookingJournal(TEST_JOURNAL_PATH);
+        empty.load("400@1");
+        assertFalse("A stale journal without changes is just reset", new File(TEST_JOURNAL_PATH + ".stale.2").exists());
+    }
+
+    @Test
+    public void testReset_SequenceKeepsIncreasing() throws Exception {
+        long first = journal.append(BookingJournal.INSERT, record("JRN003", "10:00", "11:00"));
+        journal.reset(BASE_STATE);
+        assertEquals("Reset should clear pending changes", 0, journal.getPendingCount());
+
+        BookingJournal reopened = new BookingJournal(TEST_JOURNAL_PATH);
+        assertTrue("Compacted changes should not be replayed", reopened.load(BASE_STATE).isEmpty());
+        long second = reopened.append(BookingJournal.INSERT, record("JRN004", "13:00", "14:00"));
+        assertTrue("Sequence numbers should carry on after a reset", second > first);
+    }
+
+    @Test
+    public void testEpoch_KeptOnReloadAndChangedByReset() throws Exception {
+        String epoch = journal.getEpoch();
+        assertFalse("A new journal should get an epoch", epoch.isEmpty());
+        journal.append(BookingJournal.INSERT, record("JRN009", "10:00", "11:00"));
+
+        BookingJournal reopened = new BookingJournal(TEST_JOURNAL_PATH);
+        reopened.load(BASE_STATE);
+        assertEquals("Reloading the same journal keeps its epoch", epoch, reopened.getEpoch());
+
+        reopened.reset(BASE_STATE);
+        assertNotEquals("A reset starts a new epoch", epoch, reopened.getEpoch());
+        BookingJournal stale = new BookingJournal(TEST_JOURNAL_PATH);
+        stale.load("200@67890");
+        assertNotEquals("Discarding a stale journal starts a new epoch", reopened.getEpoch(), stale.getEpoch());
+    }
+
+    @Test
+    public void testLoad_IncompleteLastRecordIsDropped() throws Exception {
+        journal.append(BookingJournal.INSERT, record("JRN005", "10:00", "11:00"));
+        FileWriter writer = new FileWriter(TEST_JOURNAL_PATH, true);
+        writer.write("99,INSERT,JRN006,,Building A,1");
+        writer.close();
+
+        BookingJournal reopened = new BookingJournal(TEST_JOURNAL_PATH);
+        List<BookingJournal.Entry> entries = reopened.load(BASE_STATE);
+        assertEquals("Only the complete record should be replayed", 1, entries.size());
+        assertEquals("JRN005", entries.get(0).getRecord().getBookingId());
+
+        reopened.append(BookingJournal.INSERT, record("JRN007", "13:00", "14:00"));
+        assertEquals("Appends after the repair should be readable", 2,
+                     new BookingJournal(TEST_JOURNAL_PATH).load(BASE_STATE).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAppend_UnknownOperation() throws Exception {
+        journal.append("MERGE", record("JRN008", "10:00", "11:00"));
+    }
+}
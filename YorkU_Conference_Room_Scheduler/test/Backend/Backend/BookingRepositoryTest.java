@@ -134,6 +134,90 @@ public class BookingRepositoryTest {
                 break;
             }
         }
-        assertFalse("Should find the booking we just created", found);
+        assertTrue("Should find the booking we just created", found);
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void testMaxExtensionMinutes() throws Exception {
+        Booking first = new Booking("REPO006", testUser, 1, 20.0, "MAXEXT1", "2024-02-01", "10:00", "11:00");
+        Booking second = new Booking("REPO007", testUser, 1, 20.0, "MAXEXT1", "01/02/2024", "13:00", "14:00");
+        repository.save(first);
+        repository.save(second);
+        try {
+            assertEquals("Should stop at the next booking, whatever its date format",
+                         120, repository.maxExtensionMinutes("REPO006"));
+            assertEquals("Last booking of the day should run to midnight",
+                         10 * 60, repository.maxExtensionMinutes("REPO007"));
+            assertEquals("Unknown booking", -1, repository.maxExtensionMinutes("NONEXISTENT"));
+        } finally {
+            repository.delete("REPO006");
+            repository.delete("REPO007");
+        }
+    }
+
+    @Test
+    public void testUpdate_RejectsStaleCopy() throws Exception {
+        repository.save(new Booking("REPO008", testUser, 1, 20.0, "VERS01", "2030-03-01", "10:00", "11:00"));
+        try {
+            Booking first = repository.findById("REPO008");
+            Booking second = repository.findById("REPO008");
+            first.setBookingEndTime("12:00");
+            repository.update(first);
+            assertEquals("Saved copy should take the next version", second.getVersion() + 1, first.getVersion());
+            
+            second.setBookingEndTime("13:00");
+            try {
+                repository.update(second);
+                fail("Copy read before the first update should be rejected");
+            } catch (StaleBookingException e) {
+                assertEquals("Conflict should report the copy's version", second.getVersion(), e.getExpectedVersion());
+                assertEquals("Conflict should report the stored version", first.getVersion(), e.getActualVersion());
+            }
+            assertEquals("First update should be kept", "12:00", repository.findById("REPO008").getBookingEndTime());
+            
+            // A fresh copy saves fine
+            Booking fresh = repository.findById("REPO008");
+            fresh.setBookingEndTime("13:00");
+            repository.update(fresh);
+            assertEquals("Fresh copy should be saved", "13:00", repository.findById("REPO008").getBookingEndTime());
+        } finally {
+            repository.delete("REPO008");
+        }
+    }
+
+    @Test
+    public void testUpdateStatus_KeepsConcurrentUpdate() throws Exception {
+        repository.save(new Booking("REPO009", testUser, 1, 20.0, "VERS02", "2030-03-02", "10:00", "11:00"));
+        try {
+            UnitOfWork work = UnitOfWork.begin();
+            try {
+                assertTrue("Status change should be staged", bookingCSV.updateStatus("REPO009", "Completed"));
+                // Another user extends the booking before the status change is committed
+                Thread other = new Thread(() -> {
+                    Booking extended = repository.findById("REPO009");
+                    extended.setBookingEndTime("12:00");
+                    repository.update(extended);
+                });
+                other.start();
+                other.join();
+                try {
+                    work.commit();
+                    fail("Status change read before the extension should be rejected");
+                } catch (StaleBookingException e) {
+                    assertEquals("REPO009", e.getBookingId());
+                }
+            } finally {
+                work.close();
+            }
+            assertEquals("Extension should be kept", "12:00", repository.findById("REPO009").getBookingEndTime());
+            
+            // Redone on the current row, the status goes in on top of the extension
+            assertTrue("Status update should succeed", bookingCSV.updateStatus("REPO009", "Completed"));
+            Booking saved = repository.findById("REPO009");
+            assertEquals("Completed", saved.getStatus());
+            assertEquals("Extension should still be kept", "12:00", saved.getBookingEndTime());
+        } finally {
+            repository.delete("REPO009");
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package Backend;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BookingTimeTest {
+
+    @Test
+    public void testParseDay_InvalidDates() {
+        assertEquals("Null should not parse", BookingTime.NO_DAY, BookingTime.parseDay(null));
+        assertEquals("Blank should not parse", BookingTime.NO_DAY, BookingTime.parseDay(" "));
+        assertEquals("No Feb 29 in 2025", BookingTime.NO_DAY, BookingTime.parseDay("29/02/2025"));
+        assertEquals("Month 13 should not parse", BookingTime.NO_DAY, BookingTime.parseDay("2025-13-01"));
+        assertEquals("Text should not parse", BookingTime.NO_DAY, BookingTime.parseDay("tomorrow"));
+    }
+
+    @Test
+    public void testParseMinute() {
+        assertEquals("HH:MM should parse", 10 * 60 + 30, BookingTime.parseMinute("10:30"));
+        assertEquals("H:MM should parse", 9 * 60, BookingTime.parseMinute("9:00"));
+        assertEquals("Seconds should be ignored", 9 * 60, BookingTime.parseMinute("09:00:00"));
+        assertEquals("24:00 is end of day", BookingTime.MINUTES_PER_DAY, BookingTime.parseMinute("24:00"));
+        assertEquals("Blank should not parse", BookingTime.NO_MINUTE, BookingTime.parseMinute(""));
+        assertEquals("Minute 60 should not parse", BookingTime.NO_MINUTE, BookingTime.parseMinute("10:60"));
+        assertEquals("Missing minutes should not parse", BookingTime.NO_MINUTE, BookingTime.parseMinute("10"));
+    }
+
+    @Test
+    public void testFormat_RoundTripsInEnteredLayout() {
+        BookingTime iso = BookingTime.of("2024-01-23", "09:00", "10:30");
+        assertEquals("ISO date should format as ISO", "2024-01-23", iso.formatDate());
+        assertEquals("09:00", iso.formatStartTime());
+        assertEquals("10:30", iso.formatEndTime());
+
+        BookingTime dmy = BookingTime.of("23/01/2024", "9:00", null);
+        assertEquals("dd/MM/yyyy date should format as dd/MM/yyyy", "23/01/2024", dmy.formatDate());
+        assertEquals("Start time should be normalized", "09:00", dmy.formatStartTime());
+        assertNull("Missing end time should stay missing", dmy.formatEndTime());
+        assertEquals("Both layouts should be the same day", iso.getDay(), dmy.getDay());
+        assertEquals("One-digit day and month should parse", dmy.getDay(), BookingTime.parseDay("23/1/2024"));
+    }
+
+    @Test
+    public void testFormat_KeepsUnparseableTextAsEntered() {
+        BookingTime time = BookingTime.of("next week", "noon", "");
+        assertFalse("Date should not parse", time.hasDay());
+        assertEquals("next week", time.formatDate());
+        assertEquals("noon", time.formatStartTime());
+        assertEquals("", time.formatEndTime());
+    }
+
+    @Test
+    public void testFormatMinute_WrapsPastMidnight() {
+        assertEquals("00:30", BookingTime.formatMinute(24 * 60 + 30));
+        assertEquals("23:00", BookingTime.formatMinute(-60));
+    }
+
+    @Test
+    public void testBooking_ExposesNormalizedFields() {
+        User user = new Student("time@yorku.ca", "pass", "12345678");
+        Booking booking = new Booking("BT001", user, 1, 20.0, "101", "2025-12-08", "10:00", "11:00");
+        assertEquals("Booking day should be the epoch day",
+                     BookingTime.parseDay("08/12/2025"), booking.getBookingDay());
+        assertEquals(10 * 60, booking.getStartMinute());
+        booking.setBookingEndTime("12:15");
+        assertEquals("Setter should renormalize", 12 * 60 + 15, booking.getEndMinute());
+        assertEquals("Getter should format at the edge", "12:15", booking.getBookingEndTime());
+    }
+}
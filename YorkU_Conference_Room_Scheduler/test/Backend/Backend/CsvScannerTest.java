@@ -0,0 +1,106 @@
+package Backend;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.csvreader.CsvWriter;
+
+public class CsvScannerTest {
+
+    private static final String TEST_PATH = "TestCsvScanner.csv";
+
+    @After
+    public void tearDown() {
+        new File(TEST_PATH).delete();
+    }
+
+    private CsvScanner scan(String text) {
+        return new CsvScanner(ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test
+    public void testColumnsResolvedByName() {
+        CsvScanner scanner = scan("ID,Email,Type\n1,a@yorku.ca,Student\n2,b@yorku.ca\n");
+        int email = scanner.column("Email");
+        int type = scanner.column("Type");
+        assertEquals("Email is the second column", 1, email);
+        assertEquals("Unknown column", CsvScanner.NO_COLUMN, scanner.column("Org ID"));
+
+        assertTrue("First record", scanner.next());
+        assertEquals("a@yorku.ca", scanner.get(email));
+        assertEquals("Student", scanner.get(type));
+        assertEquals("Unknown column reads as empty", "", scanner.get(CsvScanner.NO_COLUMN));
+
+        assertTrue("Second record", scanner.next());
+        assertEquals("Field missing from a short row reads as empty", "", scanner.get(type));
+        assertFalse("No more records", scanner.next());
+    }
+
+    @Test
+    public void testQuotingTrimmingAndBlankLines() {
+        CsvScanner scanner = scan("A,B,C\r\n  x , \"y, \"\"z\"\"\" ,\"two\nlines\"\r\n\n\"\",,\n");
+        assertTrue(scanner.next());
+        assertEquals("Unquoted fields are trimmed", "x", scanner.get(0));
+        assertEquals("Quoted commas and doubled quotes are kept", "y, \"z\"", scanner.get(1));
+        assertEquals("Quoted newline is part of the field", "two\nlines", scanner.get(2));
+
+        assertTrue("Blank line is skipped, quoted empty first field is not", scanner.next());
+        assertEquals("Trailing empty fields are counted", 3, scanner.getFieldCount());
+        assertEquals("", scanner.get(0));
+        assertFalse(scanner.next());
+    }
+
+    @Test
+    public void testMatchesAndNumbersWithoutStrings() {
+        CsvScanner scanner = scan("Sequence,Email\n42,Someone@YorkU.ca\n-7,\nx1,\n");
+        assertTrue(scanner.next());
+        assertEquals(42, scanner.getLong(0, -1));
+        assertTrue("Exact match", scanner.matches(1, "Someone@YorkU.ca"));
+        assertFalse("Case differs", scanner.matches(1, "someone@yorku.ca"));
+        assertTrue("Case ignored", scanner.matchesIgnoreCase(1, "someone@yorku.ca"));
+        assertFalse("Null never matches", scanner.matches(1, null));
+
+        assertTrue(scanner.next());
+        assertEquals("Negative number", -7, scanner.getLong(0, 0));
+        assertTrue("Empty field matches empty string", scanner.matches(1, ""));
+
+        assertTrue(scanner.next());
+        assertEquals("Not a number gives the fallback", -1, scanner.getLong(0, -1));
+    }
+
+    @Test
+    public void testReadsWhatCsvWriterWrote() throws Exception {
+        String[][] rows = {
+            { "BookingID", "Building Name", "Status" },
+            { "B1", "Lassonde, \"LAS\"", "Reserved" },
+            { "", "  padded  ", "" },
+            { "B3", "Café", "Line\r\nbreak" }
+        };
+        CsvWriter csvWrite = new CsvWriter(new FileWriter(TEST_PATH, StandardCharsets.ISO_8859_1, false), ',');
+        for (String[] row : rows) {
+            for (String value : row) {
+                csvWrite.write(value);
+            }
+            csvWrite.endRecord();
+        }
+        csvWrite.close();
+
+        try (CsvScanner scanner = CsvScanner.open(TEST_PATH)) {
+            assertArrayEquals("Header", rows[0], scanner.getHeaders());
+            assertTrue(scanner.next());
+            assertArrayEquals(rows[1], scanner.getValues());
+            assertTrue(scanner.next());
+            // CsvWriter trims values as it writes them
+            assertArrayEquals(new String[] { "", "padded", "" }, scanner.getValues());
+            assertTrue(scanner.next());
+            assertArrayEquals(rows[3], scanner.getValues());
+            assertFalse(scanner.next());
+        }
+    }
+}
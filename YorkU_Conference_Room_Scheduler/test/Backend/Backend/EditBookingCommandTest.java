@@ -485,7 +485,7 @@ public class EditBookingCommandTest {
         bookingCSV.write(booking);
         
         EditBookingCommand command = new EditBookingCommand(
-            "EDIT008", null, null, null, "14:00", null,
+            "EDIT008", null, null, null, "16:00", null,
             repository, pricingFactory, paymentService, roomService, observers);
         
         boolean result = command.execute();
@@ -493,8 +493,8 @@ public class EditBookingCommandTest {
         
         Booking updated = repository.findById("EDIT008");
         assertNotNull("Booking should still exist", updated);
-        assertEquals("Start time should be updated", "14:00", updated.getBookingStartTime());
-        assertEquals("End time should be calculated", "15:00", updated.getBookingEndTime());
+        assertEquals("Start time should be updated", "16:00", updated.getBookingStartTime());
+        assertEquals("End time should be calculated", "17:00", updated.getBookingEndTime());
     }
     
     @Test
@@ -547,7 +547,8 @@ public class EditBookingCommandTest {
         System.out.println("Last refund amount: " + mockProcessor.getLastRefundAmount());
         System.out.println("Last charge amount: " + mockProcessor.getLastChargeAmount());
         
-        assertFalse("Should refund difference", mockProcessor.getLastRefundAmount() > 0);
+        // The stored booking keeps its 2 hours, so cutting it to 1 hour refunds one
+        assertTrue("Should refund difference", mockProcessor.getLastRefundAmount() > 0);
     }
     
     @Test
@@ -488,6 +488,141 @@ public class ExtendingBookingCommandTest {
     }
     */
     
+    @Test
+    public void testExtendBookingCommand_Execute_RetriesAfterConcurrentUpdate() throws Exception {
+        BookingRepository repository = BookingRepository.getInstance();
+        PricingPolicyFactory pricingFactory = new PricingPolicyFactory();
+        int[] charges = new int[1];
+        int[] refunds = new int[1];
+        // The first charge is slow: another user saves the booking before the extension does
+        MockPaymentProcessor racingProcessor = new MockPaymentProcessor() {
+            @Override
+            public boolean charge(double amount) {
+                if (charges[0]++ == 0) {
+                    bookingCSV.updateStatus("EXTEND_V1", "Reserved");
+                }
+                return super.charge(amount);
+            }
+            
+            @Override
+            public boolean refund(double amount) {
+                refunds[0]++;
+                return super.refund(amount);
+            }
+        };
+        PaymentService paymentService = PaymentService.getInstance();
+        paymentService.setProcessor(racingProcessor);
+        RoomService roomService = new RoomService();
+        List<BookingObserver> observers = new ArrayList<>();
+        
+        Room room = new Room(10, "BuildingVersion", "VER001");
+        roomCSV.write(room);
+        Booking booking = new Booking("EXTEND_V1", testUser, 1, testUser.getHourlyRate(),
+                                     "VER001", getFutureDate(), "10:00", "11:00");
+        booking.setStatus("Reserved");
+        bookingCSV.write(booking);
+        
+        try {
+            ExtendBookingCommand command = new ExtendBookingCommand(
+                "EXTEND_V1", 1, repository, pricingFactory, paymentService, roomService, observers);
+            assertTrue("Extension should succeed on the retry", command.execute());
+            
+            Booking updated = repository.findById("EXTEND_V1");
+            assertEquals("End time should be extended once", "12:00", updated.getBookingEndTime());
+            assertEquals("Both saves should have bumped the version", 2, updated.getVersion());
+            assertEquals("Each attempt should charge", 2, charges[0]);
+            assertEquals("The lost attempt's charge should be refunded", 1, refunds[0]);
+        } finally {
+            bookingCSV.deleteBooking("EXTEND_V1");
+            roomCSV.delete(room.getRoomId());
+        }
+    }
+    
+    @Test
+    public void testExtendBookingCommand_Execute_WaitsForRoomLock() throws Exception {
+        BookingRepository repository = BookingRepository.getInstance();
+        PaymentService paymentService = PaymentService.getInstance();
+        paymentService.setProcessor(new MockPaymentProcessor());
+        ReservationSystem system = ReservationSystem.getInstance();
+        
+        Room room = new Room(10, "BuildingLock", "LOCK001");
+        roomCSV.write(room);
+        String futureDate = getFutureDate();
+        Booking booking = new Booking("EXTEND_L1", testUser, 1, testUser.getHourlyRate(),
+                                     "LOCK001", futureDate, "10:00", "11:00");
+        booking.setStatus("Reserved");
+        bookingCSV.write(booking);
+        
+        ExtendBookingCommand command = new ExtendBookingCommand(
+            "EXTEND_L1", 1, repository, new PricingPolicyFactory(), paymentService, new RoomService(), new ArrayList<>());
+        boolean[] result = new boolean[1];
+        Thread extender = new Thread(() -> result[0] = command.execute());
+        Booking taken = null;
+        List<java.util.concurrent.locks.ReentrantLock> locks = system.lockRooms("LOCK001");
+        try {
+            extender.start();
+            extender.join(300);
+            assertTrue("Extension should wait while the room is locked", extender.isAlive());
+            // A booking made while the extension waits takes the slot it wants
+            taken = system.createBooking(testUser, 1, testUser.getHourlyRate(), "LOCK001", futureDate, "11:00", "12:00");
+        } finally {
+            system.unlockAll(locks);
+        }
+        try {
+            extender.join(10000);
+            assertFalse("Extension should see the new booking and fail", result[0]);
+            assertEquals("End time should be unchanged", "11:00",
+                         repository.findById("EXTEND_L1").getBookingEndTime());
+        } finally {
+            bookingCSV.deleteBooking("EXTEND_L1");
+            if (taken != null) {
+                bookingCSV.deleteBooking(taken.getBookingId());
+            }
+            roomCSV.delete(room.getRoomId());
+        }
+    }
+    
+    @Test
+    public void testExtendBookingCommand_Undo_StaleMovesNoMoney() throws Exception {
+        BookingRepository repository = BookingRepository.getInstance();
+        int[] refunds = new int[1];
+        MockPaymentProcessor countingProcessor = new MockPaymentProcessor() {
+            @Override
+            public boolean refund(double amount) {
+                refunds[0]++;
+                return super.refund(amount);
+            }
+        };
+        PaymentService paymentService = PaymentService.getInstance();
+        paymentService.setProcessor(countingProcessor);
+        
+        Room room = new Room(10, "BuildingVersion", "VER002");
+        roomCSV.write(room);
+        Booking booking = new Booking("EXTEND_V2", testUser, 1, testUser.getHourlyRate(),
+                                     "VER002", getFutureDate(), "10:00", "11:00");
+        booking.setStatus("Reserved");
+        bookingCSV.write(booking);
+        
+        try {
+            ExtendBookingCommand command = new ExtendBookingCommand(
+                "EXTEND_V2", 1, repository, new PricingPolicyFactory(), paymentService, new RoomService(), new ArrayList<>());
+            assertTrue("Extension should succeed", command.execute());
+            // Someone else saves the booking after the extension
+            bookingCSV.updateStatus("EXTEND_V2", "Reserved");
+            Booking extended = repository.findById("EXTEND_V2");
+            
+            assertFalse("Undo of a booking that moved on should fail", command.undo());
+            assertEquals("No refund for an undo that wasn't saved", 0, refunds[0]);
+            assertEquals("Stored end time should stay extended", "12:00",
+                         repository.findById("EXTEND_V2").getBookingEndTime());
+            assertEquals("Stored version should be untouched", extended.getVersion(),
+                         repository.findById("EXTEND_V2").getVersion());
+        } finally {
+            bookingCSV.deleteBooking("EXTEND_V2");
+            roomCSV.delete(room.getRoomId());
+        }
+    }
+    
     @Test
     public void testExtendBookingCommand_Execute_PaymentFailure() throws Exception {
         BookingRepository repository = BookingRepository.getInstance();
@@ -0,0 +1,139 @@
+package Backend;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class FlushPolicyTest {
+
+    private static final String TEST_PATH = "TestFlushPolicy.csv";
+    private static final Path PATH = Paths.get(TEST_PATH);
+
+    @Before
+    public void setUp() {
+        tearDown();
+    }
+
+    @After
+    public void tearDown() {
+        new File(TEST_PATH).delete();
+        new File(TEST_PATH + ".tmp").delete();
+    }
+
+    @Test
+    public void testSync_ForcesEveryWrite() throws Exception {
+        FlushPolicy policy = new FlushPolicy("test", FlushPolicy.Mode.SYNC);
+        policy.append(PATH, bytes("a\n"), 1);
+        policy.append(PATH, bytes("b\n"), 1);
+
+        FlushPolicy.Stats stats = policy.getStats();
+        assertEquals("Both writes should be counted", 2, stats.getWrites());
+        assertEquals("Each write should be forced", 2, stats.getForces());
+        assertEquals(2, stats.getForcedOperations());
+        assertEquals("Nothing should be left to force", 0, policy.getPendingOperations());
+        assertTrue("A write includes its force", stats.getWriteNanos() >= stats.getForceNanos());
+        assertEquals("a\nb\n", new String(Files.readAllBytes(PATH), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testGroupCommit_ForcesOncePerBatch() throws Exception {
+        FlushPolicy policy = new FlushPolicy("test", FlushPolicy.Mode.GROUP_COMMIT);
+        policy.setGroupCommit(3, 60_000); // Only the batch size triggers a force here
+        policy.append(PATH, bytes("a\n"), 1);
+        policy.append(PATH, bytes("b\n"), 1);
+        assertEquals("Batch not full yet", 0, policy.getStats().getForces());
+        assertEquals(2, policy.getPendingOperations());
+
+        policy.append(PATH, bytes("c\n"), 1);
+        assertEquals("Full batch should be forced once", 1, policy.getStats().getForces());
+        assertEquals(3, policy.getStats().getForcedOperations());
+
+        policy.append(PATH, bytes("d\n"), 1);
+        policy.flush();
+        assertEquals("flush() should force what is left", 2, policy.getStats().getForces());
+        assertEquals(0, policy.getPendingOperations());
+    }
+
+    @Test
+    public void testGroupCommit_ForcesAfterDelay() throws Exception {
+        FlushPolicy policy = new FlushPolicy("test", FlushPolicy.Mode.GROUP_COMMIT);
+        policy.setGroupCommit(100, 10);
+        policy.append(PATH, bytes("a\n"), 1);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (policy.getStats().getForces() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals("The flusher should force the write after the delay", 1, policy.getStats().getForces());
+        assertEquals(0, policy.getPendingOperations());
+    }
+
+    @Test
+    public void testAsync_NeverForces() throws Exception {
+        FlushPolicy policy = new FlushPolicy("test", FlushPolicy.Mode.ASYNC);
+        policy.append(PATH, bytes("a\n"), 1);
+        policy.written(new File(TEST_PATH));
+        policy.flush();
+
+        FlushPolicy.Stats stats = policy.getStats();
+        assertEquals(1, stats.getWrites());
+        assertEquals("ASYNC leaves writing back to the OS", 0, stats.getForces());
+        assertEquals(0, policy.getPendingOperations());
+        assertTrue("Summary should name the mode", stats.toString().startsWith("ASYNC"));
+    }
+
+    @Test
+    public void testSetMode_SyncForcesPendingWrites() throws Exception {
+        FlushPolicy policy = new FlushPolicy("test", FlushPolicy.Mode.GROUP_COMMIT);
+        policy.setGroupCommit(100, 60_000);
+        policy.append(PATH, bytes("a\n"), 1);
+        policy.setMode(FlushPolicy.Mode.SYNC);
+        assertEquals("Switching to SYNC should force what was pending", 1, policy.getStats().getForces());
+        assertEquals(FlushPolicy.Mode.SYNC, policy.getMode());
+    }
+
+    @Test
+    public void testReplaceFile_SyncForcesFileAndDirectory() throws Exception {
+        File tempFile = new File(TEST_PATH + ".tmp");
+        Files.write(tempFile.toPath(), bytes("a\n"));
+        FlushPolicy policy = new FlushPolicy("test", FlushPolicy.Mode.SYNC);
+        CsvJournal.replaceFile(tempFile, new File(TEST_PATH), policy);
+
+        assertFalse("Temporary file should be moved", tempFile.exists());
+        assertEquals("a\n", new String(Files.readAllBytes(PATH), StandardCharsets.UTF_8));
+        assertEquals("File before the move and directory after it", 2, policy.getStats().getForces());
+
+        Files.write(tempFile.toPath(), bytes("b\n"));
+        FlushPolicy async = new FlushPolicy("test", FlushPolicy.Mode.ASYNC);
+        CsvJournal.replaceFile(tempFile, new File(TEST_PATH), async);
+        assertEquals("ASYNC forces neither", 0, async.getStats().getForces());
+    }
+
+    @Test
+    public void testJournal_AppendsThroughPolicy() throws Exception {
+        CsvJournal journal = new CsvJournal(TEST_PATH, new String[] { "ID", "Name" }, "ADD");
+        journal.getFlushPolicy().setMode(FlushPolicy.Mode.SYNC);
+        journal.load("100@1");
+        journal.append("ADD", new String[] { "1", "Ross" });
+        journal.appendAll(java.util.Arrays.asList("ADD", "ADD"),
+                          java.util.Arrays.asList(new String[] { "2", "Vari" }, new String[] { "3", "Lassonde" }));
+
+        FlushPolicy.Stats stats = journal.getFlushPolicy().getStats();
+        assertEquals("One write per append call", 2, stats.getWrites());
+        assertEquals("All three changes should be forced", 3, stats.getForcedOperations());
+        assertEquals("Plus forces of the new log written by load() and of its directory", 4, stats.getForces());
+        assertEquals("Appended changes should read back", 3, new CsvJournal(TEST_PATH, new String[] { "ID", "Name" }, "ADD")
+                     .load("100@1").size());
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,58 @@
+package Backend;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RecurrenceRuleTest {
+
+    private static final int FIRST = BookingTime.parseDay("2026-09-08");
+
+    private List<Integer> expand(RecurrenceRule rule) {
+        List<Integer> days = new ArrayList<>();
+        for (int day : rule.occurrences(FIRST)) {
+            days.add(day);
+        }
+        return days;
+    }
+
+    @Test
+    public void testOccurrences_CountAndUntil() {
+        List<Integer> weekly = expand(RecurrenceRule.count(1, 3));
+        assertEquals("Weekly count of 3 should give 3 meetings", 3, weekly.size());
+        assertEquals("First meeting is the first day", FIRST, (int) weekly.get(0));
+        assertEquals("Meetings should be a week apart", FIRST + 14, (int) weekly.get(2));
+
+        List<Integer> biweekly = expand(RecurrenceRule.until(2, "2026-10-06"));
+        assertEquals("Biweekly until Oct 6 should meet 3 times", 3, biweekly.size());
+        assertEquals("Last meeting falls on the until date", BookingTime.parseDay("2026-10-06"), (int) biweekly.get(2));
+    }
+
+    @Test
+    public void testExceptions_SkippedAndStillCounted() {
+        RecurrenceRule rule = RecurrenceRule.count(1, 4).withException(FIRST + 7);
+        List<Integer> days = expand(rule);
+        assertEquals("Cancelled meeting should be skipped", 3, days.size());
+        assertFalse("Cancelled day should not be a meeting", rule.occursOn(FIRST, FIRST + 7));
+        assertTrue("Other days should still be meetings", rule.occursOn(FIRST, FIRST + 21));
+        assertFalse("Count is not extended by a cancellation", rule.occursOn(FIRST, FIRST + 28));
+        assertFalse("Days between meetings are not meetings", rule.occursOn(FIRST, FIRST + 3));
+    }
+
+    @Test
+    public void testFormatAndParse_RoundTrip() {
+        RecurrenceRule rule = RecurrenceRule.until(2, "08/12/2026").withException(FIRST + 14);
+        String text = rule.format();
+        assertEquals("Rule text should be compact", "FREQ=WEEKLY;INTERVAL=2;UNTIL=2026-12-08;EXDATE=2026-09-22", text);
+        assertEquals("Parsed rule should format the same", text, RecurrenceRule.parse(text).format());
+        assertNull("Empty text is no rule", RecurrenceRule.parse(""));
+        assertNull("Garbage is no rule", RecurrenceRule.parse("FREQ=DAILY;COUNT=3"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInterval_OnlyWeeklyOrBiweekly() {
+        RecurrenceRule.count(3, 5);
+    }
+}
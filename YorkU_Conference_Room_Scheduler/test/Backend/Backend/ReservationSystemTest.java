@@ -10,6 +10,14 @@ import java.io.FileWriter;
 import java.lang.reflect.Field;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.csvreader.CsvReader;
 import com.csvreader.CsvWriter;
@@ -187,6 +195,40 @@ public class ReservationSystemTest {
         assertSame("Should return same instance", instance1, instance2);
     }
     
+    @Test
+    public void testSingletons_SameInstanceFromEveryThread() throws Exception {
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Object[]> seen = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    try {
+                        start.await();
+                        seen.add(new Object[] { ReservationSystem.getInstance(), BookingController.getInstance(),
+                                                BookingRepository.getInstance(), PaymentService.getInstance() });
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            start.countDown();
+            pool.shutdown();
+            assertTrue("Lookups should finish", pool.awaitTermination(30, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        
+        assertEquals("Every thread should get its instances", threads, seen.size());
+        for (Object[] instances : seen) {
+            assertSame("ReservationSystem should be shared", ReservationSystem.getInstance(), instances[0]);
+            assertSame("BookingController should be shared", BookingController.getInstance(), instances[1]);
+            assertSame("BookingRepository should be shared", BookingRepository.getInstance(), instances[2]);
+            assertSame("PaymentService should be shared", PaymentService.getInstance(), instances[3]);
+        }
+    }
+    
     @Test
     public void testReservationSystem_CreateUserForLogin_Success() throws Exception {
         ReservationSystem system = ReservationSystem.getInstance();
@@ -397,6 +439,338 @@ public class ReservationSystemTest {
         }
     }
     
+    @Test
+    public void testReservationSystem_SuggestAlternatives() throws Exception {
+        ReservationSystem system = ReservationSystem.getInstance();
+        Student student = new Student("suggestuser@yorku.ca", "password123", "12345678");
+        userCSV.write(student);
+        
+        Room requested = new Room(15, "BuildingSuggest", "SUGG01");
+        Room larger = new Room(20, "BuildingSuggest", "SUGG02");
+        Room smaller = new Room(10, "BuildingSuggest", "SUGG03");
+        roomCSV.write(requested);
+        roomCSV.write(larger);
+        roomCSV.write(smaller);
+        
+        String futureDate = getFutureDate();
+        Booking existing = system.createBooking(student, 1, 10.0, "SUGG01", futureDate, "10:00", "11:00");
+        try {
+            try {
+                system.createBooking(student, 1, 10.0, "SUGG01", futureDate, "10:00", "11:00");
+                fail("Should throw BookingConflictException for time conflict");
+            } catch (BookingConflictException e) {
+                assertEquals("Conflict should carry the room", "SUGG01", e.getRoomNumber());
+                assertEquals("Conflict should carry the start time", "10:00", e.getStartTime());
+            }
+            
+            List<AvailabilitySearch.Result> suggestions = system.suggestAlternatives("SUGG01", futureDate, "10:00", 1, 4);
+            assertEquals("Should return k suggestions", 4, suggestions.size());
+            assertEquals("Same time in a comparable room should come first",
+                         "SUGG02 10:00", suggestions.get(0).getRoom().getRoomNumber() + " " + suggestions.get(0).getStartTime());
+            assertEquals("Then the nearest half hours",
+                         "SUGG02 09:30", suggestions.get(1).getRoom().getRoomNumber() + " " + suggestions.get(1).getStartTime());
+            assertEquals("SUGG02 10:30", suggestions.get(2).getRoom().getRoomNumber() + " " + suggestions.get(2).getStartTime());
+            assertEquals("The requested room should win a tie",
+                         "SUGG01 09:00", suggestions.get(3).getRoom().getRoomNumber() + " " + suggestions.get(3).getStartTime());
+            for (AvailabilitySearch.Result suggestion : suggestions) {
+                assertNotEquals("Smaller rooms should not be suggested", "SUGG03", suggestion.getRoom().getRoomNumber());
+                assertEquals("Suggestions should be on the requested day",
+                             BookingTime.parseDay(futureDate), suggestion.getDay());
+            }
+            
+            assertTrue("Unknown room should have no suggestions",
+                       system.suggestAlternatives("NOSUCHROOM", futureDate, "10:00", 1, 4).isEmpty());
+        } finally {
+            bookingCSV.deleteBooking(existing.getBookingId());
+            roomCSV.delete(requested.getRoomId());
+            roomCSV.delete(larger.getRoomId());
+            roomCSV.delete(smaller.getRoomId());
+        }
+    }
+    
+    @Test
+    public void testReservationSystem_CreateBookings_SavesWholeBatch() throws Exception {
+        ReservationSystem system = ReservationSystem.getInstance();
+        Student student = new Student("batchuser@yorku.ca", "password123", "12345678");
+        userCSV.write(student);
+        Room first = new Room(30, "BuildingBatch", "BATCH01");
+        Room second = new Room(30, "BuildingBatch", "BATCH02");
+        roomCSV.write(first);
+        roomCSV.write(second);
+        String futureDate = getFutureDate();
+        
+        List<Booking> created = system.createBookings(java.util.Arrays.asList(
+            new BookingRequest(student, 2, 10.0, "BATCH01", futureDate, "13:00", "15:00"),
+            new BookingRequest(student, 2, 10.0, "BATCH02", futureDate, "13:00", "15:00")));
+        try {
+            assertEquals("Both bookings should be created", 2, created.size());
+            for (Booking booking : created) {
+                assertNotNull("Booking should be saved", bookingCSV.findById(booking.getBookingId()));
+                assertNotNull("Booking should be kept in memory", system.findBooking(booking.getBookingId()));
+            }
+            assertEquals("Room should carry its booking", created.get(1).getBookingId(),
+                         roomCSV.findById(second.getRoomId()).getBookingId());
+        } finally {
+            for (Booking booking : created) {
+                bookingCSV.deleteBooking(booking.getBookingId());
+            }
+            roomCSV.delete(first.getRoomId());
+            roomCSV.delete(second.getRoomId());
+        }
+    }
+    
+    @Test
+    public void testReservationSystem_CreateBookings_KeepsRequestedEndTime() throws Exception {
+        ReservationSystem system = ReservationSystem.getInstance();
+        Student student = new Student("batchuser@yorku.ca", "password123", "12345678");
+        userCSV.write(student);
+        Room room = new Room(30, "BuildingBatch", "BATCH05");
+        roomCSV.write(room);
+        String futureDate = getFutureDate();
+        
+        List<Booking> created = system.createBookings(java.util.Arrays.asList(
+            new BookingRequest(student, 3, 10.0, "BATCH05", futureDate, "09:00", "12:00")));
+        try {
+            Booking stored = bookingCSV.findById(created.get(0).getBookingId());
+            assertNotNull("Booking should be saved", stored);
+            assertEquals("Stored booking should keep all three hours", "12:00", stored.getBookingEndTime());
+            assertTrue("Last hour should be booked",
+                       bookingCSV.hasTimeConflict("BATCH05", futureDate, "11:00", "12:00"));
+        } finally {
+            for (Booking booking : created) {
+                bookingCSV.deleteBooking(booking.getBookingId());
+            }
+            roomCSV.delete(room.getRoomId());
+        }
+    }
+    
+    @Test
+    public void testReservationSystem_CreateBookings_ConflictSavesNothing() throws Exception {
+        ReservationSystem system = ReservationSystem.getInstance();
+        Student student = new Student("batchuser@yorku.ca", "password123", "12345678");
+        userCSV.write(student);
+        Room first = new Room(30, "BuildingBatch", "BATCH03");
+        Room second = new Room(30, "BuildingBatch", "BATCH04");
+        roomCSV.write(first);
+        roomCSV.write(second);
+        String futureDate = getFutureDate();
+        
+        try {
+            try {
+                // Two requests for overlapping times in the same room clash with each other
+                system.createBookings(java.util.Arrays.asList(
+                    new BookingRequest(student, 1, 10.0, "BATCH03", futureDate, "09:00", "10:00"),
+                    new BookingRequest(student, 2, 10.0, "BATCH04", futureDate, "09:00", "11:00"),
+                    new BookingRequest(student, 1, 10.0, "BATCH04", futureDate, "10:00", "11:00")));
+                fail("Should throw BookingConflictException for overlapping requests");
+            } catch (BookingConflictException e) {
+                assertEquals("Conflict should name the clashing request", "10:00", e.getStartTime());
+            }
+            assertNull("No room should be booked", roomCSV.findById(first.getRoomId()).getBookingId());
+            assertNull("No room should be booked", roomCSV.findById(second.getRoomId()).getBookingId());
+            assertFalse("No booking should be saved",
+                        bookingCSV.hasTimeConflict("BATCH03", futureDate, "09:00", "10:00"));
+        } finally {
+            roomCSV.delete(first.getRoomId());
+            roomCSV.delete(second.getRoomId());
+        }
+    }
+    
+    @Test
+    public void testReservationSystem_CreateRecurringBooking_OneRowBlocksEveryMeeting() throws Exception {
+        ReservationSystem system = ReservationSystem.getInstance();
+        Student student = new Student("seriesuser@yorku.ca", "password123", "12345678");
+        userCSV.write(student);
+        Room room = new Room(30, "BuildingSeries", "SERIES01");
+        roomCSV.write(room);
+        String firstDate = getFutureDate();
+        String thirdDate = LocalDate.parse(firstDate).plusWeeks(2).toString();
+        
+        Booking series = system.createRecurringBooking(student, 1, 10.0, "SERIES01", firstDate,
+                                                       "14:00", "15:00", RecurrenceRule.count(1, 4));
+        try {
+            assertTrue("Booking should be recurring", series.isRecurring());
+            int rows = 0;
+            for (Booking booking : bookingCSV.findAll()) {
+                if (booking.getBookingId().equals(series.getBookingId())) {
+                    rows++;
+                    assertTrue("Stored row should carry the rule", booking.isRecurring());
+                }
+            }
+            assertEquals("Series should be stored as one row", 1, rows);
+            assertTrue("Third meeting should be booked",
+                       bookingCSV.hasTimeConflict("SERIES01", thirdDate, "14:30", "15:30"));
+            assertFalse("Week after the last meeting should be free",
+                        bookingCSV.hasTimeConflict("SERIES01", LocalDate.parse(firstDate).plusWeeks(4).toString(),
+                                                   "14:00", "15:00"));
+            assertEquals("Meeting should show on the room's schedule", 1,
+                         bookingCSV.getBookingsForRoomAndDate("SERIES01", thirdDate).size());
+            
+            assertTrue("Meeting should cancel", system.cancelOccurrence(series.getBookingId(), thirdDate));
+            assertFalse("Cancelled meeting should free the slot",
+                        bookingCSV.hasTimeConflict("SERIES01", thirdDate, "14:00", "15:00"));
+            assertTrue("Other meetings should stay booked",
+                       bookingCSV.hasTimeConflict("SERIES01", firstDate, "14:00", "15:00"));
+            assertFalse("A day without a meeting can't be cancelled",
+                        system.cancelOccurrence(series.getBookingId(), thirdDate));
+        } finally {
+            bookingCSV.deleteBooking(series.getBookingId());
+            roomCSV.delete(room.getRoomId());
+        }
+    }
+    
+    @Test
+    public void testReservationSystem_CancelOccurrence_KeepsOtherCancellations() throws Exception {
+        ReservationSystem system = ReservationSystem.getInstance();
+        Student student = new Student("seriesuser@yorku.ca", "password123", "12345678");
+        userCSV.write(student);
+        Room room = new Room(30, "BuildingSeries", "SERIES04");
+        roomCSV.write(room);
+        String firstDate = getFutureDate();
+        String secondDate = LocalDate.parse(firstDate).plusWeeks(1).toString();
+        String thirdDate = LocalDate.parse(firstDate).plusWeeks(2).toString();
+        
+        Booking series = system.createRecurringBooking(student, 1, 10.0, "SERIES04", firstDate,
+                                                       "09:00", "10:00", RecurrenceRule.count(1, 4));
+        try {
+            // Someone else cancels the second meeting; the system's cached copy doesn't know
+            Booking stored = bookingCSV.findById(series.getBookingId());
+            RecurrenceRule otherRule = stored.getRecurrence().withException(BookingTime.parseDay(secondDate));
+            assertTrue(bookingCSV.updateRecurrence(series.getBookingId(), otherRule, stored.getVersion()));
+            
+            assertTrue("Meeting should cancel", system.cancelOccurrence(series.getBookingId(), thirdDate));
+            assertFalse("Other cancellation should be kept",
+                        bookingCSV.hasTimeConflict("SERIES04", secondDate, "09:00", "10:00"));
+            assertFalse("Own cancellation should be saved",
+                        bookingCSV.hasTimeConflict("SERIES04", thirdDate, "09:00", "10:00"));
+            
+            Booking cached = system.findBooking(series.getBookingId());
+            assertEquals("Cache should hold the saved version",
+                         bookingCSV.findById(series.getBookingId()).getVersion(), cached.getVersion());
+            assertFalse("Cache should know about both cancellations",
+                        cached.getRecurrence().occursOn(cached.getBookingDay(), BookingTime.parseDay(secondDate)));
+        } finally {
+            bookingCSV.deleteBooking(series.getBookingId());
+            roomCSV.delete(room.getRoomId());
+        }
+    }
+    
+    @Test
+    public void testReservationSystem_CreateRecurringBooking_KeepsRequestedEndTime() throws Exception {
+        ReservationSystem system = ReservationSystem.getInstance();
+        Student student = new Student("seriesuser@yorku.ca", "password123", "12345678");
+        userCSV.write(student);
+        Room room = new Room(30, "BuildingSeries", "SERIES03");
+        roomCSV.write(room);
+        String firstDate = getFutureDate();
+        String secondDate = LocalDate.parse(firstDate).plusWeeks(1).toString();
+        
+        Booking series = system.createRecurringBooking(student, 2, 10.0, "SERIES03", firstDate,
+                                                       "14:00", "16:00", RecurrenceRule.count(1, 3));
+        try {
+            Booking stored = bookingCSV.findById(series.getBookingId());
+            assertNotNull("Series should be saved", stored);
+            assertEquals("Stored series should keep both hours", "16:00", stored.getBookingEndTime());
+            assertTrue("Second hour of a later meeting should be booked",
+                       bookingCSV.hasTimeConflict("SERIES03", secondDate, "15:00", "16:00"));
+        } finally {
+            bookingCSV.deleteBooking(series.getBookingId());
+            roomCSV.delete(room.getRoomId());
+        }
+    }
+    
+    @Test
+    public void testReservationSystem_FindSeriesConflict_RejectsInvalidDate() {
+        try {
+            bookingCSV.findSeriesConflict("SERIES04", "not-a-date", RecurrenceRule.count(1, 3), "14:00", "15:00");
+            fail("An invalid first date should not pass as conflict-free");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+    
+    @Test
+    public void testReservationSystem_CreateRecurringBooking_ConflictOnLaterMeeting() throws Exception {
+        ReservationSystem system = ReservationSystem.getInstance();
+        Student student = new Student("seriesuser@yorku.ca", "password123", "12345678");
+        userCSV.write(student);
+        Room room = new Room(30, "BuildingSeries", "SERIES02");
+        roomCSV.write(room);
+        String firstDate = getFutureDate();
+        String laterDate = LocalDate.parse(firstDate).plusWeeks(2).toString();
+        Booking existing = system.createBooking(student, 1, 10.0, "SERIES02", laterDate, "14:00", "15:00");
+        
+        try {
+            system.createRecurringBooking(student, 1, 10.0, "SERIES02", firstDate,
+                                          "14:00", "15:00", RecurrenceRule.count(1, 4));
+            fail("Should throw BookingConflictException for the clashing meeting");
+        } catch (BookingConflictException e) {
+            assertEquals("Conflict should name the clashing meeting", laterDate, e.getBookingDate());
+            assertFalse("Nothing should be booked for the series",
+                        bookingCSV.hasTimeConflict("SERIES02", firstDate, "14:00", "15:00"));
+        } finally {
+            bookingCSV.deleteBooking(existing.getBookingId());
+            roomCSV.delete(room.getRoomId());
+        }
+    }
+    
+    @Test
+    public void testReservationSystem_CreateBooking_ConcurrentRequestsNeverDoubleBook() throws Exception {
+        ReservationSystem system = ReservationSystem.getInstance();
+        Student student = new Student("concurrentuser@yorku.ca", "password123", "12345678");
+        userCSV.write(student);
+        int threads = 32;
+        int roomCount = 8;
+        List<Room> rooms = new ArrayList<>();
+        for (int i = 0; i < roomCount; i++) {
+            Room room = new Room(30, "BuildingConcurrent", "CONC0" + i);
+            roomCSV.write(room);
+            rooms.add(room);
+        }
+        String futureDate = getFutureDate();
+        
+        // Every room gets threads / roomCount requests for the same slot, all released at once
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger conflicts = new AtomicInteger();
+        List<Booking> created = Collections.synchronizedList(new ArrayList<>());
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                String roomNumber = rooms.get(t % roomCount).getRoomNumber();
+                pool.execute(() -> {
+                    try {
+                        start.await();
+                        created.add(system.createBooking(student, 1, 10.0, roomNumber, futureDate, "10:00", "11:00"));
+                    } catch (BookingConflictException e) {
+                        conflicts.incrementAndGet();
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                });
+            }
+            start.countDown();
+            pool.shutdown();
+            assertTrue("Requests should finish", pool.awaitTermination(60, TimeUnit.SECONDS));
+            
+            assertTrue("No request should fail unexpectedly: " + errors, errors.isEmpty());
+            assertEquals("Exactly one booking per room should succeed", roomCount, created.size());
+            assertEquals("Every other request should conflict", threads - roomCount, conflicts.get());
+            for (Room room : rooms) {
+                assertEquals("Room " + room.getRoomNumber() + " should have a single booking", 1,
+                             bookingCSV.getBookingsForRoomAndDate(room.getRoomNumber(), futureDate).size());
+            }
+        } finally {
+            pool.shutdownNow();
+            for (Booking booking : created) {
+                bookingCSV.deleteBooking(booking.getBookingId());
+            }
+            for (Room room : rooms) {
+                roomCSV.delete(room.getRoomId());
+            }
+        }
+    }
+    
     @Test
     public void testReservationSystem_FindBooking_InMemory() throws Exception {
         ReservationSystem system = ReservationSystem.getInstance();
@@ -478,6 +852,64 @@ public class ReservationSystemTest {
         assertEquals("Status should be InUse", "InUse", checkedIn.getStatus());
     }
     
+    @Test
+    public void testReservationSystem_CheckIn_KeepsConcurrentChange() throws Exception {
+        ReservationSystem system = ReservationSystem.getInstance();
+        Student student = new Student("checkinuser@yorku.ca", "password123", "12345678");
+        userCSV.write(student);
+        
+        Room checkInRoom = new Room(15, "BuildingCheckIn", "CHECKIN002");
+        roomCSV.write(checkInRoom);
+        
+        String futureDate = getFutureDate();
+        Booking booking = system.createBooking(student, 1, 10.0, checkInRoom.getRoomNumber(),
+                                               futureDate, "10:00", "11:00");
+        try {
+            // Extended by someone else after the system cached its copy
+            BookingRepository repository = BookingRepository.getInstance();
+            Booking other = repository.findById(booking.getBookingId());
+            other.setBookingEndTime("12:00");
+            repository.update(other);
+            
+            assertTrue("Check-in should succeed on a fresh copy", system.checkIn(booking.getBookingId(), student.getEmail()));
+            Booking stored = bookingCSV.findById(booking.getBookingId());
+            assertEquals("Status should be InUse", "InUse", stored.getStatus());
+            assertEquals("Check-in should not undo the extension", "12:00", stored.getBookingEndTime());
+        } finally {
+            bookingCSV.deleteBooking(booking.getBookingId());
+            roomCSV.delete(checkInRoom.getRoomId());
+        }
+    }
+    
+    @Test
+    public void testReservationSystem_CheckIn_ChecksInTheBookedRoomOnly() throws Exception {
+        ReservationSystem system = ReservationSystem.getInstance();
+        Student student = new Student("checkinuser@yorku.ca", "password123", "12345678");
+        userCSV.write(student);
+        
+        // Written first, and its location contains the booked room's number
+        Room longerRoom = new Room(15, "BuildingCheckIn", "CI1010");
+        roomCSV.write(longerRoom);
+        Room bookedRoom = new Room(15, "BuildingCheckIn", "CI10");
+        roomCSV.write(bookedRoom);
+        
+        String futureDate = getFutureDate();
+        Booking other = system.createBooking(student, 1, 10.0, "CI1010", futureDate, "09:00", "10:00");
+        Booking booking = system.createBooking(student, 1, 10.0, "CI10", futureDate, "10:00", "11:00");
+        try {
+            assertTrue("Check-in should succeed", system.checkIn(booking.getBookingId(), student.getEmail()));
+            assertEquals("Booked room should be checked in", "InUse",
+                         roomCSV.findById(bookedRoom.getRoomId()).getCondition());
+            assertEquals("Room with a longer number should be left alone", "Reserved",
+                         roomCSV.findById(longerRoom.getRoomId()).getCondition());
+        } finally {
+            bookingCSV.deleteBooking(booking.getBookingId());
+            bookingCSV.deleteBooking(other.getBookingId());
+            roomCSV.delete(bookedRoom.getRoomId());
+            roomCSV.delete(longerRoom.getRoomId());
+        }
+    }
+    
     @Test
     public void testReservationSystem_CheckIn_BookingNotFound() {
         ReservationSystem system = ReservationSystem.getInstance();
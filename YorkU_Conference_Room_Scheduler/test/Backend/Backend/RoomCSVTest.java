@@ -467,6 +467,94 @@ public class RoomCSVTest {
         assertEquals("Room2 should remain unchanged", room2.getCondition(), updated2.getCondition());
     }
     
+    @Test
+    public void testRoomCSV_FindByRoomNumber() throws Exception {
+        String roomNumber = "NUM" + UUID.randomUUID().toString().substring(0, 6);
+        Room newRoom = new Room(25, "BuildingCSV17", roomNumber);
+        roomCSV.write(newRoom);
+        
+        Room found = roomCSV.findByRoomNumber(roomNumber);
+        assertNotNull("Room should be found by number", found);
+        assertEquals("Room ID should match", newRoom.getRoomId(), found.getRoomId());
+        assertNull("Unknown room number should return null", roomCSV.findByRoomNumber("NUM-NONE"));
+        assertNull("Null room number should return null", roomCSV.findByRoomNumber(null));
+    }
+    
+    @Test
+    public void testRoomCSV_FindById_ReturnsCopy() throws Exception {
+        Room newRoom = new Room(35, "BuildingCSV18", "CSV018");
+        roomCSV.write(newRoom);
+        
+        Room first = roomCSV.findById(newRoom.getRoomId());
+        first.getRoomContext().setState(InUseState.getInstance());
+        
+        Room second = roomCSV.findById(newRoom.getRoomId());
+        assertNotSame("Each lookup should return its own copy", first, second);
+        assertEquals("Unsaved changes should not leak into the catalog", "Available", second.getCondition());
+        
+        roomCSV.update(first);
+        assertEquals("Saved changes should be visible", "InUse", roomCSV.findById(newRoom.getRoomId()).getCondition());
+    }
+
+    @Test
+    public void testRoomCSV_ApplyBatch_ReturnsUndoOfSavedState() throws Exception {
+        Room existing = new Room(40, "BuildingCSV20", "CSV020");
+        roomCSV.write(existing);
+        Room added = new Room(40, "BuildingCSV20", "CSV021");
+        try {
+            Room changed = roomCSV.findById(existing.getRoomId());
+            changed.getRoomContext().setState(MaintenanceState.getInstance());
+            List<UnitOfWork.RoomChange> undo = roomCSV.applyBatch(java.util.Arrays.asList(
+                new UnitOfWork.RoomChange(RoomCSV.STATE, changed),
+                new UnitOfWork.RoomChange(RoomCSV.ADD, added)));
+            assertEquals("One undo per saved change", 2, undo.size());
+            assertEquals("Maintenance", roomCSV.findById(existing.getRoomId()).getCondition());
+
+            roomCSV.applyBatch(undo);
+            assertEquals("Undo should restore the state saved before the batch", "Available",
+                         roomCSV.findById(existing.getRoomId()).getCondition());
+            assertNull("Undo should remove the added room", roomCSV.findById(added.getRoomId()));
+        } finally {
+            roomCSV.delete(existing.getRoomId());
+            roomCSV.delete(added.getRoomId());
+        }
+    }
+
+    @Test
+    public void testRoomCSV_Update_LoggedThenCheckpointed() throws Exception {
+        Room newRoom = new Room(40, "BuildingCSV19", "CSV019");
+        roomCSV.write(newRoom);
+        roomCSV.checkpoint();
+
+        File roomFile = new File("../RoomDatabase.csv");
+        long sizeBefore = roomFile.length();
+        Room room = roomCSV.findById(newRoom.getRoomId());
+        room.getRoomContext().setState(MaintenanceState.getInstance());
+        roomCSV.update(room);
+        room.getRoomContext().setState(AvailableState.getInstance());
+        room.getRoomContext().setState(InUseState.getInstance());
+        roomCSV.update(room);
+
+        assertEquals("State changes should not rewrite the catalog file", sizeBefore, roomFile.length());
+        assertEquals("Latest state should be visible before the checkpoint", "InUse",
+                     roomCSV.findById(newRoom.getRoomId()).getCondition());
+
+        assertTrue("Checkpoint should rewrite the catalog", roomCSV.checkpoint());
+        assertFalse("Nothing left to checkpoint", roomCSV.checkpoint());
+
+        boolean found = false;
+        com.csvreader.CsvReader csvRead = new com.csvreader.CsvReader("../RoomDatabase.csv");
+        csvRead.readHeaders();
+        while (csvRead.readRecord()) {
+            if (csvRead.get("Room ID").equals(newRoom.getRoomId().toString())) {
+                found = true;
+                assertEquals("Catalog file should hold the latest state", "InUse", csvRead.get("Condition"));
+            }
+        }
+        csvRead.close();
+        assertTrue("Room should be in the catalog file after the checkpoint", found);
+    }
+
     @Test
     public void testRoomCSV_FindAll_EmptyFile() throws Exception {
         File originalFile = new File(TEST_ROOM_PATH);
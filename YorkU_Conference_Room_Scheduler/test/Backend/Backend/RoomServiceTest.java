@@ -316,6 +316,27 @@ public class RoomServiceTest {
         assertNotNull("Should return list", available);
     }
     
+    @Test
+    public void testRoomService_GetAvailableRooms_WithTimeFilter_SortedByCapacityFit() throws Exception {
+        String futureDate = getFutureDate();
+        String building = "SortBuilding" + UUID.randomUUID().toString().substring(0, 8);
+        RoomService roomService = new RoomService();
+        Room large = roomService.addRoom(30, building, "S" + UUID.randomUUID().toString().substring(0, 6));
+        Room small = roomService.addRoom(10, building, "S" + UUID.randomUUID().toString().substring(0, 6));
+        Room booked = roomService.addRoom(15, building, "S" + UUID.randomUUID().toString().substring(0, 6));
+        
+        Booking booking = new Booking("SORT" + UUID.randomUUID().toString().substring(0, 6), testUser, 1, 
+                                      testUser.getHourlyRate(), booked.getRoomNumber(), futureDate, "10:00", "11:00");
+        bookingCSV.write(booking);
+        
+        List<Room> available = roomService.getAvailableRooms(5, building, futureDate, "10:00", "11:00");
+        assertEquals("Booked room should be excluded", 2, available.size());
+        assertEquals("Smallest fitting room should come first", small.getRoomId(), available.get(0).getRoomId());
+        assertEquals("Larger room should come second", large.getRoomId(), available.get(1).getRoomId());
+        
+        bookingCSV.deleteBooking(booking.getBookingId());
+    }
+    
     @Test
     public void testRoomService_IsRoomAvailableForTime_Available() throws Exception {
         String futureDate = getFutureDate();
@@ -419,6 +440,90 @@ public class RoomServiceTest {
         //assertEquals("Room should be Available", "Available", updated.getCondition());
     }
     
+    @Test
+    public void testRoomService_CheckInCheckOut_StoresBookingStatus() throws Exception {
+        RoomService roomService = new RoomService();
+        Room newRoom = roomService.addRoom(15, "BuildingStatus", "STAT01");
+        Booking booking = ReservationSystem.getInstance().createBooking(testUser, 1, testUser.getHourlyRate(),
+                                                                        "STAT01", getFutureDate(), "10:00", "11:00");
+        
+        assertTrue("Should check in successfully", roomService.checkIn(newRoom.getRoomId()));
+        assertEquals("Booking should be stored as InUse", "InUse",
+                     bookingCSV.findById(booking.getBookingId()).getStatus());
+        
+        assertTrue("Should check out successfully", roomService.checkOut(newRoom.getRoomId()));
+        assertEquals("Booking should be stored as Completed", "Completed",
+                     bookingCSV.findById(booking.getBookingId()).getStatus());
+        
+        bookingCSV.deleteBooking(booking.getBookingId());
+        roomCSV.delete(newRoom.getRoomId());
+    }
+    
+    @Test
+    public void testRoomService_SlotOccupancy() throws Exception {
+        RoomService roomService = new RoomService();
+        Room newRoom = roomService.addRoom(15, "BuildingSlots", "SLOT01");
+        String futureDate = getFutureDate();
+        Booking booking = ReservationSystem.getInstance().createBooking(testUser, 1, testUser.getHourlyRate(),
+                                                                        "SLOT01", futureDate, "10:00", "11:00");
+        
+        assertFalse("10:00 should be taken", roomService.isSlotFree("SLOT01", futureDate, "10:00"));
+        assertFalse("10:30 should be taken", roomService.isSlotFree("SLOT01", futureDate, "10:30"));
+        assertTrue("11:00 should be free", roomService.isSlotFree("SLOT01", futureDate, "11:00"));
+        assertEquals("Free slots should skip the booking",
+                     java.util.Arrays.asList("09:00", "09:30", "11:00", "11:30"),
+                     roomService.getFreeSlots("SLOT01", futureDate, "09:00", "12:00"));
+        assertFalse("Room should not be free at 10:00",
+                    roomService.getRoomsFreeAt(futureDate, "10:00").stream()
+                               .anyMatch(room -> room.getRoomId().equals(newRoom.getRoomId())));
+        assertTrue("Room should be free at 11:00",
+                   roomService.getRoomsFreeAt(futureDate, "11:00").stream()
+                              .anyMatch(room -> room.getRoomId().equals(newRoom.getRoomId())));
+        
+        bookingCSV.deleteBooking(booking.getBookingId());
+        assertTrue("Slot should be free once the booking is deleted",
+                   roomService.isSlotFree("SLOT01", futureDate, "10:00"));
+        roomCSV.delete(newRoom.getRoomId());
+    }
+    
+    @Test
+    public void testRoomService_AvailabilityGrid() throws Exception {
+        RoomService roomService = new RoomService();
+        Room first = roomService.addRoom(15, "BuildingGrid", "GRID01");
+        Room second = roomService.addRoom(15, "BuildingGrid", "GRID02");
+        roomService.disableRoom(second.getRoomId());
+        LocalDate start = LocalDate.now().plusDays(7);
+        String fromDate = start.format(DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+        String bookedDate = start.plusDays(1).format(DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+        String toDate = start.plusDays(6).toString(); // Either date format is accepted
+        Booking booking = ReservationSystem.getInstance().createBooking(testUser, 1, testUser.getHourlyRate(),
+                                                                        "GRID01", bookedDate, "10:00", "11:00");
+        
+        AvailabilityGrid grid = roomService.getAvailabilityGrid("BuildingGrid", fromDate, toDate, 30);
+        assertEquals("Grid should have both rooms", 2, grid.getRooms().size());
+        assertEquals("Rooms should be sorted by number", "GRID01", grid.getRooms().get(0).getRoomNumber());
+        assertEquals("Grid should cover a week", 7, grid.getDayCount());
+        assertEquals("Second column should be the booked date", bookedDate, grid.getDate(1));
+        
+        int tenOClock = SlotGrid.HALF_HOUR.slotOf(10 * 60);
+        assertFalse("Booked slot should be taken", grid.isFree(0, 1, tenOClock));
+        assertTrue("Same slot on another day should be free", grid.isFree(0, 0, tenOClock));
+        assertEquals("Booked day should lose two slots", 46, grid.countFree(0, 1));
+        assertEquals("Disabled room should have no free slots", 0, grid.countFree(1, 0));
+        
+        AvailabilityGrid quarterHours = roomService.getAvailabilityGrid("BuildingGrid", fromDate, toDate, 15);
+        assertEquals("Booking should take four quarter-hour slots", 60, quarterHours.countFree(0, 1));
+        
+        bookingCSV.deleteBooking(booking.getBookingId());
+        roomCSV.delete(first.getRoomId());
+        roomCSV.delete(second.getRoomId());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testRoomService_AvailabilityGrid_BackwardsRange() {
+        new RoomService().getAvailabilityGrid("BuildingA", "10/12/2025", "08/12/2025", 30);
+    }
+    
     @Test
     public void testRoomService_CheckOut_RoomNotFound() {
         RoomService roomService = new RoomService();
@@ -0,0 +1,47 @@
+package Backend;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.Arrays;
+
+public class SlotGridTest {
+
+    @Test
+    public void testMask_HalfHourSlots() {
+        SlotGrid grid = SlotGrid.HALF_HOUR;
+        long slots = grid.mask(10 * 60, 11 * 60);
+        assertEquals("10:00-11:00 should take two slots", 2, Long.bitCount(slots));
+        assertFalse("10:00 slot should be taken", SlotGrid.isFree(slots, grid.slotOf(10 * 60)));
+        assertFalse("10:30 slot should be taken", SlotGrid.isFree(slots, grid.slotOf(10 * 60 + 30)));
+        assertTrue("11:00 slot should be free (end is exclusive)", SlotGrid.isFree(slots, grid.slotOf(11 * 60)));
+        assertEquals("Partly covered slots should count as taken", 2, Long.bitCount(grid.mask(10 * 60 + 15, 11 * 60)));
+    }
+
+    @Test
+    public void testMask_QuarterHourSlotsAreClippedToCoveredHours() {
+        SlotGrid grid = SlotGrid.QUARTER_HOUR;
+        assertEquals("10:00-11:00 should take four slots", 4, Long.bitCount(grid.mask(10 * 60, 11 * 60)));
+        assertEquals("Nothing before 07:00 is covered", 0L, grid.mask(5 * 60, 6 * 60));
+        assertEquals("Whole day should fill the grid", grid.allSlots(), grid.mask(0, BookingTime.MINUTES_PER_DAY));
+        assertEquals("Outside the covered hours there is no slot", -1, grid.slotOf(6 * 60));
+    }
+
+    @Test
+    public void testMask_EndBeforeStartRunsToMidnight() {
+        SlotGrid grid = SlotGrid.HALF_HOUR;
+        assertEquals(grid.mask(23 * 60, BookingTime.MINUTES_PER_DAY), grid.mask(23 * 60, 60));
+    }
+
+    @Test
+    public void testFreeSlots() {
+        SlotGrid grid = SlotGrid.HALF_HOUR;
+        long occupancy = grid.mask(9 * 60 + 30, 10 * 60 + 30);
+        assertEquals(Arrays.asList("09:00", "10:30", "11:00", "11:30"),
+                     grid.freeSlots(occupancy, 9 * 60, 12 * 60));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOf_RejectsOtherSlotLengths() {
+        SlotGrid.of(20);
+    }
+}
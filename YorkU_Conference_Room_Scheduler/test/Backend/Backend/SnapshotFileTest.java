@@ -0,0 +1,79 @@
+package Backend;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+public class SnapshotFileTest {
+
+    private static final String TEST_PATH = "TestSnapshot.snap";
+    private static final String STATE = "100@12345|40@678";
+    private static final String[] COLUMNS = { "ID", "Room ID", "Capacity", "Date", "Start", "Name" };
+    private static final byte[] KINDS = {
+        SnapshotFile.TEXT, SnapshotFile.UUID_VALUE, SnapshotFile.NUMBER, SnapshotFile.DATE, SnapshotFile.TIME,
+        SnapshotFile.TEXT
+    };
+
+    private static final String[][] ROWS = {
+        { "B1", "54fdb95f-e29d-4c15-831f-08428b6774d2", "10", "08/12/2026", "09:30", "Café, \"Main\"" },
+        { "B2", "54FDB95F-E29D-4C15-831F-08428B6774D2", "010", "2026-12-08", "9:30", "" },
+        { "", "not-a-uuid", "many", "yesterday", "noon", "Ross" }
+    };
+
+    @Before
+    public void setUp() {
+        tearDown();
+    }
+
+    @After
+    public void tearDown() {
+        new File(TEST_PATH).delete();
+        new File(TEST_PATH + ".tmp").delete();
+    }
+
+    @Test
+    public void testWriteAndRead_RowsComeBackExactly() throws Exception {
+        SnapshotFile.write(TEST_PATH, STATE, COLUMNS, KINDS, Arrays.asList(ROWS));
+        List<String[]> rows = SnapshotFile.read(TEST_PATH, STATE, COLUMNS, KINDS);
+        assertNotNull("Snapshot should be readable", rows);
+        assertEquals(ROWS.length, rows.size());
+        for (int i = 0; i < ROWS.length; i++) {
+            // Values that don't pack (upper-case UUID, leading zero, one-digit hour) keep their text
+            assertArrayEquals("Row " + i + " should read back unchanged", ROWS[i], rows.get(i));
+        }
+    }
+
+    @Test
+    public void testRead_StaleOrDifferentColumnsIsIgnored() throws Exception {
+        SnapshotFile.write(TEST_PATH, STATE, COLUMNS, KINDS, Arrays.asList(ROWS));
+        assertNull("Snapshot of other files is stale", SnapshotFile.read(TEST_PATH, "101@12346|40@678", COLUMNS, KINDS));
+        assertNull("Missing files never match", SnapshotFile.read(TEST_PATH, null, COLUMNS, KINDS));
+        String[] renamed = COLUMNS.clone();
+        renamed[5] = "Building Name";
+        assertNull("Different columns", SnapshotFile.read(TEST_PATH, STATE, renamed, KINDS));
+        assertNull("Missing snapshot", SnapshotFile.read("NoSuchSnapshot.snap", STATE, COLUMNS, KINDS));
+    }
+
+    @Test
+    public void testRead_DamagedSnapshotIsIgnored() throws Exception {
+        SnapshotFile.write(TEST_PATH, STATE, COLUMNS, KINDS, Arrays.asList(ROWS));
+        try (RandomAccessFile raf = new RandomAccessFile(TEST_PATH, "rw")) {
+            raf.seek(raf.length() / 2);
+            int b = raf.read();
+            raf.seek(raf.length() / 2);
+            raf.write(b ^ 0x40);
+        }
+        assertNull("Checksum should catch the flipped bit", SnapshotFile.read(TEST_PATH, STATE, COLUMNS, KINDS));
+
+        try (RandomAccessFile raf = new RandomAccessFile(TEST_PATH, "rw")) {
+            raf.setLength(10);
+        }
+        assertNull("Truncated snapshot", SnapshotFile.read(TEST_PATH, STATE, COLUMNS, KINDS));
+    }
+}
@@ -0,0 +1,127 @@
+package Backend;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class UnitOfWorkTest {
+
+    private RoomCSV roomCSV;
+    private BookingCSV bookingCSV;
+    private User testUser;
+    private Room testRoom;
+
+    @Before
+    public void setUp() {
+        roomCSV = RoomCSV.getInstance();
+        bookingCSV = BookingCSV.getInstance();
+        testUser = new Student("uow@yorku.ca", "password123", "12345678");
+        testRoom = new Room(12, "UOW Building", "UOW101");
+        roomCSV.write(testRoom);
+    }
+
+    @After
+    public void tearDown() {
+        UnitOfWork leftOver = UnitOfWork.current();
+        if (leftOver != null) {
+            leftOver.rollback();
+        }
+        bookingCSV.deleteBooking("UOW001");
+        bookingCSV.deleteBooking("UOW002");
+        roomCSV.delete(testRoom.getRoomId());
+    }
+
+    private Booking booking(String bookingId) {
+        return new Booking(bookingId, testUser, 1, testUser.getHourlyRate(),
+                           "UOW101", "08/12/2025", "10:00", "11:00");
+    }
+
+    @Test
+    public void testCommit_SavesRoomAndBookingTogether() {
+        UnitOfWork work = UnitOfWork.begin();
+        try {
+            Room room = roomCSV.findById(testRoom.getRoomId());
+            room.getRoomContext().setState(ReservedState.getInstance());
+            roomCSV.update(room);
+            bookingCSV.write(booking("UOW001"));
+
+            assertEquals("Staged room state should be visible inside the unit of work",
+                         "Reserved", roomCSV.findById(testRoom.getRoomId()).getCondition());
+            assertNotNull("Staged booking should be visible inside the unit of work",
+                          bookingCSV.findById("UOW001"));
+            assertTrue("Commit should succeed", work.commit());
+        } finally {
+            work.close();
+        }
+
+        assertNull("Unit of work should be closed", UnitOfWork.current());
+        assertEquals("Room state should be saved", "Reserved",
+                     roomCSV.findById(testRoom.getRoomId()).getCondition());
+        assertNotNull("Booking should be saved", bookingCSV.findById("UOW001"));
+    }
+
+    @Test
+    public void testClose_WithoutCommitDiscardsChanges() {
+        UnitOfWork work = UnitOfWork.begin();
+        try {
+            Room room = roomCSV.findById(testRoom.getRoomId());
+            room.getRoomContext().setState(ReservedState.getInstance());
+            roomCSV.update(room);
+            bookingCSV.write(booking("UOW002"));
+        } finally {
+            work.close();
+        }
+
+        assertFalse("Closed unit of work should not be active", work.isActive());
+        assertEquals("Room state should not change", "Available",
+                     roomCSV.findById(testRoom.getRoomId()).getCondition());
+        assertNull("Booking should not be saved", bookingCSV.findById("UOW002"));
+        assertFalse("A closed unit of work cannot be committed", work.commit());
+    }
+
+    @Test
+    public void testBegin_JoinsOpenUnitOfWork() {
+        UnitOfWork outer = UnitOfWork.begin();
+        try {
+            UnitOfWork inner = UnitOfWork.begin();
+            try {
+                bookingCSV.write(booking("UOW001"));
+                assertNotNull("Inner changes should be staged in the open unit of work",
+                              outer.getStagedBooking("UOW001"));
+                assertTrue("Inner commit should succeed", inner.commit());
+            } finally {
+                inner.close();
+            }
+            assertTrue("Outer unit of work should still be open", outer.isActive());
+            outer.rollback();
+        } finally {
+            outer.close();
+        }
+
+        assertNull("Rolled back booking should not be saved", bookingCSV.findById("UOW001"));
+    }
+
+    @Test
+    public void testDeleteBooking_ClearsRoomInSameCommit() {
+        ReservationSystem.getInstance().createBooking(testUser, 1, testUser.getHourlyRate(),
+                                                      "UOW101", "08/12/2025", "13:00", "14:00");
+        Room booked = roomCSV.findById(testRoom.getRoomId());
+        assertNotNull("Room should carry the new booking", booked.getBookingId());
+
+        UnitOfWork work = UnitOfWork.begin();
+        try {
+            assertTrue("Delete should be staged", bookingCSV.deleteBooking(booked.getBookingId()));
+            assertNull("Deleted booking should be hidden inside the unit of work",
+                       bookingCSV.findById(booked.getBookingId()));
+            assertTrue("Commit should succeed", work.commit());
+        } finally {
+            work.close();
+        }
+
+        assertNull("Booking should be deleted", bookingCSV.findById(booked.getBookingId()));
+        Room cleared = roomCSV.findById(testRoom.getRoomId());
+        assertNull("Room booking info should be cleared", cleared.getBookingId());
+        assertEquals("Room should be available again", "Available", cleared.getCondition());
+    }
+}
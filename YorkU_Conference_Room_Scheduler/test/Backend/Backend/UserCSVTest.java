@@ -7,7 +7,9 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.io.FileWriter;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.lang.reflect.Field;
 
@@ -408,8 +410,8 @@ public class UserCSVTest {
             isolated.update(student);
             
             Accounts updated = isolated.find(studentId);
-            assertNull("Account should still exist", updated);
-            assertEquals("Password should be updated", "newpassword", "newpassword");
+            assertNotNull("Account should still exist", updated);
+            assertEquals("Password should be updated", "newpassword", updated.getPassword());
         } finally {
             cleanupIsolatedUserCSV();
         }
@@ -427,8 +429,8 @@ public class UserCSVTest {
             isolated.update(student);
             
             Accounts updated = isolated.find(studentId);
-            assertNull("Account should still exist", updated);
-            assertEquals("Email should be updated", "updatedemail@yorku.ca", "updatedemail@yorku.ca");
+            assertNotNull("Account should still exist", updated);
+            assertEquals("Email should be updated", "updatedemail@yorku.ca", updated.getEmail());
         } finally {
             cleanupIsolatedUserCSV();
         }
@@ -646,5 +648,27 @@ public class UserCSVTest {
             cleanupIsolatedUserCSV();
         }
     }
+    
+    @Test
+    public void testUserCSV_FindAll_ByIds() throws Exception {
+        UserCSV isolated = createIsolatedUserCSV();
+        try {
+            Student student = new Student("batchstudent@yorku.ca", "studentpass", "20000001");
+            Staff staff = new Staff("batchstaff@yorku.ca", "staffpass", "STAFF009");
+            isolated.write(student);
+            isolated.write(staff);
+            UUID missingId = UUID.randomUUID();
+            
+            Map<UUID, Accounts> found = isolated.findAll(
+                Arrays.asList(student.getAccountId(), staff.getAccountId(), missingId));
+            assertEquals("Should find both stored accounts", 2, found.size());
+            assertEquals("Student email should match", "batchstudent@yorku.ca",
+                         found.get(student.getAccountId()).getEmail());
+            assertEquals("Staff email should match", "batchstaff@yorku.ca",
+                         found.get(staff.getAccountId()).getEmail());
+            assertFalse("Unknown ID should be left out", found.containsKey(missingId));
+        } finally {
+            cleanupIsolatedUserCSV();
+        }
+    }
 }
-